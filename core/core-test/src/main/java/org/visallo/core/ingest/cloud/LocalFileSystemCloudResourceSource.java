@@ -0,0 +1,70 @@
+package org.visallo.core.ingest.cloud;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.visallo.core.exception.VisalloException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Serves the files of a local directory as a cloud destination for tests. The configuration names the
+ * directory and optionally the files to import, by default all of its files are imported.
+ * <pre><code>
+ * { "directory": "/tmp/import", "paths": [ "a.txt", "b.txt" ] }
+ * </code></pre>
+ */
+public class LocalFileSystemCloudResourceSource implements CloudResourceSource {
+    @Override
+    public Collection<CloudResourceSourceItem> getItems(JSONObject configuration) {
+        File directory = new File(configuration.getString("directory"));
+        List<CloudResourceSourceItem> items = new ArrayList<>();
+        JSONArray paths = configuration.optJSONArray("paths");
+        if (paths == null) {
+            File[] files = directory.listFiles(File::isFile);
+            if (files == null) {
+                throw new VisalloException("Could not list files of: " + directory.getAbsolutePath());
+            }
+            for (File file : files) {
+                items.add(new LocalFileSystemCloudResourceSourceItem(file));
+            }
+        } else {
+            for (int i = 0; i < paths.length(); i++) {
+                items.add(new LocalFileSystemCloudResourceSourceItem(new File(directory, paths.getString(i))));
+            }
+        }
+        return items;
+    }
+
+    private static class LocalFileSystemCloudResourceSourceItem implements CloudResourceSourceItem {
+        private final File file;
+
+        private LocalFileSystemCloudResourceSourceItem(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            try {
+                return new FileInputStream(file);
+            } catch (FileNotFoundException ex) {
+                throw new VisalloException("Could not open: " + file.getAbsolutePath(), ex);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return file.getName();
+        }
+
+        @Override
+        public Long getSize() {
+            return file.length();
+        }
+    }
+}
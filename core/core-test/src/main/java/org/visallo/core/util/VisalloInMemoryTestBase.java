@@ -467,7 +467,8 @@ public abstract class VisalloInMemoryTestBase {
                 getUserRepository(),
                 getWorkQueueRepository(),
                 getGraph(),
-                getAuthorizationRepository()
+                getAuthorizationRepository(),
+                getConfiguration()
         );
         return longRunningProcessRepository;
     }
@@ -511,7 +512,9 @@ public abstract class VisalloInMemoryTestBase {
         artifactThumbnailRepository = new ArtifactThumbnailRepository(
                 getSimpleOrmSession(),
                 getUserRepository(),
-                getOntologyRepository()
+                getOntologyRepository(),
+                getCacheService(),
+                getConfiguration()
         );
         return artifactThumbnailRepository;
     }
@@ -1,5 +1,6 @@
 package org.visallo.core.ingest;
 
+import com.v5analytics.simpleorm.InMemorySimpleOrmSession;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -10,6 +11,9 @@ import org.vertexium.*;
 import org.vertexium.inmemory.InMemoryGraph;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.model.WorkQueueNames;
+import org.visallo.core.model.contentHash.ContentHashRepository;
+import org.visallo.core.model.contentHash.ContentHashVertex;
+import org.visallo.core.model.lock.SingleJvmLockRepository;
 import org.visallo.core.model.ontology.OntologyProperty;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -21,14 +25,23 @@ import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.security.DirectVisibilityTranslator;
 import org.visallo.core.security.VisibilityTranslator;
 import org.visallo.core.user.User;
+import org.visallo.core.util.RowKeyHelper;
 import org.visallo.web.clientapi.model.ClientApiImportProperty;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.*;
-
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotEquals;
-import static org.mockito.Mockito.when;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
 import static org.vertexium.util.IterableUtils.toList;
 import static org.visallo.core.model.ontology.OntologyRepository.PUBLIC;
 
@@ -37,6 +50,13 @@ public class FileImportTest {
     public static final String PROP1_NAME = "http://visallo.org#prop1";
     private FileImport fileImport;
 
+    private InMemorySimpleOrmSession simpleOrmSession;
+
+    private ContentHashRepository contentHashRepository;
+
+    // counted down when an import finds the content reserved by another, uncommitted import and starts waiting
+    private final CountDownLatch waitingForReservation = new CountDownLatch(1);
+
     private Graph graph;
 
     private VisibilityTranslator visibilityTranslator;
@@ -84,6 +104,23 @@ public class FileImportTest {
         when(ontologyRepository.getRequiredPropertyByIntent(PROP1_NAME, workspaceId)).thenReturn(ontologyProperty);
         when(ontologyProperty.getVisalloProperty()).thenReturn(new IntegerVisalloProperty(PROP1_NAME));
 
+        when(configuration.getLong(
+                FileImport.CONFIG_CONTENT_HASH_RESERVATION_TIMEOUT_MILLIS,
+                FileImport.DEFAULT_CONTENT_HASH_RESERVATION_TIMEOUT_MILLIS
+        )).thenReturn(FileImport.DEFAULT_CONTENT_HASH_RESERVATION_TIMEOUT_MILLIS);
+
+        simpleOrmSession = new InMemorySimpleOrmSession();
+        contentHashRepository = new ContentHashRepository(simpleOrmSession, new SingleJvmLockRepository()) {
+            @Override
+            public ContentHashVertex reserve(String contentHash, String vertexId) {
+                ContentHashVertex existing = super.reserve(contentHash, vertexId);
+                if (existing != null && !existing.isCommitted()) {
+                    waitingForReservation.countDown();
+                }
+                return existing;
+            }
+        };
+
         fileImport = new FileImport(
                 visibilityTranslator,
                 graph,
@@ -91,6 +128,7 @@ public class FileImportTest {
                 workspaceRepository,
                 workQueueNames,
                 ontologyRepository,
+                contentHashRepository,
                 configuration
         ) {
             @Override
@@ -170,6 +208,164 @@ public class FileImportTest {
         assertNotEquals(results.firstVertexId, results.secondVertexId);
     }
 
+    @Test
+    public void testImportStoresContentHashWhenNotFindingExisting() throws Exception {
+        ImportTwiceResults results = importFileTwice(false);
+        Vertex v1 = graph.getVertex(results.firstVertexId, authorizations);
+        assertEquals(
+                RowKeyHelper.buildSHA256KeyString("Hello World".getBytes()),
+                VisalloProperties.CONTENT_HASH.getOnlyPropertyValue(v1)
+        );
+    }
+
+    @Test
+    public void testImportDuplicateFilesConcurrently() throws Exception {
+        File testFile = File.createTempFile("test", "test");
+        int importCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(importCount);
+        CyclicBarrier start = new CyclicBarrier(importCount);
+        try {
+            FileUtils.writeStringToFile(testFile, "Hello World");
+
+            List<Future<Vertex>> futures = new ArrayList<>();
+            for (int i = 0; i < importCount; i++) {
+                futures.add(executor.submit(() -> {
+                    // all imports start together so they race for the content hash
+                    start.await(10, TimeUnit.SECONDS);
+                    return fileImport.importFile(
+                            testFile,
+                            false,
+                            null,
+                            null,
+                            "",
+                            workspace,
+                            true,
+                            Priority.NORMAL,
+                            user,
+                            authorizations
+                    );
+                }));
+            }
+            Set<String> vertexIds = new HashSet<>();
+            for (Future<Vertex> future : futures) {
+                vertexIds.add(future.get(30, TimeUnit.SECONDS).getId());
+            }
+
+            assertEquals(1, vertexIds.size());
+            assertEquals(1, toList(graph.getVertices(authorizations)).size());
+            String hash = RowKeyHelper.buildSHA256KeyString("Hello World".getBytes());
+            assertEquals(vertexIds.iterator().next(), contentHashRepository.findVertexId(hash));
+        } finally {
+            executor.shutdownNow();
+            testFile.delete();
+        }
+    }
+
+    @Test
+    public void testImportDuplicateOfDeletedVertex() throws Exception {
+        File testFile = File.createTempFile("test", "test");
+        try {
+            FileUtils.writeStringToFile(testFile, "Hello World");
+
+            Vertex first = fileImport.importFile(testFile, false, null, null, "", workspace, true, Priority.NORMAL, user, authorizations);
+            graph.deleteVertex(first, authorizations);
+            graph.flush();
+
+            Vertex second = fileImport.importFile(testFile, false, null, null, "", workspace, true, Priority.NORMAL, user, authorizations);
+            assertNotEquals(first.getId(), second.getId());
+            assertEquals(1, toList(graph.getVertices(authorizations)).size());
+
+            Vertex third = fileImport.importFile(testFile, false, null, null, "", workspace, true, Priority.NORMAL, user, authorizations);
+            assertEquals(second.getId(), third.getId());
+            assertEquals(1, toList(graph.getVertices(authorizations)).size());
+            String hash = RowKeyHelper.buildSHA256KeyString("Hello World".getBytes());
+            assertEquals(second.getId(), contentHashRepository.findVertexId(hash));
+            assertTrue(contentHashRepository.find(hash).isCommitted());
+        } finally {
+            testFile.delete();
+        }
+    }
+
+    @Test
+    public void testImportWaitsForReservationOfOtherServer() throws Exception {
+        File testFile = File.createTempFile("test", "test");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            FileUtils.writeStringToFile(testFile, "Hello World");
+            String hash = RowKeyHelper.buildSHA256KeyString("Hello World".getBytes());
+            ContentHashRepository otherServerContentHashRepository = new ContentHashRepository(simpleOrmSession, new SingleJvmLockRepository());
+            assertNull(otherServerContentHashRepository.reserve(hash, "other-server-vertex"));
+
+            Future<Vertex> future = executor.submit(() -> fileImport.importFile(testFile, false, null, null, "", workspace, true, Priority.NORMAL, user, authorizations));
+            assertTrue(waitingForReservation.await(10, TimeUnit.SECONDS));
+            assertFalse(future.isDone());
+
+            graph.addVertex("other-server-vertex", new Visibility(""), authorizations);
+            graph.flush();
+            assertTrue(otherServerContentHashRepository.commit(hash, "other-server-vertex", ""));
+
+            assertEquals("other-server-vertex", future.get(10, TimeUnit.SECONDS).getId());
+            assertEquals(1, toList(graph.getVertices(authorizations)).size());
+        } finally {
+            executor.shutdownNow();
+            testFile.delete();
+        }
+    }
+
+    @Test
+    public void testImportReplacesStaleReservationOfOtherServer() throws Exception {
+        File testFile = File.createTempFile("test", "test");
+        try {
+            FileUtils.writeStringToFile(testFile, "Hello World");
+            String hash = RowKeyHelper.buildSHA256KeyString("Hello World".getBytes());
+            ContentHashRepository otherServerContentHashRepository = new ContentHashRepository(simpleOrmSession, new SingleJvmLockRepository()) {
+                @Override
+                protected long currentTimeMillis() {
+                    // reserved long before the reservation timeout, the other server died while importing
+                    return 0;
+                }
+            };
+            assertNull(otherServerContentHashRepository.reserve(hash, "other-server-vertex"));
+
+            Vertex vertex = fileImport.importFile(testFile, false, null, null, "", workspace, true, Priority.NORMAL, user, authorizations);
+            assertNotEquals("other-server-vertex", vertex.getId());
+            assertEquals(vertex.getId(), contentHashRepository.findVertexId(hash));
+            assertTrue(contentHashRepository.find(hash).isCommitted());
+            assertFalse(otherServerContentHashRepository.commit(hash, "other-server-vertex", ""));
+        } finally {
+            testFile.delete();
+        }
+    }
+
+    @Test
+    public void testImportDirectory() throws Exception {
+        when(configuration.getInt(FileImport.CONFIG_THREAD_COUNT, FileImport.DEFAULT_THREAD_COUNT)).thenReturn(2);
+        when(configuration.getInt(FileImport.CONFIG_FLUSH_BATCH_SIZE, FileImport.DEFAULT_FLUSH_BATCH_SIZE)).thenReturn(2);
+        File dataDir = Files.createTempDirectory("fileImportTest").toFile();
+        try {
+            Set<String> expectedHashes = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                String content = "file " + i;
+                FileUtils.writeStringToFile(new File(dataDir, "file" + i + ".txt"), content);
+                expectedHashes.add(RowKeyHelper.buildSHA256KeyString(content.getBytes()));
+            }
+            FileUtils.writeStringToFile(new File(dataDir, ".hidden"), "hidden");
+
+            fileImport.importDirectory(dataDir, false, null, "", workspace, Priority.NORMAL, user, authorizations);
+
+            List<Vertex> vertices = toList(graph.getVertices(authorizations));
+            assertEquals(5, vertices.size());
+            Set<String> hashes = new HashSet<>();
+            for (Vertex vertex : vertices) {
+                hashes.add(VisalloProperties.CONTENT_HASH.getOnlyPropertyValue(vertex));
+            }
+            assertEquals(expectedHashes, hashes);
+            verify(workQueueRepository, times(5)).broadcastElement(any(Vertex.class), eq("junit-workspace"));
+        } finally {
+            FileUtils.deleteDirectory(dataDir);
+        }
+    }
+
     private ImportTwiceResults importFileTwice(boolean findExistingByFileHash) throws Exception {
         File testFile = File.createTempFile("test", "test");
         try {
@@ -0,0 +1,283 @@
+package org.visallo.core.ingest.cloud;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Graph;
+import org.vertexium.Vertex;
+import org.vertexium.inmemory.InMemoryGraph;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.ingest.FileImport;
+import org.visallo.core.model.longRunningProcess.LongRunningProcessRepository;
+import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.Priority;
+import org.visallo.core.model.workspace.Workspace;
+import org.visallo.core.model.workspace.WorkspaceRepository;
+import org.visallo.core.user.User;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CloudImportLongRunningProcessWorkerTest {
+    private static final int FILE_COUNT = 6;
+    private CloudImportLongRunningProcessWorker worker;
+    private File sourceDir;
+    private Graph graph;
+
+    @Mock
+    private Configuration configuration;
+
+    @Mock
+    private FileImport fileImport;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private WorkspaceRepository workspaceRepository;
+
+    @Mock
+    private LongRunningProcessRepository longRunningProcessRepository;
+
+    @Mock
+    private User user;
+
+    @Mock
+    private Workspace workspace;
+
+    @Before
+    public void before() throws Exception {
+        graph = InMemoryGraph.create();
+        sourceDir = Files.createTempDirectory("cloudImportTest").toFile();
+        for (int i = 0; i < FILE_COUNT; i++) {
+            FileUtils.writeStringToFile(new File(sourceDir, "file" + i + ".txt"), "content of file " + i);
+        }
+
+        when(configuration.getInt(CloudImportLongRunningProcessWorker.CONFIG_DOWNLOAD_THREAD_COUNT, CloudImportLongRunningProcessWorker.DEFAULT_DOWNLOAD_THREAD_COUNT))
+                .thenReturn(3);
+        // only room for two files waiting to be imported
+        when(configuration.getLong(CloudImportLongRunningProcessWorker.CONFIG_MAX_TEMP_SPACE_BYTES, CloudImportLongRunningProcessWorker.DEFAULT_MAX_TEMP_SPACE_BYTES))
+                .thenReturn(2L * "content of file 0".length());
+        when(userRepository.findById("user1")).thenReturn(user);
+        when(workspaceRepository.findById("workspace1", user)).thenReturn(workspace);
+
+        worker = new CloudImportLongRunningProcessWorker(
+                graph,
+                configuration,
+                fileImport,
+                userRepository,
+                workspaceRepository,
+                longRunningProcessRepository
+        ) {
+            @Override
+            protected Collection<CloudResourceSource> getCloudResourceSources() {
+                return Collections.singletonList(new LocalFileSystemCloudResourceSource());
+            }
+        };
+    }
+
+    @After
+    public void after() throws Exception {
+        FileUtils.deleteDirectory(sourceDir);
+    }
+
+    @Test
+    public void testImport() throws Exception {
+        Authorizations authorizations = graph.createAuthorizations();
+        Set<String> importedContent = Collections.synchronizedSet(new HashSet<>());
+        List<File> importedFiles = Collections.synchronizedList(new ArrayList<>());
+        when(fileImport.importFile(
+                any(File.class),
+                anyString(),
+                eq(false),
+                anyString(),
+                any(),
+                eq(""),
+                eq(workspace),
+                eq(true),
+                eq(Priority.NORMAL),
+                eq(user),
+                any(Authorizations.class)
+        )).thenAnswer(invocation -> {
+            File file = (File) invocation.getArguments()[0];
+            importedContent.add(FileUtils.readFileToString(file));
+            importedFiles.add(file);
+            return graph.addVertex(file.getName(), graph.getDefaultVisibility(), authorizations);
+        });
+
+        JSONObject item = createQueueItem();
+        worker.processInternal(item);
+
+        assertEquals(FILE_COUNT, item.getInt("itemsCount"));
+        assertEquals(FILE_COUNT, item.getJSONArray("vertexIds").length());
+        assertEquals(FILE_COUNT, importedContent.size());
+        for (int i = 0; i < FILE_COUNT; i++) {
+            assertTrue(importedContent.contains("content of file " + i));
+        }
+        for (File importedFile : importedFiles) {
+            assertFalse(importedFile.exists());
+        }
+        verify(longRunningProcessRepository).reportProgress("lrp1", 1.0, "Finishing");
+    }
+
+    @Test
+    public void testDownloadsStayWithinTempSpaceBudget() throws Exception {
+        File budgetDir = Files.createTempDirectory("cloudImportBudgetTest").toFile();
+        long allFilesSize = 0;
+        Set<String> fileNames = new HashSet<>();
+        for (int i = 1; i <= FILE_COUNT; i++) {
+            String fileName = "file" + i + ".txt";
+            FileUtils.writeStringToFile(new File(budgetDir, fileName), StringUtils.repeat("x", i * 10));
+            fileNames.add(fileName);
+            allFilesSize += i * 10;
+        }
+        long maxTempSpaceBytes = 70;
+        assertTrue(maxTempSpaceBytes < allFilesSize);
+        when(configuration.getLong(CloudImportLongRunningProcessWorker.CONFIG_MAX_TEMP_SPACE_BYTES, CloudImportLongRunningProcessWorker.DEFAULT_MAX_TEMP_SPACE_BYTES))
+                .thenReturn(maxTempSpaceBytes);
+
+        // bytes of files whose download has started and that have not been imported yet
+        AtomicLong heldBytes = new AtomicLong();
+        AtomicLong maxHeldBytes = new AtomicLong();
+        BudgetTrackingCloudResourceSource source = new BudgetTrackingCloudResourceSource(heldBytes, maxHeldBytes);
+        CloudImportLongRunningProcessWorker budgetWorker = new CloudImportLongRunningProcessWorker(
+                graph,
+                configuration,
+                fileImport,
+                userRepository,
+                workspaceRepository,
+                longRunningProcessRepository
+        ) {
+            @Override
+            protected Collection<CloudResourceSource> getCloudResourceSources() {
+                return Collections.singletonList(source);
+            }
+        };
+
+        Authorizations authorizations = graph.createAuthorizations();
+        Set<String> importedNames = Collections.synchronizedSet(new HashSet<>());
+        when(fileImport.importFile(
+                any(File.class),
+                anyString(),
+                eq(false),
+                anyString(),
+                any(),
+                eq(""),
+                eq(workspace),
+                eq(true),
+                eq(Priority.NORMAL),
+                eq(user),
+                any(Authorizations.class)
+        )).thenAnswer(invocation -> {
+            File file = (File) invocation.getArguments()[0];
+            // importing slower than downloading lets downloaded files pile up unless the budget holds them back
+            Thread.sleep(20);
+            importedNames.add(file.getName());
+            heldBytes.addAndGet(-file.length());
+            return graph.addVertex(file.getName(), graph.getDefaultVisibility(), authorizations);
+        });
+
+        try {
+            JSONObject item = createQueueItem(BudgetTrackingCloudResourceSource.class, budgetDir);
+            budgetWorker.processInternal(item);
+
+            assertEquals(FILE_COUNT, item.getJSONArray("vertexIds").length());
+            assertEquals(fileNames, importedNames);
+            assertTrue("held " + maxHeldBytes.get() + " bytes", maxHeldBytes.get() <= maxTempSpaceBytes);
+            assertEquals(0, heldBytes.get());
+        } finally {
+            FileUtils.deleteDirectory(budgetDir);
+        }
+    }
+
+    @Test
+    public void testUnknownDestination() throws Exception {
+        JSONObject item = createQueueItem();
+        item.put("destination", "org.visallo.UnknownDestination");
+
+        worker.processInternal(item);
+
+        assertTrue(item.has("error"));
+        verify(fileImport, never()).importFile(
+                any(File.class),
+                anyString(),
+                anyBoolean(),
+                anyString(),
+                any(),
+                anyString(),
+                any(Workspace.class),
+                anyBoolean(),
+                any(Priority.class),
+                any(User.class),
+                any(Authorizations.class)
+        );
+    }
+
+    private JSONObject createQueueItem() {
+        return createQueueItem(LocalFileSystemCloudResourceSource.class, sourceDir);
+    }
+
+    private JSONObject createQueueItem(Class<? extends CloudResourceSource> destination, File directory) {
+        JSONObject configuration = new JSONObject();
+        configuration.put("directory", directory.getAbsolutePath());
+        JSONObject item = new CloudImportLongRunningProcessQueueItem(
+                destination.getName(),
+                configuration.toString(),
+                "user1",
+                "workspace1",
+                graph.createAuthorizations()
+        ).toJson();
+        item.put("id", "lrp1");
+        return item;
+    }
+
+    private static class BudgetTrackingCloudResourceSource extends LocalFileSystemCloudResourceSource {
+        private final AtomicLong heldBytes;
+        private final AtomicLong maxHeldBytes;
+
+        private BudgetTrackingCloudResourceSource(AtomicLong heldBytes, AtomicLong maxHeldBytes) {
+            this.heldBytes = heldBytes;
+            this.maxHeldBytes = maxHeldBytes;
+        }
+
+        @Override
+        public Collection<CloudResourceSourceItem> getItems(JSONObject configuration) {
+            List<CloudResourceSourceItem> items = new ArrayList<>();
+            for (CloudResourceSourceItem item : super.getItems(configuration)) {
+                items.add(new CloudResourceSourceItem() {
+                    @Override
+                    public InputStream getInputStream() {
+                        maxHeldBytes.accumulateAndGet(heldBytes.addAndGet(item.getSize()), Math::max);
+                        return item.getInputStream();
+                    }
+
+                    @Override
+                    public String getName() {
+                        return item.getName();
+                    }
+
+                    @Override
+                    public Long getSize() {
+                        return item.getSize();
+                    }
+                });
+            }
+            return items;
+        }
+    }
+}
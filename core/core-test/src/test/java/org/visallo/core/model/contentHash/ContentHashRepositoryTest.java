@@ -0,0 +1,61 @@
+package org.visallo.core.model.contentHash;
+
+import com.v5analytics.simpleorm.InMemorySimpleOrmSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.visallo.core.model.lock.SingleJvmLockRepository;
+
+import static org.junit.Assert.*;
+
+public class ContentHashRepositoryTest {
+    private static final String HASH = "0123456789abcdef";
+    private ContentHashRepository contentHashRepository;
+
+    @Before
+    public void before() {
+        contentHashRepository = new ContentHashRepository(new InMemorySimpleOrmSession(), new SingleJvmLockRepository());
+    }
+
+    @Test
+    public void testReserve() {
+        assertNull(contentHashRepository.findVertexId(HASH));
+        assertNull(contentHashRepository.reserve(HASH, "v1"));
+        ContentHashVertex existing = contentHashRepository.reserve(HASH, "v2");
+        assertEquals("v1", existing.getVertexId());
+        assertFalse(existing.isCommitted());
+        assertEquals("v1", contentHashRepository.findVertexId(HASH));
+    }
+
+    @Test
+    public void testCommit() {
+        contentHashRepository.reserve(HASH, "v1");
+        assertFalse(contentHashRepository.commit(HASH, "v2", "a"));
+        assertFalse(contentHashRepository.find(HASH).isCommitted());
+        assertTrue(contentHashRepository.commit(HASH, "v1", "a"));
+
+        ContentHashVertex existing = contentHashRepository.reserve(HASH, "v2");
+        assertEquals("v1", existing.getVertexId());
+        assertTrue(existing.isCommitted());
+        assertEquals("a", existing.getVisibility());
+    }
+
+    @Test
+    public void testReplace() {
+        contentHashRepository.reserve(HASH, "v1");
+        assertFalse(contentHashRepository.replace(HASH, "v2", "v3"));
+        assertTrue(contentHashRepository.commit(HASH, "v1", ""));
+        assertTrue(contentHashRepository.replace(HASH, "v1", "v2"));
+        assertEquals("v2", contentHashRepository.findVertexId(HASH));
+        assertFalse(contentHashRepository.find(HASH).isCommitted());
+    }
+
+    @Test
+    public void testRelease() {
+        contentHashRepository.reserve(HASH, "v1");
+        contentHashRepository.release(HASH, "v2");
+        assertEquals("v1", contentHashRepository.findVertexId(HASH));
+        contentHashRepository.release(HASH, "v1");
+        assertNull(contentHashRepository.findVertexId(HASH));
+        assertNull(contentHashRepository.reserve(HASH, "v2"));
+    }
+}
@@ -0,0 +1,156 @@
+package org.visallo.core.model.findPath;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertexium.*;
+import org.vertexium.inmemory.InMemoryGraph;
+import org.visallo.core.exception.VisalloException;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BidirectionalPathFinderTest {
+    private static final int VERTEX_COUNT = 30;
+    private static final int EDGE_COUNT = 70;
+    private static final String LABEL_A = "labelA";
+    private static final String LABEL_B = "labelB";
+    private InMemoryGraph graph;
+    private Authorizations authorizations;
+    private BidirectionalPathFinder pathFinder;
+
+    @Before
+    public void before() {
+        graph = InMemoryGraph.create();
+        authorizations = graph.createAuthorizations();
+        pathFinder = new BidirectionalPathFinder(graph);
+    }
+
+    @Test
+    public void testFindsSamePathsAsExhaustiveSearch() {
+        addRandomGraph();
+        for (int hops = 1; hops <= 5; hops++) {
+            for (String[] labels : new String[][]{null, {LABEL_A}}) {
+                Set<List<String>> expected = findPathsExhaustively("v0", "v1", hops, labels);
+                Set<List<String>> found = new HashSet<>();
+                BidirectionalPathFinder.Options options = new BidirectionalPathFinder.Options(hops)
+                        .setLabels(labels)
+                        .setBatchSize(4);
+                long pathCount = pathFinder.findPaths("v0", "v1", options, listener(found), authorizations);
+                assertEquals("hops " + hops + " labels " + Arrays.toString(labels), expected, found);
+                assertEquals(expected.size(), pathCount);
+            }
+        }
+    }
+
+    @Test
+    public void testMaxPaths() {
+        addRandomGraph();
+        assertTrue(findPathsExhaustively("v0", "v1", 5, null).size() > 3);
+
+        List<List<String>> found = new ArrayList<>();
+        BidirectionalPathFinder.Options options = new BidirectionalPathFinder.Options(5).setMaxPaths(3);
+        assertEquals(3, pathFinder.findPaths("v0", "v1", options, listener(found), authorizations));
+        assertEquals(3, found.size());
+    }
+
+    @Test
+    public void testSkipsVerticesNotVisible() {
+        Visibility visibility = new Visibility("");
+        graph.addVertex("s", visibility, authorizations);
+        graph.addVertex("d", visibility, authorizations);
+        graph.addVertex("a", visibility, authorizations);
+        graph.addVertex("secret", new Visibility("secret"), graph.createAuthorizations("secret"));
+        graph.addEdge("s-a", "s", "a", LABEL_A, visibility, authorizations);
+        graph.addEdge("a-d", "a", "d", LABEL_A, visibility, authorizations);
+        graph.addEdge("s-secret", "s", "secret", LABEL_A, visibility, authorizations);
+        graph.addEdge("secret-d", "secret", "d", LABEL_A, visibility, authorizations);
+        graph.flush();
+
+        List<List<String>> found = new ArrayList<>();
+        pathFinder.findPaths("s", "d", new BidirectionalPathFinder.Options(2), listener(found), authorizations);
+        assertEquals(Collections.singletonList(Arrays.asList("s", "a", "d")), found);
+    }
+
+    @Test(expected = VisalloException.class)
+    public void testCanceled() {
+        addRandomGraph();
+        pathFinder.findPaths("v0", "v1", new BidirectionalPathFinder.Options(3), new BidirectionalPathFinder.Listener() {
+            @Override
+            public void pathFound(List<String> path) {
+            }
+
+            @Override
+            public void progress(double progressPercent, String message) {
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return true;
+            }
+        }, authorizations);
+    }
+
+    private BidirectionalPathFinder.Listener listener(Collection<List<String>> found) {
+        return new BidirectionalPathFinder.Listener() {
+            @Override
+            public void pathFound(List<String> path) {
+                assertTrue("duplicate path " + path, found.add(path));
+            }
+
+            @Override
+            public void progress(double progressPercent, String message) {
+                assertTrue(progressPercent >= 0.0 && progressPercent <= 1.0);
+            }
+        };
+    }
+
+    private void addRandomGraph() {
+        Random random = new Random(42);
+        Visibility visibility = new Visibility("");
+        for (int i = 0; i < VERTEX_COUNT; i++) {
+            graph.addVertex("v" + i, visibility, authorizations);
+        }
+        for (int i = 0; i < EDGE_COUNT; i++) {
+            String outVertexId = "v" + random.nextInt(VERTEX_COUNT);
+            String inVertexId = "v" + random.nextInt(VERTEX_COUNT);
+            String label = random.nextBoolean() ? LABEL_A : LABEL_B;
+            graph.addEdge("e" + i, outVertexId, inVertexId, label, visibility, authorizations);
+        }
+        graph.flush();
+    }
+
+    private Set<List<String>> findPathsExhaustively(String sourceVertexId, String destVertexId, int hops, String[] labels) {
+        Set<List<String>> paths = new HashSet<>();
+        List<String> path = new ArrayList<>();
+        path.add(sourceVertexId);
+        findPathsExhaustively(path, destVertexId, hops, labels, paths);
+        return paths;
+    }
+
+    private void findPathsExhaustively(List<String> path, String destVertexId, int hops, String[] labels, Set<List<String>> paths) {
+        String vertexId = path.get(path.size() - 1);
+        if (vertexId.equals(destVertexId)) {
+            paths.add(new ArrayList<>(path));
+            return;
+        }
+        if (path.size() > hops) {
+            return;
+        }
+        Vertex vertex = graph.getVertex(vertexId, authorizations);
+        Iterable<EdgeInfo> edgeInfos = labels == null
+                ? vertex.getEdgeInfos(Direction.BOTH, authorizations)
+                : vertex.getEdgeInfos(Direction.BOTH, labels, authorizations);
+        Set<String> neighborIds = new LinkedHashSet<>();
+        for (EdgeInfo edgeInfo : edgeInfos) {
+            neighborIds.add(edgeInfo.getVertexId());
+        }
+        for (String neighborId : neighborIds) {
+            if (!path.contains(neighborId)) {
+                path.add(neighborId);
+                findPathsExhaustively(path, destVertexId, hops, labels, paths);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package org.visallo.core.model.lock;
 
 import org.junit.Test;
+import org.visallo.core.exception.VisalloLockTimeoutException;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
 
 public class SingleJvmLockRepositoryTest extends LockRepositoryTestBase {
     @Test
@@ -25,6 +30,73 @@ public class SingleJvmLockRepositoryTest extends LockRepositoryTestBase {
         startThreadsWaitForMessagesThenStopThreads(threads, messages, 2);
     }
 
+    @Test
+    public void testReadLocksAreShared() throws Exception {
+        CountDownLatch bothReading = new CountDownLatch(2);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Thread t = new Thread(() -> lockRepository.readLock("lockOne", () -> {
+                bothReading.countDown();
+                try {
+                    bothReading.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(10000);
+        }
+        assertEquals("both readers should hold the lock at the same time", 0, bothReading.getCount());
+        assertEquals(0, lockRepository.getLockEntryCount());
+    }
+
+    @Test
+    public void testTryLockTimesOutWhileReadLocked() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread reader = new Thread(() -> lockRepository.readLock("lockOne", () -> {
+            reading.countDown();
+            try {
+                done.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        reader.setDaemon(true);
+        reader.start();
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+        try {
+            lockRepository.tryLock("lockOne", 50, TimeUnit.MILLISECONDS, () -> "write");
+            fail("expected timeout");
+        } catch (VisalloLockTimeoutException ex) {
+            assertEquals("lockOne", ex.getLockName());
+        }
+        assertEquals("read", lockRepository.tryReadLock("lockOne", 50, TimeUnit.MILLISECONDS, () -> "read"));
+        assertEquals("other", lockRepository.tryLock("lockTwo", 50, TimeUnit.MILLISECONDS, () -> "other"));
+
+        done.countDown();
+        reader.join(10000);
+        assertEquals("write", lockRepository.tryLock("lockOne", 1, TimeUnit.SECONDS, () -> "write"));
+        assertEquals(0, lockRepository.getLockEntryCount());
+    }
+
+    @Test
+    public void testNestedLocks() {
+        String result = lockRepository.lock("lockOne", () ->
+                lockRepository.readLock("lockOne", () -> {
+                    assertEquals(1, lockRepository.getLockEntryCount());
+                    return lockRepository.lock("lockOne", () -> "nested");
+                })
+        );
+        assertEquals("nested", result);
+        assertEquals(0, lockRepository.getLockEntryCount());
+    }
+
     @Override
     protected LockRepository createLockRepository() {
         return new SingleJvmLockRepository();
@@ -0,0 +1,98 @@
+package org.visallo.core.model.longRunningProcess;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LongRunningProcessProgressCoalescerTest {
+    private static final String PROCESS_ID = "lrp1";
+    private long now;
+    private List<String> writes;
+    private LongRunningProcessProgressCoalescer coalescer;
+
+    @Before
+    public void before() {
+        now = 10000;
+        writes = new ArrayList<>();
+        coalescer = new LongRunningProcessProgressCoalescer(1000, 0.1) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void testHoldsBackProgressWithinInterval() {
+        report(0.01, "row 1");
+        report(0.02, "row 2");
+        report(0.03, "row 3");
+        assertEquals(1, writes.size());
+        assertEquals("0.01 row 1", writes.get(0));
+
+        now += 1000;
+        report(0.04, "row 4");
+        assertEquals(2, writes.size());
+        assertEquals("0.04 row 4", writes.get(1));
+    }
+
+    @Test
+    public void testWritesSignificantChangeAndCompletion() {
+        report(0.0, "start");
+        report(0.05, "small");
+        report(0.15, "big");
+        report(1.0, "done");
+        assertEquals(3, writes.size());
+        assertEquals("0.15 big", writes.get(1));
+        assertEquals("1.0 done", writes.get(2));
+    }
+
+    @Test
+    public void testFlushDueWritesHeldBackProgress() {
+        report(0.01, "row 1");
+        report(0.02, "row 2");
+        coalescer.flushDue(this::write);
+        assertEquals(1, writes.size());
+
+        now += 1000;
+        coalescer.flushDue(this::write);
+        assertEquals(2, writes.size());
+        assertEquals("0.02 row 2", writes.get(1));
+
+        now += 1000;
+        coalescer.flushDue(this::write);
+        assertEquals("nothing new to write", 2, writes.size());
+    }
+
+    @Test
+    public void testCanceledAndRemove() {
+        report(0.01, "row 1");
+        report(0.02, "row 2");
+        coalescer.markCanceled(PROCESS_ID);
+        assertTrue(coalescer.isCanceled(PROCESS_ID));
+
+        now += 1000;
+        coalescer.flushDue(this::write);
+        assertEquals("canceled progress is dropped", 1, writes.size());
+
+        LongRunningProcessProgressCoalescer.Progress progress = coalescer.remove(PROCESS_ID);
+        assertEquals(0.02, progress.getProgressPercent(), 0.0001);
+        assertEquals("row 2", progress.getMessage());
+        assertFalse(coalescer.isCanceled(PROCESS_ID));
+        assertEquals(0, coalescer.size());
+        assertNull(coalescer.remove(PROCESS_ID));
+    }
+
+    private void report(double progressPercent, String message) {
+        coalescer.report(PROCESS_ID, progressPercent, message, this::write);
+    }
+
+    private void write(String longRunningProcessId, double progressPercent, String message) {
+        assertEquals(PROCESS_ID, longRunningProcessId);
+        writes.add(progressPercent + " " + message);
+    }
+}
@@ -0,0 +1,99 @@
+package org.visallo.core.model.reindex;
+
+import com.v5analytics.simpleorm.InMemorySimpleOrmSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertexium.Authorizations;
+import org.vertexium.ElementType;
+import org.vertexium.FetchHint;
+import org.vertexium.Range;
+import org.vertexium.Visibility;
+import org.vertexium.inmemory.InMemoryGraph;
+import org.visallo.core.exception.VisalloException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.vertexium.util.IterableUtils.count;
+
+public class ReindexEngineTest {
+    private static final int VERTEX_COUNT = 250;
+    private InMemoryGraph graph;
+    private Authorizations authorizations;
+    private ReindexCheckpointRepository checkpointRepository;
+    private ReindexEngine reindexEngine;
+
+    @Before
+    public void before() {
+        graph = InMemoryGraph.create();
+        authorizations = graph.createAuthorizations();
+        for (int i = 0; i < VERTEX_COUNT; i++) {
+            graph.addVertex(String.format("v%03d", i), new Visibility(""), authorizations);
+        }
+        graph.flush();
+        checkpointRepository = new ReindexCheckpointRepository(new InMemorySimpleOrmSession());
+        reindexEngine = new ReindexEngine(graph, checkpointRepository);
+    }
+
+    @Test
+    public void testReindexSampledRanges() {
+        List<Range> ranges = new ReindexRangeSplitter(graph, 10, 100000).split(ElementType.VERTEX, 3, authorizations);
+        assertEquals(3, ranges.size());
+        assertNull(ranges.get(0).getInclusiveStart());
+        assertEquals(ranges.get(0).getExclusiveEnd(), ranges.get(1).getInclusiveStart());
+        assertEquals(ranges.get(1).getExclusiveEnd(), ranges.get(2).getInclusiveStart());
+        assertNull(ranges.get(2).getExclusiveEnd());
+
+        ReindexEngine.Options options = new ReindexEngine.Options()
+                .setBatchSize(7)
+                .setThreadCount(2)
+                .setBufferBatches(2)
+                .setCheckpointBatches(3);
+        assertEquals(VERTEX_COUNT, reindexEngine.reindex("job1", ElementType.VERTEX, ranges, options, authorizations));
+
+        for (Range range : ranges) {
+            long count = count(graph.getVerticesInRange(range, FetchHint.NONE, authorizations));
+            assertTrue("ranges should be about the same size", count > VERTEX_COUNT / 6);
+        }
+        assertTrue("checkpoints of a completed job should be deleted", checkpointRepository.findByJobId("job1").isEmpty());
+        assertTrue(reindexEngine.findRanges("job1").isEmpty());
+    }
+
+    @Test
+    public void testResumeFromCheckpoints() {
+        List<Range> ranges = Arrays.asList(new Range(null, "v100"), new Range("v100", null));
+        ReindexCheckpoint completedCheckpoint = new ReindexCheckpoint("job2", 0, ElementType.VERTEX, ranges.get(0));
+        completedCheckpoint.addIndexed("v099", 100);
+        completedCheckpoint.setCompleted(true);
+        checkpointRepository.save(completedCheckpoint);
+        ReindexCheckpoint partialCheckpoint = new ReindexCheckpoint("job2", 1, ElementType.VERTEX, ranges.get(1));
+        partialCheckpoint.addIndexed("v149", 50);
+        checkpointRepository.save(partialCheckpoint);
+
+        long indexedCount = reindexEngine.reindex("job2", ElementType.VERTEX, ranges, new ReindexEngine.Options(), authorizations);
+
+        assertEquals("only v150 to v249 should be reindexed", 100, indexedCount);
+        assertNull(checkpointRepository.find("job2", 0));
+        assertNull(checkpointRepository.find("job2", 1));
+    }
+
+    @Test
+    public void testFindCheckpointsByJobId() {
+        List<Range> ranges = Arrays.asList(new Range(null, "v100"), new Range("v100", null));
+        checkpointRepository.save(new ReindexCheckpoint("job4", 1, ElementType.VERTEX, ranges.get(1)));
+        checkpointRepository.save(new ReindexCheckpoint("job4", 0, ElementType.VERTEX, ranges.get(0)));
+        checkpointRepository.save(new ReindexCheckpoint("job5", 0, ElementType.VERTEX, ranges.get(0)));
+
+        List<ReindexCheckpoint> checkpoints = checkpointRepository.findByJobId("job4");
+        assertEquals(2, checkpoints.size());
+        assertEquals(0, checkpoints.get(0).getRangeIndex());
+        assertEquals(1, checkpoints.get(1).getRangeIndex());
+    }
+
+    @Test(expected = VisalloException.class)
+    public void testResumeWithDifferentRanges() {
+        reindexEngine.reindex("job3", ElementType.VERTEX, Arrays.asList(new Range(null, "v100"), new Range("v100", null)), new ReindexEngine.Options(), authorizations);
+        reindexEngine.reindex("job3", ElementType.VERTEX, Arrays.asList(new Range(null, "v200"), new Range("v200", null)), new ReindexEngine.Options(), authorizations);
+    }
+}
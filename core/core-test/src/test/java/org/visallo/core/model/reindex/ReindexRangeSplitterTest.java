@@ -0,0 +1,64 @@
+package org.visallo.core.model.reindex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertexium.*;
+import org.vertexium.inmemory.InMemoryGraph;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.vertexium.util.IterableUtils.count;
+
+public class ReindexRangeSplitterTest {
+    private static final int VERTEX_COUNT = 5000;
+    private InMemoryGraph graph;
+    private Authorizations authorizations;
+
+    @Before
+    public void before() {
+        graph = InMemoryGraph.create();
+        authorizations = graph.createAuthorizations();
+        Random random = new Random(42);
+        for (int i = 0; i < VERTEX_COUNT; i++) {
+            graph.addVertex(String.format("%08x", random.nextInt()), new Visibility(""), authorizations);
+        }
+        graph.flush();
+    }
+
+    @Test
+    public void testSplitGraphLargerThanSampleBudget() {
+        // the budget runs out before the second prefix character is probed for every first character
+        List<Range> ranges = new ReindexRangeSplitter(graph, 10, 500).split(ElementType.VERTEX, 4, authorizations);
+        assertRangesBalanced(ranges, 4);
+    }
+
+    @Test
+    public void testSplitFullySampledGraph() {
+        List<Range> ranges = new ReindexRangeSplitter(graph, 10, 100000).split(ElementType.VERTEX, 4, authorizations);
+        assertRangesBalanced(ranges, 4);
+    }
+
+    @Test
+    public void testSingleRange() {
+        List<Range> ranges = new ReindexRangeSplitter(graph).split(ElementType.VERTEX, 1, authorizations);
+        assertEquals(1, ranges.size());
+        assertNull(ranges.get(0).getInclusiveStart());
+        assertNull(ranges.get(0).getExclusiveEnd());
+    }
+
+    private void assertRangesBalanced(List<Range> ranges, int rangeCount) {
+        assertEquals(rangeCount, ranges.size());
+        long total = 0;
+        for (Range range : ranges) {
+            long rangeVertexCount = count(graph.getVerticesInRange(range, FetchHint.NONE, authorizations));
+            assertTrue(
+                    "range " + range + " has " + rangeVertexCount + " vertices",
+                    Math.abs(rangeVertexCount - VERTEX_COUNT / rangeCount) < VERTEX_COUNT / rangeCount / 5
+            );
+            total += rangeVertexCount;
+        }
+        assertEquals(VERTEX_COUNT, total);
+    }
+}
@@ -0,0 +1,95 @@
+package org.visallo.core.model.search;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.visallo.core.cache.InMemoryCacheService;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.config.HashMapConfigurationLoader;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.collect.Iterables.size;
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchResultsCacheTest extends SearchRunnerTestBase {
+    private VertexSearchRunner vertexSearchRunner;
+    private SearchResultsCache searchResultsCache;
+
+    @Mock
+    private WorkQueueRepository workQueueRepository;
+
+    @Before
+    public void before() {
+        super.before();
+
+        Map<String, String> config = new HashMap<>();
+        config.put(SearchResultsCache.CONFIG_ENABLED, "true");
+        Configuration cacheConfiguration = new Configuration(new HashMapConfigurationLoader(config), new HashMap<>());
+        searchResultsCache = new SearchResultsCache(new InMemoryCacheService(), graph, cacheConfiguration);
+        searchResultsCache.setWorkQueueRepository(workQueueRepository);
+
+        vertexSearchRunner = new VertexSearchRunner(ontologyRepository, graph, configuration, directoryRepository);
+        vertexSearchRunner.setSearchResultsCache(searchResultsCache);
+    }
+
+    @Test
+    public void testCanonicalStringIgnoresParameterAndJsonKeyOrder() {
+        Map<String, Object> parameters1 = new HashMap<>();
+        parameters1.put("q", "*");
+        parameters1.put("filter", "[{\"propertyName\":\"name\",\"predicate\":\"has\"}]");
+        parameters1.put("_", "12345");
+
+        Map<String, Object> parameters2 = new HashMap<>();
+        parameters2.put("filter", "[ { \"predicate\": \"has\", \"propertyName\": \"name\" } ]");
+        parameters2.put("q", "*");
+        parameters2.put("_", "67890");
+
+        assertEquals(SearchResultsCache.toCanonicalString(parameters1), SearchResultsCache.toCanonicalString(parameters2));
+
+        parameters2.put("q", "joe");
+        assertNotEquals(SearchResultsCache.toCanonicalString(parameters1), SearchResultsCache.toCanonicalString(parameters2));
+    }
+
+    @Test
+    public void testSearchIsCachedUntilGraphChange() throws Exception {
+        graph.prepareVertex("v1", visibility)
+                .addPropertyValue("k1", "name", "Joe", visibility)
+                .save(authorizations);
+        graph.flush();
+
+        QueryResultsIterableSearchResults results = vertexSearchRunner.run(createSearchOptions(), user, authorizations);
+        assertEquals(1, size(results.getVertexiumObjects()));
+
+        graph.prepareVertex("v2", visibility)
+                .addPropertyValue("k1", "name", "Bob", visibility)
+                .save(authorizations);
+        graph.flush();
+
+        results = vertexSearchRunner.run(createSearchOptions(), user, authorizations);
+        assertTrue(results.getQueryResultsIterable() instanceof CachedQueryResultsIterable);
+        assertEquals(1, size(results.getVertexiumObjects()));
+
+        JSONObject propertyChange = new JSONObject();
+        propertyChange.put("type", "propertyChange");
+        propertyChange.put("data", new JSONObject().put("graphVertexId", "v2"));
+        searchResultsCache.handleBroadcast(propertyChange);
+
+        results = vertexSearchRunner.run(createSearchOptions(), user, authorizations);
+        assertEquals(2, size(results.getVertexiumObjects()));
+    }
+
+    private SearchOptions createSearchOptions() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("q", "*");
+        parameters.put("filter", new JSONArray());
+        return new SearchOptions(parameters, "workspace1");
+    }
+}
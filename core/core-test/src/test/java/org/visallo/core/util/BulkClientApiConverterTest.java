@@ -0,0 +1,90 @@
+package org.visallo.core.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertexium.Authorizations;
+import org.vertexium.Vertex;
+import org.vertexium.Visibility;
+import org.vertexium.inmemory.InMemoryAuthorizations;
+import org.vertexium.inmemory.InMemoryGraph;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.config.HashMapConfigurationLoader;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.web.clientapi.model.ClientApiVertex;
+import org.visallo.web.clientapi.model.VisibilityJson;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class BulkClientApiConverterTest {
+    private static final Authorizations AUTHORIZATIONS = new InMemoryAuthorizations();
+    private InMemoryGraph graph;
+    private BulkClientApiConverter bulkClientApiConverter;
+
+    @Before
+    public void before() {
+        graph = InMemoryGraph.create();
+        Map<String, String> config = new HashMap<>();
+        config.put(BulkClientApiConverter.CONFIG_THREAD_COUNT, "4");
+        config.put(BulkClientApiConverter.CONFIG_MIN_PARALLEL_SIZE, "10");
+        Configuration configuration = new Configuration(new HashMapConfigurationLoader(config), new HashMap<>());
+        bulkClientApiConverter = new BulkClientApiConverter(configuration);
+    }
+
+    @Test
+    public void testConvertPreservesOrder() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(i);
+        }
+
+        List<String> results = bulkClientApiConverter.convert(items, (item, index) -> {
+            assertEquals(item, index);
+            return "item" + item;
+        });
+
+        assertEquals(1000, results.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("item" + i, results.get(i));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConvertRethrowsConverterException() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(i);
+        }
+
+        bulkClientApiConverter.convert(items, (item, index) -> {
+            if (item == 500) {
+                throw new IllegalStateException("boom");
+            }
+            return item;
+        });
+    }
+
+    @Test
+    public void testToClientApiVertices() {
+        VisibilityJson visibilityJson = new VisibilityJson("source");
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Vertex vertex = graph.prepareVertex("v" + i, new Visibility(""))
+                    .setProperty(VisalloProperties.VISIBILITY_JSON.getPropertyName(), VisalloProperties.VISIBILITY_JSON.wrap(visibilityJson), new Visibility(""))
+                    .save(AUTHORIZATIONS);
+            vertices.add(vertex);
+        }
+
+        List<ClientApiVertex> clientApiVertices = bulkClientApiConverter.toClientApiVertices(vertices, null, AUTHORIZATIONS);
+
+        assertEquals(100, clientApiVertices.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("v" + i, clientApiVertices.get(i).getId());
+            assertEquals("source", clientApiVertices.get(i).getVisibilitySource());
+        }
+    }
+}
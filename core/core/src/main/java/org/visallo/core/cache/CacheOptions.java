@@ -2,6 +2,7 @@ package org.visallo.core.cache;
 
 public class CacheOptions {
     private Long maximumSize;
+    private Long expireAfterWriteSeconds;
 
     public Long getMaximumSize() {
         return maximumSize;
@@ -11,4 +12,13 @@ public class CacheOptions {
         this.maximumSize = maximumSize;
         return this;
     }
+
+    public Long getExpireAfterWriteSeconds() {
+        return expireAfterWriteSeconds;
+    }
+
+    public CacheOptions setExpireAfterWriteSeconds(Long expireAfterWriteSeconds) {
+        this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+        return this;
+    }
 }
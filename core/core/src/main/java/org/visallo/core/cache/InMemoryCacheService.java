@@ -7,6 +7,7 @@ import com.google.inject.Singleton;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -73,6 +74,9 @@ public class InMemoryCacheService implements CacheService {
         if (cacheOptions.getMaximumSize() != null) {
             builder.maximumSize(cacheOptions.getMaximumSize());
         }
+        if (cacheOptions.getExpireAfterWriteSeconds() != null) {
+            builder.expireAfterWrite(cacheOptions.getExpireAfterWriteSeconds(), TimeUnit.SECONDS);
+        }
         cache = builder.build();
         caches.put(cacheName, cache);
         return cache;
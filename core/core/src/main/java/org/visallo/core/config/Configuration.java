@@ -161,6 +161,10 @@ public class Configuration {
         return getLong(propertyKey, null);
     }
 
+    public Double getDouble(String propertyKey, Double defaultValue) {
+        return Double.parseDouble(get(propertyKey, defaultValue == null ? null : defaultValue.toString()));
+    }
+
     public <T> Class<? extends T> getClass(String propertyKey) {
         return getClass(propertyKey, null);
     }
@@ -0,0 +1,15 @@
+package org.visallo.core.exception;
+
+public class VisalloLockTimeoutException extends VisalloException {
+    private static final long serialVersionUID = 4961273050843652385L;
+    private final String lockName;
+
+    public VisalloLockTimeoutException(String lockName, String message) {
+        super(message);
+        this.lockName = lockName;
+    }
+
+    public String getLockName() {
+        return lockName;
+    }
+}
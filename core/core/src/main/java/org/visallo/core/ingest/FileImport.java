@@ -1,14 +1,19 @@
 package org.visallo.core.ingest;
 
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.commons.io.IOUtils;
 import org.json.JSONObject;
 import org.vertexium.*;
+import org.vertexium.mutation.ExistingElementMutation;
 import org.vertexium.property.StreamingPropertyValue;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.WorkQueueNames;
+import org.visallo.core.model.contentHash.ContentHashRepository;
+import org.visallo.core.model.contentHash.ContentHashVertex;
 import org.visallo.core.model.ontology.OntologyProperty;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -22,6 +27,7 @@ import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.security.VisalloVisibility;
 import org.visallo.core.security.VisibilityTranslator;
 import org.visallo.core.user.User;
+import org.visallo.core.util.ContentHashInputStream;
 import org.visallo.core.util.RowKeyHelper;
 import org.visallo.core.util.ServiceLoaderUtil;
 import org.visallo.core.util.VisalloLogger;
@@ -29,11 +35,12 @@ import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.ClientApiImportProperty;
 import org.visallo.web.clientapi.model.VisibilityJson;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.file.Files;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.vertexium.util.IterableUtils.toList;
 
@@ -41,6 +48,17 @@ import static org.vertexium.util.IterableUtils.toList;
 public class FileImport {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(FileImport.class);
     public static final String MULTI_VALUE_KEY = FileImport.class.getName();
+    public static final String CONFIG_THREAD_COUNT = FileImport.class.getName() + ".threadCount";
+    public static final int DEFAULT_THREAD_COUNT = 4;
+    public static final String CONFIG_FLUSH_BATCH_SIZE = FileImport.class.getName() + ".flushBatchSize";
+    public static final int DEFAULT_FLUSH_BATCH_SIZE = 100;
+    public static final String CONFIG_MAX_BUFFERED_FILE_SIZE = FileImport.class.getName() + ".maxBufferedFileSize";
+    public static final long DEFAULT_MAX_BUFFERED_FILE_SIZE = 16 * 1024 * 1024;
+    public static final String CONFIG_SEARCH_CONTENT_HASH_FALLBACK = FileImport.class.getName() + ".searchContentHashFallback";
+    public static final boolean DEFAULT_SEARCH_CONTENT_HASH_FALLBACK = false;
+    public static final String CONFIG_CONTENT_HASH_RESERVATION_TIMEOUT_MILLIS = FileImport.class.getName() + ".contentHashReservationTimeoutMillis";
+    public static final long DEFAULT_CONTENT_HASH_RESERVATION_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    private static final long CONTENT_HASH_RESERVATION_POLL_MILLIS = 250;
     private final VisibilityTranslator visibilityTranslator;
     private final Graph graph;
     private final WorkQueueRepository workQueueRepository;
@@ -48,6 +66,11 @@ public class FileImport {
     private final WorkQueueNames workQueueNames;
     private final OntologyRepository ontologyRepository;
     private final Configuration configuration;
+    private final ContentHashRepository contentHashRepository;
+    private final long maxBufferedFileSize;
+    private final boolean searchContentHashFallback;
+    private final long contentHashReservationTimeoutMillis;
+    private final Map<String, CompletableFuture<Vertex>> savingVerticesByContentHash = new ConcurrentHashMap<>();
     private List<FileImportSupportingFileHandler> fileImportSupportingFileHandlers;
     private List<PostFileImportHandler> postFileImportHandlers;
 
@@ -59,6 +82,7 @@ public class FileImport {
             WorkspaceRepository workspaceRepository,
             WorkQueueNames workQueueNames,
             OntologyRepository ontologyRepository,
+            ContentHashRepository contentHashRepository,
             Configuration configuration
     ) {
         this.visibilityTranslator = visibilityTranslator;
@@ -68,8 +92,16 @@ public class FileImport {
         this.workQueueNames = workQueueNames;
         this.ontologyRepository = ontologyRepository;
         this.configuration = configuration;
+        this.contentHashRepository = contentHashRepository;
+        this.maxBufferedFileSize = configuration.getLong(CONFIG_MAX_BUFFERED_FILE_SIZE, DEFAULT_MAX_BUFFERED_FILE_SIZE);
+        this.searchContentHashFallback = configuration.getBoolean(CONFIG_SEARCH_CONTENT_HASH_FALLBACK, DEFAULT_SEARCH_CONTENT_HASH_FALLBACK);
+        this.contentHashReservationTimeoutMillis = configuration.getLong(CONFIG_CONTENT_HASH_RESERVATION_TIMEOUT_MILLIS, DEFAULT_CONTENT_HASH_RESERVATION_TIMEOUT_MILLIS);
     }
 
+    /**
+     * Imports the files of a directory on a pool of {@value #CONFIG_THREAD_COUNT} threads, the graph is flushed
+     * and the workspace updated once every {@value #CONFIG_FLUSH_BATCH_SIZE} files rather than for each file.
+     */
     public void importDirectory(
             File dataDir,
             boolean queueDuplicates,
@@ -88,9 +120,26 @@ public class FileImport {
             return;
         }
 
+        int threadCount = Math.max(1, configuration.getInt(CONFIG_THREAD_COUNT, DEFAULT_THREAD_COUNT));
+        int flushBatchSize = Math.max(1, configuration.getInt(CONFIG_FLUSH_BATCH_SIZE, DEFAULT_FLUSH_BATCH_SIZE));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threadCount * 2),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("visallo-file-import-%d")
+                        .setDaemon(true)
+                        .build(),
+                // keeps the queue bounded by having the listing thread import files when the pool is busy
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        ImportBatch batch = new ImportBatch(flushBatchSize, user);
+
         int totalFileCount = files.length;
-        int fileCount = 0;
-        int importedFileCount = 0;
+        AtomicInteger fileCount = new AtomicInteger();
+        AtomicInteger importedFileCount = new AtomicInteger();
         try {
             for (File f : files) {
                 if (f.getName().startsWith(".") || f.length() == 0) {
@@ -100,32 +149,40 @@ public class FileImport {
                     continue;
                 }
 
-                LOGGER.debug("Importing file (%d/%d): %s", fileCount + 1, totalFileCount, f.getAbsolutePath());
-                try {
-                    importFile(
-                            f,
-                            f.getName(),
-                            queueDuplicates,
-                            conceptTypeIRI,
-                            null,
-                            visibilitySource,
-                            workspace,
-                            true,
-                            priority,
-                            user,
-                            authorizations
-                    );
-                    importedFileCount++;
-                } catch (Exception ex) {
-                    LOGGER.error("Could not import %s", f.getAbsolutePath(), ex);
-                }
-                fileCount++;
+                executor.execute(() -> {
+                    LOGGER.debug("Importing file (%d/%d): %s", fileCount.incrementAndGet(), totalFileCount, f.getAbsolutePath());
+                    try {
+                        ImportedFile importedFile = saveFile(
+                                f,
+                                f.getName(),
+                                queueDuplicates,
+                                conceptTypeIRI,
+                                null,
+                                visibilitySource,
+                                workspace,
+                                true,
+                                priority,
+                                user,
+                                authorizations
+                        );
+                        batch.add(importedFile);
+                        importedFileCount.incrementAndGet();
+                    } catch (Exception ex) {
+                        LOGGER.error("Could not import %s", f.getAbsolutePath(), ex);
+                    }
+                });
             }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while importing " + dataDir, ex);
         } finally {
-            graph.flush();
+            executor.shutdownNow();
+            batch.finish();
         }
 
-        LOGGER.debug(String.format("Imported %d, skipped %d files from %s", importedFileCount, fileCount - importedFileCount, dataDir));
+        LOGGER.debug(String.format("Imported %d, skipped %d files from %s", importedFileCount.get(), fileCount.get() - importedFileCount.get(), dataDir));
     }
 
     private boolean isSupportingFile(File f) {
@@ -231,13 +288,59 @@ public class FileImport {
             User user,
             Authorizations authorizations
     ) throws Exception {
-        Vertex vertex;
         ensureInitialized();
 
-        String hash = calculateFileHash(f);
+        ImportedFile importedFile = saveFile(
+                f,
+                originalFilename,
+                queueDuplicates,
+                conceptId,
+                properties,
+                visibilitySource,
+                workspace,
+                findExistingByFileHash,
+                priority,
+                user,
+                authorizations
+        );
+        finishImports(Collections.singletonList(importedFile), user);
+        return importedFile.vertex;
+    }
+
+    /**
+     * Saves the file without flushing the graph, the import is completed by {@link #finishImports(List, User)}.
+     */
+    private ImportedFile saveFile(
+            File f,
+            String originalFilename,
+            boolean queueDuplicates,
+            String conceptId,
+            ClientApiImportProperty[] properties,
+            String visibilitySource,
+            Workspace workspace,
+            boolean findExistingByFileHash,
+            Priority priority,
+            User user,
+            Authorizations authorizations
+    ) throws Exception {
+        Vertex vertex;
+        String hash = null;
+        byte[] content = null;
+        JSONObject metadataJson = loadMetadataJson(f);
+        String predefinedId = metadataJson == null ? null : metadataJson.optString("id", null);
+        String vertexId = predefinedId == null ? graph.getIdGenerator().nextId() : predefinedId;
+        CompletableFuture<Vertex> savingVertex = null;
 
         if (findExistingByFileHash) {
-            vertex = findExistingVertexWithHash(hash, authorizations);
+            // the hash is needed before storing, small files are kept in memory so they are only read once
+            if (f.length() <= maxBufferedFileSize) {
+                content = Files.readAllBytes(f.toPath());
+                hash = RowKeyHelper.buildSHA256KeyString(content);
+            } else {
+                hash = calculateFileHash(f);
+            }
+            ContentHashReservation reservation = reserveContentHash(hash, vertexId, authorizations);
+            vertex = reservation.existingVertex;
             if (vertex != null) {
                 LOGGER.debug("vertex already exists with hash %s", hash);
                 if (queueDuplicates) {
@@ -270,24 +373,76 @@ public class FileImport {
                         );
                     }
                 }
-                return vertex;
+                return new ImportedFile(vertex);
             }
+            // concurrent imports of the same content wait for this vertex, it stays registered until it is flushed
+            savingVertex = reservation.savingVertex;
         }
 
+        try {
+            ImportedFile importedFile = saveNewFile(
+                    f,
+                    content,
+                    hash,
+                    vertexId,
+                    metadataJson,
+                    originalFilename,
+                    conceptId,
+                    properties,
+                    visibilitySource,
+                    workspace,
+                    priority,
+                    user,
+                    authorizations
+            );
+            if (savingVertex != null) {
+                savingVertex.complete(importedFile.vertex);
+                importedFile.setSavingVertex(hash, savingVertex);
+            }
+            return importedFile;
+        } catch (Exception | Error ex) {
+            if (savingVertex != null) {
+                contentHashRepository.release(hash, vertexId);
+                savingVertex.completeExceptionally(ex);
+                savingVerticesByContentHash.remove(hash, savingVertex);
+            }
+            throw ex;
+        }
+    }
+
+    private ImportedFile saveNewFile(
+            File f,
+            byte[] content,
+            String hash,
+            String vertexId,
+            JSONObject metadataJson,
+            String originalFilename,
+            String conceptId,
+            ClientApiImportProperty[] properties,
+            String visibilitySource,
+            Workspace workspace,
+            Priority priority,
+            User user,
+            Authorizations authorizations
+    ) throws Exception {
+        Vertex vertex;
+        String reservedContentHash = null;
         List<FileImportSupportingFileHandler.AddSupportingFilesResult> addSupportingFilesResults = new ArrayList<>();
 
-        try (FileInputStream fileInputStream = new FileInputStream(f)) {
-            JSONObject metadataJson = loadMetadataJson(f);
-            String predefinedId = null;
+        try (InputStream fileInputStream = content == null ? new FileInputStream(f) : new ByteArrayInputStream(content)) {
             if (metadataJson != null) {
-                predefinedId = metadataJson.optString("id", null);
                 String metadataVisibilitySource = metadataJson.optString("visibilitySource", null);
                 if (metadataVisibilitySource != null) {
                     visibilitySource = metadataVisibilitySource;
                 }
             }
 
-            StreamingPropertyValue rawValue = new StreamingPropertyValue(fileInputStream, byte[].class);
+            // without a hash yet, hash the file while it is being stored
+            ContentHashInputStream contentHashInputStream = hash == null ? new ContentHashInputStream(fileInputStream) : null;
+            StreamingPropertyValue rawValue = new StreamingPropertyValue(
+                    contentHashInputStream == null ? fileInputStream : contentHashInputStream,
+                    byte[].class
+            );
             rawValue.searchIndex(false);
 
             Date modifiedDate = new Date();
@@ -301,15 +456,12 @@ public class FileImport {
             VisibilityJson defaultVisibilityJson = new VisibilityJson(defaultVisibility.getVisibilityString());
             PropertyMetadata defaultPropertyMetadata = new PropertyMetadata(modifiedDate, user, defaultVisibilityJson, defaultVisibility);
 
-            VertexBuilder vertexBuilder;
-            if (predefinedId == null) {
-                vertexBuilder = this.graph.prepareVertex(visibility);
-            } else {
-                vertexBuilder = this.graph.prepareVertex(predefinedId, visibility);
-            }
+            VertexBuilder vertexBuilder = this.graph.prepareVertex(vertexId, visibility);
             List<VisalloPropertyUpdate> changedProperties = new ArrayList<>();
             VisalloProperties.RAW.updateProperty(changedProperties, null, vertexBuilder, rawValue, defaultPropertyMetadata);
-            VisalloProperties.CONTENT_HASH.updateProperty(changedProperties, null, vertexBuilder, MULTI_VALUE_KEY, hash, defaultPropertyMetadata);
+            if (hash != null) {
+                VisalloProperties.CONTENT_HASH.updateProperty(changedProperties, null, vertexBuilder, MULTI_VALUE_KEY, hash, defaultPropertyMetadata);
+            }
 
             String fileName = Strings.isNullOrEmpty(originalFilename) ? f.getName() : originalFilename;
             VisalloProperties.FILE_NAME.updateProperty(changedProperties, null, vertexBuilder, MULTI_VALUE_KEY, fileName, propertyMetadata);
@@ -361,36 +513,91 @@ public class FileImport {
 
             vertex = vertexBuilder.save(authorizations);
 
+            if (contentHashInputStream != null) {
+                hash = getContentHash(f, contentHashInputStream);
+                ExistingElementMutation<Vertex> m = vertex.prepareMutation();
+                VisalloProperties.CONTENT_HASH.updateProperty(changedProperties, null, m, MULTI_VALUE_KEY, hash, defaultPropertyMetadata);
+                vertex = m.save(authorizations);
+                // record the content for later imports unless another vertex already holds it
+                if (contentHashRepository.reserve(hash, vertex.getId()) == null) {
+                    reservedContentHash = hash;
+                }
+            }
+
             for (PostFileImportHandler postFileImportHandler : this.postFileImportHandlers) {
                 postFileImportHandler.handle(graph, vertex, changedProperties, workspace, propertyMetadata, visibility, user, authorizations);
             }
 
-            graph.flush();
+            LOGGER.debug("File %s saved. vertex id: %s", f.getAbsolutePath(), vertex.getId());
+            ImportedFile importedFile = new ImportedFile(vertex, changedProperties, workspace, visibilitySource, priority);
+            importedFile.contentHash = reservedContentHash;
+            return importedFile;
+        } finally {
+            for (FileImportSupportingFileHandler.AddSupportingFilesResult addSupportingFilesResult : addSupportingFilesResults) {
+                addSupportingFilesResult.close();
+            }
+        }
+    }
+
+    /**
+     * Flushes the graph once for all the saved files, then adds them to their workspaces and queues them.
+     */
+    private void finishImports(List<ImportedFile> importedFiles, User user) {
+        graph.flush();
+        for (ImportedFile importedFile : importedFiles) {
+            if (importedFile.contentHash != null) {
+                // the vertex is flushed, imports on other servers can use it now
+                contentHashRepository.commit(
+                        importedFile.contentHash,
+                        importedFile.vertex.getId(),
+                        importedFile.vertex.getVisibility().getVisibilityString()
+                );
+            }
+            if (importedFile.savingVertex != null) {
+                savingVerticesByContentHash.remove(importedFile.contentHash, importedFile.savingVertex);
+            }
+        }
 
-            String workspaceId = null;
-            if (workspace != null) {
-                workspaceRepository.updateEntityOnWorkspace(workspace, vertex.getId(), user);
-                workspaceId = workspace.getWorkspaceId();
+        Map<String, Workspace> workspacesById = new HashMap<>();
+        Map<String, List<String>> vertexIdsByWorkspaceId = new HashMap<>();
+        for (ImportedFile importedFile : importedFiles) {
+            if (importedFile.existing || importedFile.workspace == null) {
+                continue;
             }
+            String workspaceId = importedFile.workspace.getWorkspaceId();
+            workspacesById.put(workspaceId, importedFile.workspace);
+            vertexIdsByWorkspaceId.computeIfAbsent(workspaceId, id -> new ArrayList<>()).add(importedFile.vertex.getId());
+        }
+        for (Map.Entry<String, List<String>> entry : vertexIdsByWorkspaceId.entrySet()) {
+            workspaceRepository.updateEntitiesOnWorkspace(workspacesById.get(entry.getKey()), entry.getValue(), user);
+        }
 
-            LOGGER.debug("File %s imported. vertex id: %s", f.getAbsolutePath(), vertex.getId());
-            LOGGER.debug("pushing %s on to %s queue", vertex.getId(), workQueueNames.getGraphPropertyQueueName());
-            this.workQueueRepository.broadcastElement(vertex, workspaceId);
+        for (ImportedFile importedFile : importedFiles) {
+            if (importedFile.existing) {
+                continue;
+            }
+            String workspaceId = importedFile.workspace == null ? null : importedFile.workspace.getWorkspaceId();
+            LOGGER.debug("pushing %s on to %s queue", importedFile.vertex.getId(), workQueueNames.getGraphPropertyQueueName());
+            this.workQueueRepository.broadcastElement(importedFile.vertex, workspaceId);
             this.workQueueRepository.pushGraphVisalloPropertyQueue(
-                    vertex,
-                    changedProperties,
-                    workspace == null ? null : workspace.getWorkspaceId(),
-                    visibilitySource,
-                    priority
+                    importedFile.vertex,
+                    importedFile.changedProperties,
+                    workspaceId,
+                    importedFile.visibilitySource,
+                    importedFile.priority
             );
-            return vertex;
-        } finally {
-            for (FileImportSupportingFileHandler.AddSupportingFilesResult addSupportingFilesResult : addSupportingFilesResults) {
-                addSupportingFilesResult.close();
-            }
         }
     }
 
+    private String getContentHash(File f, ContentHashInputStream contentHashInputStream) throws IOException {
+        if (contentHashInputStream.getByteCount() == f.length()) {
+            return contentHashInputStream.getContentHash();
+        }
+        // the graph did not read the whole value while saving it
+        LOGGER.debug("raw value of %s was not read while saving, hashing it separately", f.getAbsolutePath());
+        return calculateFileHash(f);
+    }
+
     private void addProperties(ClientApiImportProperty[] properties, List<VisalloPropertyUpdate> changedProperties, VertexBuilder vertexBuilder, VisibilityJson visibilityJson, Workspace workspace, User user) throws ParseException {
         for (ClientApiImportProperty property : properties) {
             OntologyProperty ontologyProperty = ontologyRepository.getPropertyByIRI(property.getName(), workspace.getWorkspaceId());
@@ -420,26 +627,32 @@ public class FileImport {
         ensureInitialized();
 
         List<Vertex> vertices = new ArrayList<>();
-        for (FileOptions file : files) {
-            if (isSupportingFile(file.getFile())) {
-                LOGGER.debug("Skipping file: %s (supporting file)", file.getFile().getAbsolutePath());
-                continue;
+        List<ImportedFile> importedFiles = new ArrayList<>();
+        try {
+            for (FileOptions file : files) {
+                if (isSupportingFile(file.getFile())) {
+                    LOGGER.debug("Skipping file: %s (supporting file)", file.getFile().getAbsolutePath());
+                    continue;
+                }
+                LOGGER.debug("Processing file: %s", file.getFile().getAbsolutePath());
+                ImportedFile importedFile = saveFile(
+                        file.getFile(),
+                        file.getOriginalFilename(),
+                        true,
+                        file.getConceptId(),
+                        file.getProperties(),
+                        file.getVisibilitySource(),
+                        workspace,
+                        findExistingByFileHash,
+                        priority,
+                        user,
+                        authorizations
+                );
+                importedFiles.add(importedFile);
+                vertices.add(importedFile.vertex);
             }
-            LOGGER.debug("Processing file: %s", file.getFile().getAbsolutePath());
-            Vertex vertex = importFile(
-                    file.getFile(),
-                    file.getOriginalFilename(),
-                    true,
-                    file.getConceptId(),
-                    file.getProperties(),
-                    file.getVisibilitySource(),
-                    workspace,
-                    findExistingByFileHash,
-                    priority,
-                    user,
-                    authorizations
-            );
-            vertices.add(vertex);
+        } finally {
+            finishImports(importedFiles, user);
         }
         return vertices;
     }
@@ -473,15 +686,118 @@ public class FileImport {
         return toList(ServiceLoaderUtil.load(FileImportSupportingFileHandler.class, this.configuration));
     }
 
-    private Vertex findExistingVertexWithHash(String hash, Authorizations authorizations) {
+    /**
+     * Reserves the content for vertexId or finds the vertex already holding it. Imports of the same content in
+     * this JVM wait for the first one, imports on other servers wait for the pending reservation in the
+     * {@link ContentHashRepository} to be committed.
+     */
+    private ContentHashReservation reserveContentHash(String hash, String vertexId, Authorizations authorizations) {
+        CompletableFuture<Vertex> savingVertex = new CompletableFuture<>();
+        CompletableFuture<Vertex> otherSavingVertex;
+        while ((otherSavingVertex = savingVerticesByContentHash.putIfAbsent(hash, savingVertex)) != null) {
+            Vertex vertex = getSavingVertex(hash, otherSavingVertex);
+            if (vertex != null && authorizations.canRead(vertex.getVisibility())) {
+                return new ContentHashReservation(vertex, null);
+            }
+            if (vertex != null) {
+                // held by a vertex this user can't see, import a new one like the search based lookup did
+                return new ContentHashReservation(null, null);
+            }
+            savingVerticesByContentHash.remove(hash, otherSavingVertex);
+        }
+
+        try {
+            Vertex vertex = findOrReserveContentHash(hash, vertexId, authorizations);
+            if (vertex != null) {
+                savingVertex.complete(vertex);
+                savingVerticesByContentHash.remove(hash, savingVertex);
+                return new ContentHashReservation(vertex, null);
+            }
+            return new ContentHashReservation(null, savingVertex);
+        } catch (RuntimeException ex) {
+            savingVertex.completeExceptionally(ex);
+            savingVerticesByContentHash.remove(hash, savingVertex);
+            throw ex;
+        }
+    }
+
+    /**
+     * @return the vertex holding the content, or null if a new vertex has to be imported, in which case the
+     * content is reserved for vertexId unless it is held by a vertex this user can't see
+     */
+    private Vertex findOrReserveContentHash(String hash, String vertexId, Authorizations authorizations) {
+        while (true) {
+            ContentHashVertex existing = contentHashRepository.reserve(hash, vertexId);
+            if (existing == null) {
+                return searchContentHashFallback ? findExistingVertexWithHash(hash, vertexId, authorizations) : null;
+            }
+
+            if (!existing.isCommitted()) {
+                long reservedMillis = System.currentTimeMillis() - existing.getReservedTime();
+                if (reservedMillis < contentHashReservationTimeoutMillis) {
+                    LOGGER.debug("content %s is being imported as vertex %s, waiting", hash, existing.getVertexId());
+                    sleep(hash, CONTENT_HASH_RESERVATION_POLL_MILLIS);
+                    continue;
+                }
+                LOGGER.warn("import of content %s as vertex %s did not finish within %dms, importing it again", hash, existing.getVertexId(), reservedMillis);
+                if (contentHashRepository.replace(hash, existing.getVertexId(), vertexId)) {
+                    return null;
+                }
+                continue;
+            }
+
+            Vertex vertex = graph.getVertex(existing.getVertexId(), authorizations);
+            if (vertex != null) {
+                return vertex;
+            }
+            if (existing.getVisibility() != null && !authorizations.canRead(new Visibility(existing.getVisibility()))) {
+                // held by a vertex this user can't see, import a new one like the search based lookup did
+                return null;
+            }
+            LOGGER.debug("vertex %s holding content %s was deleted, importing a new vertex", existing.getVertexId(), hash);
+            if (contentHashRepository.replace(hash, existing.getVertexId(), vertexId)) {
+                return null;
+            }
+        }
+    }
+
+    private static void sleep(String hash, long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted waiting for the import of content " + hash, ex);
+        }
+    }
+
+    private Vertex getSavingVertex(String hash, CompletableFuture<Vertex> savingVertex) {
+        try {
+            return savingVertex.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted waiting for the import of content " + hash, ex);
+        } catch (ExecutionException ex) {
+            LOGGER.debug("import of content %s failed", hash);
+            return null;
+        }
+    }
+
+    /**
+     * Finds a vertex imported before the content hash index existed and moves the reservation of vertexId to it.
+     */
+    private Vertex findExistingVertexWithHash(String hash, String vertexId, Authorizations authorizations) {
         Iterator<Vertex> existingVertices = this.graph.query(authorizations)
                 .has(VisalloProperties.CONTENT_HASH.getPropertyName(), hash)
                 .vertices()
                 .iterator();
-        if (existingVertices.hasNext()) {
-            return existingVertices.next();
+        if (!existingVertices.hasNext()) {
+            return null;
         }
-        return null;
+        Vertex vertex = existingVertices.next();
+        if (contentHashRepository.replace(hash, vertexId, vertex.getId())) {
+            contentHashRepository.commit(hash, vertex.getId(), vertex.getVisibility().getVisibilityString());
+        }
+        return vertex;
     }
 
     private String calculateFileHash(File f) throws IOException {
@@ -490,6 +806,93 @@ public class FileImport {
         }
     }
 
+    private static class ContentHashReservation {
+        private final Vertex existingVertex;
+        private final CompletableFuture<Vertex> savingVertex;
+
+        private ContentHashReservation(Vertex existingVertex, CompletableFuture<Vertex> savingVertex) {
+            this.existingVertex = existingVertex;
+            this.savingVertex = savingVertex;
+        }
+    }
+
+    private static class ImportedFile {
+        private final Vertex vertex;
+        private final boolean existing;
+        private final List<VisalloPropertyUpdate> changedProperties;
+        private final Workspace workspace;
+        private final String visibilitySource;
+        private final Priority priority;
+        private String contentHash;
+        private CompletableFuture<Vertex> savingVertex;
+
+        private ImportedFile(Vertex existingVertex) {
+            this.vertex = existingVertex;
+            this.existing = true;
+            this.changedProperties = null;
+            this.workspace = null;
+            this.visibilitySource = null;
+            this.priority = null;
+        }
+
+        private ImportedFile(
+                Vertex vertex,
+                List<VisalloPropertyUpdate> changedProperties,
+                Workspace workspace,
+                String visibilitySource,
+                Priority priority
+        ) {
+            this.vertex = vertex;
+            this.existing = false;
+            this.changedProperties = changedProperties;
+            this.workspace = workspace;
+            this.visibilitySource = visibilitySource;
+            this.priority = priority;
+        }
+
+        private void setSavingVertex(String contentHash, CompletableFuture<Vertex> savingVertex) {
+            this.contentHash = contentHash;
+            this.savingVertex = savingVertex;
+        }
+    }
+
+    /**
+     * Collects files saved by the import threads and finishes them in batches.
+     */
+    private class ImportBatch {
+        private final int flushBatchSize;
+        private final User user;
+        private final List<ImportedFile> importedFiles = new ArrayList<>();
+
+        private ImportBatch(int flushBatchSize, User user) {
+            this.flushBatchSize = flushBatchSize;
+            this.user = user;
+        }
+
+        public void add(ImportedFile importedFile) {
+            List<ImportedFile> toFinish = null;
+            synchronized (importedFiles) {
+                importedFiles.add(importedFile);
+                if (importedFiles.size() >= flushBatchSize) {
+                    toFinish = new ArrayList<>(importedFiles);
+                    importedFiles.clear();
+                }
+            }
+            if (toFinish != null) {
+                finishImports(toFinish, user);
+            }
+        }
+
+        public void finish() {
+            List<ImportedFile> toFinish;
+            synchronized (importedFiles) {
+                toFinish = new ArrayList<>(importedFiles);
+                importedFiles.clear();
+            }
+            finishImports(toFinish, user);
+        }
+    }
+
     public static class FileOptions {
         private File file;
         private String originalFilename;
@@ -1,9 +1,7 @@
 package org.visallo.core.ingest.cloud;
 
-import com.google.common.io.ByteProcessor;
-import com.google.common.io.ByteStreams;
-import com.google.common.io.Closeables;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.commons.io.FileUtils;
@@ -25,19 +23,39 @@ import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
 import org.visallo.core.util.ClientApiConverter;
 import org.visallo.core.util.JSONUtil;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.ClientApiImportProperty;
 
 import java.io.*;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Imports the items of a cloud destination. Items are downloaded concurrently into a temp directory, each file is
+ * imported as soon as it is downloaded and deleted once imported. The files waiting to be imported are limited to
+ * {@link #CONFIG_MAX_TEMP_SPACE_BYTES} so a large import doesn't need temp space for the whole destination.
+ */
 @Singleton
 public class CloudImportLongRunningProcessWorker extends LongRunningProcessWorker {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(CloudImportLongRunningProcessWorker.class);
+    public static final String CONFIG_DOWNLOAD_THREAD_COUNT = CloudImportLongRunningProcessWorker.class.getName() + ".downloadThreadCount";
+    public static final int DEFAULT_DOWNLOAD_THREAD_COUNT = 4;
+    public static final String CONFIG_MAX_TEMP_SPACE_BYTES = CloudImportLongRunningProcessWorker.class.getName() + ".maxTempSpaceBytes";
+    public static final long DEFAULT_MAX_TEMP_SPACE_BYTES = 1024L * 1024 * 1024;
+    private static final double PROGRESS_REPORT_FRACTION = 0.01;
     private final Configuration configuration;
     private final FileImport fileImport;
     private final Graph graph;
     private final UserRepository userRepository;
     private final WorkspaceRepository workspaceRepository;
     private final LongRunningProcessRepository longRunningProcessRepository;
+    private final int downloadThreadCount;
+    private final long maxTempSpaceBytes;
+    private volatile Map<String, CloudResourceSource> destinationsByClassName;
 
     @Inject
     public CloudImportLongRunningProcessWorker(
@@ -54,6 +72,8 @@ public class CloudImportLongRunningProcessWorker extends LongRunningProcessWorke
         this.userRepository = userRepository;
         this.workspaceRepository = workspaceRepository;
         this.longRunningProcessRepository = longRunningProcessRepository;
+        this.downloadThreadCount = Math.max(1, configuration.getInt(CONFIG_DOWNLOAD_THREAD_COUNT, DEFAULT_DOWNLOAD_THREAD_COUNT));
+        this.maxTempSpaceBytes = Math.max(1, configuration.getLong(CONFIG_MAX_TEMP_SPACE_BYTES, DEFAULT_MAX_TEMP_SPACE_BYTES));
     }
 
     @Override
@@ -78,13 +98,19 @@ public class CloudImportLongRunningProcessWorker extends LongRunningProcessWorke
     }
 
     private CloudResourceSource getDestination(String className) {
-        Collection<CloudResourceSource> destinations = InjectHelper.getInjectedServices(CloudResourceSource.class, configuration);
-        for (CloudResourceSource destination : destinations) {
-            if (destination.getClass().getName().equals(className)) {
-                return destination;
+        Map<String, CloudResourceSource> destinations = destinationsByClassName;
+        if (destinations == null) {
+            destinations = new HashMap<>();
+            for (CloudResourceSource destination : getCloudResourceSources()) {
+                destinations.put(destination.getClass().getName(), destination);
             }
+            destinationsByClassName = destinations;
         }
-        return null;
+        return destinations.get(className);
+    }
+
+    protected Collection<CloudResourceSource> getCloudResourceSources() {
+        return InjectHelper.getInjectedServices(CloudResourceSource.class, configuration);
     }
 
     private void download(CloudResourceSource destination, CloudImportLongRunningProcessQueueItem item, JSONObject itemJson) throws Exception {
@@ -100,10 +126,17 @@ public class CloudImportLongRunningProcessWorker extends LongRunningProcessWorke
         boolean findExistingByFileHash = true;
 
         File tempDir = Files.createTempDir();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                downloadThreadCount,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("visallo-cloud-import-%d")
+                        .setDaemon(true)
+                        .build()
+        );
         try {
             Collection<CloudResourceSourceItem> items = destination.getItems(new JSONObject(item.getConfiguration()));
-            Long allItemsSize = 0L;
             itemJson.put("itemsCount", items.size());
+            long allItemsSize = 0L;
             for (CloudResourceSourceItem cloudResourceSourceItem : items) {
                 Long size = cloudResourceSourceItem.getSize();
                 if (size != null) {
@@ -111,81 +144,195 @@ public class CloudImportLongRunningProcessWorker extends LongRunningProcessWorke
                 }
             }
 
-            long noSizeProgress = 0;
-            long cumulativeSize = 0;
+            DownloadProgress progress = new DownloadProgress(id, items.size(), allItemsSize);
+            TempSpace tempSpace = new TempSpace(maxTempSpaceBytes);
+            CompletionService<DownloadedFile> downloads = new ExecutorCompletionService<>(executor);
+            int itemIndex = 0;
             for (CloudResourceSourceItem cloudResourceSourceItem : items) {
                 String fileName = cloudResourceSourceItem.getName();
                 if (fileName == null) throw new VisalloException("Cloud destination item name must not be null");
-                File file = new File(tempDir, cloudResourceSourceItem.getName());
+                // each item gets its own directory so items with the same name don't overwrite each other
+                File file = new File(new File(tempDir, Integer.toString(itemIndex++)), fileName);
+                downloads.submit(() -> downloadFile(cloudResourceSourceItem, file, tempSpace, progress));
+            }
 
-                try (InputStream inputStream = cloudResourceSourceItem.getInputStream()) {
-                    if (inputStream == null) {
-                        throw new VisalloException("Cloud destination input stream must not be null");
-                    }
+            // import the files in the order they finish downloading while the others are still downloading
+            for (int i = 0; i < items.size(); i++) {
+                DownloadedFile downloadedFile = getDownloadedFile(downloads);
+                try {
+                    progress.reportImporting(downloadedFile.file.getName());
+                    Vertex vertex = fileImport.importFile(
+                            downloadedFile.file,
+                            downloadedFile.file.getName(),
+                            queueDefaults,
+                            conceptId,
+                            properties,
+                            visibilitySource,
+                            workspace,
+                            findExistingByFileHash,
+                            priority,
+                            user,
+                            authorizations
+                    );
 
-                    noSizeProgress += (double) 1 / items.size();
-                    if (downloadFile(id, inputStream, file, cumulativeSize, allItemsSize, noSizeProgress)) {
-                        Vertex vertex = fileImport.importFile(
-                                file,
-                                file.getName(),
-                                queueDefaults,
-                                conceptId,
-                                properties,
-                                visibilitySource,
-                                workspace,
-                                findExistingByFileHash,
-                                priority,
-                                user,
-                                authorizations
-                        );
-
-                        JSONArray vertexIds = JSONUtil.getOrCreateJSONArray(itemJson, "vertexIds");
-                        vertexIds.put(vertex.getId());
-                    }
-                    if (allItemsSize > 0) {
-                        cumulativeSize += cloudResourceSourceItem.getSize();
+                    JSONArray vertexIds = JSONUtil.getOrCreateJSONArray(itemJson, "vertexIds");
+                    vertexIds.put(vertex.getId());
+                } finally {
+                    if (!downloadedFile.file.delete()) {
+                        LOGGER.warn("Could not delete imported file: %s", downloadedFile.file.getAbsolutePath());
                     }
+                    tempSpace.release(downloadedFile.reservedBytes);
                 }
+                progress.imported();
             }
         } finally {
+            executor.shutdownNow();
             longRunningProcessRepository.reportProgress(id, 1.0, "Finishing");
             FileUtils.deleteDirectory(tempDir);
         }
     }
 
-    private boolean downloadFile(String longRunningProcessId, InputStream inputStream, File file, Long cumulativeSize, Long allItemSize, double noSizeProgress) throws Exception {
-        final OutputStream out = new FileOutputStream(file);
+    private static DownloadedFile getDownloadedFile(CompletionService<DownloadedFile> downloads) throws Exception {
+        try {
+            return downloads.take().get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private DownloadedFile downloadFile(
+            CloudResourceSourceItem cloudResourceSourceItem,
+            File file,
+            TempSpace tempSpace,
+            DownloadProgress progress
+    ) throws Exception {
+        // items without a size take all the temp space until their size is known
+        Long size = cloudResourceSourceItem.getSize();
+        long reservedBytes = Math.min(size == null ? Long.MAX_VALUE : size, maxTempSpaceBytes);
+        tempSpace.acquire(reservedBytes);
         boolean success = false;
         try {
-            ByteStreams.readBytes(inputStream,
-                    new ByteProcessor<Object>() {
-                        private long progress = cumulativeSize;
-                        private long flushProgress = 0;
-                        public boolean processBytes(byte[] buffer, int offset, int length) throws IOException {
-                            out.write(buffer, offset, length);
-                            if (allItemSize > 0) {
-                                progress += length;
-                                flushProgress += length;
-                                if (((double)flushProgress / allItemSize) > 0.01) {
-                                    longRunningProcessRepository.reportProgress(longRunningProcessId, (double) progress / allItemSize, String.format("Downloading %s", file.getName()));
-                                    flushProgress = 0;
-                                }
-                            }
-                            return true;
-                        }
-                        public Void getResult() {
-                            return null;
+            if (!file.getParentFile().mkdirs()) {
+                throw new VisalloException("Could not create directory: " + file.getParentFile().getAbsolutePath());
+            }
+            try (InputStream inputStream = cloudResourceSourceItem.getInputStream()) {
+                if (inputStream == null) {
+                    throw new VisalloException("Cloud destination input stream must not be null");
+                }
+                try (OutputStream out = new FileOutputStream(file)) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("Download of " + file.getName() + " was cancelled");
                         }
-                    });
+                        out.write(buffer, 0, read);
+                        progress.downloaded(read, file.getName());
+                    }
+                }
+            }
+            if (size == null) {
+                long actualBytes = Math.min(file.length(), reservedBytes);
+                tempSpace.release(reservedBytes - actualBytes);
+                reservedBytes = actualBytes;
+            }
             success = true;
+            return new DownloadedFile(file, reservedBytes);
         } finally {
-            if (allItemSize.equals(0)) {
-                longRunningProcessRepository.reportProgress(longRunningProcessId, noSizeProgress, "Downloading");
+            if (!success) {
+                tempSpace.release(reservedBytes);
+                if (file.exists() && !file.delete()) {
+                    LOGGER.warn("Could not delete partially downloaded file: %s", file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private static class DownloadedFile {
+        private final File file;
+        private final long reservedBytes;
+
+        private DownloadedFile(File file, long reservedBytes) {
+            this.file = file;
+            this.reservedBytes = reservedBytes;
+        }
+    }
+
+    /**
+     * Bytes of temp space that downloaded files not yet imported may use. A file larger than the whole budget
+     * reserves all of it and is downloaded alone.
+     */
+    private static class TempSpace {
+        private long availableBytes;
+
+        private TempSpace(long availableBytes) {
+            this.availableBytes = availableBytes;
+        }
+
+        private synchronized void acquire(long bytes) throws InterruptedException {
+            while (availableBytes < bytes) {
+                wait();
             }
-            Closeables.close(out, !success);
+            availableBytes -= bytes;
         }
 
-        return success;
+        private synchronized void release(long bytes) {
+            availableBytes += bytes;
+            notifyAll();
+        }
     }
 
+    /**
+     * Progress of the import, half of it is downloading and half is importing.
+     */
+    private class DownloadProgress {
+        private final String longRunningProcessId;
+        private final int itemCount;
+        private final long allItemsSize;
+        private final AtomicLong downloadedBytes = new AtomicLong();
+        private final AtomicLong reportedBytes = new AtomicLong();
+        private int importedCount;
+
+        private DownloadProgress(String longRunningProcessId, int itemCount, long allItemsSize) {
+            this.longRunningProcessId = longRunningProcessId;
+            this.itemCount = itemCount;
+            this.allItemsSize = allItemsSize;
+        }
+
+        private void downloaded(long bytes, String fileName) {
+            long downloaded = downloadedBytes.addAndGet(bytes);
+            long reported = reportedBytes.get();
+            if (allItemsSize > 0
+                    && (double) (downloaded - reported) / allItemsSize > PROGRESS_REPORT_FRACTION
+                    && reportedBytes.compareAndSet(reported, downloaded)) {
+                report(String.format("Downloading %s", fileName));
+            }
+        }
+
+        private void reportImporting(String fileName) {
+            report(String.format("Importing %s", fileName));
+        }
+
+        private void imported() {
+            int imported;
+            synchronized (this) {
+                imported = ++importedCount;
+            }
+            report(String.format("Imported %d of %d", imported, itemCount));
+        }
+
+        private void report(String message) {
+            double importedFraction;
+            synchronized (this) {
+                importedFraction = itemCount == 0 ? 1.0 : (double) importedCount / itemCount;
+            }
+            double downloadedFraction = allItemsSize > 0
+                    ? Math.min(1.0, (double) downloadedBytes.get() / allItemsSize)
+                    : importedFraction;
+            longRunningProcessRepository.reportProgress(longRunningProcessId, (downloadedFraction + importedFraction) / 2, message);
+        }
+    }
 }
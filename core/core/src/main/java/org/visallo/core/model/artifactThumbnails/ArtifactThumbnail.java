@@ -45,6 +45,10 @@ public class ArtifactThumbnail {
                 + ":" + StringUtils.leftPad(Integer.toString(height), 8, '0');
     }
 
+    public String getId() {
+        return id;
+    }
+
     public byte[] getData() {
         return data;
     }
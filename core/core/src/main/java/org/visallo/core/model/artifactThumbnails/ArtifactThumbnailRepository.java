@@ -1,9 +1,14 @@
 package org.visallo.core.model.artifactThumbnails;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.v5analytics.simpleorm.SimpleOrmSession;
 import org.vertexium.Vertex;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.cache.CacheOptions;
+import org.visallo.core.cache.CacheService;
+import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.model.properties.types.BooleanVisalloProperty;
@@ -14,24 +19,49 @@ import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.visallo.core.model.ontology.OntologyRepository.PUBLIC;
 
+/**
+ * Stores thumbnails in the {@link SimpleOrmSession} with the most recently used ones kept in memory by the
+ * {@link CacheService}. Thumbnails that don't exist yet can be generated in the background with
+ * {@link #createThumbnailInBackground(Vertex, String, String, StreamingPropertyValue, int[], User)} so requests
+ * don't wait on decoding large images.
+ */
 @Singleton
 public class ArtifactThumbnailRepository {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ArtifactThumbnailRepository.class);
+    public static final String CONFIG_CACHE_MAX_SIZE = ArtifactThumbnailRepository.class.getName() + ".cacheMaxSize";
+    public static final long CONFIG_CACHE_MAX_SIZE_DEFAULT = 1000L;
+    public static final String CONFIG_THREAD_COUNT = ArtifactThumbnailRepository.class.getName() + ".threadCount";
+    public static final int CONFIG_THREAD_COUNT_DEFAULT = 2;
+    public static final String CONFIG_QUEUE_SIZE = ArtifactThumbnailRepository.class.getName() + ".queueSize";
+    public static final int CONFIG_QUEUE_SIZE_DEFAULT = 100;
+    private static final String CACHE_NAME = ArtifactThumbnailRepository.class.getName();
     private static final String VISIBILITY_STRING = "";
     public static int FRAMES_PER_PREVIEW = 20;
     public static int PREVIEW_FRAME_WIDTH = 360;
     public static int PREVIEW_FRAME_HEIGHT = 240;
     private final SimpleOrmSession simpleOrmSession;
     private final UserRepository userRepository;
+    private final CacheService cacheService;
+    private final CacheOptions cacheOptions;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, CompletableFuture<ArtifactThumbnail>> inProgressThumbnails = new ConcurrentHashMap<>();
     private BooleanVisalloProperty yAxisFlippedProperty;
     private IntegerVisalloProperty clockwiseRotationProperty;
 
@@ -39,10 +69,28 @@ public class ArtifactThumbnailRepository {
     public ArtifactThumbnailRepository(
             SimpleOrmSession simpleOrmSession,
             UserRepository userRepository,
-            final OntologyRepository ontologyRepository
+            final OntologyRepository ontologyRepository,
+            CacheService cacheService,
+            Configuration configuration
     ) {
         this.simpleOrmSession = simpleOrmSession;
         this.userRepository = userRepository;
+        this.cacheService = cacheService;
+        this.cacheOptions = new CacheOptions()
+                .setMaximumSize(configuration.getLong(CONFIG_CACHE_MAX_SIZE, CONFIG_CACHE_MAX_SIZE_DEFAULT));
+        int threadCount = configuration.getInt(CONFIG_THREAD_COUNT, CONFIG_THREAD_COUNT_DEFAULT);
+        this.executor = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(configuration.getInt(CONFIG_QUEUE_SIZE, CONFIG_QUEUE_SIZE_DEFAULT)),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("visallo-thumbnail-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
 
         String yAxisFlippedPropertyIri = ontologyRepository.getPropertyIRIByIntent("media.yAxisFlipped", PUBLIC);
         if (yAxisFlippedPropertyIri != null) {
@@ -57,7 +105,15 @@ public class ArtifactThumbnailRepository {
 
     public ArtifactThumbnail getThumbnail(String artifactVertexId, String thumbnailType, int width, int height, User user) {
         String id = ArtifactThumbnail.createId(artifactVertexId, thumbnailType, width, height);
-        return simpleOrmSession.findById(ArtifactThumbnail.class, id, userRepository.getSimpleOrmContext(user));
+        ArtifactThumbnail thumbnail = cacheService.getIfPresent(CACHE_NAME, id);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        thumbnail = simpleOrmSession.findById(ArtifactThumbnail.class, id, userRepository.getSimpleOrmContext(user));
+        if (thumbnail != null) {
+            cacheService.put(CACHE_NAME, id, thumbnail, cacheOptions);
+        }
+        return thumbnail;
     }
 
     public byte[] getThumbnailData(String artifactVertexId, String thumbnailType, int width, int height, User user) {
@@ -69,51 +125,157 @@ public class ArtifactThumbnailRepository {
     }
 
     public ArtifactThumbnail createThumbnail(Vertex artifactVertex, String propertyKey, String thumbnailType, InputStream in, int[] boundaryDims, User user) throws IOException {
-        ArtifactThumbnail thumbnail = generateThumbnail(artifactVertex, propertyKey, thumbnailType, in, boundaryDims);
-        simpleOrmSession.save(thumbnail, VISIBILITY_STRING, userRepository.getSimpleOrmContext(user));
-        return thumbnail;
+        return createThumbnails(artifactVertex, propertyKey, thumbnailType, in, Collections.singletonList(boundaryDims), user).get(0);
+    }
+
+    /**
+     * Decodes the image once and saves a thumbnail for each of the boundary dimensions.
+     */
+    public List<ArtifactThumbnail> createThumbnails(Vertex artifactVertex, String propertyKey, String thumbnailType, InputStream in, List<int[]> boundaryDimsList, User user) throws IOException {
+        List<ArtifactThumbnail> thumbnails = generateThumbnails(artifactVertex, propertyKey, thumbnailType, in, boundaryDimsList);
+        for (ArtifactThumbnail thumbnail : thumbnails) {
+            simpleOrmSession.save(thumbnail, VISIBILITY_STRING, userRepository.getSimpleOrmContext(user));
+            cacheService.put(CACHE_NAME, thumbnail.getId(), thumbnail, cacheOptions);
+        }
+        return thumbnails;
+    }
+
+    /**
+     * Creates the thumbnail on the thumbnail pool. Requests for a thumbnail that is already being created share
+     * the same future. The future completes exceptionally if the pool's queue is full.
+     */
+    public CompletableFuture<ArtifactThumbnail> createThumbnailInBackground(
+            Vertex artifactVertex,
+            String propertyKey,
+            String thumbnailType,
+            StreamingPropertyValue value,
+            int[] boundaryDims,
+            User user
+    ) {
+        String id = ArtifactThumbnail.createId(artifactVertex.getId(), thumbnailType, boundaryDims[0], boundaryDims[1]);
+        CompletableFuture<ArtifactThumbnail> future = new CompletableFuture<>();
+        CompletableFuture<ArtifactThumbnail> existingFuture = inProgressThumbnails.putIfAbsent(id, future);
+        if (existingFuture != null) {
+            return existingFuture;
+        }
+        try {
+            executor.execute(() -> {
+                try (InputStream in = value.getInputStream()) {
+                    future.complete(createThumbnail(artifactVertex, propertyKey, thumbnailType, in, boundaryDims, user));
+                } catch (Throwable ex) {
+                    LOGGER.error("Could not create thumbnail %s", id, ex);
+                    future.completeExceptionally(ex);
+                } finally {
+                    inProgressThumbnails.remove(id, future);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("Too many thumbnails being created, skipping: %s", id);
+            inProgressThumbnails.remove(id, future);
+            future.completeExceptionally(ex);
+        }
+        return future;
     }
 
     public ArtifactThumbnail generateThumbnail(Vertex artifactVertex, String propertyKey, String thumbnailType, InputStream in, int[] boundaryDims) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        String format;
-        int type;
+        return generateThumbnails(artifactVertex, propertyKey, thumbnailType, in, Collections.singletonList(boundaryDims)).get(0);
+    }
+
+    public List<ArtifactThumbnail> generateThumbnails(Vertex artifactVertex, String propertyKey, String thumbnailType, InputStream in, List<int[]> boundaryDimsList) {
         try {
-            BufferedImage originalImage = ImageIO.read(in);
+            BufferedImage originalImage = readImage(in, getLargestBoundary(boundaryDimsList));
             checkNotNull(originalImage, "Could not generateThumbnail: read original image for artifact " + artifactVertex.getId());
-            type = ImageUtils.thumbnailType(originalImage);
-            format = ImageUtils.thumbnailFormat(originalImage);
+            int type = ImageUtils.thumbnailType(originalImage);
+            String format = ImageUtils.thumbnailFormat(originalImage);
 
             BufferedImage transformedImage = getTransformedImage(originalImage, artifactVertex, propertyKey);
 
-            //Get new image dimensions, which will be used for the icon.
-            int[] transformedImageDims = new int[]{transformedImage.getWidth(), transformedImage.getHeight()};
-            int[] newImageDims = getScaledDimension(transformedImageDims, boundaryDims);
-            if (newImageDims[0] >= transformedImageDims[0] || newImageDims[1] >= transformedImageDims[1]) {
-                LOGGER.info("Original image dimensions %d x %d are smaller "
-                                + "than requested dimensions %d x %d returning original.",
-                        transformedImageDims[0], transformedImageDims[1],
-                        newImageDims[0], newImageDims[1]);
+            List<ArtifactThumbnail> thumbnails = new ArrayList<>();
+            for (int[] boundaryDims : boundaryDimsList) {
+                byte[] data = resizeImage(transformedImage, boundaryDims, type, format);
+                thumbnails.add(new ArtifactThumbnail(artifactVertex.getId(), thumbnailType, data, format, boundaryDims[0], boundaryDims[1]));
             }
-            //Resize the image.
-            BufferedImage resizedImage = new BufferedImage(newImageDims[0], newImageDims[1], type);
-            Graphics2D g = resizedImage.createGraphics();
-            int width = resizedImage.getWidth();
-            int height = resizedImage.getHeight();
-            if (transformedImage.getColorModel().getNumComponents() != 3) {
-                g.drawImage(transformedImage, 0, 0, width, height, null);
-            } else {
-                g.drawImage(transformedImage, 0, 0, width, height, Color.BLACK, null);
+            return thumbnails;
+        } catch (IOException e) {
+            throw new VisalloResourceNotFoundException("Error reading InputStream");
+        }
+    }
+
+    private byte[] resizeImage(BufferedImage transformedImage, int[] boundaryDims, int type, String format) throws IOException {
+        //Get new image dimensions, which will be used for the icon.
+        int[] transformedImageDims = new int[]{transformedImage.getWidth(), transformedImage.getHeight()};
+        int[] newImageDims = getScaledDimension(transformedImageDims, boundaryDims);
+        if (newImageDims[0] >= transformedImageDims[0] || newImageDims[1] >= transformedImageDims[1]) {
+            LOGGER.info("Original image dimensions %d x %d are smaller "
+                            + "than requested dimensions %d x %d returning original.",
+                    transformedImageDims[0], transformedImageDims[1],
+                    newImageDims[0], newImageDims[1]);
+        }
+        //Resize the image.
+        BufferedImage resizedImage = new BufferedImage(newImageDims[0], newImageDims[1], type);
+        Graphics2D g = resizedImage.createGraphics();
+        int width = resizedImage.getWidth();
+        int height = resizedImage.getHeight();
+        if (transformedImage.getColorModel().getNumComponents() != 3) {
+            g.drawImage(transformedImage, 0, 0, width, height, null);
+        } else {
+            g.drawImage(transformedImage, 0, 0, width, height, Color.BLACK, null);
+        }
+        g.dispose();
+
+        //Write the bufferedImage to a file.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(resizedImage, format, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the first image from the stream skipping pixels the thumbnails won't need, a subsampled
+     * decode of a large photo uses a fraction of the memory and time of a full decode.
+     */
+    private BufferedImage readImage(InputStream in, int[] boundaryDims) throws IOException {
+        try (ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            if (imageIn == null) {
+                return null;
             }
-            g.dispose();
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = getSubsampling(reader.getWidth(0), reader.getHeight(0), boundaryDims);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
 
-            //Write the bufferedImage to a file.
-            ImageIO.write(resizedImage, format, out);
+    /**
+     * Keeps at least twice the pixels of the largest boundary along the image's shorter side so the resize
+     * still smooths the image, the shorter side is used since the image may be rotated afterwards.
+     */
+    static int getSubsampling(int width, int height, int[] boundaryDims) {
+        int maxBoundary = Math.max(boundaryDims[0], boundaryDims[1]);
+        if (maxBoundary <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.min(width, height) / (2 * maxBoundary));
+    }
 
-            return new ArtifactThumbnail(artifactVertex.getId(), thumbnailType, out.toByteArray(), format, width, height);
-        } catch (IOException e) {
-            throw new VisalloResourceNotFoundException("Error reading InputStream");
+    private static int[] getLargestBoundary(List<int[]> boundaryDimsList) {
+        int[] largest = new int[]{0, 0};
+        for (int[] boundaryDims : boundaryDimsList) {
+            largest[0] = Math.max(largest[0], boundaryDims[0]);
+            largest[1] = Math.max(largest[1], boundaryDims[1]);
         }
+        return largest;
     }
 
     public BufferedImage getTransformedImage(BufferedImage originalImage, Vertex artifactVertex, String propertyKey) {
@@ -0,0 +1,133 @@
+package org.visallo.core.model.contentHash;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.v5analytics.simpleorm.SimpleOrmContext;
+import com.v5analytics.simpleorm.SimpleOrmSession;
+import org.visallo.core.model.lock.LockRepository;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+/**
+ * Maps the content hash of imported files to the vertex holding that content. Lookups are key lookups instead of
+ * graph searches, and since they don't depend on the search index being refreshed, concurrent imports of the same
+ * content reliably see each other's reservations. A reservation stays pending while its vertex is being imported,
+ * so imports on other servers can wait for it instead of finding a vertex that is not saved yet.
+ */
+@Singleton
+public class ContentHashRepository {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ContentHashRepository.class);
+    private static final String VISIBILITY_STRING = "";
+    private static final String LOCK_NAME_PREFIX = ContentHashRepository.class.getSimpleName() + "-";
+    private static final int LOCK_STRIPE_HEX_CHARS = 2;
+    private final SimpleOrmSession simpleOrmSession;
+    private final LockRepository lockRepository;
+
+    @Inject
+    public ContentHashRepository(
+            SimpleOrmSession simpleOrmSession,
+            LockRepository lockRepository
+    ) {
+        this.simpleOrmSession = simpleOrmSession;
+        this.lockRepository = lockRepository;
+    }
+
+    /**
+     * @return the id of the vertex holding the content, or null if no vertex was reserved for it
+     */
+    public String findVertexId(String contentHash) {
+        ContentHashVertex contentHashVertex = find(contentHash);
+        return contentHashVertex == null ? null : contentHashVertex.getVertexId();
+    }
+
+    public ContentHashVertex find(String contentHash) {
+        return simpleOrmSession.findById(ContentHashVertex.class, contentHash, getContext());
+    }
+
+    /**
+     * Atomically reserves the content for vertexId unless another vertex already holds it. The reservation is
+     * pending until {@link #commit(String, String, String)} is called once the vertex is saved.
+     *
+     * @return null if the content was reserved for vertexId, otherwise the entry of the vertex already holding it
+     */
+    public ContentHashVertex reserve(String contentHash, String vertexId) {
+        return lockRepository.lock(getLockName(contentHash), () -> {
+            ContentHashVertex existing = find(contentHash);
+            if (existing != null) {
+                return existing;
+            }
+            LOGGER.debug("reserving content %s for vertex %s", contentHash, vertexId);
+            save(new ContentHashVertex(contentHash, vertexId, currentTimeMillis()));
+            return null;
+        });
+    }
+
+    /**
+     * Moves the reservation of the content to vertexId if it is still held by expectedVertexId, for example
+     * because that vertex was deleted or its import never finished. The new reservation is pending.
+     *
+     * @return true if the content is now reserved for vertexId
+     */
+    public boolean replace(String contentHash, String expectedVertexId, String vertexId) {
+        return lockRepository.lock(getLockName(contentHash), () -> {
+            ContentHashVertex existing = find(contentHash);
+            if (existing != null && !existing.getVertexId().equals(expectedVertexId)) {
+                return vertexId.equals(existing.getVertexId());
+            }
+            LOGGER.debug("moving content %s from vertex %s to %s", contentHash, expectedVertexId, vertexId);
+            save(new ContentHashVertex(contentHash, vertexId, currentTimeMillis()));
+            return true;
+        });
+    }
+
+    /**
+     * Marks the reservation of vertexId as saved, other imports of the content use the vertex from now on.
+     *
+     * @param visibility the visibility string of the vertex
+     * @return false if the content is not reserved for vertexId
+     */
+    public boolean commit(String contentHash, String vertexId, String visibility) {
+        return lockRepository.lock(getLockName(contentHash), () -> {
+            ContentHashVertex existing = find(contentHash);
+            if (existing == null || !existing.getVertexId().equals(vertexId)) {
+                return false;
+            }
+            if (!existing.isCommitted()) {
+                LOGGER.debug("committing content %s for vertex %s", contentHash, vertexId);
+                existing.commit(visibility);
+                save(existing);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Removes the reservation if it is held by vertexId, used when importing the content failed.
+     */
+    public void release(String contentHash, String vertexId) {
+        lockRepository.lock(getLockName(contentHash), () -> {
+            if (vertexId.equals(findVertexId(contentHash))) {
+                LOGGER.debug("releasing content %s from vertex %s", contentHash, vertexId);
+                simpleOrmSession.delete(ContentHashVertex.class, contentHash, getContext());
+            }
+        });
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private void save(ContentHashVertex contentHashVertex) {
+        simpleOrmSession.save(contentHashVertex, VISIBILITY_STRING, getContext());
+    }
+
+    private SimpleOrmContext getContext() {
+        return simpleOrmSession.createContext();
+    }
+
+    private static String getLockName(String contentHash) {
+        // a lock per stripe rather than per hash since lock repositories keep every lock name they have seen
+        int stripeStart = Math.max(0, contentHash.length() - LOCK_STRIPE_HEX_CHARS);
+        return LOCK_NAME_PREFIX + contentHash.substring(stripeStart);
+    }
+}
@@ -0,0 +1,71 @@
+package org.visallo.core.model.contentHash;
+
+import com.v5analytics.simpleorm.Entity;
+import com.v5analytics.simpleorm.Field;
+import com.v5analytics.simpleorm.Id;
+
+/**
+ * The vertex holding some content. The entry is pending from the time an import reserves the content until the
+ * vertex is saved and flushed, then it is committed with the visibility of the vertex.
+ */
+@Entity(tableName = "contentHashVertex")
+public class ContentHashVertex {
+    @Id
+    private String contentHash;
+
+    @Field
+    private String vertexId;
+
+    @Field
+    private Boolean committed;
+
+    @Field
+    private Long reservedTime;
+
+    @Field
+    private String visibility;
+
+    // Used by SimpleOrm to create instance
+    @SuppressWarnings("UnusedDeclaration")
+    protected ContentHashVertex() {
+    }
+
+    ContentHashVertex(String contentHash, String vertexId, long reservedTime) {
+        this.contentHash = contentHash;
+        this.vertexId = vertexId;
+        this.committed = false;
+        this.reservedTime = reservedTime;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getVertexId() {
+        return vertexId;
+    }
+
+    /**
+     * @return false while the import holding the reservation has not saved the vertex yet
+     */
+    public boolean isCommitted() {
+        // entries written before reservations could be pending were always written for saved vertices
+        return committed == null || committed;
+    }
+
+    public long getReservedTime() {
+        return reservedTime == null ? 0 : reservedTime;
+    }
+
+    /**
+     * @return the visibility of the vertex once committed, null if not known
+     */
+    public String getVisibility() {
+        return visibility;
+    }
+
+    void commit(String visibility) {
+        this.committed = true;
+        this.visibility = visibility;
+    }
+}
@@ -0,0 +1,331 @@
+package org.visallo.core.model.findPath;
+
+import com.google.common.collect.Iterables;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.vertexium.*;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.util.*;
+
+/**
+ * Finds the paths of up to maxHops edges between two vertices, ignoring edge direction and without visiting a
+ * vertex twice.
+ * <p>
+ * The neighborhoods of both vertices are explored one level at a time, always growing the side with the smaller
+ * frontier, until the two radii add up to maxHops. The vertices of a frontier are loaded with their edge refs in
+ * batches. The paths are then enumerated depth first from the source, only stepping to vertices whose distance to
+ * the destination still fits in the remaining hops, and are handed to the {@link Listener} as they are found
+ * instead of being collected.
+ */
+@Singleton
+public class BidirectionalPathFinder {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(BidirectionalPathFinder.class);
+    private static final double EXPLORE_PROGRESS = 0.5;
+    private final Graph graph;
+
+    @Inject
+    public BidirectionalPathFinder(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @return the number of paths found, at most {@link Options#getMaxPaths()}
+     */
+    public long findPaths(
+            String sourceVertexId,
+            String destVertexId,
+            Options options,
+            Listener listener,
+            Authorizations authorizations
+    ) {
+        if (sourceVertexId.equals(destVertexId)) {
+            throw new VisalloException("Source and destination vertex must be different: " + sourceVertexId);
+        }
+        Search search = new Search(sourceVertexId, destVertexId, options, listener, authorizations);
+        long pathCount = search.run();
+        LOGGER.debug(
+                "found %d paths between %s and %s in %d loaded vertices",
+                pathCount,
+                sourceVertexId,
+                destVertexId,
+                search.adjacency.size()
+        );
+        return pathCount;
+    }
+
+    private class Search {
+        private final String sourceVertexId;
+        private final String destVertexId;
+        private final Options options;
+        private final Listener listener;
+        private final Authorizations authorizations;
+        private final Map<String, Set<String>> adjacency = new HashMap<>();
+        private final Set<String> hiddenVertexIds = new HashSet<>();
+        private final Side source;
+        private final Side dest;
+        private long pathCount;
+
+        Search(String sourceVertexId, String destVertexId, Options options, Listener listener, Authorizations authorizations) {
+            this.sourceVertexId = sourceVertexId;
+            this.destVertexId = destVertexId;
+            this.options = options;
+            this.listener = listener;
+            this.authorizations = authorizations;
+            this.source = new Side(sourceVertexId);
+            this.dest = new Side(destVertexId);
+        }
+
+        long run() {
+            int maxHops = options.getMaxHops();
+            while (source.radius + dest.radius < maxHops) {
+                if (source.frontier.isEmpty()) {
+                    // every vertex connected to the source is loaded
+                    source.radius = maxHops - dest.radius;
+                    break;
+                }
+                if (dest.frontier.isEmpty()) {
+                    dest.radius = maxHops - source.radius;
+                    break;
+                }
+                expand(source.frontier.size() <= dest.frontier.size() ? source : dest);
+            }
+
+            List<String> meetingVertexIds = getUnloadedMeetingVertexIds();
+            if (meetingVertexIds == null) {
+                listener.progress(1.0, "No path within " + maxHops + " hops");
+                return 0;
+            }
+            hideInvisible(meetingVertexIds);
+
+            List<String> path = new ArrayList<>();
+            path.add(sourceVertexId);
+            Set<String> sourceNeighbors = adjacency.getOrDefault(sourceVertexId, Collections.emptySet());
+            int i = 0;
+            for (String neighborId : sourceNeighbors) {
+                checkCanceled();
+                listener.progress(
+                        EXPLORE_PROGRESS + (1.0 - EXPLORE_PROGRESS) * i++ / sourceNeighbors.size(),
+                        "Found " + pathCount + " paths"
+                );
+                if (!visit(path, neighborId)) {
+                    break;
+                }
+            }
+            listener.progress(1.0, "Found " + pathCount + " paths");
+            return pathCount;
+        }
+
+        private void expand(Side side) {
+            Side other = side == source ? dest : source;
+            List<String> nextFrontier = new ArrayList<>();
+            int loaded = 0;
+            for (List<String> batch : Iterables.partition(side.frontier, options.getBatchSize())) {
+                checkCanceled();
+                Set<String> missingVertexIds = new HashSet<>(batch);
+                for (Vertex vertex : graph.getVertices(batch, FetchHint.EDGE_REFS, authorizations)) {
+                    missingVertexIds.remove(vertex.getId());
+                    for (EdgeInfo edgeInfo : getEdgeInfos(vertex)) {
+                        String neighborId = edgeInfo.getVertexId();
+                        if (neighborId.equals(vertex.getId())) {
+                            continue;
+                        }
+                        addAdjacency(vertex.getId(), neighborId);
+                        if (!side.distances.containsKey(neighborId)) {
+                            side.distances.put(neighborId, side.radius + 1);
+                            nextFrontier.add(neighborId);
+                        }
+                    }
+                }
+                hiddenVertexIds.addAll(missingVertexIds);
+                loaded += batch.size();
+                int levels = source.radius + dest.radius;
+                listener.progress(
+                        EXPLORE_PROGRESS * (levels + (double) loaded / side.frontier.size()) / options.getMaxHops(),
+                        "Searched " + adjacency.size() + " vertices within " + (levels + 1) + " of " + options.getMaxHops() + " hops"
+                );
+            }
+            side.frontier = nextFrontier;
+            side.radius++;
+            LOGGER.debug(
+                    "expanded %s to radius %d, frontier %d (other side radius %d, frontier %d)",
+                    side.vertexId,
+                    side.radius,
+                    side.frontier.size(),
+                    other.radius,
+                    other.frontier.size()
+            );
+        }
+
+        private Iterable<EdgeInfo> getEdgeInfos(Vertex vertex) {
+            String[] labels = options.getLabels();
+            if (labels == null || labels.length == 0) {
+                return vertex.getEdgeInfos(Direction.BOTH, authorizations);
+            }
+            return vertex.getEdgeInfos(Direction.BOTH, labels, authorizations);
+        }
+
+        private void addAdjacency(String vertexId, String neighborId) {
+            adjacency.computeIfAbsent(vertexId, k -> new LinkedHashSet<>()).add(neighborId);
+            adjacency.computeIfAbsent(neighborId, k -> new LinkedHashSet<>()).add(vertexId);
+        }
+
+        /**
+         * Vertices at the edge of both explored neighborhoods can sit in the middle of a path without having been
+         * loaded.
+         *
+         * @return those vertices, or null if the neighborhoods do not meet within maxHops
+         */
+        private List<String> getUnloadedMeetingVertexIds() {
+            boolean meets = false;
+            List<String> unloaded = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : source.distances.entrySet()) {
+                Integer destDistance = dest.distances.get(entry.getKey());
+                if (destDistance == null || entry.getValue() + destDistance > options.getMaxHops()) {
+                    continue;
+                }
+                meets = true;
+                if (entry.getValue() == source.radius && destDistance == dest.radius) {
+                    unloaded.add(entry.getKey());
+                }
+            }
+            return meets ? unloaded : null;
+        }
+
+        private void hideInvisible(List<String> vertexIds) {
+            for (List<String> batch : Iterables.partition(vertexIds, options.getBatchSize())) {
+                checkCanceled();
+                Set<String> missingVertexIds = new HashSet<>(batch);
+                for (Vertex vertex : graph.getVertices(batch, FetchHint.NONE, authorizations)) {
+                    missingVertexIds.remove(vertex.getId());
+                }
+                hiddenVertexIds.addAll(missingVertexIds);
+            }
+        }
+
+        /**
+         * @return false once maxPaths paths are found
+         */
+        private boolean visit(List<String> path, String vertexId) {
+            if (path.contains(vertexId) || hiddenVertexIds.contains(vertexId)) {
+                return true;
+            }
+            if (vertexId.equals(destVertexId)) {
+                List<String> foundPath = new ArrayList<>(path);
+                foundPath.add(vertexId);
+                listener.pathFound(foundPath);
+                pathCount++;
+                return pathCount < options.getMaxPaths();
+            }
+            int remainingHops = options.getMaxHops() - path.size();
+            Integer destDistance = dest.distances.get(vertexId);
+            // a vertex without a known distance is further from the destination than the destination's radius
+            boolean canReachDest = destDistance == null ? remainingHops > dest.radius : destDistance <= remainingHops;
+            if (remainingHops == 0 || !canReachDest) {
+                return true;
+            }
+
+            path.add(vertexId);
+            try {
+                for (String neighborId : adjacency.getOrDefault(vertexId, Collections.emptySet())) {
+                    if (!visit(path, neighborId)) {
+                        return false;
+                    }
+                }
+            } finally {
+                path.remove(path.size() - 1);
+            }
+            return true;
+        }
+
+        private void checkCanceled() {
+            if (Thread.currentThread().isInterrupted() || listener.isCanceled()) {
+                throw new VisalloException("Find path between " + sourceVertexId + " and " + destVertexId + " was canceled");
+            }
+        }
+    }
+
+    private static class Side {
+        private final String vertexId;
+        private final Map<String, Integer> distances = new HashMap<>();
+        private List<String> frontier = new ArrayList<>();
+        private int radius;
+
+        Side(String vertexId) {
+            this.vertexId = vertexId;
+            distances.put(vertexId, 0);
+            frontier.add(vertexId);
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Called for each path as soon as it is found, the path lists the vertex ids from source to destination.
+         */
+        void pathFound(List<String> path);
+
+        void progress(double progressPercent, String message);
+
+        /**
+         * Checked between batches of vertices, a canceled search throws a {@link VisalloException}.
+         */
+        default boolean isCanceled() {
+            return false;
+        }
+    }
+
+    public static class Options {
+        public static final int DEFAULT_BATCH_SIZE = 1000;
+        public static final long DEFAULT_MAX_PATHS = Long.MAX_VALUE;
+        private final int maxHops;
+        private String[] labels;
+        private long maxPaths = DEFAULT_MAX_PATHS;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        public Options(int maxHops) {
+            this.maxHops = maxHops;
+        }
+
+        public int getMaxHops() {
+            return maxHops;
+        }
+
+        public String[] getLabels() {
+            return labels;
+        }
+
+        /**
+         * Only follow edges with these labels, null or empty to follow all edges.
+         */
+        public Options setLabels(String[] labels) {
+            this.labels = labels;
+            return this;
+        }
+
+        public long getMaxPaths() {
+            return maxPaths;
+        }
+
+        /**
+         * Stop the search once this many paths are found.
+         */
+        public Options setMaxPaths(long maxPaths) {
+            this.maxPaths = maxPaths;
+            return this;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * The number of frontier vertices loaded from the graph at a time.
+         */
+        public Options setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+    }
+}
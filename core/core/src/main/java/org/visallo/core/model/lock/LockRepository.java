@@ -1,15 +1,41 @@
 package org.visallo.core.model.lock;
 
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.exception.VisalloLockTimeoutException;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Runs callables while holding a named lock. {@link #lock(String, Callable)} is exclusive,
+ * {@link #readLock(String, Callable)} may run at the same time as other read locks of the same name.
+ * <p>
+ * Threads of this JVM wait on a read/write lock kept for each name while it is in use, the lock entries are
+ * reference counted and dropped when the last thread releases them. The entries are split over stripes by the
+ * hash of the name so unrelated names do not contend on a single table. Implementations add the lock across
+ * JVMs with {@link #createLock(String)} and {@link #createReadLock(String)}.
+ */
 public abstract class LockRepository {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(LockRepository.class);
-    protected final Map<String, Object> synchronizationObjects = new HashMap<>();
+    public static final int DEFAULT_STRIPE_COUNT = 64;
+    private final Map<String, LockEntry>[] lockEntryStripes;
+
+    protected LockRepository() {
+        this(DEFAULT_STRIPE_COUNT);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected LockRepository(int stripeCount) {
+        lockEntryStripes = new Map[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            lockEntryStripes[i] = new HashMap<>();
+        }
+    }
 
     public void lock(String lockName, final Runnable runnable) {
         lock(lockName, () -> {
@@ -19,33 +45,136 @@ public abstract class LockRepository {
     }
 
     public <T> T lock(String lockName, Callable<T> callable) {
-        LOGGER.debug("[thread: %s] acquiring lock: %s", Thread.currentThread().getName(), lockName);
+        return run(lockName, true, -1, callable);
+    }
+
+    public void readLock(String lockName, final Runnable runnable) {
+        readLock(lockName, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    public <T> T readLock(String lockName, Callable<T> callable) {
+        return run(lockName, false, -1, callable);
+    }
+
+    /**
+     * Like {@link #lock(String, Callable)} but gives up if the lock is held by other threads of this JVM for
+     * longer than the timeout.
+     *
+     * @throws VisalloLockTimeoutException if the lock could not be acquired in time
+     */
+    public <T> T tryLock(String lockName, long timeout, TimeUnit unit, Callable<T> callable) {
+        return run(lockName, true, unit.toMillis(timeout), callable);
+    }
+
+    /**
+     * Like {@link #readLock(String, Callable)} but gives up if the lock is held exclusively by other threads of
+     * this JVM for longer than the timeout.
+     *
+     * @throws VisalloLockTimeoutException if the lock could not be acquired in time
+     */
+    public <T> T tryReadLock(String lockName, long timeout, TimeUnit unit, Callable<T> callable) {
+        return run(lockName, false, unit.toMillis(timeout), callable);
+    }
+
+    private <T> T run(String lockName, boolean exclusive, long timeoutMillis, Callable<T> callable) {
+        String mode = exclusive ? "write" : "read";
+        LOGGER.debug("[thread: %s] acquiring %s lock: %s", Thread.currentThread().getName(), mode, lockName);
+        LockEntry lockEntry = acquireLockEntry(lockName);
         try {
-            Object synchronizationObject = getSynchronizationObject(lockName);
-            //noinspection SynchronizationOnLocalVariableOrMethodParameter
-            synchronized (synchronizationObject) {
-                LOGGER.debug("[thread: %s] creating lock: %s", Thread.currentThread().getName(), lockName);
-                Lock lock = createLock(lockName);
-                LOGGER.debug("[thread: %s] running lock: %s", Thread.currentThread().getName(), lockName);
+            java.util.concurrent.locks.Lock localLock = exclusive ? lockEntry.lock.writeLock() : lockEntry.lock.readLock();
+            acquire(localLock, lockName, timeoutMillis);
+            try {
+                LOGGER.debug("[thread: %s] creating %s lock: %s", Thread.currentThread().getName(), mode, lockName);
+                Lock lock = exclusive ? createLock(lockName) : createReadLock(lockName);
+                LOGGER.debug("[thread: %s] running %s lock: %s", Thread.currentThread().getName(), mode, lockName);
                 return lock.run(callable);
+            } finally {
+                localLock.unlock();
             }
         } finally {
-            LOGGER.debug("[thread: %s] released lock: %s", Thread.currentThread().getName(), lockName);
+            releaseLockEntry(lockName, lockEntry);
+            LOGGER.debug("[thread: %s] released %s lock: %s", Thread.currentThread().getName(), mode, lockName);
+        }
+    }
+
+    private static void acquire(java.util.concurrent.locks.Lock localLock, String lockName, long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            localLock.lock();
+            return;
+        }
+        try {
+            if (!localLock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new VisalloLockTimeoutException(lockName, "Timed out after " + timeoutMillis + "ms waiting for lock: " + lockName);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while waiting for lock: " + lockName, ex);
+        }
+    }
+
+    /**
+     * Every call must be matched by a call to {@link #releaseLockEntry(String, LockEntry)}.
+     */
+    protected LockEntry acquireLockEntry(String lockName) {
+        Map<String, LockEntry> stripe = getStripe(lockName);
+        synchronized (stripe) {
+            LockEntry lockEntry = stripe.get(lockName);
+            if (lockEntry == null) {
+                lockEntry = new LockEntry();
+                stripe.put(lockName, lockEntry);
+            }
+            lockEntry.references++;
+            return lockEntry;
+        }
+    }
+
+    protected void releaseLockEntry(String lockName, LockEntry lockEntry) {
+        Map<String, LockEntry> stripe = getStripe(lockName);
+        synchronized (stripe) {
+            if (--lockEntry.references == 0) {
+                stripe.remove(lockName);
+            }
         }
     }
 
-    protected Object getSynchronizationObject(String lockName) {
-        synchronized (synchronizationObjects) {
-            Object synchronizationObject = synchronizationObjects.get(lockName);
-            if (synchronizationObject == null) {
-                synchronizationObject = new Object();
-                synchronizationObjects.put(lockName, synchronizationObject);
+    private Map<String, LockEntry> getStripe(String lockName) {
+        return lockEntryStripes[(lockName.hashCode() & 0x7fffffff) % lockEntryStripes.length];
+    }
+
+    /**
+     * @return the number of lock names in use by threads of this JVM
+     */
+    public int getLockEntryCount() {
+        int count = 0;
+        for (Map<String, LockEntry> stripe : lockEntryStripes) {
+            synchronized (stripe) {
+                count += stripe.size();
             }
-            return synchronizationObject;
         }
+        return count;
     }
 
     public abstract Lock createLock(String lockName);
 
+    /**
+     * The lock held while running a callable with {@link #readLock(String, Callable)}. Defaults to the exclusive
+     * lock, implementations that support shared locks should override it.
+     */
+    public Lock createReadLock(String lockName) {
+        return createLock(lockName);
+    }
+
     public abstract void leaderElection(String lockName, LeaderListener listener);
+
+    protected static class LockEntry {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private int references;
+
+        public ReentrantReadWriteLock getLock() {
+            return lock;
+        }
+    }
 }
@@ -27,16 +27,35 @@ public class SingleJvmLockRepository extends LockRepository implements ShutdownL
 
     @Override
     public Lock createLock(String lockName) {
-        final Object synchronizationObject = getSynchronizationObject(lockName);
+        return createLock(lockName, true);
+    }
+
+    @Override
+    public Lock createReadLock(String lockName) {
+        return createLock(lockName, false);
+    }
+
+    /**
+     * The returned lock takes the same read/write lock as {@link #lock(String, Callable)} and
+     * {@link #readLock(String, Callable)}, which the calling thread already holds when called from there.
+     */
+    private Lock createLock(String lockName, boolean exclusive) {
         return new Lock(lockName) {
             @Override
             public <T> T run(Callable<T> callable) {
+                LockEntry lockEntry = acquireLockEntry(lockName);
                 try {
-                    synchronized (synchronizationObject) {
+                    java.util.concurrent.locks.Lock lock = exclusive ? lockEntry.getLock().writeLock() : lockEntry.getLock().readLock();
+                    lock.lock();
+                    try {
                         return callable.call();
+                    } finally {
+                        lock.unlock();
                     }
                 } catch (Exception ex) {
                     throw new VisalloException("Failed to run in lock", ex);
+                } finally {
+                    releaseLockEntry(lockName, lockEntry);
                 }
             }
         };
@@ -44,14 +63,19 @@ public class SingleJvmLockRepository extends LockRepository implements ShutdownL
 
     @Override
     public void leaderElection(String lockName, final LeaderListener listener) {
-        final Object synchronizationObject = getSynchronizationObject(lockName);
         Thread t = new Thread(() -> {
-            synchronized (synchronizationObject) {
+            LockEntry lockEntry = acquireLockEntry(lockName);
+            try {
+                lockEntry.getLock().writeLock().lockInterruptibly();
                 try {
                     listener.isLeader();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                } finally {
+                    lockEntry.getLock().writeLock().unlock();
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                releaseLockEntry(lockName, lockEntry);
             }
         });
         t.setName(SingleJvmLockRepository.class.getSimpleName() + "-LeaderElection-" + lockName);
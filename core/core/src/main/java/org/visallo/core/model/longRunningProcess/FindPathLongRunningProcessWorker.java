@@ -4,28 +4,41 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.json.JSONObject;
 import org.vertexium.*;
+import org.visallo.core.config.Configuration;
 import org.visallo.core.model.Description;
 import org.visallo.core.model.Name;
+import org.visallo.core.model.findPath.BidirectionalPathFinder;
 import org.visallo.core.util.ClientApiConverter;
 import org.visallo.web.clientapi.model.ClientApiVertexFindPathResponse;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Name("Find Path")
 @Description("Finds a path between two vertices")
 @Singleton
 public class FindPathLongRunningProcessWorker extends LongRunningProcessWorker {
+    public static final String CONFIG_MAX_PATHS = FindPathLongRunningProcessWorker.class.getName() + ".maxPaths";
+    public static final long CONFIG_MAX_PATHS_DEFAULT = 10000L;
+    public static final String CONFIG_PUBLISH_INTERVAL_MILLIS = FindPathLongRunningProcessWorker.class.getName() + ".publishIntervalMillis";
+    public static final long CONFIG_PUBLISH_INTERVAL_MILLIS_DEFAULT = 2000L;
     private final Graph graph;
     private final LongRunningProcessRepository longRunningProcessRepository;
+    private final BidirectionalPathFinder pathFinder;
+    private final long maxPaths;
+    private final long publishIntervalMillis;
 
     @Inject
     public FindPathLongRunningProcessWorker(
             Graph graph,
-            LongRunningProcessRepository longRunningProcessRepository
+            LongRunningProcessRepository longRunningProcessRepository,
+            BidirectionalPathFinder pathFinder,
+            Configuration configuration
     ) {
         this.graph = graph;
         this.longRunningProcessRepository = longRunningProcessRepository;
+        this.pathFinder = pathFinder;
+        this.maxPaths = configuration.getLong(CONFIG_MAX_PATHS, CONFIG_MAX_PATHS_DEFAULT);
+        this.publishIntervalMillis = configuration.getLong(CONFIG_PUBLISH_INTERVAL_MILLIS, CONFIG_PUBLISH_INTERVAL_MILLIS_DEFAULT);
     }
 
     @Override
@@ -38,33 +51,41 @@ public class FindPathLongRunningProcessWorker extends LongRunningProcessWorker {
         FindPathLongRunningProcessQueueItem findPath = ClientApiConverter.toClientApi(longRunningProcessQueueItem.toString(), FindPathLongRunningProcessQueueItem.class);
 
         Authorizations authorizations = getAuthorizations(findPath.getAuthorizations());
-        String[] labels = findPath.getLabels();
-        int hops = findPath.getHops();
+        String longRunningProcessId = longRunningProcessQueueItem.getString("id");
 
         ClientApiVertexFindPathResponse results = new ClientApiVertexFindPathResponse();
-        ProgressCallback progressCallback = new ProgressCallback() {
+        BidirectionalPathFinder.Listener listener = new BidirectionalPathFinder.Listener() {
+            private long lastPublishTime = System.currentTimeMillis();
+
             @Override
-            public void progress(double progressPercent, Step step, Integer edgeIndex, Integer vertexCount) {
-                longRunningProcessRepository.reportProgress(longRunningProcessQueueItem, progressPercent, step.formatMessage(edgeIndex, vertexCount));
+            public void pathFound(List<String> path) {
+                results.getPaths().add(path);
+                // paths are published while searching, so long searches show the paths found so far
+                long now = System.currentTimeMillis();
+                if (now - lastPublishTime >= publishIntervalMillis) {
+                    longRunningProcessRepository.reportResults(longRunningProcessId, toJson(results), results.getPaths().size());
+                    lastPublishTime = now;
+                }
             }
-        };
 
-        FindPathOptions findPathOptions = new FindPathOptions(findPath.getOutVertexId(), findPath.getInVertexId(), hops)
-                .setLabels(labels)
-                .setProgressCallback(progressCallback);
-        Iterable<Path> paths = graph.findPaths(findPathOptions, authorizations);
-        for (Path path : paths) {
-            List<String> clientApiVertexPath = new ArrayList<>();
-            for (String s : path) {
-                clientApiVertexPath.add(s);
+            @Override
+            public void progress(double progressPercent, String message) {
+                longRunningProcessRepository.reportProgress(longRunningProcessQueueItem, progressPercent, message);
             }
-            results.getPaths().add(clientApiVertexPath);
-        }
+        };
 
-        String resultsString = ClientApiConverter.clientApiToString(results);
-        JSONObject resultsJson = new JSONObject(resultsString);
-        longRunningProcessQueueItem.put("results", resultsJson);
+        BidirectionalPathFinder.Options options = new BidirectionalPathFinder.Options(findPath.getHops())
+                .setLabels(findPath.getLabels())
+                .setMaxPaths(maxPaths);
+        long pathCount = pathFinder.findPaths(findPath.getOutVertexId(), findPath.getInVertexId(), options, listener, authorizations);
+
+        longRunningProcessQueueItem.put("results", toJson(results));
         longRunningProcessQueueItem.put("resultsCount", results.getPaths().size());
+        longRunningProcessQueueItem.put("resultsLimited", pathCount >= maxPaths);
+    }
+
+    private static JSONObject toJson(ClientApiVertexFindPathResponse results) {
+        return new JSONObject(ClientApiConverter.clientApiToString(results));
     }
 
     private Authorizations getAuthorizations(String[] authorizations) {
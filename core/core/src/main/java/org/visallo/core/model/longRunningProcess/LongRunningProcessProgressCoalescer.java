@@ -0,0 +1,151 @@
+package org.visallo.core.model.longRunningProcess;
+
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the latest progress of each long running process in memory and only lets it through to the
+ * {@link ProgressWriter} when enough time has passed since the last write or the progress changed
+ * significantly, so workers that report progress per row don't write and broadcast on every tick.
+ * Progress held back is written by {@link #flushDue(ProgressWriter)} once its interval has passed.
+ * <p>
+ * Writes for the same process are serialized, so an older progress is never written after a newer one.
+ */
+public class LongRunningProcessProgressCoalescer {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(LongRunningProcessProgressCoalescer.class);
+    private final long intervalMillis;
+    private final double minProgressChange;
+    private final Map<String, State> statesById = new ConcurrentHashMap<>();
+
+    /**
+     * @param intervalMillis    the minimum time between writes of a process's progress, 0 to write every report
+     * @param minProgressChange a change in progress (0.0 to 1.0) that is written right away
+     */
+    public LongRunningProcessProgressCoalescer(long intervalMillis, double minProgressChange) {
+        this.intervalMillis = intervalMillis;
+        this.minProgressChange = minProgressChange;
+    }
+
+    public void report(String longRunningProcessId, double progressPercent, String message, ProgressWriter writer) {
+        State state = statesById.computeIfAbsent(longRunningProcessId, id -> new State());
+        synchronized (state) {
+            state.progressPercent = progressPercent;
+            state.message = message;
+            state.pending = true;
+            long now = currentTimeMillis();
+            if (!state.written
+                    || now - state.lastWriteTime >= intervalMillis
+                    || Math.abs(progressPercent - state.lastWrittenProgressPercent) >= minProgressChange
+                    || progressPercent >= 1.0) {
+                write(longRunningProcessId, state, now, writer);
+            }
+        }
+    }
+
+    /**
+     * Writes the progress that was held back longer than the interval. Errors are logged since there is no
+     * caller to report them to.
+     */
+    public void flushDue(ProgressWriter writer) {
+        long now = currentTimeMillis();
+        for (Map.Entry<String, State> entry : statesById.entrySet()) {
+            State state = entry.getValue();
+            synchronized (state) {
+                if (!state.pending || state.canceled || now - state.lastWriteTime < intervalMillis) {
+                    continue;
+                }
+                try {
+                    write(entry.getKey(), state, now, writer);
+                } catch (Exception ex) {
+                    LOGGER.warn("Could not write progress of long running process %s", entry.getKey(), ex);
+                    state.pending = false;
+                }
+            }
+        }
+    }
+
+    private static void write(String longRunningProcessId, State state, long now, ProgressWriter writer) {
+        writer.write(longRunningProcessId, state.progressPercent, state.message);
+        state.pending = false;
+        state.written = true;
+        state.lastWriteTime = now;
+        state.lastWrittenProgressPercent = state.progressPercent;
+    }
+
+    /**
+     * Marks a process this coalescer is tracking as canceled, pending progress is dropped.
+     */
+    public void markCanceled(String longRunningProcessId) {
+        State state = statesById.get(longRunningProcessId);
+        if (state != null) {
+            synchronized (state) {
+                state.canceled = true;
+                state.pending = false;
+            }
+        }
+    }
+
+    public boolean isCanceled(String longRunningProcessId) {
+        State state = statesById.get(longRunningProcessId);
+        return state != null && state.canceled;
+    }
+
+    /**
+     * Stops tracking the process, called when the process completes since its final state is written then.
+     *
+     * @return the latest progress reported for the process or null if none was reported
+     */
+    public Progress remove(String longRunningProcessId) {
+        State state = statesById.remove(longRunningProcessId);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            state.pending = false;
+            return new Progress(state.progressPercent, state.message);
+        }
+    }
+
+    public int size() {
+        return statesById.size();
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public interface ProgressWriter {
+        void write(String longRunningProcessId, double progressPercent, String message);
+    }
+
+    public static class Progress {
+        private final double progressPercent;
+        private final String message;
+
+        public Progress(double progressPercent, String message) {
+            this.progressPercent = progressPercent;
+            this.message = message;
+        }
+
+        public double getProgressPercent() {
+            return progressPercent;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private static class State {
+        private double progressPercent;
+        private String message;
+        private boolean pending;
+        private boolean written;
+        private long lastWriteTime;
+        private double lastWrittenProgressPercent;
+        private boolean canceled;
+    }
+}
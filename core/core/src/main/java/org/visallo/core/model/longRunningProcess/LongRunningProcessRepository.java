@@ -36,5 +36,11 @@ public abstract class LongRunningProcessRepository {
 
     public abstract void reportProgress(String longRunningProcessId, double progressPercent, String message);
 
+    /**
+     * Publishes the results found so far by a process that is still running, the results are replaced by the
+     * queue item's results when the process is acked.
+     */
+    public abstract void reportResults(String longRunningProcessId, JSONObject results, int resultsCount);
+
     public abstract void delete(String longRunningProcessId, User authUser);
 }
@@ -10,17 +10,20 @@ public class ReindexLongRunningProcessQueueItem extends LongRunningProcessQueueI
     private final int batchSize;
     private final String startId;
     private final String endId;
+    private final Integer maxElementsPerSecond;
 
     public ReindexLongRunningProcessQueueItem(
             @JsonProperty("elementType") ElementType elementType,
             @JsonProperty("batchSize") Integer batchSize,
             @JsonProperty("startId") String startId,
-            @JsonProperty("endId") String endId
+            @JsonProperty("endId") String endId,
+            @JsonProperty("maxElementsPerSecond") Integer maxElementsPerSecond
     ) {
         this.elementType = elementType;
         this.batchSize = batchSize == null ? DEFAULT_BATCH_SIZE : batchSize;
         this.startId = startId;
         this.endId = endId;
+        this.maxElementsPerSecond = maxElementsPerSecond;
     }
 
     public static boolean isHandled(JSONObject jsonObject) {
@@ -42,5 +45,12 @@ public class ReindexLongRunningProcessQueueItem extends LongRunningProcessQueueI
     public String getEndId() {
         return endId;
     }
+
+    /**
+     * @return the limit on the rate this item's elements are indexed, null for no limit
+     */
+    public Integer getMaxElementsPerSecond() {
+        return maxElementsPerSecond;
+    }
 }
 
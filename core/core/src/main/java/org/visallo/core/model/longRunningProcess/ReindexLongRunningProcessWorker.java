@@ -3,36 +3,34 @@ package org.visallo.core.model.longRunningProcess;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.json.JSONObject;
-import org.vertexium.*;
-import org.visallo.core.exception.VisalloException;
+import org.vertexium.Authorizations;
+import org.vertexium.Range;
 import org.visallo.core.model.Description;
 import org.visallo.core.model.Name;
+import org.visallo.core.model.reindex.ReindexEngine;
 import org.visallo.core.model.user.AuthorizationRepository;
 import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.util.ClientApiConverter;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
-import java.util.ArrayList;
-import java.util.EnumSet;
-import java.util.List;
+import java.util.Collections;
 
 @Name("Reindex")
 @Description("Reindexes the specified elements")
 @Singleton
 public class ReindexLongRunningProcessWorker extends LongRunningProcessWorker {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ReindexLongRunningProcessWorker.class);
-    private static final EnumSet<FetchHint> FETCH_HINTS = FetchHint.ALL;
     private final Authorizations authorizations;
-    private final Graph graph;
+    private final ReindexEngine reindexEngine;
 
     @Inject
     public ReindexLongRunningProcessWorker(
-            Graph graph,
+            ReindexEngine reindexEngine,
             UserRepository userRepository,
             AuthorizationRepository authorizationRepository
     ) {
-        this.graph = graph;
+        this.reindexEngine = reindexEngine;
         this.authorizations = authorizationRepository.getGraphAuthorizations(userRepository.getSystemUser());
     }
 
@@ -41,50 +39,24 @@ public class ReindexLongRunningProcessWorker extends LongRunningProcessWorker {
         return ReindexLongRunningProcessQueueItem.isHandled(jsonObject);
     }
 
+    /**
+     * The long running process id is the reindex job id, so an item that is processed again after a failure or
+     * restart continues from its last checkpoint.
+     */
     @Override
     protected void processInternal(JSONObject longRunningProcessQueueItem) {
         ReindexLongRunningProcessQueueItem queueItem = ClientApiConverter.toClientApi(
                 longRunningProcessQueueItem.toString(),
                 ReindexLongRunningProcessQueueItem.class
         );
-        int batchSize = queueItem.getBatchSize();
+        String jobId = longRunningProcessQueueItem.getString("id");
         Range range = new Range(queueItem.getStartId(), queueItem.getEndId());
         LOGGER.info("reindex %s %s", range, queueItem.getElementType());
-        if (queueItem.getElementType() == ElementType.VERTEX) {
-            reindexVertices(range, batchSize, authorizations);
-        } else if (queueItem.getElementType() == ElementType.EDGE) {
-            reindexEdges(range, batchSize, authorizations);
-        } else {
-            throw new VisalloException("Unhandled element type: " + queueItem.getElementType());
-        }
-    }
-
-    public void reindexVertices(Range range, int batchSize, Authorizations authorizations) {
-        Iterable<Vertex> vertices = graph.getVerticesInRange(range, FETCH_HINTS, authorizations);
-        reindexElements(vertices, batchSize, authorizations);
-    }
-
-    public void reindexEdges(Range range, int batchSize, Authorizations authorizations) {
-        Iterable<Edge> edges = graph.getEdgesInRange(range, FETCH_HINTS, authorizations);
-        reindexElements(edges, batchSize, authorizations);
-    }
-
-    private void reindexElements(
-            Iterable<? extends Element> elements,
-            int batchSize,
-            Authorizations authorizations
-    ) {
-        List<Element> batch = new ArrayList<>(batchSize);
-        for (Element element : elements) {
-            batch.add(element);
-            if (batch.size() == batchSize) {
-                ((GraphWithSearchIndex) graph).getSearchIndex().addElements(graph, batch, authorizations);
-                batch.clear();
-            }
-        }
-        if (batch.size() > 0) {
-            ((GraphWithSearchIndex) graph).getSearchIndex().addElements(graph, batch, authorizations);
-            batch.clear();
+        ReindexEngine.Options options = new ReindexEngine.Options()
+                .setBatchSize(queueItem.getBatchSize());
+        if (queueItem.getMaxElementsPerSecond() != null) {
+            options.setMaxElementsPerSecond(queueItem.getMaxElementsPerSecond());
         }
+        reindexEngine.reindex(jobId, queueItem.getElementType(), Collections.singletonList(range), options, authorizations);
     }
 }
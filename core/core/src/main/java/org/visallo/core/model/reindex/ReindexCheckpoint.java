@@ -0,0 +1,120 @@
+package org.visallo.core.model.reindex;
+
+import com.v5analytics.simpleorm.Entity;
+import com.v5analytics.simpleorm.Field;
+import com.v5analytics.simpleorm.Id;
+import org.vertexium.ElementType;
+import org.vertexium.Range;
+
+/**
+ * How far the reindex of one range of a job got. The range is indexed in id order, so everything up to and
+ * including lastId is in the search index.
+ */
+@Entity(tableName = "reindexCheckpoint")
+public class ReindexCheckpoint {
+    @Id
+    private String id;
+
+    @Field
+    private String jobId;
+
+    @Field
+    private Integer rangeIndex;
+
+    @Field
+    private ElementType elementType;
+
+    @Field
+    private String startId;
+
+    @Field
+    private String endId;
+
+    @Field
+    private String lastId;
+
+    @Field
+    private Long indexedCount;
+
+    @Field
+    private boolean completed;
+
+    // Used by SimpleOrm to create instance
+    @SuppressWarnings("UnusedDeclaration")
+    protected ReindexCheckpoint() {
+    }
+
+    public ReindexCheckpoint(String jobId, int rangeIndex, ElementType elementType, Range range) {
+        this.id = createId(jobId, rangeIndex);
+        this.jobId = jobId;
+        this.rangeIndex = rangeIndex;
+        this.elementType = elementType;
+        this.startId = range.getInclusiveStart();
+        this.endId = range.getExclusiveEnd();
+        this.indexedCount = 0L;
+    }
+
+    public static String createId(String jobId, int rangeIndex) {
+        return jobId + ":" + rangeIndex;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public int getRangeIndex() {
+        return rangeIndex;
+    }
+
+    public ElementType getElementType() {
+        return elementType;
+    }
+
+    public String getStartId() {
+        return startId;
+    }
+
+    public String getEndId() {
+        return endId;
+    }
+
+    public String getLastId() {
+        return lastId;
+    }
+
+    public long getIndexedCount() {
+        return indexedCount == null ? 0 : indexedCount;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    void addIndexed(String lastId, int count) {
+        this.lastId = lastId;
+        this.indexedCount = getIndexedCount() + count;
+    }
+
+    public Range getRange() {
+        return new Range(startId, endId);
+    }
+
+    /**
+     * @return the part of the range that still has to be indexed
+     */
+    public Range getRemainingRange() {
+        if (lastId == null) {
+            return new Range(startId, endId);
+        }
+        // the smallest id sorting after lastId
+        return new Range(lastId + '\0', endId);
+    }
+}
@@ -0,0 +1,59 @@
+package org.visallo.core.model.reindex;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.v5analytics.simpleorm.SimpleOrmContext;
+import com.v5analytics.simpleorm.SimpleOrmSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores {@link ReindexCheckpoint}s so a reindex job that is run again with the same job id skips the ranges it
+ * finished and continues the others where they stopped.
+ */
+@Singleton
+public class ReindexCheckpointRepository {
+    private static final String VISIBILITY_STRING = "";
+    private final SimpleOrmSession simpleOrmSession;
+
+    @Inject
+    public ReindexCheckpointRepository(SimpleOrmSession simpleOrmSession) {
+        this.simpleOrmSession = simpleOrmSession;
+    }
+
+    public ReindexCheckpoint find(String jobId, int rangeIndex) {
+        return simpleOrmSession.findById(ReindexCheckpoint.class, ReindexCheckpoint.createId(jobId, rangeIndex), getContext());
+    }
+
+    /**
+     * @return the checkpoints of every range of the job ordered by range
+     */
+    public List<ReindexCheckpoint> findByJobId(String jobId) {
+        // the checkpoints of all ranges are saved before the job starts, so the range indexes have no gaps
+        List<ReindexCheckpoint> checkpoints = new ArrayList<>();
+        ReindexCheckpoint checkpoint;
+        while ((checkpoint = find(jobId, checkpoints.size())) != null) {
+            checkpoints.add(checkpoint);
+        }
+        return checkpoints;
+    }
+
+    public void save(ReindexCheckpoint checkpoint) {
+        simpleOrmSession.save(checkpoint, VISIBILITY_STRING, getContext());
+    }
+
+    public void delete(String jobId, int rangeIndex) {
+        simpleOrmSession.delete(ReindexCheckpoint.class, ReindexCheckpoint.createId(jobId, rangeIndex), getContext());
+    }
+
+    public void deleteByJobId(String jobId) {
+        for (ReindexCheckpoint checkpoint : findByJobId(jobId)) {
+            delete(jobId, checkpoint.getRangeIndex());
+        }
+    }
+
+    private SimpleOrmContext getContext() {
+        return simpleOrmSession.createContext();
+    }
+}
@@ -0,0 +1,311 @@
+package org.visallo.core.model.reindex;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.vertexium.*;
+import org.vertexium.search.SearchIndex;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Reindexes ranges of elements into the search index. Several ranges are reindexed at once, and for each range
+ * one thread reads elements from the graph while another adds the previous batches to the search index, with a
+ * bounded buffer of batches between them.
+ * <p>
+ * Each range's progress is saved as a {@link ReindexCheckpoint} every few batches, after the search index is
+ * flushed. Running a job again with the same job id skips the finished ranges and continues the others after
+ * their last checkpoint, so a job stopped by a failure or restart only repeats the batches since the checkpoint.
+ * The checkpoints of a job are deleted once all of its ranges are completed.
+ */
+@Singleton
+public class ReindexEngine {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ReindexEngine.class);
+    private static final EnumSet<FetchHint> FETCH_HINTS = FetchHint.ALL;
+    private static final List<Element> END_OF_RANGE = new ArrayList<>();
+    private static final long QUEUE_OFFER_TIMEOUT_MILLIS = 1000;
+    private final Graph graph;
+    private final ReindexCheckpointRepository checkpointRepository;
+
+    @Inject
+    public ReindexEngine(Graph graph, ReindexCheckpointRepository checkpointRepository) {
+        this.graph = graph;
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    /**
+     * @return the number of elements indexed by this run, not counting ranges or batches done by earlier runs
+     */
+    public long reindex(String jobId, ElementType elementType, List<Range> ranges, Options options, Authorizations authorizations) {
+        if (!(graph instanceof GraphWithSearchIndex)) {
+            throw new VisalloException("Graph must extend " + GraphWithSearchIndex.class.getName() + " to support reindexing");
+        }
+        SearchIndex searchIndex = ((GraphWithSearchIndex) graph).getSearchIndex();
+        List<ReindexCheckpoint> checkpoints = getOrCreateCheckpoints(jobId, elementType, ranges);
+        RateLimiter rateLimiter = options.getMaxElementsPerSecond() > 0 ? RateLimiter.create(options.getMaxElementsPerSecond()) : null;
+        int threadCount = Math.max(1, Math.min(options.getThreadCount(), ranges.size()));
+        ExecutorService readExecutor = Executors.newFixedThreadPool(threadCount, createThreadFactory("visallo-reindex-read-%d"));
+        ExecutorService indexExecutor = Executors.newFixedThreadPool(threadCount, createThreadFactory("visallo-reindex-index-%d"));
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < ranges.size(); i++) {
+                RangeTask rangeTask = new RangeTask(jobId, checkpoints.get(i), options, searchIndex, rateLimiter, indexExecutor, authorizations);
+                futures.add(readExecutor.submit(rangeTask));
+            }
+            long indexedCount = 0;
+            for (Future<Long> future : futures) {
+                indexedCount += getResult(future);
+            }
+            checkpointRepository.deleteByJobId(jobId);
+            LOGGER.info("reindex job %s indexed %d %s elements", jobId, indexedCount, elementType);
+            return indexedCount;
+        } finally {
+            readExecutor.shutdownNow();
+            indexExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the ranges of a job that was started before, in the order they were passed to
+     * {@link #reindex(String, ElementType, List, Options, Authorizations)}, or an empty list for an unknown or
+     * completed job
+     */
+    public List<Range> findRanges(String jobId) {
+        List<Range> ranges = new ArrayList<>();
+        for (ReindexCheckpoint checkpoint : checkpointRepository.findByJobId(jobId)) {
+            ranges.add(checkpoint.getRange());
+        }
+        return ranges;
+    }
+
+    /**
+     * Saves a checkpoint for each range before any range starts, so the ranges of a job can be found again
+     * by {@link #findRanges(String)} even if it stops before reaching them.
+     */
+    private List<ReindexCheckpoint> getOrCreateCheckpoints(String jobId, ElementType elementType, List<Range> ranges) {
+        List<ReindexCheckpoint> checkpoints = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            ReindexCheckpoint checkpoint = checkpointRepository.find(jobId, i);
+            if (checkpoint == null) {
+                checkpoint = new ReindexCheckpoint(jobId, i, elementType, range);
+                checkpointRepository.save(checkpoint);
+            } else if (checkpoint.getElementType() != elementType || !isSameRange(checkpoint.getRange(), range)) {
+                throw new VisalloException("Range " + i + " of reindex job " + jobId + " was " + checkpoint.getElementType()
+                        + " " + checkpoint.getRange() + ", resume the job with the same ranges");
+            }
+            checkpoints.add(checkpoint);
+        }
+        return checkpoints;
+    }
+
+    private static boolean isSameRange(Range a, Range b) {
+        return Objects.equals(a.getInclusiveStart(), b.getInclusiveStart())
+                && Objects.equals(a.getExclusiveEnd(), b.getExclusiveEnd());
+    }
+
+    private static ThreadFactory createThreadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder()
+                .setNameFormat(nameFormat)
+                .setDaemon(true)
+                .build();
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while reindexing", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof VisalloException) {
+                throw (VisalloException) ex.getCause();
+            }
+            throw new VisalloException("Could not reindex", ex.getCause());
+        }
+    }
+
+    private Iterable<? extends Element> getElementsInRange(ElementType elementType, Range range, Authorizations authorizations) {
+        switch (elementType) {
+            case VERTEX:
+                return graph.getVerticesInRange(range, FETCH_HINTS, authorizations);
+            case EDGE:
+                return graph.getEdgesInRange(range, FETCH_HINTS, authorizations);
+            default:
+                throw new VisalloException("Unhandled element type: " + elementType);
+        }
+    }
+
+    private class RangeTask implements Callable<Long> {
+        private final String jobId;
+        private final ReindexCheckpoint checkpoint;
+        private final Options options;
+        private final SearchIndex searchIndex;
+        private final RateLimiter rateLimiter;
+        private final ExecutorService indexExecutor;
+        private final Authorizations authorizations;
+
+        RangeTask(
+                String jobId,
+                ReindexCheckpoint checkpoint,
+                Options options,
+                SearchIndex searchIndex,
+                RateLimiter rateLimiter,
+                ExecutorService indexExecutor,
+                Authorizations authorizations
+        ) {
+            this.jobId = jobId;
+            this.checkpoint = checkpoint;
+            this.options = options;
+            this.searchIndex = searchIndex;
+            this.rateLimiter = rateLimiter;
+            this.indexExecutor = indexExecutor;
+            this.authorizations = authorizations;
+        }
+
+        @Override
+        public Long call() throws Exception {
+            if (checkpoint.isCompleted()) {
+                LOGGER.info("skipping completed range %s of reindex job %s", checkpoint.getRange(), jobId);
+                return 0L;
+            }
+            long startCount = checkpoint.getIndexedCount();
+            Range remainingRange = checkpoint.getRemainingRange();
+            LOGGER.info("reindexing %s %s of job %s", checkpoint.getElementType(), remainingRange, jobId);
+
+            BlockingQueue<List<Element>> queue = new ArrayBlockingQueue<>(options.getBufferBatches());
+            Future<?> indexer = indexExecutor.submit(() -> {
+                index(queue);
+                return null;
+            });
+            try {
+                List<Element> batch = new ArrayList<>(options.getBatchSize());
+                for (Element element : getElementsInRange(checkpoint.getElementType(), remainingRange, authorizations)) {
+                    batch.add(element);
+                    if (batch.size() == options.getBatchSize()) {
+                        put(queue, batch, indexer);
+                        batch = new ArrayList<>(options.getBatchSize());
+                    }
+                }
+                if (batch.size() > 0) {
+                    put(queue, batch, indexer);
+                }
+                put(queue, END_OF_RANGE, indexer);
+                getResult(indexer);
+            } finally {
+                indexer.cancel(true);
+            }
+            return checkpoint.getIndexedCount() - startCount;
+        }
+
+        private void index(BlockingQueue<List<Element>> queue) throws InterruptedException {
+            int batchesSinceCheckpoint = 0;
+            for (List<Element> batch = queue.take(); batch != END_OF_RANGE; batch = queue.take()) {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire(batch.size());
+                }
+                searchIndex.addElements(graph, batch, authorizations);
+                checkpoint.addIndexed(batch.get(batch.size() - 1).getId(), batch.size());
+                if (++batchesSinceCheckpoint >= options.getCheckpointBatches()) {
+                    saveCheckpoint();
+                    batchesSinceCheckpoint = 0;
+                }
+            }
+            checkpoint.setCompleted(true);
+            saveCheckpoint();
+        }
+
+        private void saveCheckpoint() {
+            // the checkpoint may only claim elements the search index has stored
+            searchIndex.flush(graph);
+            checkpointRepository.save(checkpoint);
+            LOGGER.debug("reindex checkpoint %s at %s (%d elements)", checkpoint.getId(), checkpoint.getLastId(), checkpoint.getIndexedCount());
+        }
+
+        private void put(BlockingQueue<List<Element>> queue, List<Element> batch, Future<?> indexer) throws InterruptedException {
+            while (!queue.offer(batch, QUEUE_OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (indexer.isDone()) {
+                    getResult(indexer);
+                    throw new VisalloException("Indexing of range " + checkpoint.getRange() + " stopped");
+                }
+            }
+        }
+    }
+
+    public static class Options {
+        public static final int DEFAULT_BATCH_SIZE = 100;
+        public static final int DEFAULT_THREAD_COUNT = 4;
+        public static final int DEFAULT_BUFFER_BATCHES = 10;
+        public static final int DEFAULT_CHECKPOINT_BATCHES = 10;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int threadCount = DEFAULT_THREAD_COUNT;
+        private int bufferBatches = DEFAULT_BUFFER_BATCHES;
+        private int checkpointBatches = DEFAULT_CHECKPOINT_BATCHES;
+        private double maxElementsPerSecond;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public Options setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public int getThreadCount() {
+            return threadCount;
+        }
+
+        /**
+         * The number of ranges reindexed at once, each range uses a reading and an indexing thread.
+         */
+        public Options setThreadCount(int threadCount) {
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        public int getBufferBatches() {
+            return bufferBatches;
+        }
+
+        /**
+         * The number of batches read ahead of the indexing thread of each range.
+         */
+        public Options setBufferBatches(int bufferBatches) {
+            this.bufferBatches = bufferBatches;
+            return this;
+        }
+
+        public int getCheckpointBatches() {
+            return checkpointBatches;
+        }
+
+        /**
+         * The number of batches indexed between checkpoints, each checkpoint flushes the search index.
+         */
+        public Options setCheckpointBatches(int checkpointBatches) {
+            this.checkpointBatches = checkpointBatches;
+            return this;
+        }
+
+        public double getMaxElementsPerSecond() {
+            return maxElementsPerSecond;
+        }
+
+        /**
+         * Limits the rate elements are added to the search index across all ranges of a run, 0 for no limit.
+         */
+        public Options setMaxElementsPerSecond(double maxElementsPerSecond) {
+            this.maxElementsPerSecond = maxElementsPerSecond;
+            return this;
+        }
+    }
+}
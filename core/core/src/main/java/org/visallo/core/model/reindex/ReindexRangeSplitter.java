@@ -0,0 +1,161 @@
+package org.visallo.core.model.reindex;
+
+import org.vertexium.*;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.util.*;
+
+/**
+ * Splits the id space of a graph into ranges holding roughly the same number of elements, for any Vertexium
+ * backend. Ranges of id prefixes are probed by reading up to probeLimit ids from each, one prefix length at a time.
+ * The prefixes that hit the limit are probed again one character longer, a whole length at a time, until the
+ * prefix length runs out or probing the next length would read more than maxSampledIds ids in total.
+ * <p>
+ * Prefixes below the limit are weighted by the number of ids read from them. The prefixes still at the limit are
+ * all of the last length, they hold more ids than were read, so they are weighted by the number of ids the prefixes
+ * expanded at the previous length held per probeLimit ids. Adjacent prefixes are then grouped into ranges of about
+ * the same weight.
+ */
+public class ReindexRangeSplitter {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ReindexRangeSplitter.class);
+    public static final int DEFAULT_PROBE_LIMIT = 100;
+    public static final long DEFAULT_MAX_SAMPLED_IDS = 1000000L;
+    private static final int MAX_PREFIX_LENGTH = 4;
+    private static final char FIRST_CHAR = ' ';
+    private static final char LAST_CHAR = '~';
+    private final Graph graph;
+    private final int probeLimit;
+    private final long maxSampledIds;
+
+    public ReindexRangeSplitter(Graph graph) {
+        this(graph, DEFAULT_PROBE_LIMIT, DEFAULT_MAX_SAMPLED_IDS);
+    }
+
+    public ReindexRangeSplitter(Graph graph, int probeLimit, long maxSampledIds) {
+        this.graph = graph;
+        this.probeLimit = probeLimit;
+        this.maxSampledIds = maxSampledIds;
+    }
+
+    /**
+     * @return ranges covering every id, the first range has no start and the last range has no end
+     */
+    public List<Range> split(ElementType elementType, int rangeCount, Authorizations authorizations) {
+        List<String> splitPoints = rangeCount > 1 ? getSplitPoints(elementType, rangeCount, authorizations) : new ArrayList<>();
+        List<Range> ranges = new ArrayList<>();
+        String start = null;
+        for (String splitPoint : splitPoints) {
+            ranges.add(new Range(start, splitPoint));
+            start = splitPoint;
+        }
+        ranges.add(new Range(start, null));
+        LOGGER.info("split %s ids into %d ranges", elementType, ranges.size());
+        return ranges;
+    }
+
+    private List<String> getSplitPoints(ElementType elementType, int rangeCount, Authorizations authorizations) {
+        TreeMap<String, Double> weightsByPrefix = sample(elementType, authorizations);
+        double total = 0;
+        for (Double weight : weightsByPrefix.values()) {
+            total += weight;
+        }
+
+        List<String> splitPoints = new ArrayList<>();
+        double sampled = 0;
+        for (Map.Entry<String, Double> entry : weightsByPrefix.entrySet()) {
+            if (splitPoints.size() == rangeCount - 1) {
+                break;
+            }
+            // split before the prefix if that ends the range closer to its share of the total than including it
+            double target = total * (splitPoints.size() + 1) / rangeCount;
+            if (sampled > 0 && target - sampled < sampled + entry.getValue() - target) {
+                splitPoints.add(entry.getKey());
+            }
+            sampled += entry.getValue();
+        }
+        return splitPoints;
+    }
+
+    private TreeMap<String, Double> sample(ElementType elementType, Authorizations authorizations) {
+        TreeMap<String, Double> weightsByPrefix = new TreeMap<>();
+        List<String> prefixesToExpand = Collections.singletonList("");
+        double cappedWeight = probeLimit;
+        long sampled = 0;
+        while (true) {
+            List<String> cappedPrefixes = new ArrayList<>();
+            long expandedIdsRead = 0;
+            for (String prefix : prefixesToExpand) {
+                weightsByPrefix.remove(prefix);
+                for (char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+                    String childPrefix = prefix + c;
+                    long count = countIds(elementType, new Range(childPrefix, getNextPrefix(childPrefix)), authorizations);
+                    if (count == 0) {
+                        continue;
+                    }
+                    expandedIdsRead += count;
+                    weightsByPrefix.put(childPrefix, (double) count);
+                    if (count >= probeLimit) {
+                        cappedPrefixes.add(childPrefix);
+                    }
+                }
+            }
+            sampled += expandedIdsRead;
+            if (!prefixesToExpand.contains("")) {
+                // every expanded prefix was capped at probeLimit ids, this is how many ids such a prefix holds
+                cappedWeight = Math.max(probeLimit, (double) expandedIdsRead / prefixesToExpand.size());
+            }
+
+            double idsReadPerPrefix = (double) expandedIdsRead / prefixesToExpand.size();
+            boolean expand = !cappedPrefixes.isEmpty()
+                    && cappedPrefixes.get(0).length() < MAX_PREFIX_LENGTH
+                    && sampled + cappedPrefixes.size() * idsReadPerPrefix <= maxSampledIds;
+            if (!expand) {
+                for (String cappedPrefix : cappedPrefixes) {
+                    weightsByPrefix.put(cappedPrefix, cappedWeight);
+                }
+                break;
+            }
+            prefixesToExpand = cappedPrefixes;
+        }
+        LOGGER.debug("sampled %d %s ids in %d prefixes", sampled, elementType, weightsByPrefix.size());
+        return weightsByPrefix;
+    }
+
+    private long countIds(ElementType elementType, Range range, Authorizations authorizations) {
+        Iterable<? extends Element> elements;
+        switch (elementType) {
+            case VERTEX:
+                elements = graph.getVerticesInRange(range, FetchHint.NONE, authorizations);
+                break;
+            case EDGE:
+                elements = graph.getEdgesInRange(range, FetchHint.NONE, authorizations);
+                break;
+            default:
+                throw new VisalloException("Unhandled element type: " + elementType);
+        }
+        long count = 0;
+        try {
+            for (Element ignored : elements) {
+                if (++count >= probeLimit) {
+                    break;
+                }
+            }
+        } finally {
+            if (elements instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) elements).close();
+                } catch (Exception ex) {
+                    LOGGER.debug("could not close elements", ex);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String getNextPrefix(String prefix) {
+        char lastChar = prefix.charAt(prefix.length() - 1);
+        return prefix.substring(0, prefix.length() - 1) + (char) (lastChar + 1);
+    }
+}
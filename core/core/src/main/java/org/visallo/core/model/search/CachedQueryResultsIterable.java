@@ -0,0 +1,108 @@
+package org.visallo.core.model.search;
+
+import org.vertexium.*;
+import org.vertexium.query.AggregationResult;
+import org.vertexium.query.IterableWithScores;
+import org.vertexium.query.QueryResultsIterable;
+
+import java.util.*;
+
+/**
+ * Presents {@link CachedSearchResults} as a {@link QueryResultsIterable}, either over elements that were
+ * already loaded by the search that populated the cache or by re-fetching the cached hit ids.
+ */
+public class CachedQueryResultsIterable implements QueryResultsIterable<VertexiumObject>, IterableWithScores<VertexiumObject> {
+    private final CachedSearchResults cachedSearchResults;
+    private List<VertexiumObject> vertexiumObjects;
+    private final Graph graph;
+    private final EnumSet<FetchHint> fetchHints;
+    private final Authorizations authorizations;
+
+    public CachedQueryResultsIterable(CachedSearchResults cachedSearchResults, List<VertexiumObject> vertexiumObjects) {
+        this.cachedSearchResults = cachedSearchResults;
+        this.vertexiumObjects = vertexiumObjects;
+        this.graph = null;
+        this.fetchHints = null;
+        this.authorizations = null;
+    }
+
+    public CachedQueryResultsIterable(
+            CachedSearchResults cachedSearchResults,
+            Graph graph,
+            EnumSet<FetchHint> fetchHints,
+            Authorizations authorizations
+    ) {
+        this.cachedSearchResults = cachedSearchResults;
+        this.graph = graph;
+        this.fetchHints = fetchHints;
+        this.authorizations = authorizations;
+    }
+
+    @Override
+    public Iterator<VertexiumObject> iterator() {
+        if (vertexiumObjects == null) {
+            vertexiumObjects = fetchVertexiumObjects();
+        }
+        return vertexiumObjects.iterator();
+    }
+
+    private List<VertexiumObject> fetchVertexiumObjects() {
+        List<String> vertexIds = new ArrayList<>();
+        List<String> edgeIds = new ArrayList<>();
+        for (CachedSearchResults.Hit hit : cachedSearchResults.getHits()) {
+            if (hit.getElementType() == ElementType.VERTEX) {
+                vertexIds.add(hit.getId());
+            } else {
+                edgeIds.add(hit.getId());
+            }
+        }
+
+        Map<String, VertexiumObject> verticesById = new HashMap<>();
+        if (vertexIds.size() > 0) {
+            for (Vertex vertex : graph.getVertices(vertexIds, fetchHints, authorizations)) {
+                verticesById.put(vertex.getId(), vertex);
+            }
+        }
+        Map<String, VertexiumObject> edgesById = new HashMap<>();
+        if (edgeIds.size() > 0) {
+            for (Edge edge : graph.getEdges(edgeIds, fetchHints, authorizations)) {
+                edgesById.put(edge.getId(), edge);
+            }
+        }
+
+        // preserve the order of the original search, elements no longer visible are skipped
+        List<VertexiumObject> results = new ArrayList<>(verticesById.size() + edgesById.size());
+        for (CachedSearchResults.Hit hit : cachedSearchResults.getHits()) {
+            Map<String, VertexiumObject> elementsById = hit.getElementType() == ElementType.VERTEX ? verticesById : edgesById;
+            VertexiumObject vertexiumObject = elementsById.get(hit.getId());
+            if (vertexiumObject != null) {
+                results.add(vertexiumObject);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public <TResult extends AggregationResult> TResult getAggregationResult(String name, Class<? extends TResult> resultType) {
+        AggregationResult result = cachedSearchResults.getAggregationResults().get(name);
+        if (result == null) {
+            return null;
+        }
+        return resultType.cast(result);
+    }
+
+    @Override
+    public long getTotalHits() {
+        return cachedSearchResults.getTotalHits();
+    }
+
+    @Override
+    public Map<Object, Double> getScores() {
+        return cachedSearchResults.getScores();
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
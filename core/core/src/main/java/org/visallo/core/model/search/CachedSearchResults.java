@@ -0,0 +1,127 @@
+package org.visallo.core.model.search;
+
+import org.vertexium.Edge;
+import org.vertexium.ElementType;
+import org.vertexium.Vertex;
+import org.vertexium.VertexiumObject;
+import org.vertexium.query.*;
+
+import java.util.*;
+
+/**
+ * The parts of a search result that are needed to replay it: the ordered hit ids, the total hit count,
+ * the scores and the aggregation results. Elements themselves are not held, they are re-fetched with
+ * the caller's authorizations when the cached results are used.
+ */
+public class CachedSearchResults {
+    private final List<Hit> hits;
+    private final long totalHits;
+    private final Map<Object, Double> scores;
+    private final Map<String, AggregationResult> aggregationResults;
+
+    public CachedSearchResults(
+            List<Hit> hits,
+            long totalHits,
+            Map<Object, Double> scores,
+            Map<String, AggregationResult> aggregationResults
+    ) {
+        this.hits = hits;
+        this.totalHits = totalHits;
+        this.scores = scores;
+        this.aggregationResults = aggregationResults;
+    }
+
+    /**
+     * Captures the search results. If the hits contain anything other than vertices and edges
+     * {@link #getHits()} will be null and the results should not be cached.
+     */
+    public static CachedSearchResults create(
+            List<? extends VertexiumObject> vertexiumObjects,
+            QueryResultsIterable<? extends VertexiumObject> searchResults,
+            Iterable<Aggregation> aggregations
+    ) {
+        List<Hit> hits = new ArrayList<>(vertexiumObjects.size());
+        for (VertexiumObject vertexiumObject : vertexiumObjects) {
+            if (vertexiumObject instanceof Vertex) {
+                hits.add(new Hit(ElementType.VERTEX, ((Vertex) vertexiumObject).getId()));
+            } else if (vertexiumObject instanceof Edge) {
+                hits.add(new Hit(ElementType.EDGE, ((Edge) vertexiumObject).getId()));
+            } else {
+                hits = null;
+                break;
+            }
+        }
+
+        Map<String, AggregationResult> aggregationResults = new HashMap<>();
+        for (Aggregation aggregation : aggregations) {
+            String name = aggregation.getAggregationName();
+            aggregationResults.put(name, searchResults.getAggregationResult(name, getAggregationResultType(aggregation)));
+        }
+
+        Map<Object, Double> scores = null;
+        if (searchResults instanceof IterableWithScores) {
+            scores = ((IterableWithScores<?>) searchResults).getScores();
+        }
+
+        return new CachedSearchResults(hits, searchResults.getTotalHits(), scores, aggregationResults);
+    }
+
+    public static boolean isCacheable(Iterable<Aggregation> aggregations) {
+        for (Aggregation aggregation : aggregations) {
+            if (getAggregationResultType(aggregation) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<? extends AggregationResult> getAggregationResultType(Aggregation aggregation) {
+        if (aggregation instanceof TermsAggregation) {
+            return TermsResult.class;
+        }
+        if (aggregation instanceof GeohashAggregation) {
+            return GeohashResult.class;
+        }
+        if (aggregation instanceof HistogramAggregation || aggregation instanceof CalendarFieldAggregation) {
+            return HistogramResult.class;
+        }
+        if (aggregation instanceof StatisticsAggregation) {
+            return StatisticsResult.class;
+        }
+        return null;
+    }
+
+    public List<Hit> getHits() {
+        return hits;
+    }
+
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    public Map<Object, Double> getScores() {
+        return scores;
+    }
+
+    public Map<String, AggregationResult> getAggregationResults() {
+        return aggregationResults;
+    }
+
+    public static class Hit {
+        private final ElementType elementType;
+        private final String id;
+
+        public Hit(ElementType elementType, String id) {
+            this.elementType = elementType;
+            this.id = id;
+        }
+
+        public ElementType getElementType() {
+            return elementType;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
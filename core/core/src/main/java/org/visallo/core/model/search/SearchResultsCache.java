@@ -0,0 +1,297 @@
+package org.visallo.core.model.search;
+
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.vertexium.Authorizations;
+import org.vertexium.FetchHint;
+import org.vertexium.Graph;
+import org.vertexium.VertexiumObject;
+import org.vertexium.query.Aggregation;
+import org.vertexium.query.QueryResultsIterable;
+import org.visallo.core.bootstrap.InjectHelper;
+import org.visallo.core.cache.CacheOptions;
+import org.visallo.core.cache.CacheService;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
+import org.visallo.core.user.User;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.vertexium.util.IterableUtils.toList;
+
+/**
+ * Caches the hit ids, total hits and aggregation results of searches run through
+ * {@link VertexiumObjectSearchRunnerBase} so that identical searches (dashboard cards, saved searches)
+ * don't hit the search index on every refresh.
+ *
+ * Entries are keyed by the search uri, a canonical form of the search parameters, the workspace and the
+ * user's authorizations. Entries are invalidated when graph change messages are broadcast by the
+ * {@link WorkQueueRepository} and optionally expire after a TTL, since low priority changes are not broadcast.
+ */
+@Singleton
+public class SearchResultsCache {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(SearchResultsCache.class);
+    public static final String CONFIG_ENABLED = SearchResultsCache.class.getName() + ".enabled";
+    public static final boolean CONFIG_ENABLED_DEFAULT = false;
+    public static final String CONFIG_MAX_SIZE = SearchResultsCache.class.getName() + ".maxSize";
+    public static final long CONFIG_MAX_SIZE_DEFAULT = 1000L;
+    public static final String CONFIG_TTL_SECONDS = SearchResultsCache.class.getName() + ".ttlSeconds";
+    public static final long CONFIG_TTL_SECONDS_DEFAULT = 60L;
+    public static final String CONFIG_MAX_HITS = SearchResultsCache.class.getName() + ".maxHits";
+    public static final long CONFIG_MAX_HITS_DEFAULT = 1000L;
+    private static final String CACHE_NAME_PREFIX = SearchResultsCache.class.getName() + ".";
+    private static final Set<String> IGNORED_PARAMETERS = Sets.newHashSet("_", "csrfToken");
+    private static final Set<String> GRAPH_CHANGE_MESSAGE_TYPES = Sets.newHashSet(
+            "propertyChange",
+            "verticesDeleted",
+            "edgeDeletion",
+            "publish",
+            "textUpdated",
+            "ontologyChange"
+    );
+    private final CacheService cacheService;
+    private final Graph graph;
+    private final boolean enabled;
+    private final long maxHits;
+    private final CacheOptions cacheOptions;
+    private final Set<String> cacheNames = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile boolean subscribed;
+    private WorkQueueRepository workQueueRepository;
+
+    @Inject
+    public SearchResultsCache(
+            CacheService cacheService,
+            Graph graph,
+            Configuration configuration
+    ) {
+        this.cacheService = cacheService;
+        this.graph = graph;
+        this.enabled = configuration.getBoolean(CONFIG_ENABLED, CONFIG_ENABLED_DEFAULT);
+        this.maxHits = configuration.getLong(CONFIG_MAX_HITS, CONFIG_MAX_HITS_DEFAULT);
+        long ttlSeconds = configuration.getLong(CONFIG_TTL_SECONDS, CONFIG_TTL_SECONDS_DEFAULT);
+        this.cacheOptions = new CacheOptions()
+                .setMaximumSize(configuration.getLong(CONFIG_MAX_SIZE, CONFIG_MAX_SIZE_DEFAULT))
+                .setExpireAfterWriteSeconds(ttlSeconds > 0 ? ttlSeconds : null);
+    }
+
+    /**
+     * @return the cache key for the search or null if the search should not be cached
+     */
+    public String getKey(
+            String uri,
+            SearchOptions searchOptions,
+            Long size,
+            EnumSet<FetchHint> fetchHints,
+            User user,
+            Authorizations authorizations
+    ) {
+        if (!enabled || size == null || size > maxHits) {
+            return null;
+        }
+
+        String canonicalParameters = toCanonicalString(searchOptions.getParameters());
+        String[] auths = authorizations.getAuthorizations().clone();
+        Arrays.sort(auths);
+
+        StringBuilder key = new StringBuilder();
+        key.append(uri).append('\n');
+        key.append(searchOptions.getWorkspaceId()).append('\n');
+        key.append(String.join(",", auths)).append('\n');
+        key.append(new TreeSet<>(fetchHints)).append('\n');
+        // filters on the current user's directory entity resolve differently per user
+        if (canonicalParameters.contains("currentUser") && user != null) {
+            key.append(user.getUserId()).append('\n');
+        }
+        key.append(canonicalParameters);
+        return Hashing.sha256().hashBytes(key.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    public QueryResultsIterable<? extends VertexiumObject> get(
+            String key,
+            String workspaceId,
+            EnumSet<FetchHint> fetchHints,
+            Authorizations authorizations
+    ) {
+        CachedSearchResults cachedSearchResults = cacheService.getIfPresent(getCacheName(workspaceId), key);
+        if (cachedSearchResults == null) {
+            return null;
+        }
+        LOGGER.debug("search results cache hit: %s", key);
+        return new CachedQueryResultsIterable(cachedSearchResults, graph, fetchHints, authorizations);
+    }
+
+    /**
+     * Reads the search results and caches them if possible. The returned iterable must be used in place of
+     * the search results since they have already been consumed.
+     */
+    public QueryResultsIterable<? extends VertexiumObject> put(
+            String key,
+            String workspaceId,
+            Iterable<Aggregation> aggregations,
+            QueryResultsIterable<? extends VertexiumObject> searchResults
+    ) {
+        ensureSubscribed();
+        List<VertexiumObject> vertexiumObjects = new ArrayList<>(toList(searchResults));
+        CachedSearchResults cachedSearchResults = CachedSearchResults.create(vertexiumObjects, searchResults, aggregations);
+        try {
+            searchResults.close();
+        } catch (Exception ex) {
+            LOGGER.warn("Could not close search results", ex);
+        }
+        if (cachedSearchResults.getHits() == null) {
+            return new CachedQueryResultsIterable(cachedSearchResults, vertexiumObjects);
+        }
+        String cacheName = getCacheName(workspaceId);
+        cacheNames.add(cacheName);
+        cacheService.put(cacheName, key, cachedSearchResults, cacheOptions);
+        return new CachedQueryResultsIterable(cachedSearchResults, vertexiumObjects);
+    }
+
+    public void invalidate(String workspaceId) {
+        cacheService.invalidate(getCacheName(workspaceId));
+    }
+
+    public void invalidateAll() {
+        for (String cacheName : cacheNames) {
+            cacheService.invalidate(cacheName);
+        }
+    }
+
+    protected void handleBroadcast(JSONObject json) {
+        String type = json.optString("type", null);
+        if (type == null || !GRAPH_CHANGE_MESSAGE_TYPES.contains(type)) {
+            return;
+        }
+        JSONObject data = json.optJSONObject("data");
+        String workspaceId = data == null ? null : data.optString("workspaceId", null);
+        if (workspaceId == null || "ontologyChange".equals(type)) {
+            invalidateAll();
+        } else {
+            invalidate(workspaceId);
+        }
+    }
+
+    private void ensureSubscribed() {
+        if (subscribed) {
+            return;
+        }
+        synchronized (this) {
+            if (subscribed) {
+                return;
+            }
+            getWorkQueueRepository().subscribeToBroadcastMessages(new WorkQueueRepository.BroadcastConsumer() {
+                @Override
+                public void broadcastReceived(JSONObject json) {
+                    handleBroadcast(json);
+                }
+            });
+            subscribed = true;
+        }
+    }
+
+    private static String getCacheName(String workspaceId) {
+        return CACHE_NAME_PREFIX + (workspaceId == null ? "" : workspaceId);
+    }
+
+    static String toCanonicalString(Map<String, Object> parameters) {
+        StringBuilder result = new StringBuilder();
+        for (String name : new TreeSet<>(parameters.keySet())) {
+            if (IGNORED_PARAMETERS.contains(name)) {
+                continue;
+            }
+            String value = toCanonicalValue(parameters.get(name));
+            if (value == null) {
+                continue;
+            }
+            result.append(name).append('=').append(value).append('\n');
+        }
+        return result.toString();
+    }
+
+    private static String toCanonicalValue(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return "null";
+        }
+        if (value instanceof String) {
+            String str = ((String) value).trim();
+            if (str.startsWith("{") || str.startsWith("[")) {
+                try {
+                    return toCanonicalValue(str.startsWith("{") ? new JSONObject(str) : new JSONArray(str));
+                } catch (JSONException ex) {
+                    // not json, use the string as is
+                }
+            }
+            return JSONObject.quote((String) value);
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+            Set<String> keys = new TreeSet<>();
+            for (Object key : json.keySet()) {
+                keys.add(key.toString());
+            }
+            StringBuilder result = new StringBuilder("{");
+            for (String key : keys) {
+                if (result.length() > 1) {
+                    result.append(',');
+                }
+                result.append(JSONObject.quote(key)).append(':').append(toCanonicalValue(json.get(key)));
+            }
+            return result.append('}').toString();
+        }
+        if (value instanceof JSONArray) {
+            JSONArray json = (JSONArray) value;
+            List<Object> items = new ArrayList<>();
+            for (int i = 0; i < json.length(); i++) {
+                items.add(json.get(i));
+            }
+            return toCanonicalList(items);
+        }
+        if (value.getClass().isArray()) {
+            List<Object> items = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                items.add(Array.get(value, i));
+            }
+            return toCanonicalList(items);
+        }
+        if (value instanceof Collection) {
+            return toCanonicalList((Collection<?>) value);
+        }
+        // request attributes such as the current user are not search parameters
+        return null;
+    }
+
+    private static String toCanonicalList(Collection<?> items) {
+        StringBuilder result = new StringBuilder("[");
+        for (Object item : items) {
+            if (result.length() > 1) {
+                result.append(',');
+            }
+            result.append(toCanonicalValue(item));
+        }
+        return result.append(']').toString();
+    }
+
+    private WorkQueueRepository getWorkQueueRepository() {
+        if (workQueueRepository == null) {
+            workQueueRepository = InjectHelper.getInstance(WorkQueueRepository.class);
+        }
+        return workQueueRepository;
+    }
+
+    public void setWorkQueueRepository(WorkQueueRepository workQueueRepository) {
+        this.workQueueRepository = workQueueRepository;
+    }
+}
@@ -1,5 +1,6 @@
 package org.visallo.core.model.search;
 
+import com.google.inject.Inject;
 import org.apache.commons.math3.util.Precision;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -27,6 +28,7 @@ public abstract class VertexiumObjectSearchRunnerBase extends SearchRunner {
     private final DirectoryRepository directoryRepository;
     private final OntologyRepository ontologyRepository;
     private long defaultSearchResultCount;
+    private SearchResultsCache searchResultsCache;
 
     protected VertexiumObjectSearchRunnerBase(
             OntologyRepository ontologyRepository,
@@ -68,7 +70,7 @@ public abstract class VertexiumObjectSearchRunnerBase extends SearchRunner {
             queryAndData.getQuery().skip(offset.intValue());
         }
 
-        QueryResultsIterable<? extends VertexiumObject> searchResults = getSearchResults(queryAndData, fetchHints);
+        QueryResultsIterable<? extends VertexiumObject> searchResults = getSearchResults(queryAndData, fetchHints, searchOptions, size, user, authorizations);
 
         return new QueryResultsIterableSearchResults(searchResults, queryAndData, offset, size);
     }
@@ -227,6 +229,37 @@ public abstract class VertexiumObjectSearchRunnerBase extends SearchRunner {
         }
     }
 
+    private QueryResultsIterable<? extends VertexiumObject> getSearchResults(
+            QueryAndData queryAndData,
+            EnumSet<FetchHint> fetchHints,
+            SearchOptions searchOptions,
+            Long size,
+            User user,
+            Authorizations authorizations
+    ) {
+        String cacheKey = null;
+        if (searchResultsCache != null
+                && !getResultType().contains(VertexiumObjectType.EXTENDED_DATA)
+                && CachedSearchResults.isCacheable(queryAndData.getQuery().getAggregations())) {
+            cacheKey = searchResultsCache.getKey(getUri(), searchOptions, size, fetchHints, user, authorizations);
+        }
+        if (cacheKey == null) {
+            return getSearchResults(queryAndData, fetchHints);
+        }
+
+        String workspaceId = searchOptions.getWorkspaceId();
+        QueryResultsIterable<? extends VertexiumObject> searchResults = searchResultsCache.get(cacheKey, workspaceId, fetchHints, authorizations);
+        if (searchResults != null) {
+            return searchResults;
+        }
+        return searchResultsCache.put(
+                cacheKey,
+                workspaceId,
+                queryAndData.getQuery().getAggregations(),
+                getSearchResults(queryAndData, fetchHints)
+        );
+    }
+
     protected QueryResultsIterable<? extends VertexiumObject> getSearchResults(QueryAndData queryAndData, EnumSet<FetchHint> fetchHints) {
         //noinspection unused
         try (TraceSpan trace = Trace.start("getSearchResults")) {
@@ -472,6 +505,11 @@ public abstract class VertexiumObjectSearchRunnerBase extends SearchRunner {
         return graph;
     }
 
+    @Inject
+    public void setSearchResultsCache(SearchResultsCache searchResultsCache) {
+        this.searchResultsCache = searchResultsCache;
+    }
+
     public static class QueryAndData {
         private final Query query;
 
@@ -639,6 +639,25 @@ public abstract class WorkQueueRepository {
         broadcastJson(json);
     }
 
+    public void broadcastThumbnailChange(String vertexId, String thumbnailType, int width, int height, User user) {
+        JSONObject json = new JSONObject();
+        json.put("type", "thumbnailChange");
+
+        JSONObject permissions = new JSONObject();
+        JSONArray users = new JSONArray();
+        users.put(user.getUserId());
+        permissions.put("users", users);
+        json.put("permissions", permissions);
+
+        JSONObject dataJson = new JSONObject();
+        dataJson.put("graphVertexId", vertexId);
+        dataJson.put("type", thumbnailType);
+        dataJson.put("width", width);
+        dataJson.put("height", height);
+        json.put("data", dataJson);
+        broadcastJson(json);
+    }
+
     public void broadcastWorkProductDelete(String workProductId, ClientApiWorkspace workspace) {
         JSONObject json = new JSONObject();
         json.put("type", "workProductDelete");
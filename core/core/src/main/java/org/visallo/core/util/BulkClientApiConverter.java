@@ -0,0 +1,169 @@
+package org.visallo.core.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.vertexium.Authorizations;
+import org.vertexium.Edge;
+import org.vertexium.Vertex;
+import org.vertexium.VertexiumObject;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.web.clientapi.model.ClientApiEdge;
+import org.visallo.web.clientapi.model.ClientApiVertex;
+import org.visallo.web.clientapi.model.ClientApiVertexiumObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+
+/**
+ * Converts the elements returned by a single request to client api objects using a bounded pool of threads
+ * shared by all requests. Small batches are converted on the calling thread.
+ */
+@Singleton
+public class BulkClientApiConverter implements ShutdownListener {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(BulkClientApiConverter.class);
+    public static final String CONFIG_THREAD_COUNT = BulkClientApiConverter.class.getName() + ".threadCount";
+    public static final String CONFIG_MIN_PARALLEL_SIZE = BulkClientApiConverter.class.getName() + ".minParallelSize";
+    public static final int CONFIG_MIN_PARALLEL_SIZE_DEFAULT = 100;
+    private static final int MIN_CHUNK_SIZE = 25;
+    private final int threadCount;
+    private final int minParallelSize;
+    private final ExecutorService executorService;
+
+    @VisibleForTesting
+    public BulkClientApiConverter(Configuration configuration) {
+        this.threadCount = configuration.getInt(CONFIG_THREAD_COUNT, Runtime.getRuntime().availableProcessors());
+        this.minParallelSize = configuration.getInt(CONFIG_MIN_PARALLEL_SIZE, CONFIG_MIN_PARALLEL_SIZE_DEFAULT);
+        if (threadCount > 1) {
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                    threadCount,
+                    threadCount,
+                    60L,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("visallo-client-api-converter-%d")
+                            .setDaemon(true)
+                            .build()
+            );
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            this.executorService = threadPoolExecutor;
+        } else {
+            this.executorService = null;
+        }
+    }
+
+    @Inject
+    public BulkClientApiConverter(Configuration configuration, ShutdownService shutdownService) {
+        this(configuration);
+        shutdownService.register(this);
+    }
+
+    public List<ClientApiVertex> toClientApiVertices(
+            Iterable<? extends Vertex> vertices,
+            String workspaceId,
+            Authorizations authorizations
+    ) {
+        ClientApiConverter.ConversionContext context = new ClientApiConverter.ConversionContext(workspaceId, false, authorizations);
+        return convert(vertices, (vertex, index) -> ClientApiConverter.toClientApiVertex(context, vertex, null));
+    }
+
+    public List<ClientApiEdge> toClientApiEdges(Iterable<? extends Edge> edges, String workspaceId) {
+        ClientApiConverter.ConversionContext context = new ClientApiConverter.ConversionContext(workspaceId, false, null);
+        return convert(edges, (edge, index) -> ClientApiConverter.toClientApiEdge(context, edge));
+    }
+
+    public List<ClientApiVertexiumObject> toClientApi(
+            Iterable<? extends VertexiumObject> vertexiumObjects,
+            String workspaceId,
+            Authorizations authorizations
+    ) {
+        ClientApiConverter.ConversionContext context = new ClientApiConverter.ConversionContext(workspaceId, false, authorizations);
+        return convert(vertexiumObjects, (vertexiumObject, index) -> ClientApiConverter.toClientApi(context, vertexiumObject, null));
+    }
+
+    /**
+     * Reads all of the items and converts them, preserving their order. The converter is called concurrently
+     * and must be thread safe.
+     *
+     * @param converter called with each item and its index in the results
+     */
+    public <T, R> List<R> convert(Iterable<? extends T> items, BiFunction<T, Integer, R> converter) {
+        List<T> itemsList = new ArrayList<>();
+        for (T item : items) {
+            itemsList.add(item);
+        }
+
+        int size = itemsList.size();
+        List<R> results = new ArrayList<>(size);
+        if (executorService == null || size < minParallelSize) {
+            for (int i = 0; i < size; i++) {
+                results.add(converter.apply(itemsList.get(i), i));
+            }
+            return results;
+        }
+
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + threadCount * 2 - 1) / (threadCount * 2));
+        List<Future<List<R>>> futures = new ArrayList<>();
+        for (int start = chunkSize; start < size; start += chunkSize) {
+            futures.add(executorService.submit(convertChunk(itemsList, start, Math.min(start + chunkSize, size), converter)));
+        }
+        try {
+            // the calling thread converts the first chunk rather than waiting idle
+            results.addAll(convertChunk(itemsList, 0, Math.min(chunkSize, size), converter).call());
+            for (Future<List<R>> future : futures) {
+                results.addAll(future.get());
+            }
+        } catch (ExecutionException ex) {
+            cancel(futures);
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new VisalloException("Could not convert to client api", ex.getCause());
+        } catch (InterruptedException ex) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted converting to client api", ex);
+        } catch (RuntimeException ex) {
+            cancel(futures);
+            throw ex;
+        } catch (Exception ex) {
+            cancel(futures);
+            throw new VisalloException("Could not convert to client api", ex);
+        }
+        return results;
+    }
+
+    private static <T, R> Callable<List<R>> convertChunk(
+            List<T> items,
+            int start,
+            int end,
+            BiFunction<T, Integer, R> converter
+    ) {
+        return () -> {
+            List<R> results = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                results.add(converter.apply(items.get(i), i));
+            }
+            return results;
+        };
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (executorService != null) {
+            LOGGER.debug("shutting down client api converter pool");
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -20,6 +20,7 @@ import org.visallo.web.clientapi.model.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -57,6 +58,52 @@ public class ClientApiConverter extends org.visallo.web.clientapi.util.ClientApi
         return results;
     }
 
+    /**
+     * State shared by the conversion of all the elements returned by a single request. Conversions using the
+     * same context may run concurrently.
+     */
+    public static class ConversionContext {
+        private static final String NO_VISIBILITY_SOURCE = "";
+        private final String workspaceId;
+        private final boolean includeEdgeInfos;
+        private final Authorizations authorizations;
+        private final Map<String, String> visibilitySourcesByVisibilityJson = new ConcurrentHashMap<>();
+
+        public ConversionContext(String workspaceId, boolean includeEdgeInfos, Authorizations authorizations) {
+            this.workspaceId = workspaceId;
+            this.includeEdgeInfos = includeEdgeInfos;
+            this.authorizations = authorizations;
+        }
+
+        public String getWorkspaceId() {
+            return workspaceId;
+        }
+
+        public boolean isIncludeEdgeInfos() {
+            return includeEdgeInfos;
+        }
+
+        public Authorizations getAuthorizations() {
+            return authorizations;
+        }
+
+        /**
+         * Most elements of a request share a handful of visibility json values so each distinct value is
+         * only parsed once.
+         */
+        String getVisibilitySource(org.vertexium.Element element) {
+            Object visibilityJsonValue = element.getPropertyValue(VisalloProperties.VISIBILITY_JSON.getPropertyName());
+            if (visibilityJsonValue == null) {
+                return null;
+            }
+            String source = visibilitySourcesByVisibilityJson.computeIfAbsent(visibilityJsonValue.toString(), json -> {
+                VisibilityJson visibilityJson = VisalloProperties.VISIBILITY_JSON.unwrap(json);
+                return visibilityJson == null || visibilityJson.getSource() == null ? NO_VISIBILITY_SOURCE : visibilityJson.getSource();
+            });
+            return NO_VISIBILITY_SOURCE.equals(source) ? null : source;
+        }
+    }
+
     public static List<ClientApiVertex> toClientApiVertices(
             Iterable<? extends Vertex> vertices,
             String workspaceId,
@@ -82,16 +129,27 @@ public class ClientApiConverter extends org.visallo.web.clientapi.util.ClientApi
             String workspaceId,
             boolean includeEdgeInfos,
             Authorizations authorizations
+    ) {
+        return toClientApi(new ConversionContext(workspaceId, includeEdgeInfos, authorizations), vertexiumObject, null);
+    }
+
+    /**
+     * @param commonCount the number of vertices this vertex has in common with other vertices, only used for vertices.
+     */
+    public static ClientApiVertexiumObject toClientApi(
+            ConversionContext context,
+            VertexiumObject vertexiumObject,
+            Integer commonCount
     ) {
         checkNotNull(vertexiumObject, "vertexiumObject cannot be null");
         if (vertexiumObject instanceof Vertex) {
-            return toClientApiVertex((Vertex) vertexiumObject, workspaceId, null, includeEdgeInfos, authorizations);
+            return toClientApiVertex(context, (Vertex) vertexiumObject, commonCount);
         }
         if (vertexiumObject instanceof Edge) {
-            return toClientApiEdge((Edge) vertexiumObject, workspaceId);
+            return toClientApiEdge(context, (Edge) vertexiumObject);
         }
         if (vertexiumObject instanceof ExtendedDataRow) {
-            return toClientApiExtendedDataRow((ExtendedDataRow) vertexiumObject, workspaceId);
+            return toClientApiExtendedDataRow((ExtendedDataRow) vertexiumObject, context.getWorkspaceId());
         }
         throw new RuntimeException("Unexpected vertexiumObject type: " + vertexiumObject.getClass().getName());
     }
@@ -123,21 +181,29 @@ public class ClientApiConverter extends org.visallo.web.clientapi.util.ClientApi
             boolean includeEdgeInfos,
             Authorizations authorizations
     ) {
+        return toClientApiVertex(new ConversionContext(workspaceId, includeEdgeInfos, authorizations), vertex, commonCount);
+    }
+
+    /**
+     * @param commonCount the number of vertices this vertex has in common with other vertices.
+     */
+    public static ClientApiVertex toClientApiVertex(ConversionContext context, Vertex vertex, Integer commonCount) {
         checkNotNull(vertex, "vertex is required");
         ClientApiVertex v = new ClientApiVertex();
 
+        Authorizations authorizations = context.getAuthorizations();
         if (authorizations != null) {
             stream(vertex.getEdgeLabels(Direction.BOTH, authorizations))
                     .forEach(v::addEdgeLabel);
 
-            if (includeEdgeInfos) {
+            if (context.isIncludeEdgeInfos()) {
                 stream(vertex.getEdgeInfos(Direction.BOTH, authorizations))
                         .map(ClientApiConverter::toClientApi)
                         .forEach(v::addEdgeInfo);
             }
         }
 
-        populateClientApiElement(v, vertex, workspaceId);
+        populateClientApiElement(v, vertex, context);
         v.setCommonCount(commonCount);
         return v;
     }
@@ -151,8 +217,12 @@ public class ClientApiConverter extends org.visallo.web.clientapi.util.ClientApi
     }
 
     public static ClientApiEdge toClientApiEdge(Edge edge, String workspaceId) {
+        return toClientApiEdge(new ConversionContext(workspaceId, false, null), edge);
+    }
+
+    public static ClientApiEdge toClientApiEdge(ConversionContext context, Edge edge) {
         ClientApiEdge e = new ClientApiEdge();
-        populateClientApiEdge(e, edge, workspaceId);
+        populateClientApiEdge(e, edge, context);
         return e;
     }
 
@@ -173,27 +243,28 @@ public class ClientApiConverter extends org.visallo.web.clientapi.util.ClientApi
     }
 
     public static void populateClientApiEdge(ClientApiEdge e, Edge edge, String workspaceId) {
+        populateClientApiEdge(e, edge, new ConversionContext(workspaceId, false, null));
+    }
+
+    private static void populateClientApiEdge(ClientApiEdge e, Edge edge, ConversionContext context) {
         e.setLabel(edge.getLabel());
         e.setOutVertexId(edge.getVertexId(Direction.OUT));
         e.setInVertexId(edge.getVertexId(Direction.IN));
 
-        populateClientApiElement(e, edge, workspaceId);
+        populateClientApiElement(e, edge, context);
     }
 
     private static void populateClientApiElement(
             ClientApiElement clientApiElement,
             org.vertexium.Element element,
-            String workspaceId
+            ConversionContext context
     ) {
+        String workspaceId = context.getWorkspaceId();
         clientApiElement.setId(element.getId());
         clientApiElement.getProperties().addAll(toClientApiProperties(element.getProperties(), workspaceId));
         clientApiElement.getExtendedDataTableNames().addAll(element.getExtendedDataTableNames());
         clientApiElement.setSandboxStatus(SandboxStatusUtil.getSandboxStatus(element, workspaceId));
-
-        VisibilityJson visibilityJson = VisalloProperties.VISIBILITY_JSON.getPropertyValue(element);
-        if (visibilityJson != null) {
-            clientApiElement.setVisibilitySource(visibilityJson.getSource());
-        }
+        clientApiElement.setVisibilitySource(context.getVisibilitySource(element));
 
         if (clientApiElement instanceof ClientApiVertex) {
             ClientApiVertex clientApiVertex = (ClientApiVertex) clientApiElement;
@@ -0,0 +1,82 @@
+package org.visallo.core.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+/**
+ * Computes the content hash, as returned by {@link RowKeyHelper#buildSHA256KeyString(InputStream)}, of the bytes
+ * read through it so a stream can be hashed while it is being stored instead of reading it twice.
+ */
+public class ContentHashInputStream extends FilterInputStream {
+    private final MessageDigest digest = RowKeyHelper.createSHA256Digest();
+    private long byteCount;
+
+    public ContentHashInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            digest.update((byte) b);
+            byteCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            digest.update(b, off, read);
+            byteCount += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes still need to be hashed
+        byte[] buffer = new byte[(int) Math.min(n, 4096)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read <= 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * @return the number of bytes read so far
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Finishes the hash, should only be called once all bytes have been read.
+     */
+    public String getContentHash() {
+        return RowKeyHelper.toSHA256KeyString(digest.digest());
+    }
+}
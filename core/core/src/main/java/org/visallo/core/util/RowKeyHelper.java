@@ -19,31 +19,36 @@ public class RowKeyHelper {
     }
 
     public static String buildSHA256KeyString(byte[] bytes) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] sha = digest.digest(bytes);
-            return "urn" + FIELD_SEPARATOR + "sha256" + FIELD_SEPARATOR + Hex.encodeHexString(sha);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+        MessageDigest digest = createSHA256Digest();
+        return toSHA256KeyString(digest.digest(bytes));
     }
 
     public static String buildSHA256KeyString(InputStream in) throws IOException {
+        MessageDigest digest = createSHA256Digest();
+        int bufferSize = 4096;
+        byte[] buffer = new byte[bufferSize];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) > 0) {
+            digest.update(buffer, 0, read);
+        }
+        return toSHA256KeyString(digest.digest());
+    }
+
+    public static MessageDigest createSHA256Digest() {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            int bufferSize = 4096;
-            byte[] buffer = new byte[bufferSize];
-            int read;
-            while ((read = in.read(buffer, 0, buffer.length)) > 0) {
-                digest.update(buffer, 0, read);
-            }
-            byte[] sha = digest.digest();
-            return "urn" + FIELD_SEPARATOR + "sha256" + FIELD_SEPARATOR + Hex.encodeHexString(sha);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @param sha the result of a digest created by {@link #createSHA256Digest()}
+     */
+    public static String toSHA256KeyString(byte[] sha) {
+        return "urn" + FIELD_SEPARATOR + "sha256" + FIELD_SEPARATOR + Hex.encodeHexString(sha);
+    }
+
     public static String[] splitOnMinorFieldSeparator(String rowKey) {
         return rowKey.split("" + FIELD_SEPARATOR);
     }
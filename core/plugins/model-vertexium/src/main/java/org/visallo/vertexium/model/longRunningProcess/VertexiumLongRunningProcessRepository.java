@@ -1,11 +1,14 @@
 package org.visallo.vertexium.model.longRunningProcess;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.json.JSONObject;
 import org.vertexium.*;
 import org.vertexium.util.ConvertingIterable;
+import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
+import org.visallo.core.model.longRunningProcess.LongRunningProcessProgressCoalescer;
 import org.visallo.core.model.longRunningProcess.LongRunningProcessProperties;
 import org.visallo.core.model.longRunningProcess.LongRunningProcessRepository;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -17,16 +20,25 @@ import org.visallo.core.user.SystemUser;
 import org.visallo.core.user.User;
 
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.vertexium.util.IterableUtils.toList;
 
 @Singleton
 public class VertexiumLongRunningProcessRepository extends LongRunningProcessRepository {
+    public static final String CONFIG_PROGRESS_INTERVAL_MILLIS = VertexiumLongRunningProcessRepository.class.getName() + ".progressIntervalMillis";
+    public static final long CONFIG_PROGRESS_INTERVAL_MILLIS_DEFAULT = 1000L;
+    public static final String CONFIG_PROGRESS_MIN_CHANGE = VertexiumLongRunningProcessRepository.class.getName() + ".progressMinChange";
+    public static final double CONFIG_PROGRESS_MIN_CHANGE_DEFAULT = 0.05;
     private final WorkQueueRepository workQueueRepository;
     private final UserRepository userRepository;
     private final Graph graph;
     private final AuthorizationRepository authorizationRepository;
+    private final LongRunningProcessProgressCoalescer progressCoalescer;
 
     @Inject
     public VertexiumLongRunningProcessRepository(
@@ -34,7 +46,8 @@ public class VertexiumLongRunningProcessRepository extends LongRunningProcessRep
             UserRepository userRepository,
             WorkQueueRepository workQueueRepository,
             Graph graph,
-            AuthorizationRepository authorizationRepository
+            AuthorizationRepository authorizationRepository,
+            Configuration configuration
     ) {
         this.userRepository = userRepository;
         this.workQueueRepository = workQueueRepository;
@@ -42,6 +55,25 @@ public class VertexiumLongRunningProcessRepository extends LongRunningProcessRep
         this.authorizationRepository = authorizationRepository;
 
         graphAuthorizationRepository.addAuthorizationToGraph(VISIBILITY_STRING);
+
+        long progressIntervalMillis = configuration.getLong(CONFIG_PROGRESS_INTERVAL_MILLIS, CONFIG_PROGRESS_INTERVAL_MILLIS_DEFAULT);
+        double progressMinChange = configuration.getDouble(CONFIG_PROGRESS_MIN_CHANGE, CONFIG_PROGRESS_MIN_CHANGE_DEFAULT);
+        this.progressCoalescer = new LongRunningProcessProgressCoalescer(progressIntervalMillis, progressMinChange);
+        if (progressIntervalMillis > 0) {
+            // writes progress that was held back when a worker stops reporting for a while
+            ScheduledExecutorService progressFlushExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("visallo-long-running-process-progress-%d")
+                            .setDaemon(true)
+                            .build()
+            );
+            progressFlushExecutor.scheduleWithFixedDelay(
+                    () -> progressCoalescer.flushDue(this::writeProgress),
+                    progressIntervalMillis,
+                    progressIntervalMillis,
+                    TimeUnit.MILLISECONDS
+            );
+        }
     }
 
     @Override
@@ -103,16 +135,24 @@ public class VertexiumLongRunningProcessRepository extends LongRunningProcessRep
     @Override
     public void beginWork(JSONObject longRunningProcessQueueItem) {
         super.beginWork(longRunningProcessQueueItem);
+        progressCoalescer.remove(longRunningProcessQueueItem.getString("id"));
         updateVertexWithJson(longRunningProcessQueueItem);
     }
 
     @Override
     public void ack(JSONObject longRunningProcessQueueItem) {
+        progressCoalescer.remove(longRunningProcessQueueItem.getString("id"));
         updateVertexWithJson(longRunningProcessQueueItem);
     }
 
     @Override
     public void nak(JSONObject longRunningProcessQueueItem, Throwable ex) {
+        LongRunningProcessProgressCoalescer.Progress progress = progressCoalescer.remove(longRunningProcessQueueItem.getString("id"));
+        if (progress != null) {
+            // keep how far the process got, progress held back by the coalescer was never written
+            longRunningProcessQueueItem.put("progress", progress.getProgressPercent());
+            longRunningProcessQueueItem.put("progressMessage", progress.getMessage());
+        }
         updateVertexWithJson(longRunningProcessQueueItem);
     }
 
@@ -178,24 +218,61 @@ public class VertexiumLongRunningProcessRepository extends LongRunningProcessRep
         );
         vb.save(getAuthorizations(user));
         this.graph.flush();
+        progressCoalescer.markCanceled(longRunningProcessId);
 
         workQueueRepository.broadcastLongRunningProcessChange(json);
     }
 
+    /**
+     * Progress is kept in memory and only written and broadcast every
+     * {@link #CONFIG_PROGRESS_INTERVAL_MILLIS} or when it changes by {@link #CONFIG_PROGRESS_MIN_CHANGE}.
+     * Cancellation by another process is noticed on the next write.
+     */
     @Override
     public void reportProgress(String longRunningProcessGraphVertexId, double progressPercent, String message) {
+        if (progressCoalescer.isCanceled(longRunningProcessGraphVertexId)) {
+            throw new VisalloException("Unable to update progress of cancelled process");
+        }
+        progressCoalescer.report(longRunningProcessGraphVertexId, progressPercent, message, this::writeProgress);
+    }
+
+    private void writeProgress(String longRunningProcessGraphVertexId, double progressPercent, String message) {
+        updateRunningProcessJson(longRunningProcessGraphVertexId, json -> {
+            json.put("progress", progressPercent);
+            json.put("progressMessage", message);
+        });
+    }
+
+    /**
+     * Written at most as often as the caller publishes, the caller is expected to throttle.
+     */
+    @Override
+    public void reportResults(String longRunningProcessGraphVertexId, JSONObject results, int resultsCount) {
+        if (progressCoalescer.isCanceled(longRunningProcessGraphVertexId)) {
+            throw new VisalloException("Unable to update results of cancelled process");
+        }
+        updateRunningProcessJson(longRunningProcessGraphVertexId, json -> {
+            json.put("results", results);
+            json.put("resultsCount", resultsCount);
+        });
+    }
+
+    /**
+     * Progress and results are written from different threads, so the read, update and write of the queue item
+     * json is serialized to not lose either.
+     */
+    private synchronized void updateRunningProcessJson(String longRunningProcessGraphVertexId, Consumer<JSONObject> update) {
         Authorizations authorizations = getAuthorizations(userRepository.getSystemUser());
         Vertex vertex = this.graph.getVertex(longRunningProcessGraphVertexId, authorizations);
         checkNotNull(vertex, "Could not find long running process vertex: " + longRunningProcessGraphVertexId);
 
-        JSONObject object = LongRunningProcessProperties.QUEUE_ITEM_JSON_PROPERTY.getPropertyValue(vertex);
-        if (object.optBoolean("canceled", false)) {
-            throw new VisalloException("Unable to update progress of cancelled process");
+        JSONObject json = LongRunningProcessProperties.QUEUE_ITEM_JSON_PROPERTY.getPropertyValue(vertex);
+        if (json.optBoolean("canceled", false)) {
+            progressCoalescer.markCanceled(longRunningProcessGraphVertexId);
+            throw new VisalloException("Unable to update cancelled process");
         }
 
-        JSONObject json = LongRunningProcessProperties.QUEUE_ITEM_JSON_PROPERTY.getPropertyValue(vertex);
-        json.put("progress", progressPercent);
-        json.put("progressMessage", message);
+        update.accept(json);
         json.put("id", longRunningProcessGraphVertexId);
 
         VertexBuilder vb = graph.prepareVertex(longRunningProcessGraphVertexId, vertex.getVisibility());
@@ -220,6 +297,7 @@ public class VertexiumLongRunningProcessRepository extends LongRunningProcessRep
         }
         this.graph.deleteVertex(vertex, authorizations);
         this.graph.flush();
+        progressCoalescer.remove(longRunningProcessId);
 
         if (json != null) {
             workQueueRepository.broadcastLongRunningProcessDeleted(json);
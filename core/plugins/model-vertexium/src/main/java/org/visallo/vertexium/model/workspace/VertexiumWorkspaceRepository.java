@@ -182,7 +182,8 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             List<WorkspaceUser> usersWithAccess = findUsersWithAccess(workspace.getWorkspaceId(), user);
             usersWithAccess.forEach(userWithAccess -> {
                 if (workspace.getWorkspaceId().equals(userRepository.getCurrentWorkspaceId(userWithAccess.getUserId()))) {
-                    userRepository.setCurrentWorkspace(userWithAccess.getUserId(), null);
+                    User userWithoutWorkspace = userRepository.setCurrentWorkspace(userWithAccess.getUserId(), null);
+                    getWorkQueueRepository().pushUserCurrentWorkspaceChange(userWithoutWorkspace, null);
                 }
             });
             getGraph().flush();
@@ -446,7 +447,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             );
         }
 
-        return lockRepository.lock(
+        return lockRepository.readLock(
                 getLockName(workspace),
                 () -> findEntitiesNoLock(workspace, false, fetchVertices, user)
         );
@@ -1540,7 +1541,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             );
         }
 
-        return lockRepository.lock(getLockName(workspace), () -> {
+        return lockRepository.readLock(getLockName(workspace), () -> {
             List<WorkspaceEntity> workspaceEntities = findEntitiesNoLock(workspace, true, true, user);
             Iterable<Edge> workspaceEdges = findModifiedEdges(workspace, workspaceEntities, true, user);
             return workspaceDiff.diff(workspace, workspaceEntities, workspaceEdges, userContext, user);
@@ -0,0 +1,66 @@
+package org.visallo.imageThumbnail;
+
+import com.google.inject.Inject;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.vertexium.Vertex;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkData;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorker;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerPrepareData;
+import org.visallo.core.model.Description;
+import org.visallo.core.model.Name;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@Name("Image Thumbnail")
+@Description("Generates image thumbnails in the standard sizes so they are ready before they are viewed")
+public class ImageThumbnailGraphPropertyWorker extends GraphPropertyWorker {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ImageThumbnailGraphPropertyWorker.class);
+    public static final String CONFIG_SIZES = ImageThumbnailGraphPropertyWorker.class.getName() + ".sizes";
+    public static final String CONFIG_SIZES_DEFAULT = "30,80,150,200,800";
+    public static final String THUMBNAIL_TYPE = "raw";
+    private ArtifactThumbnailRepository artifactThumbnailRepository;
+    private List<int[]> boundaryDimsList;
+
+    @Override
+    public void prepare(GraphPropertyWorkerPrepareData workerPrepareData) throws Exception {
+        super.prepare(workerPrepareData);
+        boundaryDimsList = new ArrayList<>();
+        for (String size : getConfiguration().get(CONFIG_SIZES, CONFIG_SIZES_DEFAULT).split(",")) {
+            int width = Integer.parseInt(size.trim());
+            boundaryDimsList.add(new int[]{width, width});
+        }
+    }
+
+    @Override
+    public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
+        Vertex vertex = (Vertex) data.getElement();
+        LOGGER.debug("creating %d thumbnails for vertex %s", boundaryDimsList.size(), vertex.getId());
+        artifactThumbnailRepository.createThumbnails(vertex, data.getProperty().getKey(), THUMBNAIL_TYPE, in, boundaryDimsList, getUser());
+    }
+
+    @Override
+    public boolean isHandled(Element element, Property property) {
+        if (property == null || !(element instanceof Vertex)) {
+            return false;
+        }
+
+        if (!property.getName().equals(VisalloProperties.RAW.getPropertyName())) {
+            return false;
+        }
+
+        String mimeType = VisalloProperties.MIME_TYPE_METADATA.getMetadataValue(property.getMetadata(), null);
+        return mimeType != null && mimeType.startsWith("image/");
+    }
+
+    @Inject
+    public void setArtifactThumbnailRepository(ArtifactThumbnailRepository artifactThumbnailRepository) {
+        this.artifactThumbnailRepository = artifactThumbnailRepository;
+    }
+}
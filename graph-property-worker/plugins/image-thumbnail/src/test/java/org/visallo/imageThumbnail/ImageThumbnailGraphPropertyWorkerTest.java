@@ -0,0 +1,100 @@
+package org.visallo.imageThumbnail;
+
+import com.v5analytics.simpleorm.SimpleOrmSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.*;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.cache.InMemoryCacheService;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerTestBase;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnail;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
+import org.visallo.core.model.properties.VisalloProperties;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ImageThumbnailGraphPropertyWorkerTest extends GraphPropertyWorkerTestBase {
+    private ImageThumbnailGraphPropertyWorker gpw;
+    private ArtifactThumbnailRepository artifactThumbnailRepository;
+
+    @Mock
+    private SimpleOrmSession simpleOrmSession;
+
+    @Before
+    public void before() throws Exception {
+        artifactThumbnailRepository = new ArtifactThumbnailRepository(
+                simpleOrmSession,
+                userRepository,
+                ontologyRepository,
+                new InMemoryCacheService(),
+                getConfiguration()
+        );
+        gpw = new ImageThumbnailGraphPropertyWorker();
+        gpw.setArtifactThumbnailRepository(artifactThumbnailRepository);
+    }
+
+    @Override
+    protected Map getConfigurationMap() {
+        Map configurationMap = super.getConfigurationMap();
+        configurationMap.put(ImageThumbnailGraphPropertyWorker.CONFIG_SIZES, "80, 150");
+        return configurationMap;
+    }
+
+    @Test
+    public void testCreatesThumbnailsForImages() throws Exception {
+        Vertex vertex = createVertex("image/png", createImage(1200, 600));
+        Property rawProperty = VisalloProperties.RAW.getProperty(vertex);
+
+        assertTrue(run(gpw, getWorkerPrepareData(), vertex, rawProperty, VisalloProperties.RAW.getPropertyValue(vertex).getInputStream()));
+
+        verify(simpleOrmSession, times(2)).save(any(ArtifactThumbnail.class), anyString(), any());
+        ArtifactThumbnail thumbnail = artifactThumbnailRepository.getThumbnail(vertex.getId(), "raw", 150, 150, getUser());
+        assertNotNull("thumbnail should be cached", thumbnail);
+        BufferedImage image = thumbnail.getImage();
+        assertEquals(150, image.getWidth());
+        assertEquals(75, image.getHeight());
+        assertNotNull(artifactThumbnailRepository.getThumbnail(vertex.getId(), "raw", 80, 80, getUser()));
+    }
+
+    @Test
+    public void testSkipsNonImages() throws Exception {
+        Vertex vertex = createVertex("text/plain", "hello".getBytes());
+        Property rawProperty = VisalloProperties.RAW.getProperty(vertex);
+
+        assertFalse(run(gpw, getWorkerPrepareData(), vertex, rawProperty, VisalloProperties.RAW.getPropertyValue(vertex).getInputStream()));
+        verify(simpleOrmSession, never()).save(any(ArtifactThumbnail.class), anyString(), any());
+    }
+
+    private Vertex createVertex(String mimeType, byte[] data) {
+        Visibility visibility = new Visibility("");
+        Authorizations authorizations = getGraph().createAuthorizations();
+        VertexBuilder vertexBuilder = getGraph().prepareVertex("v1", visibility);
+        Metadata metadata = new Metadata();
+        VisalloProperties.MIME_TYPE_METADATA.setMetadata(metadata, mimeType, getVisibilityTranslator().getDefaultVisibility());
+        StreamingPropertyValue value = new StreamingPropertyValue(new ByteArrayInputStream(data), byte[].class);
+        VisalloProperties.RAW.setProperty(vertexBuilder, value, metadata, visibility);
+        Vertex vertex = vertexBuilder.save(authorizations);
+        getGraph().flush();
+        return vertex;
+    }
+
+    private static byte[] createImage(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
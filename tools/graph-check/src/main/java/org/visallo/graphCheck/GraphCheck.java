@@ -1,36 +1,67 @@
 package org.visallo.graphCheck;
 
+import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.google.inject.Inject;
 import org.vertexium.*;
 import org.visallo.core.cmdline.CommandLineTool;
+import org.visallo.core.model.reindex.ReindexRangeSplitter;
 import org.visallo.core.model.user.GraphAuthorizationRepository;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Parameters(commandDescription = "Checks the graph for common errors")
 public class GraphCheck extends CommandLineTool {
     private GraphAuthorizationRepository graphAuthorizationRepository;
     private Authorizations authorizations;
 
+    @Parameter(names = {"--threads"}, description = "Number of shards to check at once")
+    private int threadCount = 4;
+
+    @Parameter(names = {"--shardCount"}, description = "Number of shards to split the vertex ids and the edge ids into")
+    private int shardCount = 32;
+
+    @Parameter(names = {"--progressInterval"}, description = "Seconds between progress reports")
+    private long progressIntervalSeconds = 60;
+
     public static void main(String[] args) throws Exception {
         CommandLineTool.main(new GraphCheck(), args);
     }
 
     @Override
     protected int run() throws Exception {
-        GraphCheckContext ctx = new GraphCheckContext(getAuthorizations());
-        GraphCheckVertexiumObjectVisitor visitor = new GraphCheckVertexiumObjectVisitor(ctx, getConfiguration());
-
-        Iterable<Vertex> vertices = getGraph().getVertices(FetchHint.ALL_INCLUDING_HIDDEN, getAuthorizations());
-        getGraph().visit(vertices, visitor);
+        ReindexRangeSplitter splitter = new ReindexRangeSplitter(getGraph());
+        List<ShardedGraphCheckRunner.Shard> shards = new ArrayList<>();
+        for (ElementType elementType : new ElementType[]{ElementType.VERTEX, ElementType.EDGE}) {
+            for (Range range : splitter.split(elementType, shardCount, getAuthorizations())) {
+                shards.add(new ShardedGraphCheckRunner.Shard(elementType, range));
+            }
+        }
 
-        Iterable<Edge> edges = getGraph().getEdges(FetchHint.ALL_INCLUDING_HIDDEN, getAuthorizations());
-        getGraph().visit(edges, visitor);
+        ShardedGraphCheckRunner runner = new ShardedGraphCheckRunner(
+                getGraph(),
+                getConfiguration(),
+                getAuthorizations(),
+                threadCount,
+                progressIntervalSeconds
+        );
+        GraphCheckContext ctx = runner.run(shards);
 
+        System.out.println("Checked " + runner.getElementCount() + " elements: "
+                + ctx.getErrorCount() + " errors, " + ctx.getWarningCount() + " warnings");
+        printCounts("errors", ctx.getErrorCountsByRule());
+        printCounts("warnings", ctx.getWarningCountsByRule());
         return 0;
     }
 
+    private void printCounts(String type, Map<String, Long> countsByRule) {
+        for (Map.Entry<String, Long> entry : countsByRule.entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue() + " " + type);
+        }
+    }
+
     @Override
     protected Authorizations getAuthorizations() {
         if (authorizations == null) {
@@ -5,9 +5,18 @@ import org.visallo.core.exception.VisalloException;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reports the problems found by {@link GraphCheckRule}s and counts them by rule. A context is only used by one
+ * thread, the counts of the contexts of a parallel run are combined with {@link #merge(GraphCheckContext)}.
+ */
 public class GraphCheckContext {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(GraphCheckContext.class);
     private final Authorizations authorizations;
+    private final Map<String, Long> errorCountsByRule = new TreeMap<>();
+    private final Map<String, Long> warningCountsByRule = new TreeMap<>();
 
     public GraphCheckContext(Authorizations authorizations) {
         this.authorizations = authorizations;
@@ -20,21 +29,61 @@ public class GraphCheckContext {
     public void reportError(GraphCheckRule rule, VertexiumObject object, String messageFormat, Object... messageParams) {
         Object[] params = getMessageParams(rule, object, messageParams);
         LOGGER.error("%s: " + messageFormat, params);
+        increment(errorCountsByRule, rule);
     }
 
     public void reportWarning(GraphCheckRule rule, VertexiumObject object, String messageFormat, Object... messageParams) {
         Object[] params = getMessageParams(rule, object, messageParams);
         LOGGER.warn("%s: " + messageFormat, params);
+        increment(warningCountsByRule, rule);
     }
 
     public void reportError(GraphCheckRule rule, VertexiumObject object, Property property, String messageFormat, Object... messageParams) {
         Object[] params = getMessageParams(rule, object, property, messageParams);
         LOGGER.error("%s: " + messageFormat, params);
+        increment(errorCountsByRule, rule);
     }
 
     public void reportWarning(GraphCheckRule rule, VertexiumObject object, Property property, String messageFormat, Object... messageParams) {
         Object[] params = getMessageParams(rule, object, property, messageParams);
         LOGGER.warn("%s: " + messageFormat, params);
+        increment(warningCountsByRule, rule);
+    }
+
+    public Map<String, Long> getErrorCountsByRule() {
+        return errorCountsByRule;
+    }
+
+    public Map<String, Long> getWarningCountsByRule() {
+        return warningCountsByRule;
+    }
+
+    public long getErrorCount() {
+        return sum(errorCountsByRule);
+    }
+
+    public long getWarningCount() {
+        return sum(warningCountsByRule);
+    }
+
+    /**
+     * Adds the counts of another context to this one.
+     */
+    public void merge(GraphCheckContext other) {
+        other.errorCountsByRule.forEach((rule, count) -> errorCountsByRule.merge(rule, count, Long::sum));
+        other.warningCountsByRule.forEach((rule, count) -> warningCountsByRule.merge(rule, count, Long::sum));
+    }
+
+    private static void increment(Map<String, Long> countsByRule, GraphCheckRule rule) {
+        countsByRule.merge(rule.getClass().getSimpleName(), 1L, Long::sum);
+    }
+
+    private static long sum(Map<String, Long> countsByRule) {
+        long total = 0;
+        for (Long count : countsByRule.values()) {
+            total += count;
+        }
+        return total;
     }
 
     private Object[] getMessageParams(GraphCheckRule rule, VertexiumObject object, Object... messageParams) {
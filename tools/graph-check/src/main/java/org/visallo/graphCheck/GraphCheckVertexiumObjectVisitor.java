@@ -6,6 +6,10 @@ import org.visallo.core.config.Configuration;
 
 import java.util.Collection;
 
+/**
+ * Applies every {@link GraphCheckRule} to the visited objects. The rules are created for each visitor and are
+ * only called from the thread using the visitor, so rules may keep state without synchronizing.
+ */
 public class GraphCheckVertexiumObjectVisitor implements GraphVisitor {
     private final GraphCheckContext ctx;
     private final Collection<GraphCheckRule> rules;
@@ -0,0 +1,195 @@
+package org.visallo.graphCheck;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.vertexium.*;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks shards of the graph, each a range of vertex or edge ids, on several threads. Every thread has its own
+ * {@link GraphCheckContext} and its own instances of the {@link GraphCheckRule}s and takes the next shard when it
+ * finishes one. The contexts are merged when all shards are checked.
+ * <p>
+ * Progress is logged periodically with an estimate of the time left, based on the share of shards finished.
+ */
+public class ShardedGraphCheckRunner {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ShardedGraphCheckRunner.class);
+    private final Graph graph;
+    private final Configuration configuration;
+    private final Authorizations authorizations;
+    private final int threadCount;
+    private final long progressIntervalSeconds;
+    private final AtomicLong elementCount = new AtomicLong();
+    private final AtomicInteger finishedShardCount = new AtomicInteger();
+
+    public ShardedGraphCheckRunner(
+            Graph graph,
+            Configuration configuration,
+            Authorizations authorizations,
+            int threadCount,
+            long progressIntervalSeconds
+    ) {
+        this.graph = graph;
+        this.configuration = configuration;
+        this.authorizations = authorizations;
+        this.threadCount = Math.max(1, threadCount);
+        this.progressIntervalSeconds = progressIntervalSeconds;
+    }
+
+    /**
+     * @return the merged context of all threads
+     */
+    public GraphCheckContext run(List<Shard> shards) {
+        Queue<Shard> remainingShards = new ConcurrentLinkedQueue<>(shards);
+        AtomicBoolean failed = new AtomicBoolean();
+        long startTime = System.currentTimeMillis();
+        int workerCount = Math.min(threadCount, Math.max(1, shards.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, createThreadFactory("visallo-graph-check-%d"));
+        ScheduledExecutorService progressExecutor = Executors.newSingleThreadScheduledExecutor(createThreadFactory("visallo-graph-check-progress-%d"));
+        try {
+            progressExecutor.scheduleAtFixedRate(
+                    () -> logProgress(shards.size(), startTime),
+                    progressIntervalSeconds,
+                    progressIntervalSeconds,
+                    TimeUnit.SECONDS
+            );
+
+            List<Future<GraphCheckContext>> futures = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                futures.add(executor.submit(() -> check(remainingShards, failed)));
+            }
+
+            GraphCheckContext result = new GraphCheckContext(authorizations);
+            for (Future<GraphCheckContext> future : futures) {
+                result.merge(getResult(future, failed));
+            }
+            LOGGER.info(
+                    "checked %d elements in %d shards in %ds: %d errors, %d warnings",
+                    elementCount.get(),
+                    shards.size(),
+                    (System.currentTimeMillis() - startTime) / 1000,
+                    result.getErrorCount(),
+                    result.getWarningCount()
+            );
+            return result;
+        } finally {
+            progressExecutor.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    public long getElementCount() {
+        return elementCount.get();
+    }
+
+    private GraphCheckContext check(Queue<Shard> remainingShards, AtomicBoolean failed) {
+        GraphCheckContext ctx = new GraphCheckContext(authorizations);
+        GraphCheckVertexiumObjectVisitor visitor = new GraphCheckVertexiumObjectVisitor(ctx, configuration);
+        for (Shard shard = remainingShards.poll(); shard != null && !failed.get(); shard = remainingShards.poll()) {
+            LOGGER.debug("checking %s %s", shard.getElementType(), shard.getRange());
+            graph.visit(count(getElementsInRange(shard)), visitor);
+            finishedShardCount.incrementAndGet();
+        }
+        return ctx;
+    }
+
+    private Iterable<? extends Element> getElementsInRange(Shard shard) {
+        switch (shard.getElementType()) {
+            case VERTEX:
+                return graph.getVerticesInRange(shard.getRange(), FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
+            case EDGE:
+                return graph.getEdgesInRange(shard.getRange(), FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
+            default:
+                throw new VisalloException("Unhandled element type: " + shard.getElementType());
+        }
+    }
+
+    private Iterable<Element> count(Iterable<? extends Element> elements) {
+        return () -> {
+            Iterator<? extends Element> it = elements.iterator();
+            return new Iterator<Element>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Element next() {
+                    elementCount.incrementAndGet();
+                    return it.next();
+                }
+            };
+        };
+    }
+
+    private void logProgress(int shardCount, long startTime) {
+        int finished = finishedShardCount.get();
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+        long elements = elementCount.get();
+        String eta = finished == 0
+                ? "unknown"
+                : formatDuration(elapsedMillis * (shardCount - finished) / finished);
+        LOGGER.info(
+                "checked %d elements (%d/s), %d of %d shards finished, estimated time left %s",
+                elements,
+                elapsedMillis < 1000 ? elements : elements * 1000 / elapsedMillis,
+                finished,
+                shardCount,
+                eta
+        );
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    private static GraphCheckContext getResult(Future<GraphCheckContext> future, AtomicBoolean failed) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while checking graph", ex);
+        } catch (ExecutionException ex) {
+            failed.set(true);
+            throw new VisalloException("Could not check graph", ex.getCause());
+        }
+    }
+
+    private static ThreadFactory createThreadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder()
+                .setNameFormat(nameFormat)
+                .setDaemon(true)
+                .build();
+    }
+
+    public static class Shard {
+        private final ElementType elementType;
+        private final Range range;
+
+        public Shard(ElementType elementType, Range range) {
+            this.elementType = elementType;
+            this.range = range;
+        }
+
+        public ElementType getElementType() {
+            return elementType;
+        }
+
+        public Range getRange() {
+            return range;
+        }
+    }
+}
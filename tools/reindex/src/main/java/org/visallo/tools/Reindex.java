@@ -13,16 +13,19 @@ import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.graph.ProxyGraph;
 import org.visallo.core.model.longRunningProcess.LongRunningProcessRepository;
 import org.visallo.core.model.longRunningProcess.ReindexLongRunningProcessQueueItem;
+import org.visallo.core.model.reindex.ReindexEngine;
+import org.visallo.core.model.reindex.ReindexRangeSplitter;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 
-@Parameters(commandDescription = "Reindex elements by enqueueing long running process items to reindex")
+@Parameters(commandDescription = "Reindex elements by enqueueing long running process items to reindex or by reindexing locally")
 public class Reindex extends CommandLineTool {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(Reindex.class);
     private LongRunningProcessRepository longRunningProcessRepository;
+    private ReindexEngine reindexEngine;
 
     @Parameter(names = {"--vertices", "-v"}, description = "Include all vertices")
     private boolean vertices = false;
@@ -36,6 +39,21 @@ public class Reindex extends CommandLineTool {
     @Parameter(names = {"--batchSize"}, description = "Number of elements to submit to search index at a time")
     private Integer batchSize = null;
 
+    @Parameter(names = {"--rangeCount"}, description = "Number of ranges to split the ids into when the graph has no table splits")
+    private int rangeCount = 32;
+
+    @Parameter(names = {"--maxElementsPerSecond"}, description = "Limit the rate elements are indexed, per range when enqueued or in total when run locally")
+    private Integer maxElementsPerSecond = null;
+
+    @Parameter(names = {"--local"}, description = "Reindex in this process instead of enqueueing long running process items")
+    private boolean local = false;
+
+    @Parameter(names = {"--threads"}, description = "Number of ranges to reindex at once when run locally")
+    private int threadCount = ReindexEngine.Options.DEFAULT_THREAD_COUNT;
+
+    @Parameter(names = {"--jobId"}, description = "Job id of a local reindex to resume")
+    private String jobId = null;
+
     public static void main(String[] args) throws Exception {
         CommandLineTool.main(new Reindex(), args);
     }
@@ -52,75 +70,81 @@ public class Reindex extends CommandLineTool {
             return -1;
         }
 
+        if (local && jobId == null) {
+            jobId = "reindex-" + System.currentTimeMillis();
+        }
+
         if (vertices || all) {
-            enqueueVerticesForReindex(batchSize);
+            reindex(ElementType.VERTEX);
         }
 
         if (edges || all) {
-            enqueueEdgesForReindex(batchSize);
+            reindex(ElementType.EDGE);
         }
 
         return 0;
     }
 
-    private void enqueueVerticesForReindex(Integer batchSize) {
-        enqueueElementsForReindex(ElementType.VERTEX, batchSize);
-    }
-
-    private void enqueueEdgesForReindex(Integer batchSize) {
-        enqueueElementsForReindex(ElementType.EDGE, batchSize);
+    private void reindex(ElementType elementType) {
+        if (local) {
+            reindexLocally(elementType);
+        } else {
+            enqueueElementsForReindex(elementType);
+        }
     }
 
-    private void enqueueElementsForReindex(ElementType elementType, Integer batchSize) {
-        List<String> splits = getSplits(elementType);
-        if (splits.size() <= 1) {
+    private void enqueueElementsForReindex(ElementType elementType) {
+        for (Range range : getRanges(elementType)) {
             ReindexLongRunningProcessQueueItem reindexQueueItem = new ReindexLongRunningProcessQueueItem(
                     elementType,
                     batchSize,
-                    null,
-                    null
+                    range.getInclusiveStart(),
+                    range.getExclusiveEnd(),
+                    maxElementsPerSecond
             );
             longRunningProcessRepository.enqueue(reindexQueueItem, getUser(), getAuthorizations());
-            return;
         }
+    }
 
-        String lastSplit = null;
-        for (String split : splits) {
-            ReindexLongRunningProcessQueueItem reindexQueueItem = new ReindexLongRunningProcessQueueItem(
-                    elementType,
-                    batchSize,
-                    lastSplit,
-                    split
-            );
-            longRunningProcessRepository.enqueue(reindexQueueItem, getUser(), getAuthorizations());
-            lastSplit = split;
+    private void reindexLocally(ElementType elementType) {
+        String elementJobId = jobId + "-" + elementType.name().toLowerCase();
+        List<Range> ranges = reindexEngine.findRanges(elementJobId);
+        if (ranges.isEmpty()) {
+            ranges = getRanges(elementType);
+        } else {
+            LOGGER.info("resuming reindex job %s", elementJobId);
+        }
+        System.out.println("Reindexing " + elementType + ", run again with --jobId " + jobId + " to resume");
+        ReindexEngine.Options options = new ReindexEngine.Options()
+                .setThreadCount(threadCount);
+        if (batchSize != null) {
+            options.setBatchSize(batchSize);
+        }
+        if (maxElementsPerSecond != null) {
+            options.setMaxElementsPerSecond(maxElementsPerSecond);
         }
-        ReindexLongRunningProcessQueueItem reindexQueueItem = new ReindexLongRunningProcessQueueItem(
-                elementType,
-                batchSize,
-                lastSplit,
-                null
-        );
-        longRunningProcessRepository.enqueue(reindexQueueItem, getUser(), getAuthorizations());
+        long indexedCount = reindexEngine.reindex(elementJobId, elementType, ranges, options, getAuthorizations());
+        System.out.println("Reindexed " + indexedCount + " " + elementType + " elements");
     }
 
-    private List<String> getSplits(ElementType elementType) {
-        List<String> splits;
-
+    private List<Range> getRanges(ElementType elementType) {
         try {
-            splits = getSplitsFromAccumuloGraph(elementType);
+            List<String> splits = getSplitsFromAccumuloGraph(elementType);
             if (splits != null) {
-                return splits;
+                List<Range> ranges = new ArrayList<>();
+                String lastSplit = null;
+                for (String split : splits) {
+                    ranges.add(new Range(lastSplit, split));
+                    lastSplit = split;
+                }
+                ranges.add(new Range(lastSplit, null));
+                return ranges;
             }
         } catch (NoClassDefFoundError ex) {
             // This can be ignored, this can only happen if AccumuloGraph is not being used, not found on class path
         }
 
-        splits = new ArrayList<>();
-        for (char c = ' '; c < '~'; c++) {
-            splits.add(Character.toString(c));
-        }
-        return splits;
+        return new ReindexRangeSplitter(getGraph()).split(elementType, rangeCount, getAuthorizations());
     }
 
     private List<String> getSplitsFromAccumuloGraph(ElementType elementType) {
@@ -156,6 +180,11 @@ public class Reindex extends CommandLineTool {
         return result;
     }
 
+    @Inject
+    public void setReindexEngine(ReindexEngine reindexEngine) {
+        this.reindexEngine = reindexEngine;
+    }
+
     @Inject
     public void setLongRunningProcessRepository(LongRunningProcessRepository longRunningProcessRepository) {
         this.longRunningProcessRepository = longRunningProcessRepository;
@@ -7,8 +7,12 @@ import com.sun.jersey.api.client.WebResource.Builder;
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
 import com.sun.jersey.api.client.filter.LoggingFilter;
+import com.sun.jersey.client.apache4.ApacheHttpClient4;
+import com.sun.jersey.client.apache4.config.ApacheHttpClient4Config;
+import com.sun.jersey.client.apache4.config.DefaultApacheHttpClient4Config;
 import com.sun.jersey.multipart.FormDataMultiPart;
 import com.sun.jersey.multipart.impl.MultiPartWriter;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.visallo.web.clientapi.codegen.ApiException;
 
 import javax.ws.rs.core.Response.Status.Family;
@@ -25,9 +29,10 @@ public class ApiInvoker {
     private Map<String, Client> hostMap = new HashMap<String, Client>();
     private Map<String, String> defaultHeaderMap = new HashMap<String, String>();
     private boolean isDebug = false;
-    private String csrfToken;
-    private String workspaceId;
-    private String jSessionId;
+    private int maxConnectionsPerHost;
+    private volatile String csrfToken;
+    private volatile String workspaceId;
+    private volatile String jSessionId;
 
     public void enableDebug() {
         isDebug = true;
@@ -212,6 +217,8 @@ public class ApiInvoker {
             throw new ApiException(500, "unknown method type " + method);
         }
         if (response.getStatusInfo() == ClientResponse.Status.NO_CONTENT) {
+            // release the connection so it can be reused
+            response.close();
             return null;
         } else if (response.getStatusInfo().getFamily() == Family.SUCCESSFUL) {
             return (String) response.getEntity(String.class);
@@ -222,11 +229,30 @@ public class ApiInvoker {
         }
     }
 
-    private Client getClient(String host) {
+    /**
+     * Sends the requests of this invoker over a pool of keep-alive connections that allows this many connections
+     * to each host at a time, instead of the connections of the JDK HTTP client which are shared by the whole JVM.
+     * Clients created before are replaced.
+     *
+     * @param maxConnectionsPerHost the pool size, 0 to use the JDK HTTP client
+     */
+    public synchronized void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost < 0) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must not be negative: " + maxConnectionsPerHost);
+        }
+        if (this.maxConnectionsPerHost != maxConnectionsPerHost) {
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            hostMap.clear();
+        }
+    }
+
+    public synchronized int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    private synchronized Client getClient(String host) {
         if (!hostMap.containsKey(host)) {
-            ClientConfig clientConfig = new DefaultClientConfig();
-            clientConfig.getClasses().add(MultiPartWriter.class);
-            Client client = Client.create(clientConfig);
+            Client client = maxConnectionsPerHost > 0 ? createPooledClient() : createClient();
             if (isDebug) {
                 client.addFilter(new LoggingFilter());
             }
@@ -235,6 +261,25 @@ public class ApiInvoker {
         return hostMap.get(host);
     }
 
+    private Client createClient() {
+        ClientConfig clientConfig = new DefaultClientConfig();
+        clientConfig.getClasses().add(MultiPartWriter.class);
+        return Client.create(clientConfig);
+    }
+
+    private Client createPooledClient() {
+        ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager();
+        connectionManager.setMaxTotal(maxConnectionsPerHost);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+
+        DefaultApacheHttpClient4Config clientConfig = new DefaultApacheHttpClient4Config();
+        clientConfig.getClasses().add(MultiPartWriter.class);
+        clientConfig.getProperties().put(ApacheHttpClient4Config.PROPERTY_CONNECTION_MANAGER, connectionManager);
+        // the session cookie is sent by invokeAPI
+        clientConfig.getProperties().put(ApacheHttpClient4Config.PROPERTY_DISABLE_COOKIES, true);
+        return ApacheHttpClient4.create(clientConfig);
+    }
+
     public void setCsrfToken(String csrfToken) {
         this.csrfToken = csrfToken;
     }
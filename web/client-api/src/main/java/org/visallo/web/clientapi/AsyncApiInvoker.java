@@ -0,0 +1,135 @@
+package org.visallo.web.clientapi;
+
+import org.visallo.web.clientapi.codegen.ApiException;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs API calls on a bounded pool of threads so many requests can be in flight at once, each call returns a
+ * {@link CompletableFuture} instead of blocking the caller. The {@link ApiInvoker} is switched to a connection
+ * pool of its own with at least as many keep-alive connections per host as there are threads, see
+ * {@link ApiInvoker#setMaxConnectionsPerHost(int)}.
+ * <p>
+ * Calls beyond maxConcurrentRequests wait in the queue, when the queue is full the caller runs the call itself
+ * which slows down producers that submit faster than the server responds.
+ * <pre><code>
+ * AsyncApiInvoker asyncInvoker = visalloApi.getAsyncApiInvoker();
+ * CompletableFuture&lt;ClientApiAddVerticesResponse&gt; future = asyncInvoker.submit(
+ *         () -&gt; visalloApi.getVertexApi().createMultiple(vertices, justificationText)
+ * );
+ * </code></pre>
+ */
+public class AsyncApiInvoker implements Closeable {
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    private final ApiInvoker apiInvoker;
+    private final ThreadPoolExecutor executor;
+
+    public AsyncApiInvoker(ApiInvoker apiInvoker) {
+        this(apiInvoker, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_QUEUE_SIZE);
+    }
+
+    public AsyncApiInvoker(ApiInvoker apiInvoker, int maxConcurrentRequests, int queueSize) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1: " + maxConcurrentRequests);
+        }
+        this.apiInvoker = apiInvoker;
+        if (apiInvoker.getMaxConnectionsPerHost() < maxConcurrentRequests) {
+            apiInvoker.setMaxConnectionsPerHost(maxConcurrentRequests);
+        }
+        this.executor = new ThreadPoolExecutor(
+                maxConcurrentRequests,
+                maxConcurrentRequests,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new DaemonThreadFactory(),
+                (runnable, e) -> {
+                    if (e.isShutdown()) {
+                        throw new RejectedExecutionException("AsyncApiInvoker is closed");
+                    }
+                    runnable.run();
+                }
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public ApiInvoker getApiInvoker() {
+        return apiInvoker;
+    }
+
+    /**
+     * Runs the call on the pool. If the call throws the future is completed exceptionally with the
+     * {@link ApiException}.
+     */
+    public <T> CompletableFuture<T> submit(ApiCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            try {
+                future.complete(call.call());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    public CompletableFuture<String> invokeAPI(
+            String host,
+            String path,
+            String method,
+            Map<String, String> queryParams,
+            Object body,
+            Map<String, String> headerParams,
+            Map<String, String> formParams,
+            String contentType
+    ) {
+        return submit(() -> apiInvoker.invokeAPI(
+                host,
+                path,
+                method,
+                queryParams == null ? new HashMap<>() : queryParams,
+                body,
+                headerParams == null ? new HashMap<>() : headerParams,
+                formParams == null ? new HashMap<>() : formParams,
+                contentType
+        ));
+    }
+
+    /**
+     * @return the number of calls submitted that have not started yet
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting calls, calls already submitted still run.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    public interface ApiCall<T> {
+        T call() throws ApiException;
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "visallo-client-api-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
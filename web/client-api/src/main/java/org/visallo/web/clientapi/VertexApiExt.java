@@ -15,9 +15,11 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class VertexApiExt extends VertexApi {
     public static final int VIDEO_TRANSCRIPT_INDEX_BITS = 12; // duplicated in org.visallo.core.model.textHighlighting.OffsetItem
@@ -226,6 +228,109 @@ public class VertexApiExt extends VertexApi {
         return setProperty(graphVertexId, propertyKey, propertyName, value, visibilitySource, justificationText, null, null);
     }
 
+    /**
+     * Creates all the vertices and their properties in a single request.
+     */
+    public ClientApiAddVerticesResponse createMultiple(ClientApiAddVertices vertices, String justificationText) throws ApiException {
+        if (vertices == null) {
+            throw new ApiException(400, "missing required params");
+        }
+        String response = postMultipart(VERTEX_BASE_URL + "new/multiple", "vertices", vertices, justificationText);
+        if (response == null) {
+            return null;
+        }
+        return (ClientApiAddVerticesResponse) ApiInvoker.deserialize(response, "", ClientApiAddVerticesResponse.class);
+    }
+
+    /**
+     * Creates the vertices in batches of batchSize, sending the batches concurrently.
+     *
+     * @return the ids of the created vertices in the order they were given
+     */
+    public CompletableFuture<List<String>> createMultiple(
+            AsyncApiInvoker asyncInvoker,
+            List<ClientApiAddVertices.Vertex> vertices,
+            int batchSize,
+            String justificationText
+    ) {
+        List<CompletableFuture<ClientApiAddVerticesResponse>> futures = new ArrayList<CompletableFuture<ClientApiAddVerticesResponse>>();
+        for (List<ClientApiAddVertices.Vertex> batch : partition(vertices, batchSize)) {
+            futures.add(asyncInvoker.submit(() -> {
+                ClientApiAddVertices addVertices = new ClientApiAddVertices();
+                addVertices.vertices.addAll(batch);
+                return createMultiple(addVertices, justificationText);
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenApply(
+                ignored -> {
+                    List<String> vertexIds = new ArrayList<String>();
+                    for (CompletableFuture<ClientApiAddVerticesResponse> future : futures) {
+                        vertexIds.addAll(future.join().getVertexIds());
+                    }
+                    return vertexIds;
+                }
+        );
+    }
+
+    /**
+     * Sets all the properties in a single request.
+     */
+    public ClientApiSuccess setPropertyMultiple(ClientApiSetVertexProperties properties, String justificationText) throws ApiException {
+        if (properties == null) {
+            throw new ApiException(400, "missing required params");
+        }
+        String response = postMultipart(VERTEX_BASE_URL + "property/multiple", "properties", properties, justificationText);
+        if (response == null) {
+            return null;
+        }
+        return (ClientApiSuccess) ApiInvoker.deserialize(response, "", ClientApiSuccess.class);
+    }
+
+    /**
+     * Sets the properties in batches of batchSize, sending the batches concurrently.
+     */
+    public CompletableFuture<Void> setPropertyMultiple(
+            AsyncApiInvoker asyncInvoker,
+            List<ClientApiSetVertexProperties.Property> properties,
+            int batchSize,
+            String justificationText
+    ) {
+        List<CompletableFuture<ClientApiSuccess>> futures = new ArrayList<CompletableFuture<ClientApiSuccess>>();
+        for (List<ClientApiSetVertexProperties.Property> batch : partition(properties, batchSize)) {
+            futures.add(asyncInvoker.submit(() -> {
+                ClientApiSetVertexProperties setProperties = new ClientApiSetVertexProperties();
+                setProperties.properties.addAll(batch);
+                return setPropertyMultiple(setProperties, justificationText);
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+    }
+
+    private String postMultipart(String path, String fieldName, Object value, String justificationText) throws ApiException {
+        Map<String, String> queryParams = new HashMap<String, String>();
+        Map<String, String> headerParams = new HashMap<String, String>();
+        Map<String, String> formParams = new HashMap<String, String>();
+
+        // sent in the body since a batch is too large for the query string
+        FormDataMultiPart mp = new FormDataMultiPart();
+        mp.field(fieldName, ApiInvoker.serialize(value), MediaType.MULTIPART_FORM_DATA_TYPE);
+        if (justificationText != null) {
+            mp.field("justificationText", justificationText, MediaType.MULTIPART_FORM_DATA_TYPE);
+        }
+        return apiInvoker.invokeAPI(basePath, path, "POST", queryParams, mp, headerParams, formParams, "multipart/form-data");
+    }
+
+    private static <T> List<List<T>> partition(List<T> list, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+        }
+        List<List<T>> batches = new ArrayList<List<T>>();
+        for (int i = 0; i < list.size(); i += batchSize) {
+            batches.add(list.subList(i, Math.min(list.size(), i + batchSize)));
+        }
+        return batches;
+    }
+
     public ClientApiVertexEdges getEdges(String graphVertexId) throws ApiException {
         return getEdges(graphVertexId, null, null, null);
     }
@@ -18,6 +18,7 @@ public class VisalloApi {
     private final LongRunningProcessApiExt longRunningProcessApi;
     private final String basePath;
     private ClientApiUser me;
+    private AsyncApiInvoker asyncApiInvoker;
 
     public VisalloApi(String basePath) {
         this.basePath = cleanBasePath(basePath);
@@ -79,6 +80,16 @@ public class VisalloApi {
         return longRunningProcessApi;
     }
 
+    /**
+     * @return an invoker to run calls concurrently, shared by all callers of this api
+     */
+    public synchronized AsyncApiInvoker getAsyncApiInvoker() {
+        if (asyncApiInvoker == null) {
+            asyncApiInvoker = new AsyncApiInvoker(ApiInvoker.getInstance());
+        }
+        return asyncApiInvoker;
+    }
+
     public String getCurrentWorkspaceId() {
         return ApiInvoker.getInstance().getWorkspaceId();
     }
@@ -0,0 +1,66 @@
+package org.visallo.web.clientapi.model;
+
+import org.visallo.web.clientapi.util.ClientApiConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ClientApiAddVertices implements ClientApiObject {
+    public List<Vertex> vertices = new ArrayList<Vertex>();
+
+    public ClientApiAddVertices() {
+
+    }
+
+    public ClientApiAddVertices(Vertex... vertices) {
+        Collections.addAll(this.vertices, vertices);
+    }
+
+    public ClientApiAddVertices add(Vertex vertex) {
+        this.vertices.add(vertex);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return ClientApiConverter.clientApiToString(this);
+    }
+
+    public static class Vertex {
+        public String vertexId;
+        public String conceptType;
+        public String visibilitySource;
+        public List<ClientApiAddElementProperties.Property> properties = new ArrayList<ClientApiAddElementProperties.Property>();
+
+        public Vertex() {
+
+        }
+
+        public Vertex(String vertexId, String conceptType, String visibilitySource) {
+            this.vertexId = vertexId;
+            this.conceptType = conceptType;
+            this.visibilitySource = visibilitySource;
+        }
+
+        public Vertex setVertexId(String vertexId) {
+            this.vertexId = vertexId;
+            return this;
+        }
+
+        public Vertex setConceptType(String conceptType) {
+            this.conceptType = conceptType;
+            return this;
+        }
+
+        public Vertex setVisibilitySource(String visibilitySource) {
+            this.visibilitySource = visibilitySource;
+            return this;
+        }
+
+        public Vertex addProperty(ClientApiAddElementProperties.Property property) {
+            this.properties.add(property);
+            return this;
+        }
+    }
+}
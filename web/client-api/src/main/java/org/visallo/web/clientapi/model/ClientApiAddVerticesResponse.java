@@ -0,0 +1,22 @@
+package org.visallo.web.clientapi.model;
+
+import org.visallo.web.clientapi.util.ClientApiConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientApiAddVerticesResponse implements ClientApiObject {
+    private List<String> vertexIds = new ArrayList<String>();
+
+    /**
+     * @return the ids of the created vertices in the order they were requested
+     */
+    public List<String> getVertexIds() {
+        return vertexIds;
+    }
+
+    @Override
+    public String toString() {
+        return ClientApiConverter.clientApiToString(this);
+    }
+}
@@ -0,0 +1,47 @@
+package org.visallo.web.clientapi.model;
+
+import org.visallo.web.clientapi.util.ClientApiConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ClientApiSetVertexProperties implements ClientApiObject {
+    public List<Property> properties = new ArrayList<Property>();
+
+    public ClientApiSetVertexProperties() {
+
+    }
+
+    public ClientApiSetVertexProperties(Property... properties) {
+        Collections.addAll(this.properties, properties);
+    }
+
+    public ClientApiSetVertexProperties add(Property property) {
+        this.properties.add(property);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return ClientApiConverter.clientApiToString(this);
+    }
+
+    public static class Property extends ClientApiAddElementProperties.Property {
+        public String graphVertexId;
+
+        public Property() {
+
+        }
+
+        public Property(String graphVertexId, String propertyKey, String propertyName, String value, String visibilitySource, String metadataString) {
+            super(propertyKey, propertyName, value, visibilitySource, metadataString);
+            this.graphVertexId = graphVertexId;
+        }
+
+        public Property setGraphVertexId(String graphVertexId) {
+            this.graphVertexId = graphVertexId;
+            return this;
+        }
+    }
+}
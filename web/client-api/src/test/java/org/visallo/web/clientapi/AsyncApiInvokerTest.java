@@ -0,0 +1,128 @@
+package org.visallo.web.clientapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.visallo.web.clientapi.codegen.ApiException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncApiInvokerTest {
+    private ApiInvoker apiInvoker;
+    private AsyncApiInvoker asyncInvoker;
+
+    @Before
+    public void before() {
+        apiInvoker = new ApiInvoker();
+    }
+
+    @After
+    public void after() {
+        if (asyncInvoker != null) {
+            asyncInvoker.close();
+        }
+    }
+
+    @Test
+    public void testConnectionPoolIsConfiguredOnTheInvoker() {
+        String maxConnections = System.getProperty("http.maxConnections");
+        asyncInvoker = new AsyncApiInvoker(apiInvoker, 4, 10);
+
+        assertEquals(4, apiInvoker.getMaxConnectionsPerHost());
+        assertEquals(maxConnections, System.getProperty("http.maxConnections"));
+        assertEquals(0, new ApiInvoker().getMaxConnectionsPerHost());
+
+        // a larger pool configured by the caller is kept
+        apiInvoker.setMaxConnectionsPerHost(16);
+        new AsyncApiInvoker(apiInvoker, 4, 10).close();
+        assertEquals(16, apiInvoker.getMaxConnectionsPerHost());
+    }
+
+    @Test
+    public void testConcurrentCallsAreBounded() throws Exception {
+        asyncInvoker = new AsyncApiInvoker(apiInvoker, 3, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int callNumber = i;
+            futures.add(asyncInvoker.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return callNumber;
+            }));
+        }
+        while (running.get() < 3) {
+            Thread.sleep(10);
+        }
+        assertEquals(17, asyncInvoker.getQueuedCount());
+        release.countDown();
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(Integer.valueOf(i), futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    public void testFailedCallCompletesExceptionally() throws Exception {
+        asyncInvoker = new AsyncApiInvoker(apiInvoker, 2, 10);
+        CompletableFuture<String> future = asyncInvoker.submit(() -> {
+            throw new ApiException(404, "not found");
+        });
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("expected exception");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof ApiException);
+            assertEquals(404, ((ApiException) ex.getCause()).getCode());
+        }
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCallerRunsWhenQueueIsFull() throws Exception {
+        asyncInvoker = new AsyncApiInvoker(apiInvoker, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        CompletableFuture<Thread> running = asyncInvoker.submit(() -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Thread.currentThread();
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Thread> queued = asyncInvoker.submit(Thread::currentThread);
+        CompletableFuture<Thread> callerRuns = asyncInvoker.submit(Thread::currentThread);
+
+        assertTrue(callerRuns.isDone());
+        assertSame(Thread.currentThread(), callerRuns.get());
+        release.countDown();
+        assertNotSame(Thread.currentThread(), running.get(10, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), queued.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testClosedInvokerRejectsCalls() {
+        asyncInvoker = new AsyncApiInvoker(apiInvoker, 1, 1);
+        asyncInvoker.close();
+        asyncInvoker.submit(() -> "value");
+    }
+}
@@ -0,0 +1,106 @@
+package org.visallo.web.clientapi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.visallo.web.clientapi.codegen.ApiException;
+import org.visallo.web.clientapi.model.ClientApiAddVertices;
+import org.visallo.web.clientapi.model.ClientApiAddVerticesResponse;
+import org.visallo.web.clientapi.model.ClientApiSetVertexProperties;
+import org.visallo.web.clientapi.model.ClientApiSuccess;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class VertexApiExtTest {
+    private AsyncApiInvoker asyncInvoker;
+    private RecordingVertexApi vertexApi;
+
+    @Before
+    public void before() {
+        asyncInvoker = new AsyncApiInvoker(new ApiInvoker(), 2, 10);
+        vertexApi = new RecordingVertexApi();
+    }
+
+    @After
+    public void after() {
+        asyncInvoker.close();
+    }
+
+    @Test
+    public void testCreateMultipleInBatches() throws Exception {
+        List<ClientApiAddVertices.Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            vertices.add(new ClientApiAddVertices.Vertex("v" + i, "http://visallo.org/test#person", ""));
+        }
+
+        List<String> vertexIds = vertexApi.createMultiple(asyncInvoker, vertices, 3, "justification").get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("v0", "v1", "v2", "v3", "v4", "v5", "v6"), vertexIds);
+        List<Integer> batchSizes = new ArrayList<>(vertexApi.batchSizes);
+        Collections.sort(batchSizes);
+        assertEquals(Arrays.asList(1, 3, 3), batchSizes);
+    }
+
+    @Test
+    public void testSetPropertyMultipleInBatches() throws Exception {
+        List<ClientApiSetVertexProperties.Property> properties = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            properties.add(new ClientApiSetVertexProperties.Property("v" + i, "k1", "http://visallo.org/test#name", "name" + i, "", null));
+        }
+
+        vertexApi.setPropertyMultiple(asyncInvoker, properties, 2, "justification").get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(2, 2), new ArrayList<>(vertexApi.batchSizes));
+    }
+
+    @Test
+    public void testFailedBatchFailsTheWholeCall() throws Exception {
+        List<ClientApiAddVertices.Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            vertices.add(new ClientApiAddVertices.Vertex(i == 2 ? "fail" : "v" + i, "http://visallo.org/test#person", ""));
+        }
+
+        CompletableFuture<List<String>> future = vertexApi.createMultiple(asyncInvoker, vertices, 2, null);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("expected exception");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof ApiException);
+            assertEquals(400, ((ApiException) ex.getCause()).getCode());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchSizeMustBePositive() {
+        vertexApi.createMultiple(asyncInvoker, new ArrayList<>(), 0, null);
+    }
+
+    private static class RecordingVertexApi extends VertexApiExt {
+        private final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public ClientApiAddVerticesResponse createMultiple(ClientApiAddVertices vertices, String justificationText) throws ApiException {
+            batchSizes.add(vertices.vertices.size());
+            ClientApiAddVerticesResponse response = new ClientApiAddVerticesResponse();
+            for (ClientApiAddVertices.Vertex vertex : vertices.vertices) {
+                if (vertex.vertexId.equals("fail")) {
+                    throw new ApiException(400, "invalid vertex");
+                }
+                response.getVertexIds().add(vertex.vertexId);
+            }
+            return response;
+        }
+
+        @Override
+        public ClientApiSuccess setPropertyMultiple(ClientApiSetVertexProperties properties, String justificationText) throws ApiException {
+            batchSizes.add(properties.properties.size());
+            return new ClientApiSuccess();
+        }
+    }
+}
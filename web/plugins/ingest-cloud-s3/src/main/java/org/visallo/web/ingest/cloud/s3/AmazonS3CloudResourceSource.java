@@ -50,6 +50,7 @@ public class AmazonS3CloudResourceSource implements CloudResourceSource {
         private AmazonS3 s3;
         private String bucket;
         private String key;
+        private Long size;
 
         AmazonS3CloudResourceSourceItem(AmazonS3 s3, String bucket, String key) {
             this.s3 = s3;
@@ -75,8 +76,14 @@ public class AmazonS3CloudResourceSource implements CloudResourceSource {
         }
 
         @Override
-        public Long getSize() {
-            return getObject().getObjectMetadata().getContentLength();
+        public synchronized Long getSize() {
+            // reads the metadata only so items aren't opened until they are downloaded
+            if (size == null) {
+                size = object == null
+                        ? s3.getObjectMetadata(bucket, key).getContentLength()
+                        : object.getObjectMetadata().getContentLength();
+            }
+            return size;
         }
 
         private synchronized S3Object getObject() {
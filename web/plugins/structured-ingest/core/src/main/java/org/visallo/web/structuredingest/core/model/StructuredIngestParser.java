@@ -12,4 +12,14 @@ public interface StructuredIngestParser {
     void ingest(InputStream inputStream, ParseOptions parseOptions, BaseStructuredFileParserHandler parserHandler) throws Exception;
 
     ClientApiAnalysis analyze(InputStream inputStream) throws Exception;
+
+    /**
+     * Parsers that can analyze a sample of the file instead of reading all of it override this, the total rows of
+     * the sheets may then be estimated from the length of the file.
+     *
+     * @param length the length of the file in bytes, or -1 if unknown
+     */
+    default ClientApiAnalysis analyze(InputStream inputStream, long length) throws Exception {
+        return analyze(inputStream);
+    }
 }
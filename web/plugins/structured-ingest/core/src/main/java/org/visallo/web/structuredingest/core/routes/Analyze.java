@@ -50,7 +50,7 @@ public class Analyze implements ParameterizedHandler {
             StructuredIngestParser parser = structuredIngestParserFactory.getParser(mimeType);
             if (parser != null) {
                 try (InputStream inputStream = rawPropertyValue.getInputStream()) {
-                    return parser.analyze(inputStream);
+                    return parser.analyze(inputStream, rawPropertyValue.getLength());
                 }
             }
         }
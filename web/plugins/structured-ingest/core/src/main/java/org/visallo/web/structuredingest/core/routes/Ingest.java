@@ -182,6 +182,9 @@ public class Ingest implements ParameterizedHandler {
 
         try (InputStream in = rawPropertyValue.getInputStream()) {
             structuredIngestParser.ingest(in, parseOptions, parserHandler);
+            parserHandler.finish();
+        } finally {
+            parserHandler.close();
         }
     }
 }
\ No newline at end of file
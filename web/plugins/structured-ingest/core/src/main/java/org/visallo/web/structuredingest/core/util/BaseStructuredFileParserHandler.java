@@ -4,6 +4,7 @@ import org.visallo.web.structuredingest.core.util.mapping.ColumnMappingType;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 public class BaseStructuredFileParserHandler {
@@ -35,6 +36,27 @@ public class BaseStructuredFileParserHandler {
         return true;
     }
 
+    /**
+     * Parsers of column oriented formats can use this to only read the columns the handler uses.
+     *
+     * @return the names of the columns the handler reads from the rows, or null if it needs all of them
+     */
+    public Set<String> getReferencedColumns() {
+        return null;
+    }
+
+    /**
+     * Called after the parser added the last row.
+     */
+    public void finish() {
+    }
+
+    /**
+     * Called once parsing is over, also when it failed, to release what the handler holds.
+     */
+    public void close() {
+    }
+
     public void setTotalRows(long rows) {
         this.totalRows = rows;
     }
@@ -1,12 +1,13 @@
 package org.visallo.web.structuredingest.core.util;
 
 import com.google.common.base.Charsets;
-import com.google.common.collect.Lists;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.vertexium.*;
+import org.vertexium.mutation.ElementMutation;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.graph.GraphRepository;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -34,10 +35,8 @@ import org.visallo.web.structuredingest.core.util.mapping.ParseMapping;
 import org.visallo.web.structuredingest.core.util.mapping.PropertyMapping;
 import org.visallo.web.structuredingest.core.util.mapping.VertexMapping;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.visallo.core.model.properties.VisalloProperties.VISIBILITY_JSON_METADATA;
@@ -47,6 +46,10 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
     public static final Long MAX_DRY_RUN_ROWS = 50000L;
     private static final String MULTI_KEY = "SFIMPORT";
     private static final String SKIPPED_VERTEX_ID = "SKIPPED_VERTEX";
+    private static final int EXISTENCE_CHECK_BLOCK_SIZE = 1000;
+    public static final int DEFAULT_ROW_GROUP_SIZE = 100;
+    public static final int DEFAULT_MAPPING_THREAD_COUNT = 4;
+    private static final int PENDING_ROWS_PER_MAPPING_THREAD = 100;
 
     private final Graph graph;
     private final User user;
@@ -67,11 +70,24 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
     private boolean publish;
     private int sheetNumber = -1;
     public int maxParseErrors = 10;
+    public int rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+    // rows are mapped on the parser thread unless set, so dry runs stop at maxParseErrors right away
+    public int mappingThreadCount = 1;
     public boolean dryRun = true;
     public ClientApiParseErrors parseErrors = new ClientApiParseErrors();
     public ClientApiIngestPreview clientApiIngestPreview;
-    public List<String> createdVertexIds;
-    public List<String> createdEdgeIds;
+    public Set<String> createdVertexIds;
+    public Set<String> createdEdgeIds;
+    private final Map<String, VertexMapping> uncountedVertexMappings = new LinkedHashMap<>();
+    private final Map<String, EdgeMapping> uncountedEdgeMappings = new LinkedHashMap<>();
+    private final Map<String, String> workspaceVertexIdsByGeneratedId = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> vertexExistsForUserById = new HashMap<>();
+    private final List<ParsedRow> rowBlock = new ArrayList<>();
+    private final List<ElementMutation> rowGroupMutations = new ArrayList<>();
+    private final Set<String> rowGroupWorkspaceUpdates = new LinkedHashSet<>();
+    private int rowGroupRowCount;
+    private final Deque<Future<MappedRow>> pendingRows = new ArrayDeque<>();
+    private ExecutorService mappingExecutor;
 
     public GraphBuilderParserHandler(
             Graph graph,
@@ -107,8 +123,9 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
         }
 
         clientApiIngestPreview = new ClientApiIngestPreview();
-        createdVertexIds = Lists.newArrayList();
-        createdEdgeIds = Lists.newArrayList();
+        // read by the mapping threads when generating vertex ids
+        createdVertexIds = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        createdEdgeIds = new HashSet<>();
         visibilityJson = new VisibilityJson(visibilityTranslator.getDefaultVisibility().getVisibilityString());
 
         if (this.publish) {
@@ -132,11 +149,61 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
     }
 
     public void reset() {
+        for (Future<MappedRow> pendingRow : pendingRows) {
+            pendingRow.cancel(true);
+        }
+        pendingRows.clear();
+        rowBlock.clear();
         parseErrors.errors.clear();
         sheetNumber = -1;
         clientApiIngestPreview = new ClientApiIngestPreview();
         createdVertexIds.clear();
         createdEdgeIds.clear();
+        uncountedVertexMappings.clear();
+        uncountedEdgeMappings.clear();
+        workspaceVertexIdsByGeneratedId.clear();
+        vertexExistsForUserById.clear();
+        rowGroupMutations.clear();
+        rowGroupWorkspaceUpdates.clear();
+        rowGroupRowCount = 0;
+    }
+
+    /**
+     * Saves the last row group and completes the preview counts.
+     */
+    @Override
+    public void finish() {
+        try {
+            mapRowBlock();
+            while (!pendingRows.isEmpty()) {
+                applyMappedRow(getMappedRow(pendingRows.removeFirst()));
+            }
+        } finally {
+            close();
+        }
+        if (dryRun) {
+            countNewElements();
+        } else {
+            saveRowGroup();
+        }
+    }
+
+    /**
+     * Stops the mapping threads, rows that are not applied yet are dropped.
+     */
+    @Override
+    public void close() {
+        rowBlock.clear();
+        pendingRows.clear();
+        if (mappingExecutor != null) {
+            mappingExecutor.shutdownNow();
+            mappingExecutor = null;
+        }
+    }
+
+    @Override
+    public Set<String> getReferencedColumns() {
+        return parseMapping.getColumns();
     }
 
     public boolean hasErrors() {
@@ -160,88 +227,216 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
         }
         clientApiIngestPreview.processedRows = rowCount;
 
-        Visibility defaultVisibility = visibilityTranslator.getDefaultVisibility();
-
         // Since we only handle the first sheet currently, bail if this isn't it.
         if (sheetNumber != 0) {
             return false;
         }
 
+        rowBlock.add(new ParsedRow(row, rowNum, sheetNumber));
+        // dry runs mapped on the parser thread go a row at a time, so they stop at maxParseErrors right away
+        if (rowBlock.size() >= (dryRun && mappingThreadCount <= 1 ? 1 : rowGroupSize)) {
+            mapRowBlock();
+        }
+
+        return !dryRun || maxParseErrors <= 0 || parseErrors.errors.size() < maxParseErrors;
+    }
+
+    /**
+     * Resolves the vertex ids of the buffered rows with one existence check, then maps them.
+     */
+    private void mapRowBlock() {
+        if (rowBlock.isEmpty()) {
+            return;
+        }
+        resolveVertexIds(rowBlock);
+        for (ParsedRow parsedRow : rowBlock) {
+            if (mappingThreadCount > 1) {
+                mapRowInBackground(parsedRow.row, parsedRow.rowNum, parsedRow.sheetNumber);
+            } else {
+                applyMappedRow(mapRow(parsedRow.row, parsedRow.rowNum, parsedRow.sheetNumber));
+            }
+        }
+        rowBlock.clear();
+    }
+
+    /**
+     * Maps the row on one of the mapping threads. Rows are applied in the order they were read, so the counts,
+     * parse errors and row groups are the same as when mapping on the parser thread.
+     */
+    private void mapRowInBackground(Map<String, Object> row, long rowNum, int rowSheetNumber) {
+        if (mappingExecutor == null) {
+            mappingExecutor = Executors.newFixedThreadPool(
+                    mappingThreadCount,
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("visallo-structured-ingest-mapping-%d")
+                            .setDaemon(true)
+                            .build()
+            );
+        }
+        pendingRows.addLast(mappingExecutor.submit(() -> mapRow(row, rowNum, rowSheetNumber)));
+
+        // block the parser when the mapping threads fall behind, so only a bounded number of rows is held in memory
+        while (!pendingRows.isEmpty()
+                && (pendingRows.size() >= mappingThreadCount * PENDING_ROWS_PER_MAPPING_THREAD || pendingRows.peekFirst().isDone())) {
+            applyMappedRow(getMappedRow(pendingRows.removeFirst()));
+        }
+    }
+
+    private MappedRow getMappedRow(Future<MappedRow> pendingRow) {
+        try {
+            return pendingRow.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while mapping rows", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new VisalloException("Unable to map row", e.getCause());
+        }
+    }
+
+    /**
+     * Builds the vertices and edges of a row without touching the state of the handler, so it can run on any thread.
+     */
+    private MappedRow mapRow(Map<String, Object> row, long rowNum, int rowSheetNumber) {
+        MappedRow mappedRow = new MappedRow(rowNum);
         try {
             List<String> newVertexIds = new ArrayList<>();
-            List<VertexBuilder> vertexBuilders = new ArrayList<>();
-            List<String> workspaceUpdates = new ArrayList<>();
             long vertexNum = 0;
             for (VertexMapping vertexMapping : parseMapping.vertexMappings) {
-                VertexBuilder vertexBuilder = createVertex(vertexMapping, row, rowNum, vertexNum);
+                VertexBuilder vertexBuilder = createVertex(vertexMapping, row, rowNum, rowSheetNumber, vertexNum, mappedRow.parseErrors);
                 if (vertexBuilder != null) {
-                    boolean alreadyCreated = createdVertexIds.contains(vertexBuilder.getVertexId());
-                    vertexBuilders.add(vertexBuilder);
+                    mappedRow.vertexBuilders.add(vertexBuilder);
+                    mappedRow.vertexMappings.add(vertexMapping);
                     newVertexIds.add(vertexBuilder.getVertexId());
-                    createdVertexIds.add(vertexBuilder.getVertexId());
-                    workspaceUpdates.add(vertexBuilder.getVertexId());
-                    if (!alreadyCreated) {
-                        incrementConcept(vertexMapping, !graph.doesVertexExist(vertexBuilder.getVertexId(), authorizations));
-                    }
                 } else {
                     newVertexIds.add(SKIPPED_VERTEX_ID);
                 }
                 vertexNum++;
             }
 
-            List<EdgeBuilderByVertexId> edgeBuilders = new ArrayList<>();
             for (EdgeMapping edgeMapping : parseMapping.edgeMappings) {
                 EdgeBuilderByVertexId edgeBuilder = createEdge(edgeMapping, newVertexIds);
                 if (edgeBuilder != null) {
-                    boolean alreadyCreated = createdEdgeIds.contains(edgeBuilder.getEdgeId());
-                    createdEdgeIds.add(edgeBuilder.getEdgeId());
-                    edgeBuilders.add(edgeBuilder);
-                    if (!alreadyCreated) {
-                        incrementEdges(edgeMapping, !graph.doesEdgeExist(edgeBuilder.getEdgeId(), authorizations));
-                    }
+                    mappedRow.edgeBuilders.add(edgeBuilder);
+                    mappedRow.edgeMappings.add(edgeMapping);
                 }
             }
+        } catch (SkipRowException sre) {
+            // Skip the row and keep going
+            mappedRow.skipped = true;
+        }
+        return mappedRow;
+    }
 
-            if (!dryRun) {
-                HashFunction hash = Hashing.sha1();
-                for (VertexBuilder vertexBuilder : vertexBuilders) {
-                    Vertex newVertex = vertexBuilder.save(authorizations);
-                    EdgeBuilder hasSourceEdgeBuilder = graph.prepareEdge(
-                            hash.newHasher()
-                                    .putString(newVertex.getId())
-                                    .putString(structuredFileVertex.getId())
-                                    .hash()
-                                    .toString(),
-                            newVertex,
-                            structuredFileVertex,
-                            StructuredIngestOntology.ELEMENT_HAS_SOURCE_IRI,
-                            visibility
-                    );
-                    VisalloProperties.VISIBILITY_JSON.setProperty(hasSourceEdgeBuilder, visibilityJson, defaultVisibility);
-                    VisalloProperties.MODIFIED_BY.setProperty(hasSourceEdgeBuilder, user.getUserId(), defaultVisibility);
-                    VisalloProperties.MODIFIED_DATE.setProperty(hasSourceEdgeBuilder, new Date(), defaultVisibility);
-                    hasSourceEdgeBuilder.save(authorizations);
-                }
+    private void applyMappedRow(MappedRow mappedRow) {
+        parseErrors.errors.addAll(mappedRow.parseErrors);
+        for (int i = 0; i < mappedRow.vertexBuilders.size(); i++) {
+            String vertexId = mappedRow.vertexBuilders.get(i).getVertexId();
+            if (createdVertexIds.add(vertexId)) {
+                uncountedVertexMappings.put(vertexId, mappedRow.vertexMappings.get(i));
+            }
+        }
 
-                for (EdgeBuilderByVertexId edgeBuilder : edgeBuilders) {
-                    edgeBuilder.save(authorizations);
+        if (!mappedRow.skipped) {
+            for (int i = 0; i < mappedRow.edgeBuilders.size(); i++) {
+                String edgeId = mappedRow.edgeBuilders.get(i).getEdgeId();
+                if (createdEdgeIds.add(edgeId)) {
+                    uncountedEdgeMappings.put(edgeId, mappedRow.edgeMappings.get(i));
                 }
+            }
 
-                graph.flush();
+            // existence is checked for a block of rows at a time, before any of them are saved
+            if (uncountedVertexMappings.size() + uncountedEdgeMappings.size() >= EXISTENCE_CHECK_BLOCK_SIZE) {
+                countNewElements();
+            }
 
-                if (!this.publish && workspaceUpdates.size() > 0) {
-                    workspaceRepository.updateEntitiesOnWorkspace(workspace, workspaceUpdates, user);
-                }
+            if (!dryRun) {
+                addToRowGroup(mappedRow.vertexBuilders, mappedRow.edgeBuilders);
             }
-        } catch (SkipRowException sre) {
-            // Skip the row and keep going
         }
 
         if (progressReporter != null) {
-            progressReporter.finishedRow(rowNum, getTotalRows());
+            progressReporter.finishedRow(mappedRow.rowNum, getTotalRows());
         }
+    }
 
-        return !dryRun || maxParseErrors <= 0 || parseErrors.errors.size() < maxParseErrors;
+    private void addToRowGroup(List<VertexBuilder> vertexBuilders, List<EdgeBuilderByVertexId> edgeBuilders) {
+        Visibility defaultVisibility = visibilityTranslator.getDefaultVisibility();
+        HashFunction hash = Hashing.sha1();
+        for (VertexBuilder vertexBuilder : vertexBuilders) {
+            String vertexId = vertexBuilder.getVertexId();
+            EdgeBuilderByVertexId hasSourceEdgeBuilder = graph.prepareEdge(
+                    hash.newHasher()
+                            .putString(vertexId)
+                            .putString(structuredFileVertex.getId())
+                            .hash()
+                            .toString(),
+                    vertexId,
+                    structuredFileVertex.getId(),
+                    StructuredIngestOntology.ELEMENT_HAS_SOURCE_IRI,
+                    visibility
+            );
+            VisalloProperties.VISIBILITY_JSON.setProperty(hasSourceEdgeBuilder, visibilityJson, defaultVisibility);
+            VisalloProperties.MODIFIED_BY.setProperty(hasSourceEdgeBuilder, user.getUserId(), defaultVisibility);
+            VisalloProperties.MODIFIED_DATE.setProperty(hasSourceEdgeBuilder, new Date(), defaultVisibility);
+            rowGroupMutations.add(vertexBuilder);
+            rowGroupMutations.add(hasSourceEdgeBuilder);
+            rowGroupWorkspaceUpdates.add(vertexId);
+        }
+        rowGroupMutations.addAll(edgeBuilders);
+
+        rowGroupRowCount++;
+        if (rowGroupRowCount >= rowGroupSize) {
+            saveRowGroup();
+        }
+    }
+
+    /**
+     * Saves the mutations of the buffered rows with one flush and one workspace update, instead of taking the
+     * workspace lock for every row.
+     */
+    private void saveRowGroup() {
+        countNewElements();
+        if (!rowGroupMutations.isEmpty()) {
+            graph.saveElementMutations(rowGroupMutations, authorizations);
+            graph.flush();
+        }
+        if (!this.publish && rowGroupWorkspaceUpdates.size() > 0) {
+            workspaceRepository.updateEntitiesOnWorkspace(workspace, new ArrayList<>(rowGroupWorkspaceUpdates), user);
+        }
+        rowGroupMutations.clear();
+        rowGroupWorkspaceUpdates.clear();
+        rowGroupRowCount = 0;
+    }
+
+    private void countNewElements() {
+        if (!uncountedVertexMappings.isEmpty()) {
+            // most ids were checked when they were resolved, only ids with the workspace added are left
+            List<String> uncheckedVertexIds = new ArrayList<>();
+            for (String vertexId : uncountedVertexMappings.keySet()) {
+                if (!vertexExistsForUserById.containsKey(vertexId)) {
+                    uncheckedVertexIds.add(vertexId);
+                }
+            }
+            if (!uncheckedVertexIds.isEmpty()) {
+                vertexExistsForUserById.putAll(graph.doVerticesExist(uncheckedVertexIds, authorizations));
+            }
+            for (Map.Entry<String, VertexMapping> entry : uncountedVertexMappings.entrySet()) {
+                // counted ids are in createdVertexIds, so they are never resolved again
+                Boolean exists = vertexExistsForUserById.remove(entry.getKey());
+                incrementConcept(entry.getValue(), !Boolean.TRUE.equals(exists));
+            }
+            uncountedVertexMappings.clear();
+        }
+        if (!uncountedEdgeMappings.isEmpty()) {
+            Map<String, Boolean> existingEdges = graph.doEdgesExist(new ArrayList<>(uncountedEdgeMappings.keySet()), authorizations);
+            for (Map.Entry<String, EdgeMapping> entry : uncountedEdgeMappings.entrySet()) {
+                incrementEdges(entry.getValue(), !Boolean.TRUE.equals(existingEdges.get(entry.getKey())));
+            }
+            uncountedEdgeMappings.clear();
+        }
     }
 
     private void incrementConcept(VertexMapping vertexMapping, boolean isNew) {
@@ -304,7 +499,14 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
         return m;
     }
 
-    private VertexBuilder createVertex(VertexMapping vertexMapping, Map<String, Object> row, long rowNum, long vertexNum) {
+    private VertexBuilder createVertex(
+            VertexMapping vertexMapping,
+            Map<String, Object> row,
+            long rowNum,
+            int rowSheetNumber,
+            long vertexNum,
+            List<ClientApiParseErrors.ParseError> rowParseErrors
+    ) {
         VisibilityJson vertexVisibilityJson = visibilityJson;
         Visibility vertexVisibility = visibility;
         if (vertexMapping.visibilityJson != null) {
@@ -335,7 +537,7 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
                     pe.rawPropertyValue = propertyMapping.extractRawValue(row);
                     pe.propertyMapping = propertyMapping;
                     pe.message = e.getMessage();
-                    pe.sheetIndex = sheetNumber;
+                    pe.sheetIndex = rowSheetNumber;
                     pe.rowIndex = rowNum;
 
                     if (!dryRun) {
@@ -344,7 +546,7 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
                         } else if (propertyMapping.errorHandlingStrategy == PropertyMapping.ErrorHandlingStrategy.SKIP_VERTEX) {
                             return null;
                         } else if (propertyMapping.errorHandlingStrategy == PropertyMapping.ErrorHandlingStrategy.SET_CELL_ERROR_PROPERTY) {
-                            String multiKey = sheetNumber + "_" + rowNum;
+                            String multiKey = rowSheetNumber + "_" + rowNum;
                             StructuredIngestOntology.ERROR_MESSAGE_PROPERTY.addPropertyValue(
                                     m,
                                     multiKey,
@@ -369,7 +571,7 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
                             StructuredIngestOntology.SHEET_PROPERTY.addPropertyValue(
                                     m,
                                     multiKey,
-                                    String.valueOf(sheetNumber),
+                                    String.valueOf(rowSheetNumber),
                                     metadata,
                                     vertexVisibility
                             );
@@ -384,7 +586,7 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
                             throw new VisalloException("Unhandled mapping error. Please provide a strategy.");
                         }
                     } else if (propertyMapping.errorHandlingStrategy == null) {
-                        parseErrors.errors.add(pe);
+                        rowParseErrors.add(pe);
                     }
                 }
             }
@@ -394,6 +596,16 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
     }
 
     private String generateVertexId(VertexMapping vertexMapping, Map<String, Object> row, long rowNum, long vertexNum) {
+        String vertexId = generateBaseVertexId(vertexMapping, row, rowNum, vertexNum);
+        String workspaceVertexId = workspaceVertexIdsByGeneratedId.get(vertexId);
+        return workspaceVertexId == null ? vertexId : workspaceVertexId;
+    }
+
+    /**
+     * Generates the id of the vertex from its identifier columns, or its position in the file, before the workspace
+     * is considered.
+     */
+    private String generateBaseVertexId(VertexMapping vertexMapping, Map<String, Object> row, long rowNum, long vertexNum) {
         List<String> identifierParts = new ArrayList<>();
 
         // Find any mappings that designate identifier columns
@@ -436,33 +648,61 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
 
 
         HashCode hash = hasher.hash();
-        String vertexId = hash.toString();
-
-        // We might need to also hash the workspace if this vertex exists in the system but not visible to user.
-        if (shouldAddWorkspaceToId(vertexId)) {
-            vertexId = sha1.newHasher()
-                    .putString(vertexId)
-                    .putString(workspace.getWorkspaceId())
-                    .hash()
-                    .toString();
-        }
-
-        return vertexId;
+        return hash.toString();
     }
 
     /**
      * If the user is creating an entity that is unpublished in different sandbox, this user won't be able to access
-     * it since prepareVertex with same id won't change the visibility.
+     * it since prepareVertex with same id won't change the visibility, so the workspace is added to its id. The ids
+     * of a block of rows are checked together, first with the user's authorizations and then, for the ones the user
+     * can't see, with the Visallo user's.
      */
-    private boolean shouldAddWorkspaceToId(String vertexId) {
-        boolean vertexExistsForUser = graph.doesVertexExist(vertexId, authorizations);
-        if (!vertexExistsForUser) {
-            boolean vertexExistsInSystem = graph.doesVertexExist(vertexId, visalloUserAuths);
-            if (vertexExistsInSystem) {
-                return true;
+    private void resolveVertexIds(List<ParsedRow> parsedRows) {
+        Set<String> uncheckedVertexIds = new LinkedHashSet<>();
+        for (ParsedRow parsedRow : parsedRows) {
+            long vertexNum = 0;
+            for (VertexMapping vertexMapping : parseMapping.vertexMappings) {
+                String vertexId = generateBaseVertexId(vertexMapping, parsedRow.row, parsedRow.rowNum, vertexNum);
+                // ids already used by this import were checked when first generated
+                if (!createdVertexIds.contains(vertexId)
+                        && !workspaceVertexIdsByGeneratedId.containsKey(vertexId)
+                        && !vertexExistsForUserById.containsKey(vertexId)) {
+                    uncheckedVertexIds.add(vertexId);
+                }
+                vertexNum++;
+            }
+        }
+        if (uncheckedVertexIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, Boolean> existsForUser = graph.doVerticesExist(new ArrayList<>(uncheckedVertexIds), authorizations);
+        List<String> notVisibleVertexIds = new ArrayList<>();
+        for (String vertexId : uncheckedVertexIds) {
+            boolean vertexExistsForUser = Boolean.TRUE.equals(existsForUser.get(vertexId));
+            if (vertexExistsForUser) {
+                vertexExistsForUserById.put(vertexId, true);
+            } else {
+                notVisibleVertexIds.add(vertexId);
+            }
+        }
+        if (notVisibleVertexIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, Boolean> existsInSystem = graph.doVerticesExist(notVisibleVertexIds, visalloUserAuths);
+        for (String vertexId : notVisibleVertexIds) {
+            if (Boolean.TRUE.equals(existsInSystem.get(vertexId))) {
+                String workspaceVertexId = Hashing.sha1().newHasher()
+                        .putString(vertexId)
+                        .putString(workspace.getWorkspaceId())
+                        .hash()
+                        .toString();
+                workspaceVertexIdsByGeneratedId.put(vertexId, workspaceVertexId);
+            } else {
+                vertexExistsForUserById.put(vertexId, false);
             }
         }
-        return false;
     }
 
     private void setPropertyValue(SingleValueVisalloProperty property, VertexBuilder m, Object value, Visibility vertexVisibility) {
@@ -486,4 +726,30 @@ public class GraphBuilderParserHandler extends BaseStructuredFileParserHandler {
             m.addPropertyValue(MULTI_KEY, propertyMapping.name, propertyValue, metadata, propertyVisibility);
         }
     }
+
+    private static class ParsedRow {
+        private final Map<String, Object> row;
+        private final long rowNum;
+        private final int sheetNumber;
+
+        private ParsedRow(Map<String, Object> row, long rowNum, int sheetNumber) {
+            this.row = row;
+            this.rowNum = rowNum;
+            this.sheetNumber = sheetNumber;
+        }
+    }
+
+    private static class MappedRow {
+        private final long rowNum;
+        private final List<VertexBuilder> vertexBuilders = new ArrayList<>();
+        private final List<VertexMapping> vertexMappings = new ArrayList<>();
+        private final List<EdgeBuilderByVertexId> edgeBuilders = new ArrayList<>();
+        private final List<EdgeMapping> edgeMappings = new ArrayList<>();
+        private final List<ClientApiParseErrors.ParseError> parseErrors = new ArrayList<>();
+        private boolean skipped;
+
+        private MappedRow(long rowNum) {
+            this.rowNum = rowNum;
+        }
+    }
 }
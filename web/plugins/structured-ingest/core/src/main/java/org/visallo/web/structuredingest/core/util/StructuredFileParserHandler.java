@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 
 public class StructuredFileParserHandler extends BaseStructuredFileParserHandler {
+    public static final int MAX_SAMPLE_ROWS = 10;
     private ClientApiAnalysis result = new ClientApiAnalysis();
     private ClientApiAnalysis.Sheet currentSheet;
 
@@ -40,7 +41,7 @@ public class StructuredFileParserHandler extends BaseStructuredFileParserHandler
         ClientApiAnalysis.ParsedRow parsedRow = new ClientApiAnalysis.ParsedRow();
         parsedRow.columns.addAll(values);
         currentSheet.parsedRows.add(parsedRow);
-        return currentSheet.parsedRows.size() < 10;
+        return currentSheet.parsedRows.size() < MAX_SAMPLE_ROWS;
     }
 
     @Override
@@ -49,6 +50,10 @@ public class StructuredFileParserHandler extends BaseStructuredFileParserHandler
         currentSheet.totalRows = rows;
     }
 
+    public void setTotalRowsEstimated(boolean totalRowsEstimated) {
+        currentSheet.totalRowsEstimated = totalRowsEstimated;
+    }
+
     @Override
     public boolean addRow(Map<String, Object> row, long rowNum) {
         if (currentSheet.columns.size() == 0) {
@@ -13,7 +13,8 @@ public class DatePropertyMapping extends PropertyMapping {
     public static final String PROPERTY_MAPPING_DATE_FORMAT_KEY = "format";
     public static final String PROPERTY_MAPPING_DATE_TIMEZONE_KEY = "timezone";
 
-    public SimpleDateFormat dateFormat;
+    // SimpleDateFormat isn't thread safe, each thread mapping rows gets its own copy
+    private ThreadLocal<SimpleDateFormat> dateFormat;
 
     public DatePropertyMapping(VisibilityTranslator visibilityTranslator, String workspaceId, JSONObject propertyMapping) {
         super(visibilityTranslator, workspaceId, propertyMapping);
@@ -26,8 +27,10 @@ public class DatePropertyMapping extends PropertyMapping {
                 throw new VisalloException("Both format and timezone are required for the Date propery " + name);
             }
 
-            dateFormat = new SimpleDateFormat(format);
-            dateFormat.setTimeZone(TimeZone.getTimeZone(timezone));
+            // created here so an invalid pattern fails when the mapping is read, not on the first row
+            SimpleDateFormat prototype = new SimpleDateFormat(format);
+            prototype.setTimeZone(TimeZone.getTimeZone(timezone));
+            dateFormat = ThreadLocal.withInitial(() -> (SimpleDateFormat) prototype.clone());
         }
     }
 
@@ -39,7 +42,7 @@ public class DatePropertyMapping extends PropertyMapping {
                 return null;
             } else {
                 try {
-                    return dateFormat.parse(strPropertyValue);
+                    return dateFormat.get().parse(strPropertyValue);
                 } catch (ParseException pe) {
                     throw new VisalloException("Unrecognized date value: " + rawPropertyValue, pe);
                 }
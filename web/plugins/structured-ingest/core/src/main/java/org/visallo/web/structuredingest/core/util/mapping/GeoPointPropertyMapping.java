@@ -8,6 +8,7 @@ import org.visallo.core.security.VisibilityTranslator;
 
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -80,6 +81,18 @@ public class GeoPointPropertyMapping extends PropertyMapping {
         }
     }
 
+    @Override
+    public Set<String> getColumns() {
+        Set<String> columns = super.getColumns();
+        if (!StringUtils.isBlank(latColumn)) {
+            columns.add(latColumn);
+        }
+        if (!StringUtils.isBlank(lonColumn)) {
+            columns.add(lonColumn);
+        }
+        return columns;
+    }
+
     @Override
     public String extractRawValue(Map<String, Object> row) {
         if(StringUtils.isNotBlank(key) || !StringUtils.isBlank(value)) {
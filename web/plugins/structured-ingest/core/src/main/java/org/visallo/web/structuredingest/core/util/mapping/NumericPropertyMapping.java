@@ -1,6 +1,5 @@
 package org.visallo.web.structuredingest.core.util.mapping;
 
-import org.apache.commons.lang.StringUtils;
 import org.json.JSONObject;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.ontology.OntologyProperty;
@@ -9,18 +8,24 @@ import org.visallo.web.clientapi.model.PropertyType;
 
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.regex.Pattern;
 
 public class NumericPropertyMapping extends PropertyMapping {
-    private NumberFormat numberFormat;
+    private static final Pattern DIGIT_PATTERN = Pattern.compile("\\d");
+    private static final Pattern NON_NUMBER_CHARACTERS_PATTERN = Pattern.compile("[^\\d\\.,\\-]");
+    private static final Pattern NON_LEADING_MINUS_PATTERN = Pattern.compile("(?<!^)\\-");
+
+    // NumberFormat isn't thread safe, each thread mapping rows gets its own
+    private final ThreadLocal<NumberFormat> numberFormat;
 
     public NumericPropertyMapping(
             OntologyProperty ontologyProperty, VisibilityTranslator visibilityTranslator, String workspaceId, JSONObject propertyMapping) {
         super(visibilityTranslator, workspaceId, propertyMapping);
-        numberFormat = ontologyToNumberFormat(ontologyProperty);
+        PropertyType dataType = ontologyProperty.getDataType();
+        numberFormat = ThreadLocal.withInitial(() -> ontologyToNumberFormat(dataType));
     }
 
-    private NumberFormat ontologyToNumberFormat(OntologyProperty ontologyProperty) {
-        PropertyType dataType = ontologyProperty.getDataType();
+    private static NumberFormat ontologyToNumberFormat(PropertyType dataType) {
         if(dataType == PropertyType.INTEGER) {
             return NumberFormat.getIntegerInstance();
         } else {
@@ -32,9 +37,10 @@ public class NumericPropertyMapping extends PropertyMapping {
     public Object decodeValue(Object rawPropertyValue) {
         if (rawPropertyValue instanceof String) {
             String value = (String) rawPropertyValue;
-            if (rawPropertyValue != null && !StringUtils.isBlank(value.replaceAll("\\D", ""))) {
+            if (DIGIT_PATTERN.matcher(value).find()) {
                 try {
-                    return numberFormat.parse(value.replaceAll("[^\\d\\.,\\-]", "").replaceAll("(?<!^)\\-", ""));
+                    String number = NON_NUMBER_CHARACTERS_PATTERN.matcher(value).replaceAll("");
+                    return numberFormat.get().parse(NON_LEADING_MINUS_PATTERN.matcher(number).replaceAll(""));
                 } catch (ParseException pe) {
                     throw new VisalloException("Unrecognized number format: " + rawPropertyValue, pe);
                 }
@@ -8,7 +8,9 @@ import org.visallo.core.security.VisibilityTranslator;
 import org.visallo.web.structuredingest.core.model.ClientApiMappingErrors;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ParseMapping {
     public List<VertexMapping> vertexMappings = new ArrayList<>();
@@ -30,6 +32,19 @@ public class ParseMapping {
         }
     }
 
+    /**
+     * @return the names of the row columns read by any of the vertex mappings
+     */
+    public Set<String> getColumns() {
+        Set<String> columns = new HashSet<>();
+        for (VertexMapping vertexMapping : vertexMappings) {
+            for (PropertyMapping propertyMapping : vertexMapping.propertyMappings) {
+                columns.addAll(propertyMapping.getColumns());
+            }
+        }
+        return columns;
+    }
+
     public ClientApiMappingErrors validate(Authorizations authorizations) {
         ClientApiMappingErrors errors = new ClientApiMappingErrors();
 
@@ -12,7 +12,9 @@ import org.visallo.web.clientapi.model.PropertyType;
 import org.visallo.web.clientapi.model.VisibilityJson;
 import org.visallo.web.structuredingest.core.model.ClientApiMappingErrors;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class PropertyMapping {
     public static final String PROPERTY_MAPPING_NAME_KEY = "name";
@@ -64,6 +66,17 @@ public class PropertyMapping {
         }
     }
 
+    /**
+     * @return the names of the row columns this mapping reads
+     */
+    public Set<String> getColumns() {
+        Set<String> columns = new HashSet<>();
+        if (!StringUtils.isBlank(key)) {
+            columns.add(key);
+        }
+        return columns;
+    }
+
     public Object decodeValue(Map<String, Object> row) throws Exception {
         return decodeValue(extractRawValue(row));
     }
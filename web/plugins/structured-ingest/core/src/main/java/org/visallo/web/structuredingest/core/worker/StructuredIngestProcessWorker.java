@@ -35,6 +35,8 @@ import java.text.NumberFormat;
 @Description("Extracts structured data from csv, and excel")
 public class StructuredIngestProcessWorker extends LongRunningProcessWorker {
     public static final String TYPE = "org-visallo-structured-ingest";
+    public static final String CONFIG_ROW_GROUP_SIZE = StructuredIngestProcessWorker.class.getName() + ".rowGroupSize";
+    public static final String CONFIG_MAPPING_THREAD_COUNT = StructuredIngestProcessWorker.class.getName() + ".mappingThreadCount";
     private OntologyRepository ontologyRepository;
     private VisibilityTranslator visibilityTranslator;
     private PrivilegeRepository privilegeRepository;
@@ -90,6 +92,8 @@ public class StructuredIngestProcessWorker extends LongRunningProcessWorker {
         parserHandler.cleanUpExistingImport();
 
         parserHandler.dryRun = false;
+        parserHandler.rowGroupSize = configuration.getInt(CONFIG_ROW_GROUP_SIZE, GraphBuilderParserHandler.DEFAULT_ROW_GROUP_SIZE);
+        parserHandler.mappingThreadCount = configuration.getInt(CONFIG_MAPPING_THREAD_COUNT, GraphBuilderParserHandler.DEFAULT_MAPPING_THREAD_COUNT);
         parserHandler.reset();
         try {
             parse(vertex, rawPropertyValue, parserHandler, structuredIngestQueueItem);
@@ -111,6 +115,9 @@ public class StructuredIngestProcessWorker extends LongRunningProcessWorker {
 
         try (InputStream in = rawPropertyValue.getInputStream()) {
             structuredIngestParser.ingest(in, item.getParseOptions(), parserHandler);
+            parserHandler.finish();
+        } finally {
+            parserHandler.close();
         }
     }
 
@@ -8,13 +8,13 @@ define([
 
     const StructuredIngestTextSection = createReactClass({
         getInitialState() {
-            return { rows: null, total: null, error: false }
+            return { rows: null, total: null, totalEstimated: false, error: false }
         },
         componentDidMount() {
             this.analyze();
         },
         render() {
-            const { rows, error, total } = this.state;
+            const { rows, error, total, totalEstimated } = this.state;
 
             return (
                 <div className="com-visallo-structuredFile-text-table">
@@ -34,7 +34,7 @@ define([
                                     <tr>
                                         <th style={{ fontWeight: 'normal', fontStyle: 'italic'}} 
                                             colSpan={rows[0].columns.length}>
-                                            {i18n('csv.file_import.mapping.summary', rows.length, F.number.pretty(total))}
+                                            {i18n('csv.file_import.mapping.summary', rows.length, (totalEstimated ? '~' : '') + F.number.pretty(total))}
                                         </th>
                                     </tr>
                                 </thead>
@@ -74,8 +74,8 @@ define([
         analyze() {
             util.analyze(this.props.vertex.id, { hasHeaderRow: false })
                 .then(result => {
-                    const { rows, total } = result;
-                    this.setState({ error: false, rows, total })
+                    const { rows, total, totalEstimated } = result;
+                    this.setState({ error: false, rows, total, totalEstimated })
                 })
                 .catch(error => {
                     console.error(error);
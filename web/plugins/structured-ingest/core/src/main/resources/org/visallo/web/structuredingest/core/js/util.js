@@ -77,6 +77,7 @@ function(withDataRequest) {
                         })),
                         rows: rows,
                         total: sheet.totalRows,
+                        totalEstimated: sheet.totalRowsEstimated,
                         hints: result.hints,
                         sheets: _.pluck(result.sheets, 'name')
                     }
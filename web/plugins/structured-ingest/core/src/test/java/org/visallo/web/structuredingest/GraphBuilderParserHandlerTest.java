@@ -3,6 +3,7 @@ package org.visallo.web.structuredingest;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,6 +15,7 @@ import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.user.PrivilegeRepository;
 import org.visallo.core.model.workspace.WorkspaceHelper;
 import org.visallo.core.user.User;
+import org.visallo.core.util.ClientApiConverter;
 import org.visallo.core.util.VisalloInMemoryTestBase;
 import org.visallo.web.clientapi.model.Privilege;
 import org.visallo.web.clientapi.model.VisibilityJson;
@@ -33,9 +35,10 @@ import java.util.function.Predicate;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.visallo.web.structuredingest.mapping.MappingTestHelpers.createIndexedMap;
 
 @SuppressWarnings("ConstantConditions")
@@ -57,10 +60,13 @@ public class GraphBuilderParserHandlerTest extends VisalloInMemoryTestBase {
     private Vertex structuredFileVertex;
     private ParseMapping parseMapping;
     private GraphBuilderParserHandler parserHandler;
+    private WorkspaceHelper workspaceHelper;
+    private User user;
+    private PrivilegeRepository privilegeRepository;
 
     @Before
     public void setup() throws Exception {
-        WorkspaceHelper workspaceHelper = new WorkspaceHelper(
+        workspaceHelper = new WorkspaceHelper(
                 getTermMentionRepository(),
                 getWorkQueueRepository(),
                 getGraph(),
@@ -84,7 +90,7 @@ public class GraphBuilderParserHandlerTest extends VisalloInMemoryTestBase {
         structuredFileVertex = structuredFileVertexBuilder.save(authorizations);
         dateFormat.setTimeZone(TimeZone.getTimeZone("America/New_York"));
 
-        User user = getUserRepository().findOrAddUser(
+        user = getUserRepository().findOrAddUser(
                 "junit",
                 "JUnit",
                 "junit@v5analytics.com",
@@ -92,13 +98,17 @@ public class GraphBuilderParserHandlerTest extends VisalloInMemoryTestBase {
         );
         getWorkspaceRepository().add(WORKSPACE_ID, "Default Junit", user);
 
-        PrivilegeRepository privilegeRepository = mock(PrivilegeRepository.class);
+        privilegeRepository = mock(PrivilegeRepository.class);
         when(privilegeRepository.hasPrivilege(any(User.class), eq(Privilege.PUBLISH))).thenReturn(true);
 
         InputStream parseMappingJson = this.getClass().getResourceAsStream("parsemapping.json");
         parseMapping = new ParseMapping(getOntologyRepository(), null, null, IOUtils.toString(parseMappingJson, "UTF-8"));
-        parserHandler = new GraphBuilderParserHandler(
-                getGraph(),
+        parserHandler = createParserHandler(getGraph());
+    }
+
+    private GraphBuilderParserHandler createParserHandler(Graph graph) {
+        GraphBuilderParserHandler parserHandler = new GraphBuilderParserHandler(
+                graph,
                 user,
                 getVisibilityTranslator(),
                 privilegeRepository,
@@ -111,8 +121,8 @@ public class GraphBuilderParserHandlerTest extends VisalloInMemoryTestBase {
                 parseMapping,
                 null
         );
-
         parserHandler.newSheet("SheetA");
+        return parserHandler;
     }
 
     @Test
@@ -391,6 +401,79 @@ public class GraphBuilderParserHandlerTest extends VisalloInMemoryTestBase {
         );
     }
 
+    @Test
+    public void testDryRunCountsNewAndReferencedVertices() throws Exception {
+        doParse(false, true, 0, new String[]{"John Smith", "3/13/2015", "yes"});
+
+        parserHandler.reset();
+        parserHandler.newSheet("SheetA");
+        parserHandler.dryRun = true;
+        assertTrue(parserHandler.addRow(createIndexedMap(new String[]{"John Smith", "3/13/2015", "yes"}), 0));
+        assertTrue(parserHandler.addRow(createIndexedMap(new String[]{"Jane Smith", "3/14/2015", "no"}), 1));
+        parserHandler.finish();
+
+        JSONObject preview = new JSONObject(ClientApiConverter.clientApiToString(parserHandler.clientApiIngestPreview));
+        JSONObject personNumbers = preview.getJSONObject("vertices").getJSONObject("numbers").getJSONObject(PERSON_CONCEPT_TYPE);
+        assertEquals(1, personNumbers.getInt("created"));
+        assertEquals(1, personNumbers.getInt("referenced"));
+        JSONObject edgeNumbers = preview.getJSONObject("edges").getJSONObject("numbers").getJSONObject(EDGE_LABEL);
+        assertEquals(2, edgeNumbers.getInt("created"));
+        assertEquals(4, parserHandler.createdVertexIds.size());
+    }
+
+    @Test
+    public void testAddRowSavesRowGroups() throws Exception {
+        parserHandler.dryRun = false;
+        parserHandler.rowGroupSize = 2;
+
+        parserHandler.addRow(createIndexedMap(new String[]{"John Smith", "3/13/2015", "yes"}), 0);
+        assertEquals("Rows are buffered until the group is full", 0, getGenerated().size());
+        parserHandler.addRow(createIndexedMap(new String[]{"Jane Smith", "3/14/2015", "no"}), 1);
+        assertEquals("Full group is saved", 4, getGenerated().size());
+        parserHandler.addRow(createIndexedMap(new String[]{"Joe Smith", "3/15/2015", "no"}), 2);
+        assertEquals(4, getGenerated().size());
+
+        parserHandler.finish();
+        assertEquals("Last partial group is saved by finish", 6, getGenerated().size());
+        assertEquals("Source and relationship edges", 9, Iterables.size(getGraph().getEdges(authorizations)));
+    }
+
+    @Test
+    public void testAddRowWithMappingThreads() throws Exception {
+        parserHandler.dryRun = false;
+        parserHandler.mappingThreadCount = 3;
+        parserHandler.rowGroupSize = 7;
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(parserHandler.addRow(createIndexedMap(new String[]{"Person " + i, "3/13/2015", i % 2 == 0 ? "yes" : "no"}), i));
+        }
+        parserHandler.finish();
+
+        assertEquals(100, getGenerated().size());
+        assertEquals(100, parserHandler.createdVertexIds.size());
+        assertEquals(50, parserHandler.createdEdgeIds.size());
+        assertEquals("Source and relationship edges", 150, Iterables.size(getGraph().getEdges(authorizations)));
+        assertEquals(50L, (long) parserHandler.clientApiIngestPreview.processedRows);
+    }
+
+    @Test
+    public void testVertexIdsAreCheckedOncePerBlock() throws Exception {
+        Graph graph = spy(getGraph());
+        parserHandler = createParserHandler(graph);
+        parserHandler.dryRun = false;
+        parserHandler.rowGroupSize = 5;
+
+        for (int i = 0; i < 10; i++) {
+            parserHandler.addRow(createIndexedMap(new String[]{"Person " + i, "3/13/2015", "yes"}), i);
+        }
+        parserHandler.finish();
+
+        assertEquals(20, getGenerated().size());
+        // per block of 5 rows: the user's authorizations, then the Visallo user's for the ids the user can't see
+        verify(graph, times(4)).doVerticesExist(anyListOf(String.class), any(Authorizations.class));
+        verify(graph, never()).doesVertexExist(anyString(), any(Authorizations.class));
+    }
+
     private PropertyMapping findPropertyMapping(String name) {
         for (int i = 0; i < parseMapping.vertexMappings.size(); i++) {
             for (int j = 0; j < parseMapping.vertexMappings.get(i).propertyMappings.size(); j++) {
@@ -413,6 +496,7 @@ public class GraphBuilderParserHandlerTest extends VisalloInMemoryTestBase {
         Map<String, Object> row = createIndexedMap(rowValues);
 
         boolean keepGoing = parserHandler.addRow(row, 0);
+        parserHandler.finish();
 
         assertEquals("Incorrect return value from parserHandler.addRow", expectedKeepGoing, keepGoing);
         Assert.assertEquals(
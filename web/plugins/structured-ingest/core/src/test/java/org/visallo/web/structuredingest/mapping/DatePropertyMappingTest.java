@@ -7,8 +7,13 @@ import org.visallo.web.structuredingest.core.util.mapping.DatePropertyMapping;
 import org.visallo.web.structuredingest.core.util.mapping.PropertyMapping;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static junit.framework.TestCase.*;
 
@@ -25,6 +30,68 @@ public class DatePropertyMappingTest {
         assertEquals("2015-03-13 17:05:22", sdf.format(result));
     }
 
+    @Test
+    public void testDecodeFromMultipleThreads() throws Exception {
+        DatePropertyMapping propertyMapping = new DatePropertyMapping(null, null, buildJsonPropertyMapping());
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        sdf.setTimeZone(TimeZone.getTimeZone("US/Hawaii"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Date>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                String value = String.format("2015-03-%02d 12:%02d:22", i % 28 + 1, i % 60);
+                results.add(executor.submit(() -> (Date) propertyMapping.decodeValue(value)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(String.format("2015-03-%02d 12:%02d:22", i % 28 + 1, i % 60), sdf.format(results.get(i).get()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTwoDigitYear() throws Exception {
+        JSONObject jsonPropertyMapping = buildJsonPropertyMapping();
+        jsonPropertyMapping.put(DatePropertyMapping.PROPERTY_MAPPING_DATE_FORMAT_KEY, "MM/dd/yy");
+        DatePropertyMapping propertyMapping = new DatePropertyMapping(null, null, jsonPropertyMapping);
+        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yy");
+        sdf.setTimeZone(TimeZone.getTimeZone("US/Hawaii"));
+
+        // within 80 years before and 20 years after today
+        for (String value : new String[]{"3/13/15", "3/13/45", "3/13/70", "3/13/99", "3/13/00"}) {
+            assertEquals(value, sdf.parse(value), propertyMapping.decodeValue(value));
+        }
+    }
+
+    @Test
+    public void testPartialPattern() throws Exception {
+        DatePropertyMapping propertyMapping = new DatePropertyMapping(null, null, buildJsonPropertyMapping("MM/yyyy"));
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        sdf.setTimeZone(TimeZone.getTimeZone("US/Hawaii"));
+
+        assertEquals("2015-03-01 00:00:00", sdf.format((Date) propertyMapping.decodeValue("03/2015")));
+    }
+
+    @Test
+    public void testTwelveHourClockWithoutAmPm() throws Exception {
+        DatePropertyMapping propertyMapping = new DatePropertyMapping(null, null, buildJsonPropertyMapping("yyyy-MM-dd hh:mm"));
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        sdf.setTimeZone(TimeZone.getTimeZone("US/Hawaii"));
+
+        assertEquals("2015-03-13 05:30:00", sdf.format((Date) propertyMapping.decodeValue("2015-03-13 05:30")));
+    }
+
+    @Test
+    public void testDayOfWeekNumber() throws Exception {
+        DatePropertyMapping propertyMapping = new DatePropertyMapping(null, null, buildJsonPropertyMapping("u yyyy-MM-dd"));
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        sdf.setTimeZone(TimeZone.getTimeZone("US/Hawaii"));
+
+        assertEquals("2015-03-13 00:00:00", sdf.format((Date) propertyMapping.decodeValue("5 2015-03-13")));
+    }
+
     @Test
     public void testMalformedDateValue() throws Exception {
         DatePropertyMapping propertyMapping = new DatePropertyMapping(null, null, buildJsonPropertyMapping());
@@ -45,10 +112,14 @@ public class DatePropertyMappingTest {
     }
 
     private JSONObject buildJsonPropertyMapping() {
+        return buildJsonPropertyMapping("yyyy-MM-dd HH:mm:ss");
+    }
+
+    private JSONObject buildJsonPropertyMapping(String format) {
         JSONObject jsonProperyMapping = new JSONObject();
         jsonProperyMapping.put(PropertyMapping.PROPERTY_MAPPING_NAME_KEY, "JUNIT");
         jsonProperyMapping.put(PropertyMapping.PROPERTY_MAPPING_KEY_KEY, 0);
-        jsonProperyMapping.put(DatePropertyMapping.PROPERTY_MAPPING_DATE_FORMAT_KEY, "yyyy-MM-dd HH:mm:ss");
+        jsonProperyMapping.put(DatePropertyMapping.PROPERTY_MAPPING_DATE_FORMAT_KEY, format);
         jsonProperyMapping.put(DatePropertyMapping.PROPERTY_MAPPING_DATE_TIMEZONE_KEY, "US/Hawaii");
         return jsonProperyMapping;
     }
@@ -0,0 +1,152 @@
+package org.visallo.web.structuredingest.parquet;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.tools.read.SimpleRecord;
+import org.apache.parquet.tools.read.SimpleRecordMaterializer;
+import org.visallo.core.exception.VisalloException;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads the row groups of a parquet file on a pool of threads. Only the column chunks of the projected columns are
+ * read, a row group at a time. Rows are handed to the caller in file order, each row group is converted on its
+ * own thread and passed over a bounded queue so only a few thousand rows are held in memory.
+ */
+class ParquetRowGroupReader {
+    private static final int QUEUE_SIZE = 1000;
+    private static final Object END_OF_ROW_GROUP = new Object();
+
+    private final Configuration conf;
+    private final Path path;
+    private final MessageType fileSchema;
+    private final MessageType projection;
+    private final List<BlockMetaData> blocks;
+    private final int threadCount;
+    private final RowConverter rowConverter;
+
+    ParquetRowGroupReader(
+            Configuration conf,
+            Path path,
+            MessageType fileSchema,
+            MessageType projection,
+            List<BlockMetaData> blocks,
+            int threadCount,
+            RowConverter rowConverter
+    ) {
+        this.conf = conf;
+        this.path = path;
+        this.fileSchema = fileSchema;
+        this.projection = projection;
+        this.blocks = blocks;
+        this.threadCount = Math.max(1, Math.min(threadCount, blocks.size()));
+        this.rowConverter = rowConverter;
+    }
+
+    /**
+     * Reads rows until the handler returns false or there are no more rows.
+     */
+    @SuppressWarnings("unchecked")
+    void read(RowHandler rowHandler) {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threadCount,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("visallo-parquet-row-group-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        try {
+            // the pool starts the row groups in file order, so the row group being handed out is always running
+            List<BlockingQueue<Object>> queues = new ArrayList<>();
+            for (BlockMetaData block : blocks) {
+                BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+                queues.add(queue);
+                executor.execute(new RowGroupTask(block, queue));
+            }
+
+            long rowNum = 0;
+            for (BlockingQueue<Object> queue : queues) {
+                for (Object item = queue.take(); item != END_OF_ROW_GROUP; item = queue.take()) {
+                    if (item instanceof Throwable) {
+                        throw new VisalloException("Could not read parquet row group", (Throwable) item);
+                    }
+                    if (!rowHandler.addRow((Map<String, Object>) item, rowNum++)) {
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while reading parquet file", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    interface RowConverter {
+        Map<String, Object> toRow(SimpleRecord record);
+    }
+
+    interface RowHandler {
+        boolean addRow(Map<String, Object> row, long rowNum);
+    }
+
+    private class RowGroupTask implements Runnable {
+        private final BlockMetaData block;
+        private final BlockingQueue<Object> queue;
+
+        RowGroupTask(BlockMetaData block, BlockingQueue<Object> queue) {
+            this.block = block;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            try {
+                try {
+                    readRowGroup();
+                } catch (InterruptedException ex) {
+                    return;
+                } catch (Throwable ex) {
+                    queue.put(ex);
+                    return;
+                }
+                queue.put(END_OF_ROW_GROUP);
+            } catch (InterruptedException ex) {
+                // reading was stopped
+            }
+        }
+
+        private void readRowGroup() throws IOException, InterruptedException {
+            if (projection.getFieldCount() == 0) {
+                // none of the columns are used, only the number of rows matters
+                for (long i = 0; i < block.getRowCount(); i++) {
+                    queue.put(new HashMap<String, Object>());
+                }
+                return;
+            }
+
+            try (ParquetFileReader reader = new ParquetFileReader(conf, path, Collections.singletonList(block), projection.getColumns())) {
+                PageReadStore pages = reader.readNextRowGroup();
+                MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(projection, fileSchema);
+                RecordReader<SimpleRecord> recordReader = columnIO.getRecordReader(pages, new SimpleRecordMaterializer(projection));
+                for (long i = 0; i < pages.getRowCount(); i++) {
+                    queue.put(rowConverter.toRow(recordReader.read()));
+                }
+            }
+        }
+    }
+}
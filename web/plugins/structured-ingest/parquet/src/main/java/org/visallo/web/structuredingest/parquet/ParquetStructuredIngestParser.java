@@ -3,6 +3,7 @@ package org.visallo.web.structuredingest.parquet;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.inject.Inject;
 import jodd.datetime.JDateTime;
 import jodd.datetime.JulianDateStamp;
 import org.apache.commons.io.IOUtils;
@@ -46,6 +47,14 @@ public class ParquetStructuredIngestParser implements StructuredIngestParser {
     private static final String PARQUET_MIME_TYPE = "application/x-parquet";
     private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
     private static final long NANOS_PER_DAY = MILLIS_PER_DAY * 1000000;
+    public static final String CONFIG_ROW_GROUP_THREAD_COUNT = ParquetStructuredIngestParser.class.getName() + ".rowGroupThreadCount";
+    public static final int DEFAULT_ROW_GROUP_THREAD_COUNT = 4;
+    private int rowGroupThreadCount = DEFAULT_ROW_GROUP_THREAD_COUNT;
+
+    @Inject
+    public void setConfiguration(org.visallo.core.config.Configuration configuration) {
+        this.rowGroupThreadCount = configuration.getInt(CONFIG_ROW_GROUP_THREAD_COUNT, DEFAULT_ROW_GROUP_THREAD_COUNT);
+    }
 
     @Override
     public Set<String> getSupportedMimeTypes() {
@@ -65,14 +74,16 @@ public class ParquetStructuredIngestParser implements StructuredIngestParser {
             MessageType schema = metaData.getFileMetaData().getSchema();
             parserHandler.setTotalRows(getRowCount(metaData));
 
-            try (ParquetReader<SimpleRecord> reader = ParquetReader.builder(new SimpleReadSupport(), new Path(tempFile.getAbsolutePath())).build()) {
-                parserHandler.newSheet("");
-                int rowNum = 0;
+            MessageType projection = getProjection(schema, parserHandler.getReferencedColumns());
 
-                for (SimpleRecord value = reader.read(); value != null; value = reader.read()) {
+            parserHandler.newSheet("");
+            // maven shade isn't working with lambdas, so use anon classes
+            new ParquetRowGroupReader(conf, path, schema, projection, metaData.getBlocks(), rowGroupThreadCount, new ParquetRowGroupReader.RowConverter() {
+                @Override
+                public Map<String, Object> toRow(SimpleRecord record) {
                     Map<String, Object> row = Maps.newHashMap();
 
-                    for (SimpleRecord.NameValue nameValue : value.getValues()) {
+                    for (SimpleRecord.NameValue nameValue : record.getValues()) {
                         String name = nameValue.getName();
                         Object val = nameValue.getValue();
                         if (!(val instanceof SimpleRecord)) {
@@ -80,15 +91,34 @@ public class ParquetStructuredIngestParser implements StructuredIngestParser {
                             row.put(name, getRecordValue(val, type));
                         }
                     }
-
-                    if (!parserHandler.addRow(row, rowNum++)) break;
+                    return row;
                 }
-            }
+            }).read(new ParquetRowGroupReader.RowHandler() {
+                @Override
+                public boolean addRow(Map<String, Object> row, long rowNum) {
+                    return parserHandler.addRow(row, rowNum);
+                }
+            });
         } finally {
             if (tempFile != null) tempFile.delete();
         }
     }
 
+    /**
+     * Only the top level columns the handler reads are projected, nested columns are never parsed.
+     *
+     * @param columns the names of the columns to read, or null for all of them
+     */
+    private MessageType getProjection(MessageType schema, Set<String> columns) {
+        List<Type> fields = new ArrayList<>();
+        for (Type field : schema.getFields()) {
+            if (field.isPrimitive() && (columns == null || columns.contains(field.getName()))) {
+                fields.add(field);
+            }
+        }
+        return new MessageType(schema.getName(), fields);
+    }
+
     private long getRowCount(ParquetMetadata metaData) {
         // maven shade isn't working with lambdas, so use anon class
         return metaData.getBlocks().stream().mapToLong(new ToLongFunction<BlockMetaData>() {
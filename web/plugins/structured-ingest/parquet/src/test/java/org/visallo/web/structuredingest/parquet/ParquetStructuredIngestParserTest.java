@@ -27,6 +27,7 @@ import org.visallo.web.clientapi.model.VisibilityJson;
 import org.visallo.web.structuredingest.core.StructuredIngestOntology;
 import org.visallo.web.structuredingest.core.model.ClientApiAnalysis;
 import org.visallo.web.structuredingest.core.model.ParseOptions;
+import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.util.GraphBuilderParserHandler;
 import org.visallo.web.structuredingest.core.util.ProgressReporter;
 import org.visallo.web.structuredingest.core.util.mapping.ColumnMappingType;
@@ -137,6 +138,33 @@ public class ParquetStructuredIngestParserTest {
         assertEquals(sheet.parsedRows.get(0).columns.get(9), "false");
     }
 
+    @Test
+    public void ingestOnlyReadsReferencedColumns() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<Long> rowNums = new ArrayList<>();
+        BaseStructuredFileParserHandler handler = new BaseStructuredFileParserHandler() {
+            @Override
+            public Set<String> getReferencedColumns() {
+                return Collections.singleton("social_security_number");
+            }
+
+            @Override
+            public boolean addRow(Map<String, Object> row, long rowNum) {
+                rows.add(row);
+                rowNums.add(rowNum);
+                return true;
+            }
+        };
+        new ParquetStructuredIngestParser().ingest(getTestFileInputStream(), new ParseOptions(), handler);
+
+        assertThat(rows.size(), is(20));
+        assertThat(rows.get(0).keySet(), is(Collections.singleton("social_security_number")));
+        assertThat(rows.get(0).get("social_security_number"), is("552-43-0086"));
+        for (int i = 0; i < rowNums.size(); i++) {
+            assertThat(rowNums.get(i), is((long) i));
+        }
+    }
+
     @Test
     public void ingestSetsConceptType() throws Exception {
         InputStream inputStream = getTestFileInputStream();
@@ -144,6 +172,7 @@ public class ParquetStructuredIngestParserTest {
         List<List<JSONObject>> vertexMappings = Collections.singletonList(Arrays.asList(conceptTypeObj("testConceptType")));
         GraphBuilderParserHandler graphBuilderParserHandler = setupGraphBuilder(parseMapping(vertexMappings, null));
         new ParquetStructuredIngestParser().ingest(inputStream, new ParseOptions(), graphBuilderParserHandler);
+        graphBuilderParserHandler.finish();
 
         graph.flush();
         Vertex vertex = graph.getVertex(PARQUET_FILE_VERTEX_ID, WORKSPACE_AUTHORIZATIONS_A);
@@ -164,6 +193,7 @@ public class ParquetStructuredIngestParserTest {
         );
         GraphBuilderParserHandler graphBuilderParserHandler = setupGraphBuilder(parseMapping(vertexMappings, null));
         new ParquetStructuredIngestParser().ingest(inputStream, new ParseOptions(), graphBuilderParserHandler);
+        graphBuilderParserHandler.finish();
 
         graph.flush();
         Vertex vertex = graph.getVertex(PARQUET_FILE_VERTEX_ID, WORKSPACE_AUTHORIZATIONS_A);
@@ -189,6 +219,7 @@ public class ParquetStructuredIngestParserTest {
         );
         GraphBuilderParserHandler graphBuilderParserHandler = setupGraphBuilder(parseMapping(vertexMappings, null));
         new ParquetStructuredIngestParser().ingest(inputStream, new ParseOptions(), graphBuilderParserHandler);
+        graphBuilderParserHandler.finish();
 
         graph.flush();
         Vertex vertex = graph.getVertex(PARQUET_FILE_VERTEX_ID, WORKSPACE_AUTHORIZATIONS_A);
@@ -216,6 +247,7 @@ public class ParquetStructuredIngestParserTest {
         );
         GraphBuilderParserHandler graphBuilderParserHandler = setupGraphBuilder(parseMapping(vertexMappings, null));
         new ParquetStructuredIngestParser().ingest(inputStream, new ParseOptions(), graphBuilderParserHandler);
+        graphBuilderParserHandler.finish();
 
         graph.flush();
         Vertex vertex = graph.getVertex(PARQUET_FILE_VERTEX_ID, WORKSPACE_AUTHORIZATIONS_A);
@@ -245,11 +277,13 @@ public class ParquetStructuredIngestParserTest {
         // Workspace A
         GraphBuilderParserHandler handlerA = setupGraphBuilder(mapping, WORKSPACE_ID_A);
         new ParquetStructuredIngestParser().ingest(getTestFileInputStream(), new ParseOptions(), handlerA);
+        handlerA.finish();
 
         assertThat(getStructuredVerticesCreated(WORKSPACE_AUTHORIZATIONS_A).size(), is(20));
 
         GraphBuilderParserHandler handlerB = setupGraphBuilder(mapping, WORKSPACE_ID_B);
         new ParquetStructuredIngestParser().ingest(getTestFileInputStream(), new ParseOptions(), handlerB);
+        handlerB.finish();
 
         assertThat("Vertices created afterwards in B exist",
                 getStructuredVerticesCreated(WORKSPACE_AUTHORIZATIONS_B).size(), is(20));
@@ -282,6 +316,7 @@ public class ParquetStructuredIngestParserTest {
         List<JSONObject> edgeMappings = Arrays.asList(createEdge(0, 1, "testEdgeLabel"));
         GraphBuilderParserHandler graphBuilderParserHandler = setupGraphBuilder(parseMapping(vertexMappings, edgeMappings));
         new ParquetStructuredIngestParser().ingest(inputStream, new ParseOptions(), graphBuilderParserHandler);
+        graphBuilderParserHandler.finish();
 
         graph.flush();
         Vertex vertex = graph.getVertex(PARQUET_FILE_VERTEX_ID, WORKSPACE_AUTHORIZATIONS_A);
@@ -2,6 +2,7 @@ package org.visallo.web.structuredingest.spreadsheet;
 
 import au.com.bytecode.opencsv.CSVReader;
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.web.structuredingest.core.model.ClientApiAnalysis;
 import org.visallo.web.structuredingest.core.util.StructuredFileParserHandler;
@@ -16,6 +17,7 @@ import java.util.Set;
 public class CsvParser extends BaseParser implements StructuredIngestParser {
 
     private final static String CSV_MIME_TYPE = "text/csv";
+    public static final int ANALYZE_SAMPLE_BYTES = 1024 * 1024;
 
     @Override
     public Set<String> getSupportedMimeTypes() {
@@ -39,11 +41,44 @@ public class CsvParser extends BaseParser implements StructuredIngestParser {
         return handler.getResult();
     }
 
+    /**
+     * Only reads the start of the file, the total rows are estimated from the number of rows in the sample.
+     */
+    @Override
+    public ClientApiAnalysis analyze(InputStream inputStream, long length) throws Exception {
+        StructuredFileParserHandler handler = new StructuredFileParserHandler();
+        handler.getHints().sendColumnIndices = true;
+        handler.getHints().allowHeaderSelection = true;
+
+        ParseOptions options = new ParseOptions();
+        options.hasHeaderRow = false;
+
+        byte[] sample = ByteStreams.toByteArray(ByteStreams.limit(inputStream, ANALYZE_SAMPLE_BYTES));
+        boolean sampledWholeFile = inputStream.read() == -1;
+        long sampleRows = getTotalRows(new ByteArrayInputStream(sample), options);
+
+        handler.newSheet("");
+        if (sampledWholeFile) {
+            handler.setTotalRows(sampleRows);
+        } else {
+            // the last row of the sample is most likely cut off
+            long completeSampleRows = Math.max(sampleRows - 1, 1);
+            handler.setTotalRows(length > 0 ? Math.round((double) completeSampleRows * length / sample.length) : -1);
+            handler.setTotalRowsEstimated(true);
+        }
+        parseCsvRows(new ByteArrayInputStream(sample), options, handler);
+        return handler.getResult();
+    }
+
     private void parseCsvSheet(InputStream in, ParseOptions options, BaseStructuredFileParserHandler handler) {
         handler.newSheet("");
 
         handler.setTotalRows(getTotalRows(in, options));
 
+        parseCsvRows(in, options, handler);
+    }
+
+    private void parseCsvRows(InputStream in, ParseOptions options, BaseStructuredFileParserHandler handler) {
         try (Reader reader = new InputStreamReader(in)) {
             int row = 0;
             try (CSVReader csvReader = new CSVReader(reader, options.separator, options.quoteChar)) {
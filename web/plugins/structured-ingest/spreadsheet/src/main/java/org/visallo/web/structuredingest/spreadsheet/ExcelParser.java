@@ -2,6 +2,7 @@ package org.visallo.web.structuredingest.spreadsheet;
 
 import com.google.common.collect.Sets;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.poifs.filesystem.DocumentFactoryHelper;
 import org.apache.poi.ss.usermodel.*;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.web.structuredingest.core.model.ClientApiAnalysis;
@@ -10,6 +11,7 @@ import org.visallo.web.structuredingest.core.model.StructuredIngestParser;
 import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
 import org.visallo.web.structuredingest.core.model.ParseOptions;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -29,7 +31,7 @@ public class ExcelParser extends BaseParser implements StructuredIngestParser {
 
     @Override
     public void ingest(InputStream in, ParseOptions parseOptions, BaseStructuredFileParserHandler parserHandler) throws Exception {
-        parseExcel(in, parseOptions, parserHandler);
+        parseWorkbook(in, parseOptions, parserHandler);
     }
 
     @Override
@@ -40,10 +42,23 @@ public class ExcelParser extends BaseParser implements StructuredIngestParser {
 
         ParseOptions options = new ParseOptions();
         options.hasHeaderRow = false;
-        parseExcel(inputStream, options, handler);
+        parseWorkbook(inputStream, options, handler);
         return handler.getResult();
     }
 
+    /**
+     * .xlsx workbooks are streamed a row at a time, only legacy .xls workbooks are loaded into memory. Those are
+     * limited to 65536 rows.
+     */
+    private void parseWorkbook(InputStream inputStream, ParseOptions options, BaseStructuredFileParserHandler handler) throws IOException {
+        InputStream in = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+        if (DocumentFactoryHelper.hasOOXMLHeader(in)) {
+            new XlsxStreamingReader().read(in, options, handler);
+        } else {
+            parseExcel(in, options, handler);
+        }
+    }
+
     private void parseExcel(InputStream in, ParseOptions options, BaseStructuredFileParserHandler handler) {
         try {
             Workbook workbook = WorkbookFactory.create(in);
@@ -59,26 +74,11 @@ public class ExcelParser extends BaseParser implements StructuredIngestParser {
                 if(excelSheet.getPhysicalNumberOfRows() > 0) {
                     int lastRowNum = excelSheet.getLastRowNum();
                     handler.setTotalRows(lastRowNum);
-                    for(int j = 0, rowIndex = 0; j <= lastRowNum; j++) {
-                        if (rowIndex < options.startRowIndex) {
-                            rowIndex++;
-                            continue;
-                        }
-
+                    ExcelSheetRows rows = new ExcelSheetRows(options, handler);
+                    for(int j = 0; j <= lastRowNum; j++) {
                         Row row = excelSheet.getRow(j);
-                        List<Object> parsedRow = parseExcelRow(row, evaluator, formatter);
-                        if(parsedRow.size() > 0) {
-                            if(rowIndex == options.startRowIndex && options.hasHeaderRow) {
-                                for (int k = 0; k < parsedRow.size(); k++) {
-                                    handler.addColumn(parsedRow.get(k).toString());
-                                }
-                            } else {
-                                if(!handler.addRow(parsedRow, j)) {
-                                    break;
-                                }
-                            }
-
-                            rowIndex++;
+                        if(!rows.addRow(j, parseExcelRow(row, evaluator, formatter))) {
+                            break;
                         }
                     }
                 }
@@ -0,0 +1,47 @@
+package org.visallo.web.structuredingest.spreadsheet;
+
+import org.visallo.web.structuredingest.core.model.ParseOptions;
+import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
+
+import java.util.List;
+
+/**
+ * Applies the start row and header row options to the rows of a sheet, in the order they are read from the
+ * workbook, and passes them on to the handler.
+ */
+class ExcelSheetRows {
+    private final ParseOptions options;
+    private final BaseStructuredFileParserHandler handler;
+    private int rowIndex;
+
+    ExcelSheetRows(ParseOptions options, BaseStructuredFileParserHandler handler) {
+        this.options = options;
+        this.handler = handler;
+    }
+
+    /**
+     * @param parsedRow the cell values of the row, empty for a blank or missing row
+     * @return false if the handler doesn't want any more rows
+     */
+    boolean addRow(int rowNum, List<Object> parsedRow) {
+        if (rowIndex < options.startRowIndex) {
+            rowIndex++;
+            return true;
+        }
+
+        if (parsedRow.size() > 0) {
+            if (rowIndex == options.startRowIndex && options.hasHeaderRow) {
+                for (Object headerColumn : parsedRow) {
+                    handler.addColumn(headerColumn.toString());
+                }
+            } else {
+                if (!handler.addRow(parsedRow, rowNum)) {
+                    return false;
+                }
+            }
+
+            rowIndex++;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,162 @@
+package org.visallo.web.structuredingest.spreadsheet;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.web.structuredingest.core.model.ParseOptions;
+import org.visallo.web.structuredingest.core.util.BaseStructuredFileParserHandler;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the sheets of an .xlsx workbook with POI's SAX event model, only the row being read is held in memory
+ * instead of the whole workbook. Formula cells use the value cached in the workbook. The total rows of a sheet
+ * come from the sheet's dimension.
+ * <p>
+ * The workbook is copied to a temp file first since POI needs random access to the zip entries, opening it from
+ * the stream would unzip all of the entries into memory.
+ */
+public class XlsxStreamingReader {
+    private static final String DIMENSION_ELEMENT = "dimension";
+
+    public void read(InputStream in, ParseOptions options, BaseStructuredFileParserHandler handler) {
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("visallo-structured-ingest-", ".xlsx");
+            Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            OPCPackage pkg = OPCPackage.open(tempFile, PackageAccess.READ);
+            try {
+                read(pkg, options, handler);
+            } finally {
+                pkg.revert();
+            }
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException ex) {
+            throw new VisalloException("Could not read excel workbook", ex);
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    private void read(OPCPackage pkg, ParseOptions options, BaseStructuredFileParserHandler handler)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        XSSFReader reader = new XSSFReader(pkg);
+        ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+        StylesTable styles = reader.getStylesTable();
+        DataFormatter formatter = new DataFormatter(true);
+
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        for (int i = 0; sheets.hasNext(); i++) {
+            try (InputStream sheetData = sheets.next()) {
+                if (options.sheetIndex != null && i != options.sheetIndex) continue;
+                handler.newSheet(sheets.getSheetName());
+
+                SheetContents contents = new SheetContents(new ExcelSheetRows(options, handler));
+                XMLReader parser = SAXHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(styles, strings, contents, formatter, handler));
+                try {
+                    parser.parse(new InputSource(sheetData));
+                } catch (StopSheetException ex) {
+                    // the handler has all the rows it wants from this sheet
+                }
+            }
+        }
+    }
+
+    private static class SheetHandler extends XSSFSheetXMLHandler {
+        private final BaseStructuredFileParserHandler handler;
+
+        SheetHandler(
+                StylesTable styles,
+                ReadOnlySharedStringsTable strings,
+                SheetContentsHandler contents,
+                DataFormatter formatter,
+                BaseStructuredFileParserHandler handler
+        ) {
+            super(styles, strings, contents, formatter, false);
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            if (DIMENSION_ELEMENT.equals(localName)) {
+                String ref = attributes.getValue("ref");
+                if (ref != null) {
+                    String lastCell = ref.substring(ref.indexOf(':') + 1);
+                    handler.setTotalRows(new CellReference(lastCell).getRow());
+                }
+            }
+            super.startElement(uri, localName, qName, attributes);
+        }
+    }
+
+    private static class SheetContents implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final ExcelSheetRows rows;
+        private List<Object> cells;
+        private int nextRowNum;
+
+        SheetContents(ExcelSheetRows rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            // rows without any cells are left out of the sheet xml
+            for (; nextRowNum < rowNum; nextRowNum++) {
+                addRow(nextRowNum, Collections.emptyList());
+            }
+            cells = new ArrayList<>();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            addRow(rowNum, cells);
+            nextRowNum = rowNum + 1;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // empty cells are left out as well
+            int column = cellReference == null ? cells.size() : new CellReference(cellReference).getCol();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue == null ? "" : formattedValue);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+
+        private void addRow(int rowNum, List<Object> parsedRow) {
+            if (!rows.addRow(rowNum, parsedRow)) {
+                throw new StopSheetException();
+            }
+        }
+    }
+
+    private static class StopSheetException extends RuntimeException {
+    }
+}
@@ -8,7 +8,7 @@ import org.visallo.web.structuredingest.core.model.ParseOptions;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class CsvParserTest {
 
@@ -63,4 +63,35 @@ public class CsvParserTest {
         assertEquals("Appleseed", sheet.parsedRows.get(0).columns.get(0));
         assertEquals("Johnny", sheet.parsedRows.get(0).columns.get(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAnalyzeSmallFileCountsRows() throws Exception {
+        String data = "last,first\n"
+                + "Appleseed,Johnny\n"
+                + "B.,Jill";
+        ClientApiAnalysis info = new CsvParser().analyze(toStream(data), data.length());
+
+        ClientApiAnalysis.Sheet sheet = info.sheets.get(0);
+        assertEquals(3, sheet.totalRows);
+        assertFalse(sheet.totalRowsEstimated);
+        assertEquals(3, sheet.parsedRows.size());
+        assertEquals("Appleseed", sheet.parsedRows.get(1).columns.get(0));
+    }
+
+    @Test
+    public void testAnalyzeLargeFileEstimatesRows() throws Exception {
+        StringBuilder data = new StringBuilder();
+        int rows = 0;
+        while (data.length() < CsvParser.ANALYZE_SAMPLE_BYTES * 3) {
+            data.append(String.format("row%08d,value%08d\n", rows, rows));
+            rows++;
+        }
+        ClientApiAnalysis info = new CsvParser().analyze(toStream(data.toString()), data.length());
+
+        ClientApiAnalysis.Sheet sheet = info.sheets.get(0);
+        assertTrue(sheet.totalRowsEstimated);
+        assertEquals(rows, sheet.totalRows, rows / 100);
+        assertEquals(StructuredFileParserHandler.MAX_SAMPLE_ROWS, sheet.parsedRows.size());
+        assertEquals("row00000000", sheet.parsedRows.get(0).columns.get(0));
+    }
+}
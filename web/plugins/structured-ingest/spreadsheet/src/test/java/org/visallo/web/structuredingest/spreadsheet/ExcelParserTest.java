@@ -76,4 +76,51 @@ public class ExcelParserTest {
         assertEquals("2CellD8", sheet.parsedRows.get(7).columns.get(3));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testParseExcelFormatWithHeaderRow() throws Exception {
+        StructuredFileParserHandler parserHandler = new StructuredFileParserHandler();
+        ParseOptions parseOptions = new ParseOptions();
+        parseOptions.sheetIndex = 1;
+        parseOptions.startRowIndex = 1;
+
+        InputStream input = this.getClass().getResourceAsStream("sample.xlsx");
+
+        new ExcelParser().ingest(input, parseOptions, parserHandler);
+        ClientApiAnalysis info = parserHandler.getResult();
+
+        assertEquals(1, info.sheets.size());
+        ClientApiAnalysis.Sheet sheet = info.sheets.get(0);
+        assertEquals("SampleSheet2", sheet.name);
+        assertEquals(11, sheet.totalRows);
+        assertEquals(2, sheet.columns.size());
+        assertEquals("2CellA2", sheet.columns.get(0).name);
+        assertEquals("2CellB2", sheet.columns.get(1).name);
+        assertEquals("2CellA3", sheet.parsedRows.get(0).columns.get(0));
+        assertEquals(4, sheet.parsedRows.get(5).columns.size());
+        assertEquals("2CellD8", sheet.parsedRows.get(5).columns.get(3));
+    }
+
+    @Test
+    public void testAnalyzeExcelFormatMatchesIngest() throws Exception {
+        StructuredFileParserHandler parserHandler = new StructuredFileParserHandler();
+        ParseOptions parseOptions = new ParseOptions();
+        parseOptions.hasHeaderRow = false;
+        new ExcelParser().ingest(this.getClass().getResourceAsStream("sample.xlsx"), parseOptions, parserHandler);
+        ClientApiAnalysis expected = parserHandler.getResult();
+
+        ClientApiAnalysis info = new ExcelParser().analyze(this.getClass().getResourceAsStream("sample.xlsx"));
+
+        assertEquals(2, info.sheets.size());
+        for (int i = 0; i < info.sheets.size(); i++) {
+            ClientApiAnalysis.Sheet expectedSheet = expected.sheets.get(i);
+            ClientApiAnalysis.Sheet sheet = info.sheets.get(i);
+            assertEquals(expectedSheet.name, sheet.name);
+            assertEquals(expectedSheet.totalRows, sheet.totalRows);
+            assertEquals(expectedSheet.parsedRows.size(), sheet.parsedRows.size());
+            for (int j = 0; j < sheet.parsedRows.size(); j++) {
+                assertEquals(expectedSheet.parsedRows.get(j).columns, sheet.parsedRows.get(j).columns);
+            }
+        }
+        assertEquals(14, info.sheets.get(0).totalRows);
+    }
+}
@@ -200,6 +200,7 @@ define([
             this.on(document, 'escape', this.onEscapeKey);
             this.on(document, 'logout', this.logout);
             this.on(document, 'sessionExpiration', this.onSessionExpiration);
+            this.on(document, 'thumbnailChange', this.onThumbnailChange);
             this.on(document, 'showVertexContextMenu', this.onShowVertexContextMenu);
             this.on(document, 'showEdgeContextMenu', this.onShowEdgeContextMenu);
             this.on(document, 'showCollapsedItemContextMenu', this.onShowCollapsedItemContextMenu);
@@ -535,6 +536,19 @@ define([
             });
         };
 
+        this.onThumbnailChange = function(event, data) {
+            // images requested before the thumbnail was created show a placeholder, load them again
+            var vertexIdParam = $.param({ graphVertexId: data.graphVertexId }),
+                widthParam = $.param({ width: data.width });
+            $('img[src*="vertex/thumbnail?"]').each(function() {
+                var src = this.getAttribute('src'),
+                    params = src.substring(src.indexOf('?') + 1).split('&');
+                if (_.contains(params, vertexIdParam) && _.contains(params, widthParam)) {
+                    this.setAttribute('src', src.replace(/&_=\d+$/, '') + '&_=' + Date.now());
+                }
+            });
+        };
+
         this.logout = function(event, data) {
             var self = this,
                 logoutExtensions = registry.extensionsForPoint('org.visallo.logout'),
@@ -50,6 +50,12 @@ define([
                     dispatch(productActions.get({ productId, invalidate: true }))
                 });
             },
+            thumbnailChange: function(data) {
+                dispatchMain('rebroadcastEvent', {
+                    eventName: 'thumbnailChange',
+                    data: data
+                });
+            },
             sessionExpiration: function(data) {
                 dispatchMain('rebroadcastEvent', {
                     eventName: 'sessionExpiration'
@@ -0,0 +1,162 @@
+package org.visallo.web;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.config.HashMapConfigurationLoader;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncRouteExecutorTest {
+    private AsyncRouteExecutor asyncRouteExecutor;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Before
+    public void before() {
+        Map<String, String> config = new HashMap<>();
+        config.put(AsyncRouteExecutor.WEB_ASYNC_THREAD_COUNT, "1");
+        config.put(AsyncRouteExecutor.WEB_ASYNC_QUEUE_SIZE, "1");
+        config.put(AsyncRouteExecutor.WEB_ASYNC_ROUTE_PREFIX + ".export.path", "/search/export");
+        config.put(AsyncRouteExecutor.WEB_ASYNC_ROUTE_PREFIX + ".export.timeoutMillis", "1000");
+        Configuration configuration = new Configuration(new HashMapConfigurationLoader(config), new HashMap<>());
+        asyncRouteExecutor = new AsyncRouteExecutor(configuration);
+    }
+
+    @After
+    public void after() {
+        asyncRouteExecutor.shutdown();
+    }
+
+    @Test
+    public void testConfiguredRoutes() {
+        assertEquals(1000L, (long) asyncRouteExecutor.getConfiguredTimeoutsByPath().get("/search/export"));
+    }
+
+    @Test
+    public void testStreamingRoutesHaveNoTimeoutByDefault() {
+        assertEquals(0L, asyncRouteExecutor.getStreamingTimeoutMillis());
+    }
+
+    @Test
+    public void testExecuteCompletes() throws Exception {
+        AsyncContext asyncContext = createAsyncContext(request, response);
+        CountDownLatch handled = new CountDownLatch(1);
+
+        asyncRouteExecutor.execute(request, response, 1000, (req, resp) -> handled.countDown());
+
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        verify(asyncContext, timeout(5000)).complete();
+        verify(asyncContext).setTimeout(1000);
+    }
+
+    @Test
+    public void testRejectWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncRouteExecutor.RequestHandler blockingHandler = (req, resp) -> release.await();
+        createAsyncContext(request, response);
+        asyncRouteExecutor.execute(request, response, 1000, blockingHandler);
+        asyncRouteExecutor.execute(request, response, 1000, blockingHandler);
+
+        HttpServletRequest rejectedRequest = mock(HttpServletRequest.class);
+        HttpServletResponse rejectedResponse = mock(HttpServletResponse.class);
+        AsyncContext rejectedAsyncContext = createAsyncContext(rejectedRequest, rejectedResponse);
+        asyncRouteExecutor.execute(rejectedRequest, rejectedResponse, 1000, blockingHandler);
+
+        verify(rejectedResponse).setHeader(eq("Retry-After"), anyString());
+        verify(rejectedResponse).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+        verify(rejectedAsyncContext).complete();
+        release.countDown();
+    }
+
+    @Test
+    public void testTimeoutInterruptsHandler() throws Exception {
+        AsyncContext asyncContext = createAsyncContext(request, response);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        asyncRouteExecutor.execute(request, response, 1000, (req, resp) -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onTimeout(new AsyncEvent(asyncContext));
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        verify(response).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+        verify(asyncContext, times(1)).complete();
+    }
+
+    @Test
+    public void testTimeoutAbortsCommittedResponse() throws Exception {
+        AsyncContext asyncContext = createAsyncContext(request, response);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        asyncRouteExecutor.execute(request, response, 1000, (req, resp) -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+                throw ex;
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        when(response.isCommitted()).thenReturn(true);
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onTimeout(new AsyncEvent(asyncContext));
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+        // the pool has a single thread so once the next request runs the timed out one has finished
+        HttpServletRequest nextRequest = mock(HttpServletRequest.class);
+        HttpServletResponse nextResponse = mock(HttpServletResponse.class);
+        createAsyncContext(nextRequest, nextResponse);
+        CountDownLatch nextHandled = new CountDownLatch(1);
+        asyncRouteExecutor.execute(nextRequest, nextResponse, 1000, (req, resp) -> nextHandled.countDown());
+        assertTrue(nextHandled.await(5, TimeUnit.SECONDS));
+
+        verify(response, never()).sendError(anyInt(), anyString());
+        verify(asyncContext, never()).complete();
+    }
+
+    private AsyncContext createAsyncContext(HttpServletRequest request, HttpServletResponse response) {
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        when(asyncContext.getRequest()).thenReturn(request);
+        when(asyncContext.getResponse()).thenReturn(response);
+        return asyncContext;
+    }
+}
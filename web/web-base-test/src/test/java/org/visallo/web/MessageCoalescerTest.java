@@ -0,0 +1,41 @@
+package org.visallo.web;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MessageCoalescerTest {
+    @Test
+    public void testKeepsLatestLongRunningProcessChange() {
+        MessageCoalescer coalescer = new MessageCoalescer();
+        coalescer.add(new JSONObject("{ type: 'longRunningProcessChange', data: { id: 'lrp1', progress: 0.1 } }"));
+        coalescer.add(new JSONObject("{ type: 'longRunningProcessChange', data: { id: 'lrp2', progress: 0.1 } }"));
+        coalescer.add(new JSONObject("{ type: 'longRunningProcessChange', data: { id: 'lrp1', progress: 0.5, canceled: true } }"));
+
+        List<JSONObject> messages = coalescer.drain();
+        assertEquals(2, messages.size());
+        assertEquals("lrp2", messages.get(0).getJSONObject("data").getString("id"));
+        assertEquals(0.5, messages.get(1).getJSONObject("data").getDouble("progress"), 0.001);
+        assertTrue(coalescer.isEmpty());
+    }
+
+    @Test
+    public void testDropsDuplicatesAndSupersededProgress() {
+        MessageCoalescer coalescer = new MessageCoalescer();
+        coalescer.add(new JSONObject("{ type: 'propertyChange', data: { graphVertexId: 'v1', workspaceId: 'ws1' } }"));
+        coalescer.add(new JSONObject("{ data: { workspaceId: 'ws1', graphVertexId: 'v1' }, type: 'propertyChange' }"));
+        coalescer.add(new JSONObject("{ type: 'propertyChange', data: { graphVertexId: 'v2', workspaceId: 'ws1' } }"));
+        coalescer.add(new JSONObject("{ type: 'importProgress', data: { file: 'a.csv', row: 10, progress: 0.1 } }"));
+        coalescer.add(new JSONObject("{ type: 'importProgress', data: { file: 'a.csv', row: 20, progress: 0.2 } }"));
+
+        List<JSONObject> messages = coalescer.drain();
+        assertEquals(3, messages.size());
+        assertEquals("v1", messages.get(0).getJSONObject("data").getString("graphVertexId"));
+        assertEquals("v2", messages.get(1).getJSONObject("data").getString("graphVertexId"));
+        assertEquals(20, messages.get(2).getJSONObject("data").getInt("row"));
+    }
+}
@@ -0,0 +1,136 @@
+package org.visallo.web;
+
+import org.atmosphere.cpr.AtmosphereRequest;
+import org.atmosphere.cpr.AtmosphereResource;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.visallo.core.model.user.UserRepository;
+
+import javax.servlet.http.HttpSession;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MessagingBroadcastRouterTest {
+    private MessagingBroadcastRouter router;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private AtmosphereResource user1Resource;
+    private AtmosphereResource user2Resource;
+    private AtmosphereResource noSessionResource;
+
+    @Before
+    public void before() {
+        router = new MessagingBroadcastRouter(userRepository);
+        when(userRepository.getCurrentWorkspaceId("user1")).thenReturn("workspace1");
+        when(userRepository.getCurrentWorkspaceId("user2")).thenReturn("workspace2");
+
+        user1Resource = createResource("uuid1", "user1", "session1");
+        user2Resource = createResource("uuid2", "user2", "session2");
+        noSessionResource = createResource("uuid3", null, null);
+        router.register(user1Resource);
+        router.register(user2Resource);
+        router.register(noSessionResource);
+    }
+
+    @Test
+    public void testRouteWithoutPermissions() {
+        Set<AtmosphereResource> resources = router.route(new JSONObject("{ type: 'propertyChange' }"));
+
+        assertEquals(2, resources.size());
+        assertTrue(resources.contains(user1Resource));
+        assertTrue(resources.contains(user2Resource));
+    }
+
+    @Test
+    public void testRouteByUsers() {
+        Set<AtmosphereResource> resources = router.route(new JSONObject("{ permissions: { users: ['user2'] } }"));
+
+        assertEquals(1, resources.size());
+        assertTrue(resources.contains(user2Resource));
+    }
+
+    @Test
+    public void testRouteBySessionIds() {
+        Set<AtmosphereResource> resources = router.route(new JSONObject("{ permissions: { sessionIds: ['session1'] } }"));
+
+        assertEquals(1, resources.size());
+        assertTrue(resources.contains(user1Resource));
+    }
+
+    @Test
+    public void testRouteByWorkspacesTracksWorkspaceChanges() {
+        Set<AtmosphereResource> resources = router.route(new JSONObject("{ permissions: { workspaces: ['workspace1'] } }"));
+        assertEquals(1, resources.size());
+        assertTrue(resources.contains(user1Resource));
+
+        router.route(new JSONObject("{ type: 'userWorkspaceChange', data: { id: 'user2', workspaceId: 'workspace1' } }"));
+
+        resources = router.route(new JSONObject("{ permissions: { workspaces: ['workspace1'] } }"));
+        assertEquals(2, resources.size());
+        resources = router.route(new JSONObject("{ permissions: { workspaces: ['workspace2'] } }"));
+        assertEquals(0, resources.size());
+        verify(userRepository, times(1)).getCurrentWorkspaceId("user2");
+    }
+
+    @Test
+    public void testUserWithoutWorkspaceIsLookedUpAgain() {
+        when(userRepository.getCurrentWorkspaceId("user2")).thenReturn(null);
+        router.route(new JSONObject("{ type: 'userWorkspaceChange', data: { id: 'user2' } }"));
+        assertEquals(0, router.route(new JSONObject("{ permissions: { workspaces: ['workspace2'] } }")).size());
+
+        // set without a userWorkspaceChange broadcast reaching the router
+        when(userRepository.getCurrentWorkspaceId("user2")).thenReturn("workspace3");
+
+        assertEquals("workspace3", router.getCurrentWorkspaceId("user2"));
+        Set<AtmosphereResource> resources = router.route(new JSONObject("{ permissions: { workspaces: ['workspace3'] } }"));
+        assertEquals(1, resources.size());
+        assertTrue(resources.contains(user2Resource));
+    }
+
+    @Test
+    public void testRouteSessionExpiration() {
+        Set<AtmosphereResource> resources = router.route(new JSONObject("{ type: 'sessionExpiration', permissions: { sessionIds: ['session1'] } }"));
+
+        assertEquals(2, resources.size());
+        assertTrue(resources.contains(user1Resource));
+        assertTrue(resources.contains(noSessionResource));
+    }
+
+    @Test
+    public void testRouteSetActiveWorkspace() {
+        assertEquals(0, router.route(new JSONObject("{ type: 'setActiveWorkspace' }")).size());
+    }
+
+    @Test
+    public void testUnregister() {
+        router.unregister(user1Resource);
+
+        Set<AtmosphereResource> resources = router.route(new JSONObject("{ type: 'propertyChange' }"));
+        assertEquals(1, resources.size());
+        assertTrue(resources.contains(user2Resource));
+    }
+
+    private AtmosphereResource createResource(String uuid, String userId, String sessionId) {
+        AtmosphereResource resource = mock(AtmosphereResource.class);
+        AtmosphereRequest request = mock(AtmosphereRequest.class);
+        when(resource.uuid()).thenReturn(uuid);
+        when(resource.getRequest()).thenReturn(request);
+        if (sessionId != null) {
+            HttpSession session = mock(HttpSession.class);
+            when(session.getId()).thenReturn(sessionId);
+            when(session.getAttribute(CurrentUser.SESSIONUSER_ATTRIBUTE_NAME)).thenReturn(new SessionUser(userId));
+            when(request.getSession()).thenReturn(session);
+        }
+        return resource;
+    }
+}
@@ -7,10 +7,18 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.visallo.core.exception.VisalloAccessDeniedException;
 import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
+import org.visallo.core.model.workspace.WorkspaceRepository;
+import org.visallo.core.user.User;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -32,10 +40,28 @@ public class MessagingFilterTest {
     @Mock
     private SessionUser sessionUser;
 
+    @Mock
+    private WorkspaceRepository workspaceRepository;
+
+    @Mock
+    private WorkQueueRepository workQueueRepository;
+
+    @Mock
+    private User user;
+
+    private Messaging messaging;
+
     @Before
     public void before() {
+        MessagingBroadcastRouter broadcastRouter = new MessagingBroadcastRouter(userRepository);
         messagingFilter = new MessagingFilter();
-        messagingFilter.setUserRepository(userRepository);
+        messagingFilter.setBroadcastRouter(broadcastRouter);
+
+        messaging = new Messaging();
+        messaging.setUserRepository(userRepository);
+        messaging.setWorkspaceRepository(workspaceRepository);
+        messaging.setWorkQueueRepository(workQueueRepository);
+        messaging.setBroadcastRouter(broadcastRouter);
     }
 
     @Test
@@ -151,4 +177,40 @@ public class MessagingFilterTest {
 
         assertFalse(messagingFilter.shouldSendMessage(message, session));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testShouldNotSendMessageToWorkspaceSwitchedToWithoutAccess() {
+        when(userRepository.getCurrentWorkspaceId("user123")).thenReturn("workspace123");
+        when(userRepository.findById("user123")).thenReturn(user);
+        when(workspaceRepository.findById("workspace456", user))
+                .thenThrow(new VisalloAccessDeniedException("denied", user, "workspace456"));
+        when(sessionUser.getUserId()).thenReturn("user123");
+        when(session.getAttribute(CurrentUser.SESSIONUSER_ATTRIBUTE_NAME)).thenReturn(sessionUser);
+
+        try {
+            messaging.switchWorkspace("user123", "workspace456");
+            fail("expected exception");
+        } catch (VisalloAccessDeniedException ex) {
+            // expected
+        }
+
+        JSONObject message = new JSONObject("{ permissions: { workspaces: ['workspace456'] } }");
+        assertFalse(messagingFilter.shouldSendMessage(message, session));
+        verify(userRepository, never()).setCurrentWorkspace(anyString(), anyString());
+    }
+
+    @Test
+    public void testShouldNotSendMessageToCurrentWorkspaceAfterAccessIsRemoved() {
+        when(userRepository.getCurrentWorkspaceId("user123")).thenReturn("workspace123");
+        when(userRepository.findById("user123")).thenReturn(user);
+        when(workspaceRepository.hasReadPermissions("workspace123", user)).thenReturn(false);
+
+        try {
+            messaging.switchWorkspace("user123", "workspace123");
+            fail("expected exception");
+        } catch (VisalloAccessDeniedException ex) {
+            // expected
+        }
+        verify(userRepository, never()).setCurrentWorkspace(anyString(), anyString());
+    }
+}
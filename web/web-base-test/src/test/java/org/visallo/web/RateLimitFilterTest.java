@@ -0,0 +1,92 @@
+package org.visallo.web;
+
+import com.v5analytics.webster.HandlerChain;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.config.HashMapConfigurationLoader;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RateLimitFilterTest {
+    private RateLimitFilter filter;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private HandlerChain chain;
+
+    @Before
+    public void before() {
+        Map<String, String> config = new HashMap<>();
+        config.put(RateLimitFilter.CONFIG_LIMIT_PREFIX + ".search.pattern", "^/search/");
+        config.put(RateLimitFilter.CONFIG_LIMIT_PREFIX + ".search.permitsPerSecond", "0.1");
+        config.put(RateLimitFilter.CONFIG_LIMIT_PREFIX + ".search.burst", "2");
+        Configuration configuration = new Configuration(new HashMapConfigurationLoader(config), new HashMap<>());
+        filter = new RateLimitFilter(configuration);
+    }
+
+    @Test
+    public void testDefaultLimitRejectsWithRetryAfter() throws Exception {
+        HttpServletRequest request = createRequest("/ping", "user1", "10.0.0.1");
+
+        filter.handle(request, response, chain);
+        filter.handle(request, response, chain);
+
+        verify(chain, times(1)).next(request, response);
+        verify(response).setHeader("Retry-After", "1");
+        verify(response).sendError(RateLimitFilter.TOO_MANY_REQUESTS, "Rate limit reached");
+    }
+
+    @Test
+    public void testUsersHaveSeparateBuckets() throws Exception {
+        HttpServletRequest user1Request = createRequest("/ping", "user1", "10.0.0.1");
+        HttpServletRequest user2Request = createRequest("/ping", "user2", "10.0.0.1");
+        HttpServletRequest anonymousRequest = createRequest("/ping", null, "10.0.0.1");
+
+        filter.handle(user1Request, response, chain);
+        filter.handle(user2Request, response, chain);
+        filter.handle(anonymousRequest, response, chain);
+
+        verify(chain, times(3)).next(any(HttpServletRequest.class), eq(response));
+        verify(response, never()).sendError(anyInt(), anyString());
+    }
+
+    @Test
+    public void testRoutePatternSharesBucketAcrossPaths() throws Exception {
+        HttpServletRequest request1 = createRequest("/search/vertex", "user1", "10.0.0.1");
+        HttpServletRequest request2 = createRequest("/search/edge", "user1", "10.0.0.1");
+
+        filter.handle(request1, response, chain);
+        filter.handle(request2, response, chain);
+        filter.handle(request1, response, chain);
+
+        verify(chain, times(2)).next(any(HttpServletRequest.class), eq(response));
+        verify(response).setHeader("Retry-After", "10");
+        verify(response).sendError(RateLimitFilter.TOO_MANY_REQUESTS, "Rate limit reached");
+    }
+
+    private HttpServletRequest createRequest(String path, String userId, String remoteAddr) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getRequestURI()).thenReturn(path);
+        when(request.getContextPath()).thenReturn("");
+        when(request.getRemoteAddr()).thenReturn(remoteAddr);
+        if (userId != null) {
+            HttpSession session = mock(HttpSession.class);
+            when(session.getAttribute(CurrentUser.SESSIONUSER_ATTRIBUTE_NAME)).thenReturn(new SessionUser(userId));
+            when(request.getSession(false)).thenReturn(session);
+        }
+        return request;
+    }
+}
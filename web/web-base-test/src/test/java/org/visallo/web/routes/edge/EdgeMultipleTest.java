@@ -8,6 +8,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.vertexium.Authorizations;
 import org.vertexium.Edge;
 import org.visallo.core.model.user.AuthorizationRepository;
+import org.visallo.core.util.BulkClientApiConverter;
 import org.visallo.web.clientapi.model.*;
 import org.visallo.web.routes.RouteTestBase;
 
@@ -44,7 +45,7 @@ public class EdgeMultipleTest  extends RouteTestBase {
         visibilityJson.addWorkspace(WORKSPACE_ID);
         sandboxedEdge = graph.addEdge("e2", "v1", "v2", visibilityTranslator.toVisibility(visibilityJson).getVisibility(), workspaceAuthorizations);
 
-        route = new EdgeMultiple(graph, authorizationRepository);
+        route = new EdgeMultiple(graph, authorizationRepository, new BulkClientApiConverter(configuration));
     }
 
     @Test
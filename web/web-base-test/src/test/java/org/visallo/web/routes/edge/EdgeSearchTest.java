@@ -10,6 +10,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.vertexium.Vertex;
 import org.visallo.core.model.search.EdgeSearchRunner;
 import org.visallo.core.model.search.SearchOptions;
+import org.visallo.core.util.BulkClientApiConverter;
 import org.visallo.web.clientapi.model.ClientApiElementSearchResponse;
 import org.visallo.web.routes.search.QueryResultsIterableSearchResultsSearchRouteTestBase;
 
@@ -33,7 +34,7 @@ public class EdgeSearchTest extends QueryResultsIterableSearchResultsSearchRoute
 
         when(searchRepository.findSearchRunnerByUri(EdgeSearchRunner.URI)).thenReturn(edgeSearchRunner);
 
-        edgeSearch = new EdgeSearch(graph, searchRepository);
+        edgeSearch = new EdgeSearch(graph, searchRepository, new BulkClientApiConverter(configuration));
     }
 
     @Test
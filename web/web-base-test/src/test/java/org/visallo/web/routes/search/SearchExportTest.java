@@ -0,0 +1,58 @@
+package org.visallo.web.routes.search;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.visallo.core.formula.FormulaEvaluator;
+import org.visallo.core.model.search.SearchRepository;
+import org.visallo.core.user.User;
+import org.visallo.web.BadRequestException;
+import org.visallo.web.VisalloResponse;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchExportTest {
+    private SearchExport searchExport;
+
+    @Mock
+    private SearchRepository searchRepository;
+
+    @Mock
+    private FormulaEvaluator formulaEvaluator;
+
+    @Mock
+    private User user;
+
+    @Mock
+    private Authorizations authorizations;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private VisalloResponse response;
+
+    @Before
+    public void setUp() {
+        searchExport = new SearchExport(searchRepository, formulaEvaluator);
+    }
+
+    @Test
+    public void testUnsupportedFormat() throws Exception {
+        try {
+            searchExport.handle(request, "234", null, "xml", null, true, "WS123", null, user, authorizations, response);
+            fail("expected exception");
+        } catch (BadRequestException ex) {
+            assertEquals("format", ex.getParameterName());
+        }
+        verifyZeroInteractions(searchRepository, response);
+    }
+}
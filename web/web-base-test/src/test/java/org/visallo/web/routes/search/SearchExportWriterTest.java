@@ -0,0 +1,79 @@
+package org.visallo.web.routes.search;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Property;
+import org.vertexium.Vertex;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchExportWriterTest {
+    @Mock
+    private Vertex vertex;
+
+    @Mock
+    private Property nameProperty1;
+
+    @Mock
+    private Property nameProperty2;
+
+    @Mock
+    private Property otherProperty;
+
+    private void setUpVertex() {
+        when(vertex.getId()).thenReturn("v1");
+        when(nameProperty1.getName()).thenReturn("name");
+        when(nameProperty1.getValue()).thenReturn("Joe, \"Jr\"");
+        when(nameProperty2.getName()).thenReturn("name");
+        when(nameProperty2.getValue()).thenReturn("Joseph");
+        when(otherProperty.getName()).thenReturn("other");
+        when(otherProperty.getValue()).thenReturn("ignored");
+        when(vertex.getProperties()).thenReturn(Arrays.asList(nameProperty1, nameProperty2, otherProperty));
+    }
+
+    @Test
+    public void testCsv() {
+        setUpVertex();
+        StringWriter stringWriter = new StringWriter();
+        SearchExportWriter writer = SearchExportWriter.create("csv", new PrintWriter(stringWriter), Arrays.asList("name", "age"));
+        writer.writeHeader();
+        writer.write(vertex, "Joe");
+        writer.flush();
+
+        assertEquals(
+                "id,type,title,name,age\r\n" +
+                        "v1,vertex,Joe,\"Joe, \"\"Jr\"\"; Joseph\",\r\n",
+                stringWriter.toString()
+        );
+        assertEquals(1, writer.getRowCount());
+    }
+
+    @Test
+    public void testNdjson() {
+        setUpVertex();
+        StringWriter stringWriter = new StringWriter();
+        SearchExportWriter writer = SearchExportWriter.create("ndjson", new PrintWriter(stringWriter), Arrays.asList("name"));
+        writer.writeHeader();
+        writer.write(vertex, "Joe");
+        writer.write(vertex, null);
+        writer.flush();
+
+        String[] lines = stringWriter.toString().split("\n");
+        assertEquals(2, lines.length);
+        JSONObject json = new JSONObject(lines[0]);
+        assertEquals("v1", json.getString("id"));
+        assertEquals("vertex", json.getString("type"));
+        assertEquals("Joe", json.getString("title"));
+        assertEquals(2, json.getJSONObject("properties").getJSONArray("name").length());
+        assertEquals(false, new JSONObject(lines[1]).has("title"));
+    }
+}
@@ -15,8 +15,10 @@ import java.io.IOException;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MeGetTest extends RouteTestBase {
@@ -30,7 +32,7 @@ public class MeGetTest extends RouteTestBase {
     @Before
     public void before() throws IOException {
         super.before();
-        meGet = new MeGet(userRepository, workspaceRepository);
+        meGet = new MeGet(userRepository, workspaceRepository, workQueueRepository);
         User otherUser = new ProxyUser("other-user", userRepository);
 
         workspaceShared1 = new TestWorkspace("junit-id-1", "B-junit-display-title");
@@ -55,6 +57,8 @@ public class MeGetTest extends RouteTestBase {
         ClientApiUser response = meGet.handle(request, user);
         assertEquals(workspace.getWorkspaceId(), response.getCurrentWorkspaceId());
         assertEquals(workspace.getDisplayTitle(), response.getCurrentWorkspaceName());
+        verify(userRepository).setCurrentWorkspace(user.getUserId(), workspace.getWorkspaceId());
+        verify(workQueueRepository).pushUserCurrentWorkspaceChange(user, workspace.getWorkspaceId());
     }
 
     @Test
@@ -66,6 +70,7 @@ public class MeGetTest extends RouteTestBase {
 
         ClientApiUser response = meGet.handle(request, user);
         assertEquals("WORKSPACE_123", response.getCurrentWorkspaceId());
+        verify(workQueueRepository, never()).pushUserCurrentWorkspaceChange(any(User.class), anyString());
     }
 
     @Test
@@ -0,0 +1,168 @@
+package org.visallo.web.routes.vertex;
+
+import org.junit.Test;
+import org.vertexium.Authorizations;
+import org.vertexium.PropertyType;
+import org.vertexium.Vertex;
+import org.visallo.core.model.ontology.Concept;
+import org.visallo.core.model.ontology.OntologyPropertyDefinition;
+import org.visallo.core.model.workspace.Workspace;
+import org.visallo.core.security.AllowAllAclProvider;
+import org.visallo.core.user.User;
+import org.visallo.core.util.VisalloInMemoryTestBase;
+import org.visallo.web.BadRequestException;
+import org.visallo.web.clientapi.model.ClientApiAddElementProperties;
+import org.visallo.web.clientapi.model.ClientApiAddVertices;
+import org.visallo.web.clientapi.model.ClientApiSetVertexProperties;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.ListResourceBundle;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.visallo.core.model.ontology.OntologyRepository.PUBLIC;
+
+/**
+ * Runs the batch vertex routes against the in-memory graph and workspace repository.
+ */
+public class VertexMultipleInMemoryTest extends VisalloInMemoryTestBase {
+    private static final String CONCEPT_TYPE = "http://visallo.org/test#person";
+    private static final String PROPERTY_NAME = "http://visallo.org/test#name";
+    private static final String INVALID_VISIBILITY = "secret";
+
+    private VertexNewMultiple vertexNewMultiple;
+    private VertexSetPropertyMultiple vertexSetPropertyMultiple;
+    private User user;
+    private Workspace workspace;
+    private Authorizations workspaceAuthorizations;
+    private Authorizations allAuthorizations;
+    private HttpServletRequest request;
+    private ResourceBundle resourceBundle;
+
+    @Override
+    public void before() throws Exception {
+        super.before();
+
+        User systemUser = getUserRepository().getSystemUser();
+        Concept thingConcept = getOntologyRepository().getEntityConcept(PUBLIC);
+        getOntologyRepository().getOrCreateConcept(thingConcept, CONCEPT_TYPE, "Person", null, systemUser, PUBLIC);
+        OntologyPropertyDefinition propertyDefinition = new OntologyPropertyDefinition(
+                Collections.singletonList(thingConcept),
+                PROPERTY_NAME,
+                "Name",
+                PropertyType.STRING
+        );
+        propertyDefinition.setUserVisible(true);
+        getOntologyRepository().getOrCreateProperty(propertyDefinition, systemUser, PUBLIC);
+        getOntologyRepository().clearCache();
+
+        user = getUserRepository().findOrAddUser("junit", "JUnit", "junit@visallo.org", "password");
+        workspace = getWorkspaceRepository().add("ws1", "workspace 1", user);
+        workspaceAuthorizations = getAuthorizationRepository().getGraphAuthorizations(user, workspace.getWorkspaceId());
+        allAuthorizations = getGraphAuthorizations(workspace.getWorkspaceId(), INVALID_VISIBILITY);
+
+        request = mock(HttpServletRequest.class);
+        when(request.getPathInfo()).thenReturn("/vertex/property/multiple");
+        resourceBundle = new ListResourceBundle() {
+            @Override
+            protected Object[][] getContents() {
+                return new Object[][]{{"visibility.invalid", "Invalid visibility"}};
+            }
+        };
+
+        vertexNewMultiple = new VertexNewMultiple(
+                getGraph(),
+                getVisibilityTranslator(),
+                getWorkQueueRepository(),
+                getOntologyRepository(),
+                getGraphRepository(),
+                getWorkspaceHelper()
+        );
+        vertexSetPropertyMultiple = new VertexSetPropertyMultiple(
+                getOntologyRepository(),
+                getGraph(),
+                getVisibilityTranslator(),
+                getWorkspaceRepository(),
+                getWorkQueueRepository(),
+                getGraphRepository(),
+                new AllowAllAclProvider(getGraph(), getUserRepository(), getOntologyRepository(), getPrivilegeRepository())
+        );
+    }
+
+    @Test
+    public void testCreateAndSetPropertiesAreOnTheWorkspace() throws Exception {
+        ClientApiAddVertices addVertices = new ClientApiAddVertices(
+                new ClientApiAddVertices.Vertex("v1", CONCEPT_TYPE, "")
+                        .addProperty(new ClientApiAddElementProperties.Property("k1", PROPERTY_NAME, "Joe", "", null)),
+                new ClientApiAddVertices.Vertex("v2", CONCEPT_TYPE, "")
+        );
+        vertexNewMultiple.handle(addVertices, false, null, workspace.getWorkspaceId(), resourceBundle, user, workspaceAuthorizations);
+
+        Vertex v1 = getGraph().getVertex("v1", workspaceAuthorizations);
+        assertNotNull(v1);
+        assertEquals("Joe", v1.getPropertyValue("k1", PROPERTY_NAME));
+        assertNotNull(getGraph().getVertex("v2", workspaceAuthorizations));
+        assertNull("Vertices are sandboxed to the workspace", getGraph().getVertex("v1", getAuthorizationRepository().getGraphAuthorizations(user)));
+        assertEquals(new HashSet<>(Arrays.asList("v1", "v2")), new HashSet<>(getWorkspaceRepository().findEntityVertexIds(workspace, user)));
+
+        ClientApiSetVertexProperties setProperties = new ClientApiSetVertexProperties(
+                new ClientApiSetVertexProperties.Property("v1", "k2", PROPERTY_NAME, "Joseph", "", null),
+                new ClientApiSetVertexProperties.Property("v2", "k1", PROPERTY_NAME, "Jane", "", null)
+        );
+        vertexSetPropertyMultiple.handle(setProperties, null, workspace.getWorkspaceId(), request, resourceBundle, user, workspaceAuthorizations);
+
+        v1 = getGraph().getVertex("v1", workspaceAuthorizations);
+        assertEquals("Joe", v1.getPropertyValue("k1", PROPERTY_NAME));
+        assertEquals("Joseph", v1.getPropertyValue("k2", PROPERTY_NAME));
+        assertEquals("Jane", getGraph().getVertex("v2", workspaceAuthorizations).getPropertyValue("k1", PROPERTY_NAME));
+        assertEquals(new HashSet<>(Arrays.asList("v1", "v2")), new HashSet<>(getWorkspaceRepository().findEntityVertexIds(workspace, user)));
+    }
+
+    @Test
+    public void testInvalidVisibilityRejectsTheWholeCreateBatch() throws Exception {
+        ClientApiAddVertices addVertices = new ClientApiAddVertices(
+                new ClientApiAddVertices.Vertex("v1", CONCEPT_TYPE, ""),
+                new ClientApiAddVertices.Vertex("v2", CONCEPT_TYPE, "")
+                        .addProperty(new ClientApiAddElementProperties.Property("k1", PROPERTY_NAME, "Jane", INVALID_VISIBILITY, null))
+        );
+
+        try {
+            vertexNewMultiple.handle(addVertices, false, null, workspace.getWorkspaceId(), resourceBundle, user, workspaceAuthorizations);
+            fail("expected exception");
+        } catch (BadRequestException ex) {
+            // expected
+        }
+
+        assertNull(getGraph().getVertex("v1", allAuthorizations));
+        assertNull(getGraph().getVertex("v2", allAuthorizations));
+        assertEquals(0, getWorkspaceRepository().findEntityVertexIds(workspace, user).size());
+    }
+
+    @Test
+    public void testInvalidVisibilityRejectsTheWholeSetPropertyBatch() throws Exception {
+        ClientApiAddVertices addVertices = new ClientApiAddVertices(
+                new ClientApiAddVertices.Vertex("v1", CONCEPT_TYPE, ""),
+                new ClientApiAddVertices.Vertex("v2", CONCEPT_TYPE, "")
+        );
+        vertexNewMultiple.handle(addVertices, false, null, workspace.getWorkspaceId(), resourceBundle, user, workspaceAuthorizations);
+
+        ClientApiSetVertexProperties setProperties = new ClientApiSetVertexProperties(
+                new ClientApiSetVertexProperties.Property("v1", "k1", PROPERTY_NAME, "Joe", "", null),
+                new ClientApiSetVertexProperties.Property("v2", "k1", PROPERTY_NAME, "Jane", INVALID_VISIBILITY, null)
+        );
+        try {
+            vertexSetPropertyMultiple.handle(setProperties, null, workspace.getWorkspaceId(), request, resourceBundle, user, workspaceAuthorizations);
+            fail("expected exception");
+        } catch (BadRequestException ex) {
+            // expected
+        }
+
+        assertNull(getGraph().getVertex("v1", allAuthorizations).getPropertyValue("k1", PROPERTY_NAME));
+        assertNull(getGraph().getVertex("v2", allAuthorizations).getPropertyValue("k1", PROPERTY_NAME));
+    }
+}
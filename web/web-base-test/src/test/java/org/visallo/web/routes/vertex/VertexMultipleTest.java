@@ -9,6 +9,7 @@ import org.vertexium.Authorizations;
 import org.vertexium.Vertex;
 import org.visallo.core.exception.VisalloAccessDeniedException;
 import org.visallo.core.model.user.AuthorizationRepository;
+import org.visallo.core.util.BulkClientApiConverter;
 import org.visallo.web.clientapi.model.ClientApiVertex;
 import org.visallo.web.clientapi.model.ClientApiVertexMultipleResponse;
 import org.visallo.web.clientapi.model.VisibilityJson;
@@ -51,7 +52,7 @@ public class VertexMultipleTest extends RouteTestBase {
         visibilityJson.addWorkspace(WORKSPACE_ID);
         sandboxedVertex = graph.addVertex("v2", visibilityTranslator.toVisibility(visibilityJson).getVisibility(), workspaceAuthorizations);
 
-        route = new VertexMultiple(graph, userRepository, workspaceRepository, authorizationRepository);
+        route = new VertexMultiple(graph, userRepository, workspaceRepository, authorizationRepository, new BulkClientApiConverter(configuration));
     }
 
     @Test
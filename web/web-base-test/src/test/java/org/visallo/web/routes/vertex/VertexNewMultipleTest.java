@@ -0,0 +1,76 @@
+package org.visallo.web.routes.vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Vertex;
+import org.visallo.core.model.ontology.OntologyProperty;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.web.clientapi.model.ClientApiAddElementProperties;
+import org.visallo.web.clientapi.model.ClientApiAddVertices;
+import org.visallo.web.clientapi.model.ClientApiAddVerticesResponse;
+import org.visallo.web.routes.RouteTestBase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VertexNewMultipleTest extends RouteTestBase {
+    private static final String PROPERTY_NAME = "http://visallo.org/test#name";
+    private VertexNewMultiple route;
+    private Authorizations workspaceAuthorizations;
+
+    @Mock
+    private OntologyProperty nameProperty;
+
+    @Before
+    public void before() throws IOException {
+        super.before();
+
+        workspaceAuthorizations = graph.createAuthorizations("junit", WORKSPACE_ID);
+        when(workspaceHelper.getWorkspaceIdOrNullIfPublish(WORKSPACE_ID, false, user)).thenReturn(WORKSPACE_ID);
+        when(ontologyRepository.getPropertyByIRI(PROPERTY_NAME, WORKSPACE_ID)).thenReturn(nameProperty);
+
+        route = new VertexNewMultiple(graph, visibilityTranslator, workQueueRepository, ontologyRepository, graphRepository, workspaceHelper);
+    }
+
+    @Test
+    public void testCreateVertices() throws Exception {
+        when(nameProperty.convertString(anyString())).thenAnswer(invocation -> invocation.getArguments()[0]);
+        ClientApiAddVertices addVertices = new ClientApiAddVertices(
+                new ClientApiAddVertices.Vertex("v1", "http://visallo.org/test#person", "")
+                        .addProperty(new ClientApiAddElementProperties.Property("k1", PROPERTY_NAME, "Joe", "", null)),
+                new ClientApiAddVertices.Vertex("v2", "http://visallo.org/test#person", "")
+        );
+
+        ClientApiAddVerticesResponse response = route.handle(addVertices, false, null, WORKSPACE_ID, resourceBundle, user, workspaceAuthorizations);
+
+        assertEquals(Arrays.asList("v1", "v2"), response.getVertexIds());
+        Vertex v1 = graph.getVertex("v1", workspaceAuthorizations);
+        assertNotNull(v1);
+        assertEquals("Joe", v1.getPropertyValue("k1", PROPERTY_NAME));
+        assertEquals("http://visallo.org/test#person", VisalloProperties.CONCEPT_TYPE.getPropertyValue(v1));
+        assertNotNull(graph.getVertex("v2", workspaceAuthorizations));
+
+        verify(workspaceHelper, times(1)).updateEntitiesOnWorkspace(WORKSPACE_ID, Arrays.asList("v1", "v2"), user);
+        verify(workQueueRepository, times(2)).broadcastElement(any(Vertex.class), eq(WORKSPACE_ID));
+    }
+
+    @Test
+    public void testCreateNoVertices() throws Exception {
+        ClientApiAddVerticesResponse response = route.handle(new ClientApiAddVertices(), false, null, WORKSPACE_ID, resourceBundle, user, workspaceAuthorizations);
+
+        assertEquals(0, response.getVertexIds().size());
+        verify(workspaceHelper, never()).updateEntitiesOnWorkspace(anyString(), anyCollection(), any());
+    }
+}
@@ -10,6 +10,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.vertexium.Vertex;
 import org.visallo.core.model.search.SearchOptions;
 import org.visallo.core.model.search.VertexSearchRunner;
+import org.visallo.core.util.BulkClientApiConverter;
 import org.visallo.web.clientapi.model.ClientApiElementSearchResponse;
 import org.visallo.web.routes.search.QueryResultsIterableSearchResultsSearchRouteTestBase;
 
@@ -32,7 +33,7 @@ public class VertexSearchTest extends QueryResultsIterableSearchResultsSearchRou
         super.before();
 
         when(searchRepository.findSearchRunnerByUri(VertexSearchRunner.URI)).thenReturn(vertexSearchRunner);
-        vertexSearch = new VertexSearch(graph, searchRepository);
+        vertexSearch = new VertexSearch(graph, searchRepository, new BulkClientApiConverter(configuration));
     }
 
     @Test
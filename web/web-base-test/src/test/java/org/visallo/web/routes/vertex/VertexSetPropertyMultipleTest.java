@@ -0,0 +1,122 @@
+package org.visallo.web.routes.vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Vertex;
+import org.vertexium.Visibility;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.exception.VisalloResourceNotFoundException;
+import org.visallo.core.model.ontology.OntologyProperty;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.workQueue.Priority;
+import org.visallo.core.security.ACLProvider;
+import org.visallo.web.clientapi.model.ClientApiSetVertexProperties;
+import org.visallo.web.routes.RouteTestBase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VertexSetPropertyMultipleTest extends RouteTestBase {
+    private static final String PROPERTY_NAME = "http://visallo.org/test#name";
+    private VertexSetPropertyMultiple route;
+    private Authorizations workspaceAuthorizations;
+
+    @Mock
+    private OntologyProperty nameProperty;
+
+    @Mock
+    private ACLProvider aclProvider;
+
+    @Before
+    public void before() throws IOException {
+        super.before();
+
+        workspaceAuthorizations = graph.createAuthorizations("junit", WORKSPACE_ID);
+        when(request.getPathInfo()).thenReturn("/vertex/property/multiple");
+        when(ontologyRepository.getRequiredPropertyByIRI(PROPERTY_NAME, WORKSPACE_ID)).thenReturn(nameProperty);
+        when(nameProperty.convertString(anyString())).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        Visibility visibility = new Visibility("");
+        graph.addVertex("v1", visibility, workspaceAuthorizations);
+        graph.addVertex("v2", visibility, workspaceAuthorizations);
+        graph.flush();
+
+        route = new VertexSetPropertyMultiple(
+                ontologyRepository,
+                graph,
+                visibilityTranslator,
+                workspaceRepository,
+                workQueueRepository,
+                graphRepository,
+                aclProvider
+        );
+    }
+
+    @Test
+    public void testSetProperties() throws Exception {
+        ClientApiSetVertexProperties setProperties = new ClientApiSetVertexProperties(
+                new ClientApiSetVertexProperties.Property("v1", "k1", PROPERTY_NAME, "Joe", "", null),
+                new ClientApiSetVertexProperties.Property("v2", "k1", PROPERTY_NAME, "Jane", "", null),
+                new ClientApiSetVertexProperties.Property("v1", "k2", PROPERTY_NAME, "Joseph", "", null)
+        );
+
+        route.handle(setProperties, null, WORKSPACE_ID, request, resourceBundle, user, workspaceAuthorizations);
+
+        Vertex v1 = graph.getVertex("v1", workspaceAuthorizations);
+        assertEquals("Joe", v1.getPropertyValue("k1", PROPERTY_NAME));
+        assertEquals("Joseph", v1.getPropertyValue("k2", PROPERTY_NAME));
+        assertEquals("Jane", graph.getVertex("v2", workspaceAuthorizations).getPropertyValue("k1", PROPERTY_NAME));
+
+        verify(aclProvider, times(3)).checkCanAddOrUpdateProperty(any(Vertex.class), anyString(), eq(PROPERTY_NAME), eq(user), eq(WORKSPACE_ID));
+        verify(workspaceRepository, times(1)).updateEntitiesOnWorkspace(any(), eq(new LinkedHashSet<>(Arrays.asList("v1", "v2"))), eq(user));
+        verify(workQueueRepository, times(3)).pushGraphPropertyQueue(
+                any(Vertex.class),
+                anyString(),
+                eq(PROPERTY_NAME),
+                eq(WORKSPACE_ID),
+                eq(""),
+                eq(Priority.NORMAL)
+        );
+    }
+
+    @Test
+    public void testMissingVertexSetsNothing() throws Exception {
+        ClientApiSetVertexProperties setProperties = new ClientApiSetVertexProperties(
+                new ClientApiSetVertexProperties.Property("v1", "k1", PROPERTY_NAME, "Joe", "", null),
+                new ClientApiSetVertexProperties.Property("missing", "k1", PROPERTY_NAME, "Jane", "", null)
+        );
+
+        try {
+            route.handle(setProperties, null, WORKSPACE_ID, request, resourceBundle, user, workspaceAuthorizations);
+            fail("expected exception");
+        } catch (VisalloResourceNotFoundException ex) {
+            // expected
+        }
+
+        assertEquals(null, graph.getVertex("v1", workspaceAuthorizations).getPropertyValue("k1", PROPERTY_NAME));
+        verify(workspaceRepository, never()).updateEntitiesOnWorkspace(any(), anyCollection(), any());
+    }
+
+    @Test(expected = VisalloException.class)
+    public void testCommentsAreRejected() throws Exception {
+        ClientApiSetVertexProperties setProperties = new ClientApiSetVertexProperties(
+                new ClientApiSetVertexProperties.Property("v1", null, VisalloProperties.COMMENT.getPropertyName(), "Hello", "", null)
+        );
+
+        route.handle(setProperties, null, WORKSPACE_ID, request, resourceBundle, user, workspaceAuthorizations);
+    }
+}
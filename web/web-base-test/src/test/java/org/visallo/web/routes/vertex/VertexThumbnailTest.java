@@ -0,0 +1,146 @@
+package org.visallo.web.routes.vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Vertex;
+import org.vertexium.Visibility;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnail;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.web.VisalloResponse;
+import org.visallo.web.routes.RouteTestBase;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VertexThumbnailTest extends RouteTestBase {
+    private VertexThumbnail route;
+    private Authorizations authorizations;
+
+    @Mock
+    private ArtifactThumbnailRepository artifactThumbnailRepository;
+
+    @Mock
+    private VisalloResponse visalloResponse;
+
+    @Mock
+    private ServletOutputStream outputStream;
+
+    @Before
+    public void before() throws IOException {
+        super.before();
+
+        authorizations = graph.createAuthorizations("junit");
+        StreamingPropertyValue raw = new StreamingPropertyValue(new ByteArrayInputStream("image".getBytes()), byte[].class);
+        graph.prepareVertex("v1", new Visibility(""))
+                .addPropertyValue("", VisalloProperties.RAW.getPropertyName(), raw, new Visibility(""))
+                .addPropertyValue("", VisalloProperties.MIME_TYPE.getPropertyName(), "image/jpeg", new Visibility(""))
+                .save(authorizations);
+        StreamingPropertyValue document = new StreamingPropertyValue(new ByteArrayInputStream("document".getBytes()), byte[].class);
+        graph.prepareVertex("v2", new Visibility(""))
+                .addPropertyValue("", VisalloProperties.RAW.getPropertyName(), document, new Visibility(""))
+                .addPropertyValue("", VisalloProperties.MIME_TYPE.getPropertyName(), "application/pdf", new Visibility(""))
+                .save(authorizations);
+        graph.flush();
+        when(visalloResponse.getOutputStream()).thenReturn(outputStream);
+
+        configuration.set(VertexThumbnail.CONFIG_INLINE_WAIT_MILLIS, "50");
+        route = new VertexThumbnail(artifactThumbnailRepository, graph, workQueueRepository, configuration);
+    }
+
+    @Test
+    public void testMissCreatedQuicklyIsServedInline() throws Exception {
+        ArtifactThumbnail thumbnail = mock(ArtifactThumbnail.class);
+        when(thumbnail.getFormat()).thenReturn("png");
+        when(thumbnail.getData()).thenReturn("thumbnail".getBytes());
+        when(artifactThumbnailRepository.createThumbnailInBackground(
+                any(Vertex.class),
+                anyString(),
+                eq("raw"),
+                any(StreamingPropertyValue.class),
+                any(int[].class),
+                eq(user)
+        )).thenReturn(CompletableFuture.completedFuture(thumbnail));
+
+        route.handle("v1", 100, user, authorizations, visalloResponse);
+
+        verify(visalloResponse, never()).setStatus(anyInt());
+        verify(visalloResponse).setContentType("image/png");
+        verify(outputStream).write("thumbnail".getBytes());
+        verify(workQueueRepository, never()).broadcastThumbnailChange(anyString(), anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void testSlowMissRespondsWithOriginalAndNotifiesWhenCreated() throws Exception {
+        CompletableFuture<ArtifactThumbnail> future = new CompletableFuture<>();
+        when(artifactThumbnailRepository.createThumbnailInBackground(
+                any(Vertex.class),
+                anyString(),
+                eq("raw"),
+                any(StreamingPropertyValue.class),
+                any(int[].class),
+                eq(user)
+        )).thenReturn(future);
+
+        route.handle("v1", 100, user, authorizations, visalloResponse);
+
+        verify(visalloResponse).setStatus(HttpServletResponse.SC_ACCEPTED);
+        verify(visalloResponse).setHeader(eq("Retry-After"), anyString());
+        verify(visalloResponse).setContentType("image/jpeg");
+        verify(outputStream).write(any(byte[].class), eq(0), eq("image".length()));
+        verify(workQueueRepository, never()).broadcastThumbnailChange(anyString(), anyString(), anyInt(), anyInt(), any());
+
+        future.complete(mock(ArtifactThumbnail.class));
+        verify(workQueueRepository).broadcastThumbnailChange("v1", "raw", 100, 100, user);
+    }
+
+    @Test
+    public void testSlowMissOfNonImageRespondsWithPlaceholder() throws Exception {
+        when(artifactThumbnailRepository.createThumbnailInBackground(
+                any(Vertex.class),
+                anyString(),
+                eq("raw"),
+                any(StreamingPropertyValue.class),
+                any(int[].class),
+                eq(user)
+        )).thenReturn(new CompletableFuture<>());
+
+        route.handle("v2", 100, user, authorizations, visalloResponse);
+
+        verify(visalloResponse).setStatus(HttpServletResponse.SC_ACCEPTED);
+        verify(visalloResponse).setContentType("image/png");
+        verify(outputStream).write(any(byte[].class));
+    }
+
+    @Test
+    public void testFailedThumbnailIsNotBroadcast() throws Exception {
+        CompletableFuture<ArtifactThumbnail> future = new CompletableFuture<>();
+        when(artifactThumbnailRepository.createThumbnailInBackground(
+                any(Vertex.class),
+                anyString(),
+                eq("raw"),
+                any(StreamingPropertyValue.class),
+                any(int[].class),
+                eq(user)
+        )).thenReturn(future);
+
+        route.handle("v1", null, user, authorizations, visalloResponse);
+        future.completeExceptionally(new IOException("bad image"));
+
+        verify(workQueueRepository, never()).broadcastThumbnailChange(anyString(), anyString(), anyInt(), anyInt(), any());
+    }
+}
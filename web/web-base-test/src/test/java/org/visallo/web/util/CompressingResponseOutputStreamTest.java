@@ -0,0 +1,100 @@
+package org.visallo.web.util;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompressingResponseOutputStreamTest {
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private ByteArrayOutputStream responseBody;
+
+    @Before
+    public void before() throws Exception {
+        responseBody = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                responseBody.write(b);
+            }
+        });
+    }
+
+    @Test
+    public void testBelowThresholdIsNotCompressed() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+        byte[] body = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+
+        CompressingResponseOutputStream out = new CompressingResponseOutputStream(request, response, 100);
+        out.write(body);
+        out.close();
+
+        assertNull(out.getAppliedEncoding());
+        assertArrayEquals(body, responseBody.toByteArray());
+        verify(response).setContentLength(body.length);
+        verify(response, never()).setHeader("Content-Encoding", "gzip");
+    }
+
+    @Test
+    public void testAboveThresholdIsCompressed() throws Exception {
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            json.append("{\"value\":").append(i).append("}");
+        }
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        CompressingResponseOutputStream out = new CompressingResponseOutputStream(request, response, 100);
+        out.write(body, 0, 50);
+        out.write(body, 50, body.length - 50);
+        out.close();
+
+        assertEquals("gzip", out.getAppliedEncoding());
+        verify(response).setHeader("Content-Encoding", "gzip");
+        byte[] decompressed = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(responseBody.toByteArray())));
+        assertArrayEquals(body, decompressed);
+    }
+
+    @Test
+    public void testGetAcceptedEncoding() {
+        assertNull(CompressingResponseOutputStream.getAcceptedEncoding(null));
+        assertNull(CompressingResponseOutputStream.getAcceptedEncoding("identity"));
+        assertEquals("gzip", CompressingResponseOutputStream.getAcceptedEncoding("deflate, gzip;q=0.5"));
+        assertEquals("deflate", CompressingResponseOutputStream.getAcceptedEncoding("gzip;q=0, deflate"));
+        assertEquals("gzip", CompressingResponseOutputStream.getAcceptedEncoding("*"));
+        assertNull(CompressingResponseOutputStream.getAcceptedEncoding("gzip;q=0, *"));
+    }
+}
@@ -0,0 +1,127 @@
+package org.visallo.web.util.js;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class CompiledAssetCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private CompiledAssetCache cache;
+
+    @Before
+    public void before() throws IOException {
+        directory = temporaryFolder.newFolder("assets");
+        cache = new CompiledAssetCache(directory);
+    }
+
+    @Test
+    public void testKeyDependsOnCompilerVersionAndInput() {
+        String key = CompiledAssetCache.getKey("v1", "/jsc/a.js", "var a;");
+
+        assertEquals(key, CompiledAssetCache.getKey("v1", "/jsc/a.js", "var a;"));
+        assertNotEquals(key, CompiledAssetCache.getKey("v2", "/jsc/a.js", "var a;"));
+        assertNotEquals(key, CompiledAssetCache.getKey("v1", "/jsc/a.js", "var b;"));
+        assertNotEquals(key, CompiledAssetCache.getKey("v1", "/jsc/b.js", "var a;"));
+    }
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        String key = CompiledAssetCache.getKey("v1", "/jsc/a.js", "var a = 1;");
+        assertNull(cache.get(key));
+
+        CachedCompilation compilation = new CachedCompilation();
+        compilation.setOutput("var a=1;");
+        compilation.setSourceMap("{}");
+        cache.put(key, compilation);
+
+        CachedCompilation cached = cache.get(key);
+        assertNotNull(cached);
+        assertEquals(key, cached.getHash());
+        assertEquals("var a=1;", cached.getOutput());
+        assertEquals("{}", cached.getSourceMap());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(cached.getOutputGzip()))) {
+            assertEquals("var a=1;", IOUtils.toString(in, "UTF-8"));
+        }
+    }
+
+    @Test
+    public void testModifiedEntryIsIgnored() throws IOException {
+        String key = CompiledAssetCache.getKey("v1", "/jsc/a.js", "var a = 1;");
+        CachedCompilation compilation = new CachedCompilation();
+        compilation.setOutput("var a=1;");
+        cache.put(key, compilation);
+
+        Files.write(new File(directory, key + ".out").toPath(), "alert(1);".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(cache.get(key));
+        assertFalse(new File(directory, key + ".out").exists());
+    }
+
+    @Test
+    public void testDirectoryIsPrivate() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        new CompiledAssetCache(directory);
+
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(directory.toPath()));
+    }
+
+    @Test
+    public void testPruneRemovesUnusedEntries() throws IOException {
+        String usedKey = CompiledAssetCache.getKey("v1", "/jsc/a.js", "var a = 1;");
+        String unusedKey = CompiledAssetCache.getKey("v0", "/jsc/a.js", "var a = 1;");
+        CachedCompilation compilation = new CachedCompilation();
+        compilation.setOutput("var a=1;");
+        cache.put(usedKey, compilation);
+        cache.put(unusedKey, compilation);
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        for (File file : files) {
+            assertTrue(file.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)));
+        }
+        assertNotNull(cache.get(usedKey));
+
+        cache.prune(TimeUnit.DAYS.toMillis(1));
+
+        assertNotNull(cache.get(usedKey));
+        assertNull(cache.get(unusedKey));
+    }
+
+    @Test
+    public void testFailedCompilationIsNotCached() {
+        String key = CompiledAssetCache.getKey("v1", "/jsc/a.js", "var a = ;");
+        cache.put(key, new CachedCompilation());
+
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testDisabled() {
+        CompiledAssetCache disabledCache = new CompiledAssetCache((File) null);
+        String key = CompiledAssetCache.getKey("v1", "/jsc/a.js", "var a = 1;");
+        CachedCompilation compilation = new CachedCompilation();
+        compilation.setOutput("var a=1;");
+        disabledCache.put(key, compilation);
+
+        assertNull(disabledCache.get(key));
+    }
+}
@@ -0,0 +1,235 @@
+package org.visallo.web;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.util.ShutdownListener;
+import org.visallo.core.util.ShutdownService;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs slow routes on a dedicated, bounded pool of threads using servlet 3 async processing so they don't hold
+ * on to servlet container threads. When the pool and its queue are full the request is rejected with a 503
+ * instead of waiting, requests that run longer than their route's timeout are interrupted and get a 503. If the
+ * response was already committed when the timeout fires the request is aborted instead of completed, so clients of
+ * streaming routes see a failed download rather than a truncated one.
+ * <p>
+ * Routes are registered with {@link WebApp#registerAsyncRoute(String, String, long)} and can be added or have their
+ * timeout changed by configuration:
+ * <pre><code>
+ * web.async.route.findPath.path=/vertex/find-path
+ * web.async.route.findPath.timeoutMillis=300000
+ * </code></pre>
+ */
+@Singleton
+public class AsyncRouteExecutor implements ShutdownListener {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(AsyncRouteExecutor.class);
+    public static final String WEB_ASYNC_ENABLED = "web.async.enabled";
+    public static final boolean WEB_ASYNC_ENABLED_DEFAULT = true;
+    public static final String WEB_ASYNC_THREAD_COUNT = "web.async.threadCount";
+    public static final int WEB_ASYNC_THREAD_COUNT_DEFAULT = 20;
+    public static final String WEB_ASYNC_QUEUE_SIZE = "web.async.queueSize";
+    public static final int WEB_ASYNC_QUEUE_SIZE_DEFAULT = 100;
+    public static final String WEB_ASYNC_TIMEOUT_MILLIS = "web.async.timeoutMillis";
+    public static final long WEB_ASYNC_TIMEOUT_MILLIS_DEFAULT = 5 * 60 * 1000;
+    public static final String WEB_ASYNC_STREAMING_TIMEOUT_MILLIS = "web.async.streamingTimeoutMillis";
+    public static final long WEB_ASYNC_STREAMING_TIMEOUT_MILLIS_DEFAULT = 0;
+    public static final String WEB_ASYNC_ROUTE_PREFIX = "web.async.route";
+    private static final int RETRY_AFTER_SECONDS = 5;
+    private final boolean enabled;
+    private final long defaultTimeoutMillis;
+    private final long streamingTimeoutMillis;
+    private final Map<String, Long> configuredTimeoutsByPath = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    @VisibleForTesting
+    public AsyncRouteExecutor(Configuration configuration) {
+        this.enabled = configuration.getBoolean(WEB_ASYNC_ENABLED, WEB_ASYNC_ENABLED_DEFAULT);
+        this.defaultTimeoutMillis = configuration.getLong(WEB_ASYNC_TIMEOUT_MILLIS, WEB_ASYNC_TIMEOUT_MILLIS_DEFAULT);
+        this.streamingTimeoutMillis = configuration.getLong(WEB_ASYNC_STREAMING_TIMEOUT_MILLIS, WEB_ASYNC_STREAMING_TIMEOUT_MILLIS_DEFAULT);
+        for (Map<String, String> route : configuration.getMultiValue(WEB_ASYNC_ROUTE_PREFIX).values()) {
+            String path = route.get("path");
+            if (path != null) {
+                String timeoutMillis = route.get("timeoutMillis");
+                configuredTimeoutsByPath.put(path, timeoutMillis == null ? defaultTimeoutMillis : Long.parseLong(timeoutMillis));
+            }
+        }
+        int threadCount = configuration.getInt(WEB_ASYNC_THREAD_COUNT, WEB_ASYNC_THREAD_COUNT_DEFAULT);
+        this.executor = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(configuration.getInt(WEB_ASYNC_QUEUE_SIZE, WEB_ASYNC_QUEUE_SIZE_DEFAULT)),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("visallo-async-route-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Inject
+    public AsyncRouteExecutor(Configuration configuration, ShutdownService shutdownService) {
+        this(configuration);
+        shutdownService.register(this);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getDefaultTimeoutMillis() {
+        return defaultTimeoutMillis;
+    }
+
+    /**
+     * @return the timeout of routes that stream their response, like exports, 0 for no timeout
+     */
+    public long getStreamingTimeoutMillis() {
+        return streamingTimeoutMillis;
+    }
+
+    /**
+     * @return the paths of the routes added by configuration and their timeouts
+     */
+    public Map<String, Long> getConfiguredTimeoutsByPath() {
+        return configuredTimeoutsByPath;
+    }
+
+    /**
+     * Starts async processing of the request and handles it on the pool.
+     *
+     * @param timeoutMillis 0 or less for no timeout
+     */
+    public void execute(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            long timeoutMillis,
+            RequestHandler handler
+    ) throws IOException {
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeoutMillis);
+        AtomicBoolean completed = new AtomicBoolean();
+        AtomicReference<Future<?>> future = new AtomicReference<>();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                LOGGER.warn("Request timed out after %dms: %s %s", timeoutMillis, request.getMethod(), request.getRequestURI());
+                Future<?> f = future.get();
+                if (f != null) {
+                    f.cancel(true);
+                }
+                sendErrorAndComplete(asyncContext, completed, "Request timed out");
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                LOGGER.debug("async request error: %s", request.getRequestURI(), event.getThrowable());
+                Future<?> f = future.get();
+                if (f != null) {
+                    f.cancel(true);
+                }
+                complete(asyncContext, completed);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        try {
+            future.set(executor.submit(() -> {
+                try {
+                    handler.handle(
+                            (HttpServletRequest) asyncContext.getRequest(),
+                            (HttpServletResponse) asyncContext.getResponse()
+                    );
+                } catch (Throwable e) {
+                    if (completed.get()) {
+                        LOGGER.debug("error after request completed: %s", request.getRequestURI(), e);
+                    } else {
+                        LOGGER.error("Unhandled exception for %s %s", request.getMethod(), request.getRequestURI(), e);
+                        sendErrorAndComplete(asyncContext, completed, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+                    }
+                } finally {
+                    complete(asyncContext, completed);
+                }
+            }));
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("Too many slow requests in progress, rejecting: %s %s", request.getMethod(), request.getRequestURI());
+            response.setHeader("Retry-After", Integer.toString(RETRY_AFTER_SECONDS));
+            sendErrorAndComplete(asyncContext, completed, "Server busy");
+        }
+    }
+
+    private static void sendErrorAndComplete(AsyncContext asyncContext, AtomicBoolean completed, String message) {
+        sendErrorAndComplete(asyncContext, completed, HttpServletResponse.SC_SERVICE_UNAVAILABLE, message);
+    }
+
+    private static void sendErrorAndComplete(AsyncContext asyncContext, AtomicBoolean completed, int status, String message) {
+        if (completed.get()) {
+            return;
+        }
+        HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+        if (response.isCommitted()) {
+            abort(completed);
+            return;
+        }
+        try {
+            response.sendError(status, message);
+        } catch (Exception ex) {
+            LOGGER.debug("could not send error", ex);
+        }
+        complete(asyncContext, completed);
+    }
+
+    /**
+     * Part of the response has already been sent so completing normally would end it as if it were whole. Leaving
+     * the async context uncompleted makes the container handle the request as failed, which closes the connection
+     * of a committed response.
+     */
+    private static void abort(AtomicBoolean completed) {
+        if (completed.compareAndSet(false, true)) {
+            LOGGER.warn("response already committed, aborting it");
+        }
+    }
+
+    private static void complete(AsyncContext asyncContext, AtomicBoolean completed) {
+        if (completed.compareAndSet(false, true)) {
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException ex) {
+                LOGGER.debug("async context already completed", ex);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        LOGGER.debug("shutting down async route pool");
+        executor.shutdownNow();
+    }
+
+    public interface RequestHandler {
+        void handle(HttpServletRequest request, HttpServletResponse response) throws Exception;
+    }
+}
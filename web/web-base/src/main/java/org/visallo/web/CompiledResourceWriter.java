@@ -0,0 +1,74 @@
+package org.visallo.web;
+
+import org.visallo.web.util.CompressingResponseOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Writes compiled web resources. Requests for the current version of a resource, identified by the
+ * {@value #VERSION_PARAMETER} parameter of its hashed URL, are cached by the browser forever. Other requests
+ * are revalidated using the hash as the ETag. The precompressed gzip output is sent to clients that accept it.
+ */
+class CompiledResourceWriter {
+    public static final String VERSION_PARAMETER = "v";
+    private static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_CONTROL_REVALIDATE = "no-cache";
+
+    private CompiledResourceWriter() {
+    }
+
+    /**
+     * @return the URL of the given version of a resource
+     */
+    static String getVersionedPath(String path, String hash) {
+        if (hash == null) {
+            return path;
+        }
+        return path + (path.contains("?") ? "&" : "?") + VERSION_PARAMETER + "=" + hash;
+    }
+
+    static void write(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            String contentType,
+            String hash,
+            byte[] output,
+            byte[] outputGzip
+    ) throws IOException {
+        response.setContentType(contentType);
+        if (hash == null) {
+            write(response, output);
+            return;
+        }
+
+        boolean gzip = outputGzip != null && CompressingResponseOutputStream.ENCODING_GZIP.equals(
+                CompressingResponseOutputStream.getAcceptedEncoding(request.getHeader("Accept-Encoding"))
+        );
+        response.setHeader(
+                "Cache-Control",
+                hash.equals(request.getParameter(VERSION_PARAMETER)) ? CACHE_CONTROL_IMMUTABLE : CACHE_CONTROL_REVALIDATE
+        );
+        response.addHeader("Vary", "Accept-Encoding");
+        response.setHeader("ETag", "\"" + hash + (gzip ? "-" + CompressingResponseOutputStream.ENCODING_GZIP : "") + "\"");
+        if (VisalloDefaultResultWriterFactory.ifNoneMatch(request.getHeader("If-None-Match"), hash)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (gzip) {
+            response.setHeader("Content-Encoding", CompressingResponseOutputStream.ENCODING_GZIP);
+            write(response, outputGzip);
+        } else {
+            write(response, output);
+        }
+    }
+
+    private static void write(HttpServletResponse response, byte[] bytes) throws IOException {
+        response.setContentLength(bytes.length);
+        try (ServletOutputStream out = response.getOutputStream()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.visallo.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a route handler whose JSON result is sent with a strong ETag. GET requests with a matching
+ * If-None-Match header are answered with 304 Not Modified and no body.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ETagged {
+}
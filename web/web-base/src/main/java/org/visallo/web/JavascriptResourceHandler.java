@@ -3,6 +3,7 @@ package org.visallo.web;
 
 import com.v5analytics.webster.HandlerChain;
 import com.v5analytics.webster.RequestResponseHandler;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.util.VisalloLogger;
@@ -10,6 +11,7 @@ import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.closurecompiler.com.google.javascript.jscomp.*;
 import org.visallo.web.closurecompiler.com.google.javascript.jscomp.Compiler;
 import org.visallo.web.util.js.CachedCompilation;
+import org.visallo.web.util.js.CompiledAssetCache;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -47,6 +49,9 @@ public class JavascriptResourceHandler implements RequestResponseHandler {
     private String jsResourcePath;
     private boolean enableSourceMaps;
     private String closureExternResourcePath;
+    private CompiledAssetCache compiledAssetCache;
+    private String compilerVersion;
+    private volatile String sourceHash;
     private Future<CachedCompilation> compilationTask;
     private volatile CachedCompilation previousCompilation;
 
@@ -55,12 +60,37 @@ public class JavascriptResourceHandler implements RequestResponseHandler {
     }
 
     public JavascriptResourceHandler(final String jsResourceName, final String jsResourcePath, boolean enableSourceMaps, String closureExternResourcePath) {
+        this(jsResourceName, jsResourcePath, enableSourceMaps, closureExternResourcePath, null);
+    }
+
+    public JavascriptResourceHandler(
+            final String jsResourceName,
+            final String jsResourcePath,
+            boolean enableSourceMaps,
+            String closureExternResourcePath,
+            CompiledAssetCache compiledAssetCache
+    ) {
         this.jsResourceName = jsResourceName;
         this.jsResourcePath = jsResourcePath;
         this.enableSourceMaps = enableSourceMaps;
         this.closureExternResourcePath = closureExternResourcePath;
+        this.compiledAssetCache = compiledAssetCache;
+        this.compilerVersion = getCompilerVersion();
+
+        try {
+            CachedCompilation source = readSource(getLastModified());
+            sourceHash = source.getHash();
+            compilationTask = compilationExecutor.submit(() -> compile(source));
+        } catch (IOException e) {
+            throw new VisalloException("Could not read resource: " + jsResourceName, e);
+        }
+    }
 
-        compilationTask = compilationExecutor.submit(() -> compileIfNecessary(null));
+    /**
+     * @return the hash of the source and compiler options, changes whenever the compiled output would
+     */
+    public String getHash() {
+        return sourceHash;
     }
 
     @Override
@@ -75,7 +105,17 @@ public class JavascriptResourceHandler implements RequestResponseHandler {
             if (this.enableSourceMaps && cache.getSourceMap() != null) {
                 response.setHeader("X-SourceMap", request.getRequestURI() + ".map");
             }
-            write(response, "application/javascript", cache.getOutput());
+            if (cache.getOutput() == null) {
+                throw new VisalloException("Errors during minify: " + jsResourceName);
+            }
+            CompiledResourceWriter.write(
+                    request,
+                    response,
+                    "application/javascript",
+                    cache.getHash(),
+                    cache.getOutput().getBytes(StandardCharsets.UTF_8),
+                    cache.getOutputGzip()
+            );
         }
     }
 
@@ -109,29 +149,72 @@ public class JavascriptResourceHandler implements RequestResponseHandler {
 
 
     private CachedCompilation compileIfNecessary(CachedCompilation previousCompilation) throws IOException {
+        long lastModified = getLastModified();
+        if (previousCompilation == null || previousCompilation.isNecessary(lastModified)) {
+            CachedCompilation source = readSource(lastModified);
+            sourceHash = source.getHash();
+            return compile(source);
+        }
+
+        return previousCompilation;
+    }
+
+    private long getLastModified() throws IOException {
         URL url = this.getClass().getResource(jsResourceName);
         if (url == null) {
             throw new VisalloException("Could not find resource: " + jsResourceName);
         }
-        long lastModified = url.openConnection().getLastModified();
+        return url.openConnection().getLastModified();
+    }
 
-        if (previousCompilation == null || previousCompilation.isNecessary(lastModified)) {
-            CachedCompilation newCache = new CachedCompilation();
-            newCache.setLastModified(lastModified);
-            try (InputStream in = this.getClass().getResourceAsStream(jsResourceName)) {
-                checkNotNull(in, "Could not find resource: " + jsResourceName);
-                try (StringWriter writer = new StringWriter()) {
-                    IOUtils.copy(in, writer, StandardCharsets.UTF_8);
-                    String inputJavascript = writer.toString();
-                    newCache.setInput(inputJavascript);
-
-                    runClosureCompilation(newCache);
-                }
+    private CachedCompilation readSource(long lastModified) throws IOException {
+        CachedCompilation newCache = new CachedCompilation();
+        newCache.setLastModified(lastModified);
+        try (InputStream in = this.getClass().getResourceAsStream(jsResourceName)) {
+            checkNotNull(in, "Could not find resource: " + jsResourceName);
+            try (StringWriter writer = new StringWriter()) {
+                IOUtils.copy(in, writer, StandardCharsets.UTF_8);
+                String inputJavascript = writer.toString();
+                newCache.setInput(inputJavascript);
+                newCache.setHash(CompiledAssetCache.getKey(compilerVersion, jsResourcePath, inputJavascript));
             }
-            return newCache;
         }
+        return newCache;
+    }
 
-        return previousCompilation;
+    private CachedCompilation compile(CachedCompilation source) throws IOException {
+        CachedCompilation cached = compiledAssetCache == null ? null : compiledAssetCache.get(source.getHash());
+        if (cached != null) {
+            source.setOutput(cached.getOutput());
+            source.setOutputGzip(cached.getOutputGzip());
+            source.setSourceMap(cached.getSourceMap());
+            return source;
+        }
+
+        runClosureCompilation(source);
+        if (compiledAssetCache != null) {
+            compiledAssetCache.put(source.getHash(), source);
+        }
+        return source;
+    }
+
+    private String getCompilerVersion() {
+        StringBuilder version = new StringBuilder(CompiledAssetCache.getVersion(Compiler.class))
+                .append(" sourceMaps=").append(enableSourceMaps)
+                .append(" externs=").append(hashResource(JavascriptResourceHandler.class, "visallo-externs.js"));
+        if (closureExternResourcePath != null) {
+            version.append(",").append(hashResource(this.getClass(), closureExternResourcePath));
+        }
+        return version.toString();
+    }
+
+    private static String hashResource(Class<?> clazz, String resourceName) {
+        try (InputStream in = clazz.getResourceAsStream(resourceName)) {
+            checkNotNull(in, "Could not find resource: " + resourceName);
+            return DigestUtils.md5Hex(in);
+        } catch (IOException e) {
+            throw new VisalloException("Could not read resource: " + resourceName, e);
+        }
     }
 
     private CachedCompilation runClosureCompilation(CachedCompilation cachedCompilation) throws IOException {
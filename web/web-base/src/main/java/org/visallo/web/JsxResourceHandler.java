@@ -9,6 +9,7 @@ import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.util.js.BabelExecutor;
 import org.visallo.web.util.js.CachedCompilation;
+import org.visallo.web.util.js.CompiledAssetCache;
 import org.visallo.web.util.js.SourceMapType;
 
 import javax.script.ScriptException;
@@ -34,6 +35,7 @@ public class JsxResourceHandler implements RequestResponseHandler {
     private String jsResourcePath;
     private String toJsResourcePath;
     private SourceMapType sourceMapType;
+    private CompiledAssetCache compiledAssetCache;
     private Future<CachedCompilation> compilationTask;
     private volatile CachedCompilation previousCompilation;
 
@@ -42,12 +44,30 @@ public class JsxResourceHandler implements RequestResponseHandler {
     }
 
     public JsxResourceHandler(final String jsResourceName, final String jsResourcePath, final String toJsResourcePath, SourceMapType sourceMapType) {
+        this(jsResourceName, jsResourcePath, toJsResourcePath, sourceMapType, null);
+    }
+
+    public JsxResourceHandler(
+            final String jsResourceName,
+            final String jsResourcePath,
+            final String toJsResourcePath,
+            SourceMapType sourceMapType,
+            CompiledAssetCache compiledAssetCache
+    ) {
         this.jsResourceName = jsResourceName;
         this.jsResourcePath = jsResourcePath;
         this.toJsResourcePath = toJsResourcePath;
         this.sourceMapType = sourceMapType;
+        this.compiledAssetCache = compiledAssetCache;
 
-        compilationTask = babelExecutor.submit(() -> compileIfNecessary(null));
+        // a cached compilation is used right away without waiting for babel to initialize
+        CachedCompilation source = readSource();
+        CachedCompilation cached = getCachedCompilation(source);
+        if (cached == null) {
+            compilationTask = babelExecutor.submit(() -> compile(source));
+        } else {
+            previousCompilation = cached;
+        }
     }
 
     @Override
@@ -62,7 +82,17 @@ public class JsxResourceHandler implements RequestResponseHandler {
             if (this.sourceMapType == SourceMapType.EXTERNAL && cache.getSourceMap() != null) {
                 response.setHeader("X-SourceMap", request.getRequestURI() + ".map");
             }
-            write(response, "application/javascript", cache.getOutput());
+            if (cache.getOutput() == null) {
+                throw new VisalloException("Errors during compilation: " + jsResourceName);
+            }
+            CompiledResourceWriter.write(
+                    request,
+                    response,
+                    "application/javascript",
+                    cache.getHash(),
+                    cache.getOutput().getBytes(StandardCharsets.UTF_8),
+                    cache.getOutputGzip()
+            );
         }
     }
 
@@ -100,33 +130,68 @@ public class JsxResourceHandler implements RequestResponseHandler {
 
 
     private CachedCompilation compileIfNecessary(CachedCompilation previousCompilation) {
+        if (previousCompilation == null || previousCompilation.isNecessary(getLastModified())) {
+            CachedCompilation source = readSource();
+            CachedCompilation cached = getCachedCompilation(source);
+            return cached == null ? compile(source) : cached;
+        }
+        return previousCompilation;
+    }
+
+    private long getLastModified() {
         try {
             URL url = this.getClass().getResource(jsResourceName);
-            long lastModified = url.openConnection().getLastModified();
-
-            if (previousCompilation == null || previousCompilation.isNecessary(lastModified)) {
-                CachedCompilation newCache = new CachedCompilation();
-                newCache.setLastModified(lastModified);
-                try (InputStream in = this.getClass().getResourceAsStream(jsResourceName)) {
-                    checkNotNull(in, "Could not find resource: " + jsResourceName);
-                    try (StringWriter writer = new StringWriter()) {
-                        IOUtils.copy(in, writer, StandardCharsets.UTF_8);
-                        String inputJavascript = writer.toString();
-                        newCache.setInput(inputJavascript);
-                        newCache.setPath(toJsResourcePath);
-                        newCache.setResourcePath(jsResourceName);
-                        babelExecutor.compileWithSharedEngine(newCache, sourceMapType);
-                    }
-                }
-                return newCache;
-            }
+            return url.openConnection().getLastModified();
         } catch (IOException e) {
             throw new VisalloException("Unable to read last modified");
+        }
+    }
+
+    private CachedCompilation readSource() {
+        CachedCompilation newCache = new CachedCompilation();
+        newCache.setLastModified(getLastModified());
+        try (InputStream in = this.getClass().getResourceAsStream(jsResourceName)) {
+            checkNotNull(in, "Could not find resource: " + jsResourceName);
+            try (StringWriter writer = new StringWriter()) {
+                IOUtils.copy(in, writer, StandardCharsets.UTF_8);
+                String inputJavascript = writer.toString();
+                newCache.setInput(inputJavascript);
+                newCache.setPath(toJsResourcePath);
+                newCache.setResourcePath(jsResourceName);
+                newCache.setHash(CompiledAssetCache.getKey(
+                        babelExecutor.getCompilerVersion() + " sourceMapType=" + sourceMapType,
+                        toJsResourcePath,
+                        inputJavascript
+                ));
+            }
+        } catch (IOException e) {
+            throw new VisalloException("Unable to read resource: " + jsResourceName, e);
+        }
+        return newCache;
+    }
+
+    private CachedCompilation getCachedCompilation(CachedCompilation source) {
+        CachedCompilation cached = compiledAssetCache == null ? null : compiledAssetCache.get(source.getHash());
+        if (cached == null) {
+            return null;
+        }
+        source.setOutput(cached.getOutput());
+        source.setOutputGzip(cached.getOutputGzip());
+        source.setSourceMap(cached.getSourceMap());
+        return source;
+    }
+
+    private CachedCompilation compile(CachedCompilation source) {
+        try {
+            babelExecutor.compileWithSharedEngine(source, sourceMapType);
         } catch (ScriptException e) {
             LOGGER.error("%s in file %s", e.getCause().getMessage(), jsResourcePath.replaceAll("^\\/jsc", ""));
             return null;
         }
-        return previousCompilation;
+        if (compiledAssetCache != null) {
+            compiledAssetCache.put(source.getHash(), source);
+        }
+        return source;
     }
 
 }
@@ -1,40 +1,48 @@
 package org.visallo.web;
 
 import com.asual.lesscss.LessEngine;
+import com.asual.lesscss.LessException;
 import com.asual.lesscss.LessOptions;
 import com.v5analytics.webster.HandlerChain;
 import com.v5analytics.webster.RequestResponseHandler;
 import org.apache.commons.io.IOUtils;
 import org.visallo.core.exception.VisalloException;
+import org.visallo.web.util.js.CachedCompilation;
+import org.visallo.web.util.js.CompiledAssetCache;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 
 public class LessResourceHandler implements RequestResponseHandler {
+    static final String LESS_COMPILER_VERSION = CompiledAssetCache.getVersion(LessEngine.class) + " compress=true";
     private static LessEngine lessCompiler;
 
     private String lessResourceName;
     private boolean checkLastModified;
+    private CompiledAssetCache compiledAssetCache;
     private LessCache cache;
 
     public LessResourceHandler(String lessResourceName, boolean checkLastModified) {
+        this(lessResourceName, checkLastModified, null);
+    }
+
+    public LessResourceHandler(String lessResourceName, boolean checkLastModified, CompiledAssetCache compiledAssetCache) {
           this.lessResourceName = lessResourceName;
           this.checkLastModified = checkLastModified;
+          this.compiledAssetCache = compiledAssetCache;
     }
 
     @Override
     public void handle(HttpServletRequest request, HttpServletResponse response, HandlerChain chain) throws Exception {
-        response.setContentType("text/css");
-
         synchronized (lessResourceName.intern()) {
             if (cache == null) {
                 cache = new LessCache(getCompiled(), checkLastModified ? getLastModified() : 0l);
@@ -46,20 +54,50 @@ public class LessResourceHandler implements RequestResponseHandler {
             }
         }
 
-        try (PrintWriter outWriter = response.getWriter()) {
-            outWriter.println(cache.getOutput());
-        }
+        CachedCompilation compilation = cache.getCompilation();
+        CompiledResourceWriter.write(
+                request,
+                response,
+                "text/css",
+                compilation.getHash(),
+                compilation.getOutput().getBytes(StandardCharsets.UTF_8),
+                compilation.getOutputGzip()
+        );
     }
 
-    private String getCompiled() throws Exception {
+    private CachedCompilation getCompiled() throws Exception {
         try (InputStream in = this.getClass().getResourceAsStream(lessResourceName)) {
             checkNotNull(in, "Could not find resource: " + lessResourceName);
             try (StringWriter writer = new StringWriter()) {
                 IOUtils.copy(in, writer, StandardCharsets.UTF_8);
                 String inputLess = writer.toString();
-                return lessCompiler().compile(inputLess);
+                return compile(compiledAssetCache, lessResourceName, inputLess, this::lessCompiler);
+            }
+        }
+    }
+
+    /**
+     * Compiles the less source, using the compiled asset cache when one is given.
+     */
+    static CachedCompilation compile(
+            CompiledAssetCache compiledAssetCache,
+            String lessResourceName,
+            String inputLess,
+            Supplier<LessEngine> lessCompiler
+    ) throws LessException {
+        String hash = CompiledAssetCache.getKey(LESS_COMPILER_VERSION, lessResourceName, inputLess);
+        CachedCompilation compilation = compiledAssetCache == null ? null : compiledAssetCache.get(hash);
+        if (compilation == null) {
+            compilation = new CachedCompilation();
+            compilation.setHash(hash);
+            compilation.setOutput(lessCompiler.get().compile(inputLess));
+            if (compiledAssetCache != null) {
+                compiledAssetCache.put(hash, compilation);
             }
         }
+        compilation.setResourcePath(lessResourceName);
+        compilation.setInput(inputLess);
+        return compilation;
     }
 
     private long getLastModified() {
@@ -84,11 +122,11 @@ public class LessResourceHandler implements RequestResponseHandler {
 
     class LessCache {
         private long lastModified;
-        private String output;
+        private CachedCompilation compilation;
 
-        LessCache(String output, long lastModified) {
+        LessCache(CachedCompilation compilation, long lastModified) {
             this.lastModified = lastModified;
-            this.output = output;
+            this.compilation = compilation;
         }
 
         public long getLastModified() {
@@ -96,7 +134,11 @@ public class LessResourceHandler implements RequestResponseHandler {
         }
 
         public String getOutput() {
-            return output;
+            return compilation.getOutput();
+        }
+
+        public CachedCompilation getCompilation() {
+            return compilation;
         }
     }
 }
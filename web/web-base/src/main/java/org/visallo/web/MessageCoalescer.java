@@ -0,0 +1,110 @@
+package org.visallo.web;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.*;
+
+/**
+ * Collects the messages waiting to be sent to a client keeping only the latest message for each key. A key
+ * is the message type plus the subject the message is about, so a burst of progress updates for the same
+ * long running process is sent as a single message. Messages without a known subject are keyed by their
+ * content ignoring progress fields, which only drops duplicates and superseded progress updates.
+ *
+ * Not thread safe.
+ */
+public class MessageCoalescer {
+    private static final Set<String> PROGRESS_FIELDS = new HashSet<>(Arrays.asList("progress", "progressMessage", "row"));
+    private static final Map<String, String> SUBJECT_ID_FIELDS_BY_TYPE = new HashMap<>();
+
+    static {
+        // these messages carry a full snapshot of their subject so only the latest one matters
+        SUBJECT_ID_FIELDS_BY_TYPE.put("longRunningProcessChange", "id");
+        SUBJECT_ID_FIELDS_BY_TYPE.put("longRunningProcessDeleted", "processId");
+        SUBJECT_ID_FIELDS_BY_TYPE.put("userStatusChange", "id");
+        SUBJECT_ID_FIELDS_BY_TYPE.put("userWorkspaceChange", "id");
+    }
+
+    private final LinkedHashMap<String, JSONObject> messagesByKey = new LinkedHashMap<>();
+
+    public void add(JSONObject json) {
+        String key = getKey(json);
+        // remove first so the message moves to the end, after any message it depends on
+        messagesByKey.remove(key);
+        messagesByKey.put(key, json);
+    }
+
+    public boolean isEmpty() {
+        return messagesByKey.isEmpty();
+    }
+
+    public int size() {
+        return messagesByKey.size();
+    }
+
+    /**
+     * @return the messages in the order they were last added and clears the coalescer
+     */
+    public List<JSONObject> drain() {
+        List<JSONObject> messages = new ArrayList<>(messagesByKey.values());
+        messagesByKey.clear();
+        return messages;
+    }
+
+    static String getKey(JSONObject json) {
+        String type = json.optString("type", "");
+        JSONObject data = json.optJSONObject("data");
+        String subjectIdField = SUBJECT_ID_FIELDS_BY_TYPE.get(type);
+        if (subjectIdField != null && data != null && data.has(subjectIdField)) {
+            return type + "\n" + data.get(subjectIdField);
+        }
+
+        StringBuilder key = new StringBuilder(type).append('\n');
+        for (String name : sortedKeys(json)) {
+            if ("type".equals(name)) {
+                continue;
+            }
+            key.append(JSONObject.quote(name)).append(':');
+            appendCanonical(key, json.get(name), "data".equals(name));
+            key.append(',');
+        }
+        return key.toString();
+    }
+
+    private static void appendCanonical(StringBuilder result, Object value, boolean ignoreProgress) {
+        if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+            result.append('{');
+            for (String name : sortedKeys(json)) {
+                if (ignoreProgress && PROGRESS_FIELDS.contains(name)) {
+                    continue;
+                }
+                result.append(JSONObject.quote(name)).append(':');
+                appendCanonical(result, json.get(name), false);
+                result.append(',');
+            }
+            result.append('}');
+        } else if (value instanceof JSONArray) {
+            JSONArray json = (JSONArray) value;
+            result.append('[');
+            for (int i = 0; i < json.length(); i++) {
+                appendCanonical(result, json.get(i), false);
+                result.append(',');
+            }
+            result.append(']');
+        } else if (value instanceof String) {
+            result.append(JSONObject.quote((String) value));
+        } else {
+            result.append(value);
+        }
+    }
+
+    private static List<String> sortedKeys(JSONObject json) {
+        List<String> keys = new ArrayList<>();
+        for (Object key : json.keySet()) {
+            keys.add(key.toString());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+}
@@ -13,6 +13,8 @@ import org.atmosphere.interceptor.BroadcastOnPostAtmosphereInterceptor;
 import org.atmosphere.interceptor.HeartbeatInterceptor;
 import org.atmosphere.interceptor.JavaScriptProtocol;
 import org.json.JSONObject;
+import org.visallo.core.exception.VisalloAccessDeniedException;
+import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.model.user.UserSessionCounterRepository;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
@@ -58,6 +60,7 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
     private WorkQueueRepository workQueueRepository;
     private UserSessionCounterRepository userSessionCounterRepository;
     private WorkQueueRepository.BroadcastConsumer broadcastConsumer;
+    private MessagingBroadcastRouter broadcastRouter;
     private Map<AtmosphereResource.TRANSPORT, Counter> requestsCounters = new HashMap<>();
 
     @Override
@@ -107,7 +110,7 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
                 @Override
                 public void broadcastReceived(JSONObject json) {
                     if (broadcaster != null) {
-                        broadcaster.broadcast(json.toString());
+                        broadcastRouter.broadcast(broadcaster, json);
                     }
                 }
             };
@@ -130,15 +133,15 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
         AtmosphereResponse response = ((AtmosphereResourceImpl) event.getResource()).getResponse(false);
 
         if (event.getMessage() != null && List.class.isAssignableFrom(event.getMessage().getClass())) {
-            List<String> messages = List.class.cast(event.getMessage());
-            for (String t : messages) {
-                onMessage(event, response, t);
+            List<?> messages = List.class.cast(event.getMessage());
+            for (Object t : messages) {
+                onBroadcastMessage(event, response, t);
             }
 
         } else if (event.isClosedByApplication() || event.isClosedByClient() || event.isCancelled()) {
             onDisconnect(event, response);
         } else if (event.isSuspended()) {
-            onMessage(event, response, (String) event.getMessage());
+            onBroadcastMessage(event, response, event.getMessage());
         } else if (event.isResuming()) {
             onResume(event, response);
         } else if (event.isResumedOnTimeout()) {
@@ -147,6 +150,7 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
     }
 
     public void onOpen(AtmosphereResource resource) throws IOException {
+        broadcastRouter.register(resource);
         setStatus(resource, UserStatus.ACTIVE);
         incrementUserSessionCount(resource);
     }
@@ -168,6 +172,10 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
     }
 
     private void onDisconnectOrClose(AtmosphereResourceEvent event) {
+        if (event.getResource() != null) {
+            broadcastRouter.unregister(event.getResource());
+        }
+
         // If POST /logout was called first the session will be invalidated.
         if (event.getResource() == null
                 || event.getResource().getRequest() == null
@@ -184,6 +192,15 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
         }
     }
 
+    private void onBroadcastMessage(AtmosphereResourceEvent event, AtmosphereResponse response, Object message) throws IOException {
+        if (message instanceof MessagingBroadcastRouter.RoutedMessage) {
+            // messages routed from the work queue are never requests from the client
+            response.write(message.toString());
+        } else {
+            onMessage(event, response, (String) message);
+        }
+    }
+
     public void onMessage(AtmosphereResourceEvent event, AtmosphereResponse response, String message) throws IOException {
         try {
             if (!StringUtils.isBlank(message)) {
@@ -218,15 +235,27 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
         }
     }
 
-    private void switchWorkspace(String authUserId, String workspaceId) {
-        if (!workspaceId.equals(userRepository.getCurrentWorkspaceId(authUserId))) {
-            User authUser = userRepository.findById(authUserId);
+    /**
+     * The websocket only receives the messages of the workspace once the user is known to have access to it.
+     */
+    void switchWorkspace(String authUserId, String workspaceId) {
+        User authUser = userRepository.findById(authUserId);
+        if (workspaceId.equals(userRepository.getCurrentWorkspaceId(authUserId))) {
+            // access may have been taken away since the workspace was made current
+            if (!workspaceRepository.hasReadPermissions(workspaceId, authUser)) {
+                throw new VisalloAccessDeniedException("user " + authUserId + " does not have read access to workspace " + workspaceId, authUser, workspaceId);
+            }
+        } else {
             Workspace workspace = workspaceRepository.findById(workspaceId, authUser);
+            if (workspace == null) {
+                throw new VisalloResourceNotFoundException("Could not find workspace: " + workspaceId, workspaceId);
+            }
             userRepository.setCurrentWorkspace(authUserId, workspace.getWorkspaceId());
             workQueueRepository.pushUserCurrentWorkspaceChange(authUser, workspace.getWorkspaceId());
 
             LOGGER.debug("User %s switched current workspace to %s", authUserId, workspaceId);
         }
+        broadcastRouter.setCurrentWorkspaceId(authUserId, workspaceId);
     }
 
     private void setStatus(AtmosphereResource resource, UserStatus status) {
@@ -299,6 +328,11 @@ public class Messaging implements AtmosphereHandler { //extends AbstractReflecto
         this.workQueueRepository = workQueueRepository;
     }
 
+    @Inject
+    public void setBroadcastRouter(MessagingBroadcastRouter broadcastRouter) {
+        this.broadcastRouter = broadcastRouter;
+    }
+
     @Inject
     public void setUserSessionCounterRepository(UserSessionCounterRepository userSessionCounterRepository) {
         this.userSessionCounterRepository = userSessionCounterRepository;
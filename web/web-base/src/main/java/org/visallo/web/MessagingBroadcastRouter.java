@@ -0,0 +1,297 @@
+package org.visallo.web;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.Broadcaster;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import javax.servlet.http.HttpSession;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Delivers broadcast messages only to the atmosphere resources allowed to receive them. Connected resources
+ * are indexed by user id, session id and the user's current workspace so that a message's permissions are
+ * resolved with a few map lookups instead of parsing the message and looking up the current workspace for
+ * every connected resource. Current workspaces are kept up to date from userWorkspaceChange broadcasts, users
+ * without a known current workspace are looked up in the {@link UserRepository} again when needed.
+ */
+@Singleton
+public class MessagingBroadcastRouter {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(MessagingBroadcastRouter.class);
+    public static final String TYPE_USER_WORKSPACE_CHANGE = "userWorkspaceChange";
+    private final UserRepository userRepository;
+    private final Map<String, Registration> registrationsByUuid = new ConcurrentHashMap<>();
+    private final Map<String, Set<Registration>> registrationsByUserId = new ConcurrentHashMap<>();
+    private final Map<String, Set<Registration>> registrationsBySessionId = new ConcurrentHashMap<>();
+    private final Set<Registration> registrationsWithoutUser = ConcurrentHashMap.newKeySet();
+    private final Set<Registration> registrationsWithoutSession = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<String>> userIdsByWorkspaceId = new ConcurrentHashMap<>();
+    private final Map<String, String> workspaceIdsByUserId = new ConcurrentHashMap<>();
+    private final Set<String> connectedUserIdsWithoutWorkspace = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public MessagingBroadcastRouter(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Indexes a connected resource, replacing the previous registration for the same uuid (long polling
+     * transports reconnect with a new resource for every request).
+     */
+    public synchronized void register(AtmosphereResource resource) {
+        HttpSession session = resource.getRequest().getSession();
+        String userId = session == null ? null : CurrentUser.getUserId(session);
+        String sessionId = session == null ? null : session.getId();
+        Registration registration = new Registration(resource, userId, sessionId);
+
+        removeRegistration(resource.uuid());
+        registrationsByUuid.put(registration.uuid, registration);
+        if (userId != null) {
+            boolean connected = registrationsByUserId.containsKey(userId);
+            addToIndex(registrationsByUserId, userId, registration);
+            if (!connected) {
+                trackCurrentWorkspace(userId, userRepository.getCurrentWorkspaceId(userId));
+            }
+        } else if (sessionId != null) {
+            registrationsWithoutUser.add(registration);
+        }
+        if (sessionId != null) {
+            addToIndex(registrationsBySessionId, sessionId, registration);
+        } else {
+            registrationsWithoutSession.add(registration);
+        }
+    }
+
+    public synchronized void unregister(AtmosphereResource resource) {
+        removeRegistration(resource.uuid());
+    }
+
+    /**
+     * Records a user's current workspace, call when the switch happens locally rather than waiting for the
+     * userWorkspaceChange broadcast.
+     */
+    public synchronized void setCurrentWorkspaceId(String userId, String workspaceId) {
+        trackCurrentWorkspace(userId, workspaceId);
+    }
+
+    public String getCurrentWorkspaceId(String userId) {
+        String workspaceId = workspaceIdsByUserId.get(userId);
+        if (workspaceId == null) {
+            // not connected, or the workspace was set without a userWorkspaceChange reaching this server
+            workspaceId = userRepository.getCurrentWorkspaceId(userId);
+            if (workspaceId != null && connectedUserIdsWithoutWorkspace.contains(userId)) {
+                setCurrentWorkspaceId(userId, workspaceId);
+            }
+        }
+        return workspaceId;
+    }
+
+    public void broadcast(Broadcaster broadcaster, JSONObject json) {
+        Set<AtmosphereResource> resources = route(json);
+        if (resources.isEmpty()) {
+            LOGGER.debug("no resources to deliver message to: %s", json.optString("type"));
+            return;
+        }
+        broadcaster.broadcast(new RoutedMessage(json), resources);
+    }
+
+    /**
+     * @return the resources the message should be delivered to
+     */
+    Set<AtmosphereResource> route(JSONObject json) {
+        String type = json.optString("type", null);
+        if (MessagingFilter.TYPE_SET_ACTIVE_WORKSPACE.equals(type)) {
+            return Collections.emptySet();
+        }
+        if (TYPE_USER_WORKSPACE_CHANGE.equals(type)) {
+            JSONObject data = json.optJSONObject("data");
+            if (data != null && data.has("id")) {
+                setCurrentWorkspaceId(data.getString("id"), data.optString("workspaceId", null));
+            }
+        }
+
+        JSONObject permissionsJson = json.optJSONObject("permissions");
+        Set<String> users = toSet(permissionsJson == null ? null : permissionsJson.optJSONArray("users"));
+        Set<String> sessionIds = toSet(permissionsJson == null ? null : permissionsJson.optJSONArray("sessionIds"));
+        Set<String> workspaces = toSet(permissionsJson == null ? null : permissionsJson.optJSONArray("workspaces"));
+
+        Collection<Registration> candidates;
+        if (sessionIds != null) {
+            candidates = getRegistrations(registrationsBySessionId, sessionIds);
+        } else if (users != null) {
+            candidates = getRegistrations(registrationsByUserId, users);
+            // a user restriction does not apply to sessions without a user
+            candidates.addAll(registrationsWithoutUser);
+        } else if (workspaces != null) {
+            for (String userId : connectedUserIdsWithoutWorkspace) {
+                getCurrentWorkspaceId(userId);
+            }
+            Set<String> userIds = new HashSet<>();
+            for (String workspaceId : workspaces) {
+                Set<String> workspaceUserIds = userIdsByWorkspaceId.get(workspaceId);
+                if (workspaceUserIds != null) {
+                    userIds.addAll(workspaceUserIds);
+                }
+            }
+            candidates = getRegistrations(registrationsByUserId, userIds);
+        } else {
+            candidates = registrationsByUuid.values();
+        }
+
+        boolean sessionExpiration = MessagingFilter.TYPE_SESSION_EXPIRATION.equals(type);
+        Set<AtmosphereResource> resources = new HashSet<>();
+        for (Registration registration : candidates) {
+            if (registration.resource.isCancelled()) {
+                continue;
+            }
+            if (registration.sessionId == null) {
+                if (sessionExpiration) {
+                    resources.add(registration.resource);
+                }
+                continue;
+            }
+            if (users != null && registration.userId != null && !users.contains(registration.userId)) {
+                continue;
+            }
+            if (sessionIds != null && !sessionIds.contains(registration.sessionId)) {
+                continue;
+            }
+            if (workspaces != null) {
+                String workspaceId = registration.userId == null ? null : workspaceIdsByUserId.get(registration.userId);
+                if (workspaceId == null || !workspaces.contains(workspaceId)) {
+                    continue;
+                }
+            }
+            resources.add(registration.resource);
+        }
+        if (sessionExpiration && (sessionIds != null || users != null || workspaces != null)) {
+            for (Registration registration : registrationsWithoutSession) {
+                if (!registration.resource.isCancelled()) {
+                    resources.add(registration.resource);
+                }
+            }
+        }
+        return resources;
+    }
+
+    private void trackCurrentWorkspace(String userId, String workspaceId) {
+        String previousWorkspaceId = workspaceId == null
+                ? workspaceIdsByUserId.remove(userId)
+                : workspaceIdsByUserId.put(userId, workspaceId);
+        if (previousWorkspaceId != null && !previousWorkspaceId.equals(workspaceId)) {
+            Set<String> userIds = userIdsByWorkspaceId.get(previousWorkspaceId);
+            if (userIds != null) {
+                userIds.remove(userId);
+                if (userIds.isEmpty()) {
+                    userIdsByWorkspaceId.remove(previousWorkspaceId);
+                }
+            }
+        }
+        if (workspaceId != null) {
+            userIdsByWorkspaceId.computeIfAbsent(workspaceId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+            connectedUserIdsWithoutWorkspace.remove(userId);
+        } else if (registrationsByUserId.containsKey(userId)) {
+            connectedUserIdsWithoutWorkspace.add(userId);
+        } else {
+            connectedUserIdsWithoutWorkspace.remove(userId);
+        }
+    }
+
+    private void removeRegistration(String uuid) {
+        Registration registration = registrationsByUuid.remove(uuid);
+        if (registration == null) {
+            return;
+        }
+        if (registration.userId != null) {
+            removeFromIndex(registrationsByUserId, registration.userId, registration);
+            if (!registrationsByUserId.containsKey(registration.userId)) {
+                // no longer connected, the workspace will be looked up again when the user reconnects
+                trackCurrentWorkspace(registration.userId, null);
+            }
+        }
+        if (registration.sessionId != null) {
+            removeFromIndex(registrationsBySessionId, registration.sessionId, registration);
+        }
+        registrationsWithoutUser.remove(registration);
+        registrationsWithoutSession.remove(registration);
+    }
+
+    private static void addToIndex(Map<String, Set<Registration>> index, String key, Registration registration) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(registration);
+    }
+
+    private static void removeFromIndex(Map<String, Set<Registration>> index, String key, Registration registration) {
+        Set<Registration> registrations = index.get(key);
+        if (registrations != null) {
+            registrations.remove(registration);
+            if (registrations.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static List<Registration> getRegistrations(Map<String, Set<Registration>> index, Set<String> keys) {
+        List<Registration> results = new ArrayList<>();
+        for (String key : keys) {
+            Set<Registration> registrations = index.get(key);
+            if (registrations != null) {
+                results.addAll(registrations);
+            }
+        }
+        return results;
+    }
+
+    private static Set<String> toSet(JSONArray jsonArray) {
+        if (jsonArray == null) {
+            return null;
+        }
+        Set<String> results = new HashSet<>();
+        for (int i = 0; i < jsonArray.length(); i++) {
+            results.add(jsonArray.get(i).toString());
+        }
+        return results;
+    }
+
+    private static class Registration {
+        private final String uuid;
+        private final AtmosphereResource resource;
+        private final String userId;
+        private final String sessionId;
+
+        private Registration(AtmosphereResource resource, String userId, String sessionId) {
+            this.uuid = resource.uuid();
+            this.resource = resource;
+            this.userId = userId;
+            this.sessionId = sessionId;
+        }
+    }
+
+    /**
+     * A broadcast message that has already been routed. Keeps the parsed json so the broadcast filters don't
+     * need to parse the message again for every resource.
+     */
+    public static class RoutedMessage {
+        private final JSONObject json;
+        private final String message;
+
+        public RoutedMessage(JSONObject json) {
+            this.json = json;
+            this.message = json.toString();
+        }
+
+        public JSONObject getJson() {
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            return message;
+        }
+    }
+}
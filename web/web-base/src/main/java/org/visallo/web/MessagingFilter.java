@@ -7,7 +7,6 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.visallo.core.bootstrap.InjectHelper;
-import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.util.JSONUtil;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
@@ -20,7 +19,7 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(MessagingFilter.class);
     public static final String TYPE_SESSION_EXPIRATION = "sessionExpiration";
     public static final String TYPE_SET_ACTIVE_WORKSPACE = "setActiveWorkspace";
-    private UserRepository userRepository;
+    private MessagingBroadcastRouter broadcastRouter;
 
     @Override
     public BroadcastAction filter(String broadcasterId, Object originalMessage, Object message) {
@@ -35,6 +34,10 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
             if (message == null || r.isCancelled()) {
                 return new BroadcastAction(BroadcastAction.ACTION.ABORT, null);
             }
+            if (message instanceof MessagingBroadcastRouter.RoutedMessage) {
+                // already delivered only to the resources allowed to receive it
+                return new BroadcastAction(message);
+            }
             JSONObject json = new JSONObject(message.toString());
 
             if (shouldSendMessage(json, r.getRequest().getSession())) {
@@ -95,7 +98,7 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
                 return true;
             }
 
-            String currentWorkspaceId = userRepository.getCurrentWorkspaceId(currentUserId);
+            String currentWorkspaceId = broadcastRouter.getCurrentWorkspaceId(currentUserId);
             if (currentWorkspaceId == null) {
                 return true;
             }
@@ -129,18 +132,18 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
     }
 
     public void ensureInitialized() {
-        if (userRepository == null) {
+        if (broadcastRouter == null) {
             InjectHelper.inject(this);
-            if (userRepository == null) {
-                LOGGER.error("userRepository cannot be null");
-                checkNotNull(userRepository, "userRepository cannot be null");
+            if (broadcastRouter == null) {
+                LOGGER.error("broadcastRouter cannot be null");
+                checkNotNull(broadcastRouter, "broadcastRouter cannot be null");
             }
         }
     }
 
     @Inject
-    public void setUserRepository(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public void setBroadcastRouter(MessagingBroadcastRouter broadcastRouter) {
+        this.broadcastRouter = broadcastRouter;
     }
 
 }
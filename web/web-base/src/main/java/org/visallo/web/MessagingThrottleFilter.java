@@ -9,25 +9,24 @@ import org.json.JSONObject;
 import org.visallo.core.bootstrap.InjectHelper;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.model.user.UserRepository;
-import org.visallo.core.util.JSONUtil;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(MessagingThrottleFilter.class);
+    public static final String CONFIG_THROTTLE_MILLIS_BY_TYPE_PREFIX = MessagingThrottleFilter.class.getName() + ".throttleMillis";
     private UserRepository userRepository;
     private Integer throttleMillis;
+    private Map<String, Integer> throttleMillisByType = new HashMap<>();
 
     private final Map<String, Long> lastRequestForUuid = new ConcurrentHashMap<>();
-    private final Map<String, List<JSONObject>> messagesForUuid = new ConcurrentHashMap<>();
+    private final Map<String, MessageCoalescer> messagesForUuid = new ConcurrentHashMap<>();
     private final Map<String, Boolean> broadcastScheduledForUuid = new ConcurrentHashMap<>();
 
     @Override
@@ -43,19 +42,23 @@ public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
             if (message == null || r.isCancelled()) {
                 return new BroadcastAction(BroadcastAction.ACTION.ABORT, null);
             }
-            JSONObject json = new JSONObject(message.toString());
+            JSONObject json = message instanceof MessagingBroadcastRouter.RoutedMessage
+                    ? ((MessagingBroadcastRouter.RoutedMessage) message).getJson()
+                    : new JSONObject(message.toString());
 
-            if (this.throttleMillis > 0 && !"batch".equals(json.optString("type"))) {
+            String type = json.optString("type");
+            int windowMillis = getThrottleMillis(type);
+            if (windowMillis > 0 && !"batch".equals(type)) {
                 String uuid = r.uuid();
 
                 synchronized (getMutex(uuid)) {
                     boolean queueFuture = !broadcastScheduledForUuid.containsKey(uuid);
                     Long timeSinceLastRequest = getTimeSinceLastRequest(uuid);
 
-                    if (timeSinceLastRequest < this.throttleMillis) {
+                    if (timeSinceLastRequest < windowMillis) {
                         addMessageToBatch(json, uuid);
                         if (queueFuture) {
-                            delayBatchBroadcast(r, this.throttleMillis - timeSinceLastRequest);
+                            delayBatchBroadcast(r, windowMillis - timeSinceLastRequest);
                         }
                         return new BroadcastAction(BroadcastAction.ACTION.ABORT, message);
                     }
@@ -70,48 +73,16 @@ public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
     }
 
     private void addMessageToBatch(JSONObject json, String uuid) {
-        List<JSONObject> messages;
-        if (!messagesForUuid.containsKey(uuid)) {
-            messages = new ArrayList<>();
-            messagesForUuid.put(uuid, messages);
-        } else {
-            messages = messagesForUuid.get(uuid);
-        }
-
-        boolean contains = messages.stream().anyMatch(jsonObject -> {
-            return JSONUtil.areEqual(jsonObject, json);
-        });
-
-        if (!contains) {
-            // check if any message is equal after removing the progress and progressMessage
-            // don't need to send multiple progress updates with no other changes
-            if (json.has("data")) {
-                JSONObject jsonNoProgress = cloneWithoutProgress(json);
-
-                List<JSONObject> outdated = messages.stream().filter(existing -> {
-                    JSONObject existingNoProgress = cloneWithoutProgress(existing);
-                    return JSONUtil.areEqual(existingNoProgress, jsonNoProgress);
-                }).collect(Collectors.toList());
-                messages.removeAll(outdated);
-            }
-            messages.add(json);
-        }
+        messagesForUuid.computeIfAbsent(uuid, k -> new MessageCoalescer()).add(json);
     }
 
-    private JSONObject cloneWithoutProgress(JSONObject json) {
-        JSONObject clone = new JSONObject(json, (String[]) json.keySet().toArray(new String[0]));
-
-        if (json.has("data")) {
-            JSONObject jsonData = clone.getJSONObject("data");
-            Set<String> keySetWithoutProgress = new HashSet<>(jsonData.keySet());
-            keySetWithoutProgress.remove("progress");
-            keySetWithoutProgress.remove("progressMessage");
-            keySetWithoutProgress.remove("row");
-            String[] keysWithoutProgress = keySetWithoutProgress.toArray(new String[0]);
-            clone.put("data", new JSONObject(jsonData, keysWithoutProgress));
-        }
-
-        return clone;
+    /**
+     * @return the throttle window for messages of the given type, a message arriving while a batch is already
+     * scheduled waits for that batch regardless of its own window
+     */
+    private int getThrottleMillis(String type) {
+        Integer millis = throttleMillisByType.get(type);
+        return millis == null ? this.throttleMillis : millis;
     }
 
     private Long getTimeSinceLastRequest(String uuid) {
@@ -131,17 +102,16 @@ public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
             @Override
             public void run() {
                 synchronized (getMutex(uuid)) {
-                    List<JSONObject> messages = messagesForUuid.get(uuid);
+                    MessageCoalescer messages = messagesForUuid.get(uuid);
                     if (messages != null) {
                         JSONObject batchMessage = new JSONObject();
-                        JSONArray jsonMessages = new JSONArray(messages);
+                        JSONArray jsonMessages = new JSONArray(messages.drain());
                         batchMessage.put("data", jsonMessages);
                         batchMessage.put("type", "batch");
 
                         r.getBroadcaster().broadcast(batchMessage.toString(), r);
 
                         broadcastScheduledForUuid.remove(uuid);
-                        messages.clear();
                     }
                 }
             }
@@ -175,5 +145,12 @@ public class MessagingThrottleFilter implements PerRequestBroadcastFilter {
     @Inject
     public void setConfiguration(Configuration configuration) {
         this.throttleMillis = configuration.getInt(WebConfiguration.THROTTLE_MESSAGING_SECONDS) * 1000;
+        Map<String, Integer> throttleMillisByType = new HashMap<>();
+        for (Map.Entry<String, String> entry : configuration.getSubset(CONFIG_THROTTLE_MILLIS_BY_TYPE_PREFIX).entrySet()) {
+            if (!entry.getKey().isEmpty()) {
+                throttleMillisByType.put(entry.getKey(), Integer.parseInt(entry.getValue().trim()));
+            }
+        }
+        this.throttleMillisByType = throttleMillisByType;
     }
 }
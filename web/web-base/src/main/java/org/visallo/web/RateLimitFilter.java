@@ -1,37 +1,152 @@
 package org.visallo.web;
 
-import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import com.v5analytics.webster.HandlerChain;
 import com.v5analytics.webster.RequestResponseHandler;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+import org.visallo.web.util.RemoteAddressUtil;
+import org.visallo.web.util.TokenBucket;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+/**
+ * Limits how often each user can call the routes this filter is added to. Every (user, route) pair gets its own token bucket so a single
+ * busy user does not use up the limit of everyone else, anonymous requests are limited by client address.
+ * Requests over the limit are rejected immediately with a 429 and a Retry-After header rather than holding
+ * the request thread until a permit becomes available.
+ * <p>
+ * Limits are configured per route pattern, for example:
+ * <pre><code>
+ * org.visallo.web.RateLimitFilter.limit.ping.pattern=^/ping$
+ * org.visallo.web.RateLimitFilter.limit.ping.permitsPerSecond=1
+ * org.visallo.web.RateLimitFilter.limit.ping.burst=1
+ * </code></pre>
+ * Patterns are matched in name order against the request path, all paths matching a pattern share a bucket.
+ * Routes that don't match any pattern get a bucket per path using the default limit.
+ */
+@Singleton
 public class RateLimitFilter implements RequestResponseHandler {
-    private static final Map<String, RateLimiter> rateLimiters = new HashMap<>();
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(RateLimitFilter.class);
+    public static final String CONFIG_LIMIT_PREFIX = RateLimitFilter.class.getName() + ".limit";
+    public static final String CONFIG_PERMITS_PER_SECOND = RateLimitFilter.class.getName() + ".permitsPerSecond";
+    public static final String CONFIG_BURST = RateLimitFilter.class.getName() + ".burst";
+    public static final String CONFIG_IDLE_EXPIRE_SECONDS = RateLimitFilter.class.getName() + ".idleExpireSeconds";
     public static final int PERMITS_PER_SECOND = 1;
-    private static final int TOO_MANY_REQUESTS = 429;
+    public static final int BURST = 1;
+    public static final int IDLE_EXPIRE_SECONDS = 600;
+    public static final int TOO_MANY_REQUESTS = 429;
+    private final List<RouteLimit> routeLimits = new ArrayList<>();
+    private final RouteLimit defaultLimit;
+    private final Cache<String, TokenBucket> buckets;
+
+    @Inject
+    public RateLimitFilter(Configuration configuration) {
+        for (Map.Entry<String, Map<String, String>> entry : configuration.getMultiValue(CONFIG_LIMIT_PREFIX).entrySet()) {
+            routeLimits.add(RouteLimit.create(entry.getKey(), entry.getValue()));
+        }
+        defaultLimit = new RouteLimit(
+                null,
+                null,
+                Double.parseDouble(configuration.get(CONFIG_PERMITS_PER_SECOND, Integer.toString(PERMITS_PER_SECOND))),
+                configuration.getInt(CONFIG_BURST, BURST)
+        );
+        buckets = CacheBuilder.newBuilder()
+                .expireAfterAccess(configuration.getInt(CONFIG_IDLE_EXPIRE_SECONDS, IDLE_EXPIRE_SECONDS), TimeUnit.SECONDS)
+                .build();
+    }
 
     @Override
     public void handle(HttpServletRequest request, HttpServletResponse response, HandlerChain chain) throws Exception {
-        String url = request.getRequestURI();
-        RateLimiter rateLimiter = getRateLimiterForUri(url);
-        if (rateLimiter.tryAcquire(1, TimeUnit.SECONDS)) {
+        long waitNanos = getBucket(request).tryAcquire();
+        if (waitNanos == 0) {
             chain.next(request, response);
             return;
         }
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        LOGGER.debug("rate limit reached for %s, retry after %ds", request.getRequestURI(), retryAfterSeconds);
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
         response.sendError(TOO_MANY_REQUESTS, "Rate limit reached");
     }
 
-    private RateLimiter getRateLimiterForUri(String url) {
-        RateLimiter rateLimiter = rateLimiters.get(url);
-        if (rateLimiter == null) {
-            rateLimiter = RateLimiter.create(PERMITS_PER_SECOND);
-            rateLimiters.put(url, rateLimiter);
+    private TokenBucket getBucket(HttpServletRequest request) throws ExecutionException {
+        String path = getPath(request);
+        RouteLimit limit = getRouteLimit(path);
+        String route = limit.name == null ? path : limit.name;
+        String key = getRequester(request) + "\n" + route;
+        return buckets.get(key, () -> new TokenBucket(limit.permitsPerSecond, limit.burst));
+    }
+
+    private RouteLimit getRouteLimit(String path) {
+        for (RouteLimit routeLimit : routeLimits) {
+            if (routeLimit.pattern.matcher(path).find()) {
+                return routeLimit;
+            }
+        }
+        return defaultLimit;
+    }
+
+    private static String getPath(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        return path;
+    }
+
+    private static String getRequester(HttpServletRequest request) {
+        String userId = CurrentUser.getUserId(request);
+        if (userId != null) {
+            return "user:" + userId;
+        }
+        return "addr:" + RemoteAddressUtil.getClientIpAddr(request);
+    }
+
+    private static class RouteLimit {
+        private final String name;
+        private final Pattern pattern;
+        private final double permitsPerSecond;
+        private final int burst;
+
+        private RouteLimit(String name, Pattern pattern, double permitsPerSecond, int burst) {
+            if (permitsPerSecond <= 0 || burst < 1) {
+                throw new VisalloException("Invalid rate limit" + (name == null ? "" : " \"" + name + "\"")
+                        + ": permitsPerSecond must be greater than 0 and burst at least 1");
+            }
+            this.name = name;
+            this.pattern = pattern;
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+
+        private static RouteLimit create(String name, Map<String, String> values) {
+            String pattern = values.get("pattern");
+            if (pattern == null) {
+                throw new VisalloException("Missing " + CONFIG_LIMIT_PREFIX + "." + name + ".pattern");
+            }
+            try {
+                return new RouteLimit(
+                        name,
+                        Pattern.compile(pattern),
+                        values.containsKey("permitsPerSecond") ? Double.parseDouble(values.get("permitsPerSecond")) : PERMITS_PER_SECOND,
+                        values.containsKey("burst") ? Integer.parseInt(values.get("burst")) : BURST
+                );
+            } catch (NumberFormatException ex) {
+                throw new VisalloException("Invalid rate limit \"" + name + "\"", ex);
+            }
         }
-        return rateLimiter;
     }
 }
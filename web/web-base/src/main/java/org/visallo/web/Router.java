@@ -65,6 +65,7 @@ public class Router extends HttpServlet {
     private WebApp app;
     private Configuration configuration;
     private GeocoderRepository geocoderRepository;
+    private AsyncRouteExecutor asyncRouteExecutor;
     private List<WebEventListener> webEventListeners;
     private List<WebEventListener> webEventListenersReverse;
 
@@ -117,6 +118,9 @@ public class Router extends HttpServlet {
             app.get("/search", authenticator, csrfProtector, SearchGet.class);
             app.get("/search/run", authenticator, csrfProtector, SearchRun.class);
             app.post("/search/run", authenticator, csrfProtector, SearchRun.class);
+            app.get("/search/export", authenticator, csrfProtector, ReadPrivilegeFilter.class, SearchExport.class);
+            app.post("/search/export", authenticator, csrfProtector, ReadPrivilegeFilter.class, SearchExport.class);
+            app.registerAsyncRoute("/search/export", asyncRouteExecutor.getStreamingTimeoutMillis());
             app.delete("/search", authenticator, csrfProtector, SearchDelete.class);
 
             app.get("/element/search", authenticator, csrfProtector, ReadPrivilegeFilter.class, ElementSearch.class);
@@ -143,6 +147,7 @@ public class Router extends HttpServlet {
             app.get("/vertex/property", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexGetPropertyValue.class);
             app.get("/vertex/property/history", authenticator, csrfProtector, HistoryReadPrivilegeFilter.class, VertexGetPropertyHistory.class);
             app.post("/vertex/property", authenticator, csrfProtector, EditPrivilegeFilter.class, VertexSetProperty.class);
+            app.post("/vertex/property/multiple", authenticator, csrfProtector, EditPrivilegeFilter.class, VertexSetPropertyMultiple.class);
             app.post("/vertex/property/visibility", authenticator, csrfProtector, EditPrivilegeFilter.class, VertexSetPropertyVisibility.class);
             app.post("/vertex/comment", authenticator, csrfProtector, CommentPrivilegeFilter.class, VertexSetProperty.class);
             app.delete("/vertex/property", authenticator, csrfProtector, EditPrivilegeFilter.class, VertexDeleteProperty.class);
@@ -154,11 +159,13 @@ public class Router extends HttpServlet {
             app.get("/vertex/edges", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexEdges.class);
             app.post("/vertex/multiple", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexMultiple.class); // this is a post method to allow large data (ie data larger than would fit in the URL)
             app.post("/vertex/new", authenticator, csrfProtector, EditPrivilegeFilter.class, VertexNew.class);
+            app.post("/vertex/new/multiple", authenticator, csrfProtector, EditPrivilegeFilter.class, VertexNewMultiple.class);
             app.get("/vertex/search", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexSearch.class);
             app.post("/vertex/search", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexSearch.class);
             app.get("/vertex/geo-search", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexGeoSearch.class);
             app.post("/vertex/upload-image", authenticator, csrfProtector, EditPrivilegeFilter.class, VertexUploadImage.class);
             app.get("/vertex/find-path", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexFindPath.class);
+            app.registerAsyncRoute("GET", "/vertex/find-path", asyncRouteExecutor.getDefaultTimeoutMillis());
             app.post("/vertex/find-related", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexFindRelated.class);
             app.get("/vertex/counts-by-concept-type", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexGetCountsByConceptType.class);
             app.get("/vertex/count", authenticator, csrfProtector, ReadPrivilegeFilter.class, VertexGetCount.class);
@@ -207,6 +214,8 @@ public class Router extends HttpServlet {
             app.get("/product/preview", authenticator, csrfProtector, ReadPrivilegeFilter.class, ProductPreview.class);
             app.post("/product", authenticator, csrfProtector, EditPrivilegeFilter.class, ProductUpdate.class);
             app.delete("/product", authenticator, csrfProtector, EditPrivilegeFilter.class, ProductDelete.class);
+            app.registerAsyncRoute("GET", "/product", asyncRouteExecutor.getDefaultTimeoutMillis());
+            app.registerAsyncRoute("GET", "/product/preview", asyncRouteExecutor.getDefaultTimeoutMillis());
 
             app.get("/user/me", authenticator, csrfProtector, MeGet.class);
             app.post("/user/ui-preferences", authenticator, csrfProtector, UserSetUiPreferences.class);
@@ -259,6 +268,28 @@ public class Router extends HttpServlet {
         request.setCharacterEncoding("UTF-8");
         response.setCharacterEncoding("UTF-8");
 
+        Long asyncTimeout = getAsyncRouteTimeout(request);
+        if (asyncTimeout != null) {
+            asyncRouteExecutor.execute(request, response, asyncTimeout, this::handle);
+            return;
+        }
+        handle(request, response);
+    }
+
+    private Long getAsyncRouteTimeout(HttpServletRequest request) {
+        if (!asyncRouteExecutor.isEnabled() || !request.isAsyncSupported() || request.isAsyncStarted()) {
+            return null;
+        }
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        Long timeout = asyncRouteExecutor.getConfiguredTimeoutsByPath().get(path);
+        return timeout == null ? app.getAsyncRouteTimeout(request.getMethod(), path) : timeout;
+    }
+
+    private void handle(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         try {
             for (WebEventListener webEventListener : getWebEventListeners()) {
                 webEventListener.before(app, request, response);
@@ -305,6 +336,11 @@ public class Router extends HttpServlet {
         this.configuration = configuration;
     }
 
+    @Inject
+    public void setAsyncRouteExecutor(AsyncRouteExecutor asyncRouteExecutor) {
+        this.asyncRouteExecutor = asyncRouteExecutor;
+    }
+
     @Inject
     public void setGeocoderRepository(GeocoderRepository geocoderRepository) {
         this.geocoderRepository = geocoderRepository;
@@ -4,10 +4,12 @@ import com.asual.lesscss.LessEngine;
 import com.asual.lesscss.LessOptions;
 import com.v5analytics.webster.HandlerChain;
 import com.v5analytics.webster.RequestResponseHandler;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.visallo.core.exception.VisalloException;
+import org.visallo.web.util.js.CachedCompilation;
+import org.visallo.web.util.js.CompiledAssetCache;
 
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -19,14 +21,42 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 public class StyleAppendableHandler implements RequestResponseHandler {
     private LessEngine lessCompiler;
+    private CompiledAssetCache compiledAssetCache;
     private String css = "";
+    private CachedCompilation compiledCss;
 
     @Override
     public void handle(HttpServletRequest request, HttpServletResponse response, HandlerChain chain) throws Exception {
-        response.setContentType("text/css");
-        try (ServletOutputStream out = response.getOutputStream()) {
-            out.write(css.getBytes());
+        CachedCompilation compiledCss = getCompiledCss();
+        CompiledResourceWriter.write(
+                request,
+                response,
+                "text/css",
+                compiledCss.getHash(),
+                compiledCss.getOutput().getBytes(StandardCharsets.UTF_8),
+                compiledCss.getOutputGzip()
+        );
+    }
+
+    /**
+     * @return a hash of the concatenated css, changes whenever a resource is appended
+     */
+    public String getHash() {
+        return getCompiledCss().getHash();
+    }
+
+    private synchronized CachedCompilation getCompiledCss() {
+        if (compiledCss == null) {
+            CachedCompilation compilation = new CachedCompilation();
+            compilation.setHash(DigestUtils.md5Hex(css));
+            compilation.setOutput(css);
+            compiledCss = compilation;
         }
+        return compiledCss;
+    }
+
+    public void setCompiledAssetCache(CompiledAssetCache compiledAssetCache) {
+        this.compiledAssetCache = compiledAssetCache;
     }
 
     public void appendLessResource(String pathInfo) {
@@ -35,7 +65,7 @@ public class StyleAppendableHandler implements RequestResponseHandler {
             try (StringWriter writer = new StringWriter()) {
                 IOUtils.copy(in, writer, StandardCharsets.UTF_8);
                 String inputLess = writer.toString();
-                String output = lessCompiler().compile(inputLess);
+                String output = LessResourceHandler.compile(compiledAssetCache, pathInfo, inputLess, this::lessCompiler).getOutput();
                 appendCss(output);
             }
         } catch (Exception ex) {
@@ -52,8 +82,9 @@ public class StyleAppendableHandler implements RequestResponseHandler {
         }
     }
 
-    private void appendCss(String output) {
+    private synchronized void appendCss(String output) {
         css += output + "\n";
+        compiledCss = null;
     }
 
     private synchronized LessEngine lessCompiler() {
@@ -1,11 +1,11 @@
 package org.visallo.web;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.v5analytics.webster.resultWriters.ResultWriter;
 import com.v5analytics.webster.resultWriters.ResultWriterBase;
 import com.v5analytics.webster.resultWriters.ResultWriterFactory;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.json.JSONObject;
@@ -21,18 +21,25 @@ import org.visallo.web.clientapi.model.ClientApiObject;
 import org.visallo.web.clientapi.model.ClientApiWorkspace;
 import org.visallo.web.clientapi.util.ObjectMapperFactory;
 import org.visallo.web.parameterProviders.VisalloBaseParameterProvider;
+import org.visallo.web.util.CompressingResponseOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 
 @Singleton
 public class VisalloDefaultResultWriterFactory implements ResultWriterFactory {
     public static final String WEB_RESPONSE_HEADER_X_FRAME_OPTIONS = "web.response.header.X-Frame-Options";
     public static final String WEB_RESPONSE_HEADER_X_FRAME_OPTIONS_DEFAULT = "DENY";
+    public static final String WEB_RESPONSE_COMPRESSION_ENABLED = "web.response.compression.enabled";
+    public static final boolean WEB_RESPONSE_COMPRESSION_ENABLED_DEFAULT = true;
+    public static final String WEB_RESPONSE_COMPRESSION_THRESHOLD = "web.response.compression.threshold";
+    public static final int WEB_RESPONSE_COMPRESSION_THRESHOLD_DEFAULT = 2048;
     private final String responseHeaderXFrameOptions;
+    private final boolean compressionEnabled;
+    private final int compressionThreshold;
     private ACLProvider aclProvider;
     private WorkspaceRepository workspaceRepository;
     private UserRepository userRepository;
@@ -48,6 +55,8 @@ public class VisalloDefaultResultWriterFactory implements ResultWriterFactory {
         this.workspaceRepository = workspaceRepository;
         this.userRepository = userRepository;
         this.responseHeaderXFrameOptions = configuration.get(WEB_RESPONSE_HEADER_X_FRAME_OPTIONS, WEB_RESPONSE_HEADER_X_FRAME_OPTIONS_DEFAULT);
+        this.compressionEnabled = configuration.getBoolean(WEB_RESPONSE_COMPRESSION_ENABLED, WEB_RESPONSE_COMPRESSION_ENABLED_DEFAULT);
+        this.compressionThreshold = configuration.getInt(WEB_RESPONSE_COMPRESSION_THRESHOLD, WEB_RESPONSE_COMPRESSION_THRESHOLD_DEFAULT);
     }
 
     @Override
@@ -55,6 +64,7 @@ public class VisalloDefaultResultWriterFactory implements ResultWriterFactory {
         return new ResultWriterBase(handleMethod) {
             private boolean resultIsClientApiObject;
             private boolean resultIsInputStream;
+            private final boolean eTagged = handleMethod.isAnnotationPresent(ETagged.class);
 
             @Override
             protected String getContentType(Method handleMethod) {
@@ -82,7 +92,10 @@ public class VisalloDefaultResultWriterFactory implements ResultWriterFactory {
                         response.addHeader("X-Content-Type-Options", "nosniff");
                     }
                     response.setCharacterEncoding("UTF-8");
-                    if (resultIsClientApiObject || result instanceof JSONObject) {
+                    if (eTagged && (resultIsClientApiObject || result instanceof JSONObject)) {
+                        // allow the browser to keep the response but revalidate it using the ETag
+                        response.addHeader("Cache-Control", "no-cache");
+                    } else if (resultIsClientApiObject || result instanceof JSONObject) {
                         response.addHeader("Cache-Control", "no-cache, no-store, must-revalidate");
                         response.addHeader("Pragma", "no-cache");
                         response.addHeader("Expires", "0");
@@ -104,13 +117,22 @@ public class VisalloDefaultResultWriterFactory implements ResultWriterFactory {
                                 clientApiObject = aclProvider.appendACL(clientApiObject, user, workspaceId);
                             }
                         }
-                        String jsonObject;
-                        try {
-                            jsonObject = ObjectMapperFactory.getInstance().writeValueAsString(clientApiObject);
-                        } catch (JsonProcessingException e) {
-                            throw new VisalloException("Could not convert clientApiObject to string", e);
+                        if (eTagged) {
+                            writeETaggedJson(request, response, ObjectMapperFactory.getInstance().writeValueAsBytes(clientApiObject));
+                        } else {
+                            try (OutputStream out = openOutputStream(request, response)) {
+                                ObjectMapperFactory.getInstance().writeValue(out, clientApiObject);
+                            }
+                        }
+                    } else if (result instanceof JSONObject) {
+                        JSONObject jsonObject = (JSONObject) result;
+                        if (eTagged) {
+                            writeETaggedJson(request, response, jsonObject.toString().getBytes(StandardCharsets.UTF_8));
+                        } else {
+                            try (Writer out = new OutputStreamWriter(openOutputStream(request, response), StandardCharsets.UTF_8)) {
+                                jsonObject.write(out);
+                            }
                         }
-                        response.getWriter().write(jsonObject);
                     } else if (resultIsInputStream) {
                         try (InputStream in = (InputStream) result) {
                             IOUtils.copy(in, response.getOutputStream());
@@ -124,4 +146,52 @@ public class VisalloDefaultResultWriterFactory implements ResultWriterFactory {
             }
         };
     }
+
+    private OutputStream openOutputStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!compressionEnabled) {
+            return response.getOutputStream();
+        }
+        return new CompressingResponseOutputStream(request, response, compressionThreshold);
+    }
+
+    private void writeETaggedJson(HttpServletRequest request, HttpServletResponse response, byte[] json) throws IOException {
+        String hash = DigestUtils.md5Hex(json);
+        String encoding = compressionEnabled && json.length > compressionThreshold
+                ? CompressingResponseOutputStream.getAcceptedEncoding(request.getHeader("Accept-Encoding"))
+                : null;
+        // the entity tag must differ between the compressed and uncompressed representations to be strong
+        response.setHeader("ETag", "\"" + hash + (encoding == null ? "" : "-" + encoding) + "\"");
+        if (("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))
+                && ifNoneMatch(request.getHeader("If-None-Match"), hash)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        try (OutputStream out = openOutputStream(request, response)) {
+            out.write(json);
+        }
+    }
+
+    static boolean ifNoneMatch(String ifNoneMatchHeader, String hash) {
+        if (ifNoneMatchHeader == null) {
+            return false;
+        }
+        for (String eTag : ifNoneMatchHeader.split(",")) {
+            eTag = eTag.trim();
+            if ("*".equals(eTag)) {
+                return true;
+            }
+            if (eTag.startsWith("W/")) {
+                eTag = eTag.substring("W/".length());
+            }
+            eTag = StringUtils.strip(eTag, "\"");
+            int suffixIndex = eTag.indexOf('-');
+            if (suffixIndex > 0) {
+                eTag = eTag.substring(0, suffixIndex);
+            }
+            if (eTag.equals(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -19,6 +19,7 @@ import org.visallo.web.parameterProviders.*;
 import org.visallo.web.parameterValueConverters.ElementTypeParameterValueConverter;
 import org.visallo.web.parameterValueConverters.JSONObjectParameterValueConverter;
 import org.visallo.web.routes.notification.SystemNotificationSeverityValueConverter;
+import org.visallo.web.util.js.CompiledAssetCache;
 import org.visallo.web.util.js.SourceMapType;
 
 import javax.servlet.ServletContext;
@@ -27,10 +28,8 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
-import java.util.ResourceBundle;
+import java.util.*;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,6 +38,7 @@ import static org.vertexium.util.CloseableUtils.closeQuietly;
 
 public class WebApp extends App {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(WebApp.class);
+    private static final String ANY_METHOD = "*";
     private final Injector injector;
     private final boolean devMode;
 
@@ -50,6 +50,9 @@ public class WebApp extends App {
     private final List<String> pluginsCssResources = new ArrayList<>();
     private VisalloResourceBundleManager visalloResourceBundleManager = new VisalloResourceBundleManager();
     private VisalloDefaultResultWriterFactory visalloDefaultResultWriterFactory;
+    private final CompiledAssetCache compiledAssetCache;
+    private final Map<String, Supplier<String>> resourceHashes = new HashMap<>();
+    private final Map<String, Long> asyncRouteTimeouts = new HashMap<>();
 
     public WebApp(final ServletContext servletContext, final Injector injector) {
         super(servletContext);
@@ -80,11 +83,14 @@ public class WebApp extends App {
 
         Configuration config = injector.getInstance(Configuration.class);
         this.devMode = config.getBoolean(Configuration.DEV_MODE, Configuration.DEV_MODE_DEFAULT);
+        this.compiledAssetCache = injector.getInstance(CompiledAssetCache.class);
+        pluginsCssResourceHandler.setCompiledAssetCache(compiledAssetCache);
 
         if (!isDevModeEnabled()) {
             String pluginsCssRoute = "plugins.css";
             this.get("/" + pluginsCssRoute, pluginsCssResourceHandler);
             pluginsCssResources.add(pluginsCssRoute);
+            resourceHashes.put(pluginsCssRoute, pluginsCssResourceHandler::getHash);
         }
     }
 
@@ -126,12 +132,16 @@ public class WebApp extends App {
         String resourcePath = "/" + (pathPrefix + name).replaceAll("^/", "");
         if (type.equals("application/javascript") && !skipCompile) {
             boolean enableSourceMaps = isDevModeEnabled();
-            JavascriptResourceHandler handler = new JavascriptResourceHandler(name, resourcePath, enableSourceMaps, closureExternResourcePath);
+            JavascriptResourceHandler handler = new JavascriptResourceHandler(name, resourcePath, enableSourceMaps, closureExternResourcePath, compiledAssetCache);
             get(resourcePath, handler);
             if (enableSourceMaps) {
                 get(resourcePath + ".map", handler);
                 get(resourcePath + ".src", handler);
             }
+            if (!isDevModeEnabled()) {
+                // sources don't change outside of dev mode so the page can link to the current version
+                resourceHashes.put(resourcePath, handler::getHash);
+            }
         } else {
             get(resourcePath, new StaticResourceHandler(this.getClass(), name, type));
         }
@@ -239,7 +249,7 @@ public class WebApp extends App {
             String resourcePath = "/" + ("jsc" + scriptResourceName).replaceAll("^/", "");
             String toResourcePath = resourcePath.replaceAll("jsx$", "js");
             SourceMapType map = SourceMapType.EXTERNAL;
-            JsxResourceHandler handler = new JsxResourceHandler(scriptResourceName, resourcePath, toResourcePath, map);
+            JsxResourceHandler handler = new JsxResourceHandler(scriptResourceName, resourcePath, toResourcePath, map, compiledAssetCache);
             get(toResourcePath, handler);
             if (map == SourceMapType.EXTERNAL) {
                 get(toResourcePath + ".map", handler);
@@ -367,13 +377,45 @@ public class WebApp extends App {
     public void registerLess(final String lessResourceName) {
         String resourcePath = "css" + lessResourceName + ".css";
         if (isDevModeEnabled()) {
-            get("/" + resourcePath, new LessResourceHandler(lessResourceName, isDevModeEnabled()));
+            get("/" + resourcePath, new LessResourceHandler(lessResourceName, isDevModeEnabled(), compiledAssetCache));
             pluginsCssResources.add(resourcePath);
         } else {
             pluginsCssResourceHandler.appendLessResource(lessResourceName);
         }
     }
 
+    /**
+     * Handles requests to the path with any method on the {@link AsyncRouteExecutor} pool instead of a servlet
+     * container thread. Use for routes that can take a long time, like path finding or exports.
+     *
+     * @param timeoutMillis requests running longer are interrupted and get a 503, 0 for no timeout
+     */
+    public void registerAsyncRoute(String path, long timeoutMillis) {
+        registerAsyncRoute(ANY_METHOD, path, timeoutMillis);
+    }
+
+    /**
+     * Handles requests to the path with the given method on the {@link AsyncRouteExecutor} pool.
+     *
+     * @see #registerAsyncRoute(String, long)
+     */
+    public void registerAsyncRoute(String method, String path, long timeoutMillis) {
+        asyncRouteTimeouts.put(getAsyncRouteKey(method, path), timeoutMillis);
+    }
+
+    /**
+     * @return the timeout of the async route registered for the method and path or null if the request is handled
+     * synchronously
+     */
+    public Long getAsyncRouteTimeout(String method, String path) {
+        Long timeout = asyncRouteTimeouts.get(getAsyncRouteKey(method, path));
+        return timeout == null ? asyncRouteTimeouts.get(getAsyncRouteKey(ANY_METHOD, path)) : timeout;
+    }
+
+    private static String getAsyncRouteKey(String method, String path) {
+        return method.toUpperCase() + " " + path;
+    }
+
     public static Locale getLocal(String language, String country, String variant) {
         if (language != null) {
             if (country != null) {
@@ -416,19 +458,31 @@ public class WebApp extends App {
     }
 
     public List<String> getPluginsJsResourcesBeforeAuth() {
-        return pluginsJsResourcesBeforeAuth;
+        return withVersions(pluginsJsResourcesBeforeAuth);
     }
 
     public List<String> getPluginsJsResourcesWebWorker() {
-        return pluginsJsResourcesWebWorker;
+        return withVersions(pluginsJsResourcesWebWorker);
     }
 
     public List<String> getPluginsJsResourcesAfterAuth() {
-        return pluginsJsResourcesAfterAuth;
+        return withVersions(pluginsJsResourcesAfterAuth);
     }
 
     public List<String> getPluginsCssResources() {
-        return pluginsCssResources;
+        return withVersions(pluginsCssResources);
+    }
+
+    /**
+     * Adds the content hash to the paths of compiled resources, those URLs are cached by the browser forever.
+     */
+    private List<String> withVersions(List<String> resourcePaths) {
+        List<String> results = new ArrayList<>(resourcePaths.size());
+        for (String resourcePath : resourcePaths) {
+            Supplier<String> hash = resourceHashes.get(resourcePath);
+            results.add(hash == null ? resourcePath : CompiledResourceWriter.getVersionedPath(resourcePath, hash.get()));
+        }
+        return results;
     }
 
     public boolean isDevModeEnabled() {
@@ -33,9 +33,12 @@ public abstract class SetPropertyBase {
 
     protected void checkRoutePath(String entityType, String propertyName, HttpServletRequest request) {
         boolean isComment = isCommentProperty(propertyName);
-        if (isComment && request.getPathInfo().equals(String.format("/%s/property", entityType))) {
+        String pathInfo = request.getPathInfo();
+        boolean isPropertyPath = pathInfo.equals(String.format("/%s/property", entityType))
+                || pathInfo.equals(String.format("/%s/property/multiple", entityType));
+        if (isComment && isPropertyPath) {
             throw new VisalloException(String.format("Use /%s/comment to save comment properties", entityType));
-        } else if (!isComment && request.getPathInfo().equals(String.format("/%s/comment", entityType))) {
+        } else if (!isComment && pathInfo.equals(String.format("/%s/comment", entityType))) {
             throw new VisalloException(String.format("Use /%s/property to save non-comment properties", entityType));
         }
     }
@@ -5,6 +5,7 @@ import com.google.inject.Singleton;
 import com.v5analytics.webster.ParameterizedHandler;
 import com.v5analytics.webster.annotations.Handle;
 import org.json.JSONObject;
+import org.visallo.web.ETagged;
 import org.visallo.web.parameterProviders.ActiveWorkspaceId;
 
 import java.util.ResourceBundle;
@@ -19,6 +20,7 @@ public class Configuration implements ParameterizedHandler {
     }
 
     @Handle
+    @ETagged
     public JSONObject handle(
             ResourceBundle resourceBundle,
             @ActiveWorkspaceId(required = false) String workspaceId
@@ -12,8 +12,7 @@ import org.vertexium.FetchHint;
 import org.vertexium.Graph;
 import org.visallo.core.model.user.AuthorizationRepository;
 import org.visallo.core.user.User;
-import org.visallo.core.util.ClientApiConverter;
-import org.visallo.web.clientapi.model.ClientApiEdge;
+import org.visallo.core.util.BulkClientApiConverter;
 import org.visallo.web.clientapi.model.ClientApiEdgeMultipleResponse;
 import org.visallo.web.parameterProviders.ActiveWorkspaceId;
 
@@ -23,14 +22,17 @@ import javax.servlet.http.HttpServletRequest;
 public class EdgeMultiple implements ParameterizedHandler {
     private final Graph graph;
     private final AuthorizationRepository authorizationRepository;
+    private final BulkClientApiConverter bulkClientApiConverter;
 
     @Inject
     public EdgeMultiple(
             Graph graph,
-            AuthorizationRepository authorizationRepository
+            AuthorizationRepository authorizationRepository,
+            BulkClientApiConverter bulkClientApiConverter
     ) {
         this.graph = graph;
         this.authorizationRepository = authorizationRepository;
+        this.bulkClientApiConverter = bulkClientApiConverter;
     }
 
     @Handle
@@ -60,10 +62,7 @@ public class EdgeMultiple implements ParameterizedHandler {
         ClientApiEdgeMultipleResponse edgeResult = new ClientApiEdgeMultipleResponse();
 
         Iterable<Edge> edges = graph.getEdges(edgeIds, FetchHint.ALL, authorizations);
-        for (Edge e : edges) {
-            ClientApiEdge clientApiEdge = ClientApiConverter.toClientApiEdge(e, workspaceId);
-            edgeResult.getEdges().add(clientApiEdge);
-        }
+        edgeResult.getEdges().addAll(bulkClientApiConverter.toClientApiEdges(edges, workspaceId));
 
         return edgeResult;
     }
@@ -7,12 +7,21 @@ import org.vertexium.Graph;
 import org.visallo.core.model.search.ElementSearchRunner;
 import org.visallo.core.model.search.VertexiumObjectSearchRunnerBase;
 import org.visallo.core.model.search.SearchRepository;
+import org.visallo.core.util.BulkClientApiConverter;
 import org.visallo.web.routes.vertex.VertexiumObjectSearchBase;
 
 @Singleton
 public class ElementSearch extends VertexiumObjectSearchBase implements ParameterizedHandler {
     @Inject
-    public ElementSearch(Graph graph, SearchRepository searchRepository) {
-        super(graph, (VertexiumObjectSearchRunnerBase) searchRepository.findSearchRunnerByUri(ElementSearchRunner.URI));
+    public ElementSearch(
+            Graph graph,
+            SearchRepository searchRepository,
+            BulkClientApiConverter bulkClientApiConverter
+    ) {
+        super(
+                graph,
+                (VertexiumObjectSearchRunnerBase) searchRepository.findSearchRunnerByUri(ElementSearchRunner.URI),
+                bulkClientApiConverter
+        );
     }
 }
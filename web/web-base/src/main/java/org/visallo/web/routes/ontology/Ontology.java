@@ -5,9 +5,8 @@ import com.google.inject.Singleton;
 import com.v5analytics.webster.ParameterizedHandler;
 import com.v5analytics.webster.annotations.Handle;
 import org.visallo.core.model.ontology.OntologyRepository;
-import org.visallo.web.VisalloResponse;
+import org.visallo.web.ETagged;
 import org.visallo.web.clientapi.model.ClientApiOntology;
-import org.visallo.web.clientapi.util.ObjectMapperFactory;
 import org.visallo.web.parameterProviders.ActiveWorkspaceId;
 
 @Singleton
@@ -20,19 +19,10 @@ public class Ontology implements ParameterizedHandler {
     }
 
     @Handle
+    @ETagged
     public ClientApiOntology handle(
-            @ActiveWorkspaceId String workspaceId,
-            VisalloResponse response
+            @ActiveWorkspaceId String workspaceId
     ) throws Exception {
-        ClientApiOntology result = ontologyRepository.getClientApiObject(workspaceId);
-
-        String json = ObjectMapperFactory.getInstance().writeValueAsString(result);
-
-        String eTag = response.generateETag(json.getBytes());
-        if (!response.testEtagHeaders(eTag)) {
-            response.addETagHeader(eTag);
-        }
-
-        return result;
+        return ontologyRepository.getClientApiObject(workspaceId);
     }
 }
@@ -0,0 +1,65 @@
+package org.visallo.web.routes.search;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class CsvSearchExportWriter extends SearchExportWriter {
+    private static final String MULTI_VALUE_SEPARATOR = "; ";
+
+    public CsvSearchExportWriter(PrintWriter out, List<String> propertyNames) {
+        super(out, propertyNames);
+    }
+
+    @Override
+    public void writeHeader() {
+        List<String> columns = new ArrayList<>();
+        columns.add(COLUMN_ID);
+        columns.add(COLUMN_TYPE);
+        columns.add(COLUMN_TITLE);
+        columns.addAll(getPropertyNames());
+        writeLine(columns);
+    }
+
+    @Override
+    protected void writeRow(String id, String type, String title, Map<String, List<String>> values) {
+        List<String> columns = new ArrayList<>(values.size() + 3);
+        columns.add(id);
+        columns.add(type);
+        columns.add(title);
+        for (List<String> propertyValues : values.values()) {
+            columns.add(String.join(MULTI_VALUE_SEPARATOR, propertyValues));
+        }
+        writeLine(columns);
+    }
+
+    private void writeLine(List<String> columns) {
+        PrintWriter out = getOut();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(escape(columns.get(i)));
+        }
+        out.write("\r\n");
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
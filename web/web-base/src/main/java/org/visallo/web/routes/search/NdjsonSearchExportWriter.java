@@ -0,0 +1,36 @@
+package org.visallo.web.routes.search;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+public class NdjsonSearchExportWriter extends SearchExportWriter {
+    public NdjsonSearchExportWriter(PrintWriter out, List<String> propertyNames) {
+        super(out, propertyNames);
+    }
+
+    @Override
+    public void writeHeader() {
+        // each line is self describing
+    }
+
+    @Override
+    protected void writeRow(String id, String type, String title, Map<String, List<String>> values) {
+        JSONObject json = new JSONObject();
+        json.put(COLUMN_ID, id);
+        json.put(COLUMN_TYPE, type);
+        if (title != null) {
+            json.put(COLUMN_TITLE, title);
+        }
+        JSONObject properties = new JSONObject();
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            properties.put(entry.getKey(), new JSONArray(entry.getValue()));
+        }
+        json.put("properties", properties);
+        getOut().write(json.toString());
+        getOut().write('\n');
+    }
+}
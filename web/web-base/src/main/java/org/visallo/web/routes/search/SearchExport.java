@@ -0,0 +1,126 @@
+package org.visallo.web.routes.search;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.v5analytics.webster.ParameterizedHandler;
+import com.v5analytics.webster.annotations.Handle;
+import com.v5analytics.webster.annotations.Optional;
+import org.vertexium.Authorizations;
+import org.vertexium.VertexiumObject;
+import org.visallo.core.formula.FormulaEvaluator;
+import org.visallo.core.model.search.*;
+import org.visallo.core.user.User;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+import org.visallo.web.BadRequestException;
+import org.visallo.web.VisalloResponse;
+import org.visallo.web.clientapi.model.ClientApiSearch;
+import org.visallo.web.parameterProviders.ActiveWorkspaceId;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Runs a saved or ad-hoc search without paging and streams every hit to the response as NDJSON or CSV.
+ */
+@Singleton
+public class SearchExport implements ParameterizedHandler {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(SearchExport.class);
+    private final SearchRepository searchRepository;
+    private final FormulaEvaluator formulaEvaluator;
+
+    @Inject
+    public SearchExport(SearchRepository searchRepository, FormulaEvaluator formulaEvaluator) {
+        this.searchRepository = searchRepository;
+        this.formulaEvaluator = formulaEvaluator;
+    }
+
+    @Handle
+    public void handle(
+            HttpServletRequest request,
+            @Optional(name = "id") String id,
+            @Optional(name = "url") String url,
+            @Optional(name = "format", defaultValue = SearchExportWriter.FORMAT_NDJSON) String format,
+            @Optional(name = "properties[]") String[] propertyNames,
+            @Optional(name = "includeTitle", defaultValue = "true") boolean includeTitle,
+            @ActiveWorkspaceId String workspaceId,
+            FormulaEvaluator.UserContext userContext,
+            User user,
+            Authorizations authorizations,
+            VisalloResponse response
+    ) throws Exception {
+        if (!SearchExportWriter.isSupportedFormat(format)) {
+            throw new BadRequestException("format", "Unsupported export format: " + format);
+        }
+
+        Map<String, Object> parameters;
+        if (id != null) {
+            ClientApiSearch savedSearch = searchRepository.getSavedSearch(id, user);
+            if (savedSearch == null) {
+                response.respondWithNotFound("Could not find search with id " + id);
+                return;
+            }
+            url = savedSearch.url;
+            parameters = getSavedSearchParameters(savedSearch);
+        } else if (url != null) {
+            parameters = WebSearchOptionsFactory.createParameters(request);
+        } else {
+            throw new BadRequestException("id", "Either a saved search id or a search url is required");
+        }
+
+        SearchRunner searchRunner = searchRepository.findSearchRunnerByUri(url);
+        if (!(searchRunner instanceof VertexiumObjectSearchRunnerBase)) {
+            throw new BadRequestException("url", "Search url does not support export: " + url);
+        }
+
+        // a null size tells the search runner not to limit the results
+        parameters.put("size", null);
+        parameters.put("offset", 0L);
+        SearchOptions searchOptions = new SearchOptions(parameters, workspaceId);
+
+        List<String> properties = propertyNames == null ? Collections.emptyList() : Arrays.asList(propertyNames);
+        HttpServletResponse httpServletResponse = response.getHttpServletResponse();
+        httpServletResponse.setCharacterEncoding("UTF-8");
+        response.setContentType(SearchExportWriter.getContentType(format));
+        response.addHeader("Content-Disposition", "attachment; filename=\"search-export." + format.toLowerCase() + "\"");
+        response.addHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+
+        PrintWriter out = httpServletResponse.getWriter();
+        SearchExportWriter writer = SearchExportWriter.create(format, out, properties);
+        VertexiumObjectSearchRunnerBase vertexiumObjectSearchRunner = (VertexiumObjectSearchRunnerBase) searchRunner;
+        try (QueryResultsIterableSearchResults searchResults = vertexiumObjectSearchRunner.run(searchOptions, user, authorizations)) {
+            writer.writeHeader();
+            for (VertexiumObject vertexiumObject : searchResults.getQueryResultsIterable()) {
+                String title = includeTitle
+                        ? formulaEvaluator.evaluateTitleFormula(vertexiumObject, userContext, authorizations)
+                        : null;
+                writer.write(vertexiumObject, title);
+            }
+            writer.flush();
+        }
+        LOGGER.debug("exported %d rows from %s", writer.getRowCount(), url);
+    }
+
+    private Map<String, Object> getSavedSearchParameters(ClientApiSearch savedSearch) {
+        Map<String, Object> parameters = new HashMap<>();
+        if (savedSearch.parameters != null) {
+            for (Map.Entry<String, Object> entry : savedSearch.parameters.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof List) {
+                    List list = (List) value;
+                    String[] valueArray = new String[list.size()];
+                    for (int i = 0; i < list.size(); i++) {
+                        valueArray[i] = list.get(i) == null ? null : list.get(i).toString();
+                    }
+                    value = valueArray;
+                } else if (value != null) {
+                    value = value.toString();
+                }
+                parameters.put(entry.getKey(), value);
+            }
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,145 @@
+package org.visallo.web.routes.search;
+
+import org.vertexium.*;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.web.ConnectionClosedException;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Writes search results one row at a time so that an export never holds more than a single
+ * row in memory regardless of the size of the result set.
+ */
+public abstract class SearchExportWriter {
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+    protected static final String COLUMN_ID = "id";
+    protected static final String COLUMN_TYPE = "type";
+    protected static final String COLUMN_TITLE = "title";
+    private static final int FLUSH_EVERY_ROWS = 1000;
+    private final PrintWriter out;
+    private final List<String> propertyNames;
+    private final SimpleDateFormat dateFormat;
+    private long rowCount;
+
+    protected SearchExportWriter(PrintWriter out, List<String> propertyNames) {
+        this.out = out;
+        this.propertyNames = propertyNames;
+        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        String lowerCaseFormat = format.toLowerCase();
+        return lowerCaseFormat.equals(FORMAT_NDJSON) || lowerCaseFormat.equals(FORMAT_CSV);
+    }
+
+    public static SearchExportWriter create(String format, PrintWriter out, List<String> propertyNames) {
+        switch (format.toLowerCase()) {
+            case FORMAT_NDJSON:
+                return new NdjsonSearchExportWriter(out, propertyNames);
+            case FORMAT_CSV:
+                return new CsvSearchExportWriter(out, propertyNames);
+            default:
+                throw new VisalloException("Unsupported export format: " + format);
+        }
+    }
+
+    public static String getContentType(String format) {
+        switch (format.toLowerCase()) {
+            case FORMAT_NDJSON:
+                return "application/x-ndjson";
+            case FORMAT_CSV:
+                return "text/csv";
+            default:
+                throw new VisalloException("Unsupported export format: " + format);
+        }
+    }
+
+    public abstract void writeHeader();
+
+    public void write(VertexiumObject vertexiumObject, String title) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (String propertyName : propertyNames) {
+            values.put(propertyName, new ArrayList<>());
+        }
+        for (Property property : getProperties(vertexiumObject)) {
+            List<String> propertyValues = values.get(property.getName());
+            if (propertyValues != null) {
+                String value = valueToString(property.getValue());
+                if (value != null) {
+                    propertyValues.add(value);
+                }
+            }
+        }
+
+        writeRow(getId(vertexiumObject), getType(vertexiumObject), title, values);
+        rowCount++;
+        if (rowCount % FLUSH_EVERY_ROWS == 0) {
+            flush();
+        }
+    }
+
+    protected abstract void writeRow(String id, String type, String title, Map<String, List<String>> values);
+
+    public void flush() {
+        out.flush();
+        if (out.checkError()) {
+            throw new ConnectionClosedException();
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    protected PrintWriter getOut() {
+        return out;
+    }
+
+    protected List<String> getPropertyNames() {
+        return propertyNames;
+    }
+
+    protected String valueToString(Object value) {
+        if (value == null || value instanceof StreamingPropertyValue) {
+            return null;
+        }
+        if (value instanceof Date) {
+            return dateFormat.format((Date) value);
+        }
+        return value.toString();
+    }
+
+    private static Iterable<Property> getProperties(VertexiumObject vertexiumObject) {
+        if (vertexiumObject instanceof Element) {
+            return ((Element) vertexiumObject).getProperties();
+        }
+        if (vertexiumObject instanceof ExtendedDataRow) {
+            return ((ExtendedDataRow) vertexiumObject).getProperties();
+        }
+        throw new VisalloException("Unhandled " + VertexiumObject.class.getName() + ": " + vertexiumObject.getClass().getName());
+    }
+
+    private static String getId(VertexiumObject vertexiumObject) {
+        if (vertexiumObject instanceof ExtendedDataRow) {
+            ExtendedDataRowId rowId = ((ExtendedDataRow) vertexiumObject).getId();
+            return rowId.getElementId() + ":" + rowId.getTableName() + ":" + rowId.getRowId();
+        }
+        return vertexiumObject.getId().toString();
+    }
+
+    private static String getType(VertexiumObject vertexiumObject) {
+        if (vertexiumObject instanceof Vertex) {
+            return "vertex";
+        }
+        if (vertexiumObject instanceof Edge) {
+            return "edge";
+        }
+        return "extendedDataRow";
+    }
+}
@@ -9,10 +9,14 @@ import java.util.Map;
 
 public class WebSearchOptionsFactory {
     public static SearchOptions create(HttpServletRequest request, String workspaceId) {
+        return new SearchOptions(createParameters(request), workspaceId);
+    }
+
+    public static Map<String, Object> createParameters(HttpServletRequest request) {
         Map<String, Object> parameters = new HashMap<>();
         copyRequestAttributesToParameters(request, parameters);
         copyRequestParametersToParameters(request, parameters);
-        return new SearchOptions(parameters, workspaceId);
+        return parameters;
     }
 
     private static void copyRequestParametersToParameters(HttpServletRequest request, Map<String, Object> parameters) {
@@ -6,6 +6,7 @@ import com.v5analytics.webster.ParameterizedHandler;
 import com.v5analytics.webster.annotations.Handle;
 import com.v5analytics.webster.handlers.CSRFHandler;
 import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.model.workspace.Workspace;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
@@ -25,14 +26,17 @@ public class MeGet implements ParameterizedHandler {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(MeGet.class);
     private final UserRepository userRepository;
     private final WorkspaceRepository workspaceRepository;
+    private final WorkQueueRepository workQueueRepository;
 
     @Inject
     public MeGet(
             final UserRepository userRepository,
-            final WorkspaceRepository workspaceRepository
+            final WorkspaceRepository workspaceRepository,
+            final WorkQueueRepository workQueueRepository
     ) {
         this.userRepository = userRepository;
         this.workspaceRepository = workspaceRepository;
+        this.workQueueRepository = workQueueRepository;
     }
 
     @Handle
@@ -74,6 +78,7 @@ public class MeGet implements ParameterizedHandler {
             }
 
             userRepository.setCurrentWorkspace(user.getUserId(), workspace.getWorkspaceId());
+            workQueueRepository.pushUserCurrentWorkspaceChange(user, workspace.getWorkspaceId());
             userMe.setCurrentWorkspaceId(workspace.getWorkspaceId());
             userMe.setCurrentWorkspaceName(workspace.getDisplayTitle());
         }
@@ -15,8 +15,8 @@ import org.visallo.core.model.user.AuthorizationRepository;
 import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
+import org.visallo.core.util.BulkClientApiConverter;
 import org.visallo.core.util.ClientApiConverter;
-import org.visallo.web.clientapi.model.ClientApiVertex;
 import org.visallo.web.clientapi.model.ClientApiVertexMultipleResponse;
 import org.visallo.web.parameterProviders.VisalloBaseParameterProvider;
 
@@ -30,18 +30,21 @@ public class VertexMultiple implements ParameterizedHandler {
     private final UserRepository userRepository;
     private final WorkspaceRepository workspaceRepository;
     private final AuthorizationRepository authorizationRepository;
+    private final BulkClientApiConverter bulkClientApiConverter;
 
     @Inject
     public VertexMultiple(
             Graph graph,
             UserRepository userRepository,
             WorkspaceRepository workspaceRepository,
-            AuthorizationRepository authorizationRepository
+            AuthorizationRepository authorizationRepository,
+            BulkClientApiConverter bulkClientApiConverter
     ) {
         this.graph = graph;
         this.userRepository = userRepository;
         this.workspaceRepository = workspaceRepository;
         this.authorizationRepository = authorizationRepository;
+        this.bulkClientApiConverter = bulkClientApiConverter;
     }
 
     @Handle
@@ -81,16 +84,8 @@ public class VertexMultiple implements ParameterizedHandler {
                 ClientApiConverter.SEARCH_FETCH_HINTS,
                 authorizations
         );
-        
-        for (Vertex v : graphVertices) {
-            ClientApiVertex vertex = ClientApiConverter.toClientApiVertex(
-                    v,
-                    workspaceId,
-                    authorizations
-            );
 
-            result.getVertices().add(vertex);
-        }
+        result.getVertices().addAll(bulkClientApiConverter.toClientApiVertices(graphVertices, workspaceId, authorizations));
 
         return result;
     }
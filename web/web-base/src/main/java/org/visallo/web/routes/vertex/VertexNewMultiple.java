@@ -0,0 +1,185 @@
+package org.visallo.web.routes.vertex;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.v5analytics.webster.ParameterizedHandler;
+import com.v5analytics.webster.annotations.Handle;
+import com.v5analytics.webster.annotations.Optional;
+import com.v5analytics.webster.annotations.Required;
+import org.vertexium.Authorizations;
+import org.vertexium.Graph;
+import org.vertexium.Metadata;
+import org.vertexium.Vertex;
+import org.visallo.core.model.graph.GraphRepository;
+import org.visallo.core.model.graph.VisibilityAndElementMutation;
+import org.visallo.core.model.ontology.OntologyProperty;
+import org.visallo.core.model.ontology.OntologyRepository;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.workQueue.Priority;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
+import org.visallo.core.model.workspace.WorkspaceHelper;
+import org.visallo.core.security.VisibilityTranslator;
+import org.visallo.core.user.User;
+import org.visallo.core.util.VertexiumMetadataUtil;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+import org.visallo.web.clientapi.model.ClientApiAddElementProperties;
+import org.visallo.web.clientapi.model.ClientApiAddVertices;
+import org.visallo.web.clientapi.model.ClientApiAddVerticesResponse;
+import org.visallo.web.parameterProviders.ActiveWorkspaceId;
+import org.visallo.web.parameterProviders.JustificationText;
+import org.visallo.web.util.VisibilityValidator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Creates many vertices and their properties in one request. Behaves like {@link VertexNew} for each vertex
+ * but flushes the graph, updates the workspace and broadcasts once for the whole batch.
+ */
+@Singleton
+public class VertexNewMultiple implements ParameterizedHandler {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(VertexNewMultiple.class);
+
+    private final Graph graph;
+    private final VisibilityTranslator visibilityTranslator;
+    private final WorkQueueRepository workQueueRepository;
+    private final OntologyRepository ontologyRepository;
+    private final GraphRepository graphRepository;
+    private final WorkspaceHelper workspaceHelper;
+
+    @Inject
+    public VertexNewMultiple(
+            Graph graph,
+            VisibilityTranslator visibilityTranslator,
+            WorkQueueRepository workQueueRepository,
+            OntologyRepository ontologyRepository,
+            GraphRepository graphRepository,
+            WorkspaceHelper workspaceHelper
+    ) {
+        this.graph = graph;
+        this.visibilityTranslator = visibilityTranslator;
+        this.workQueueRepository = workQueueRepository;
+        this.ontologyRepository = ontologyRepository;
+        this.graphRepository = graphRepository;
+        this.workspaceHelper = workspaceHelper;
+    }
+
+    @Handle
+    public ClientApiAddVerticesResponse handle(
+            @Required(name = "vertices") ClientApiAddVertices addVertices,
+            @Optional(name = "publish", defaultValue = "false") boolean shouldPublish,
+            @JustificationText String justificationText,
+            @ActiveWorkspaceId(required = false) String workspaceId,
+            ResourceBundle resourceBundle,
+            User user,
+            Authorizations authorizations
+    ) throws Exception {
+        validateVisibilities(addVertices, resourceBundle, user, authorizations);
+
+        workspaceId = workspaceHelper.getWorkspaceIdOrNullIfPublish(workspaceId, shouldPublish, user);
+
+        List<Vertex> vertices = new ArrayList<>(addVertices.vertices.size());
+        for (ClientApiAddVertices.Vertex addVertex : addVertices.vertices) {
+            Vertex vertex = graphRepository.addVertex(
+                    addVertex.vertexId,
+                    addVertex.conceptType,
+                    addVertex.visibilitySource,
+                    workspaceId,
+                    justificationText,
+                    null,
+                    user,
+                    authorizations
+            );
+            for (ClientApiAddElementProperties.Property property : addVertex.properties) {
+                OntologyProperty ontologyProperty = ontologyRepository.getPropertyByIRI(property.propertyName, workspaceId);
+                checkNotNull(ontologyProperty, "Could not find ontology property '" + property.propertyName + "'");
+                Object value = ontologyProperty.convertString(property.value);
+                Metadata metadata = VertexiumMetadataUtil.metadataStringToMap(
+                        property.metadataString,
+                        visibilityTranslator.getDefaultVisibility()
+                );
+                VisibilityAndElementMutation<Vertex> setPropertyResult = graphRepository.setProperty(
+                        vertex,
+                        property.propertyName,
+                        property.propertyKey,
+                        value,
+                        metadata,
+                        null,
+                        property.visibilitySource,
+                        workspaceId,
+                        justificationText,
+                        null,
+                        user,
+                        authorizations
+                );
+                setPropertyResult.elementMutation.save(authorizations);
+            }
+            vertices.add(vertex);
+        }
+        graph.flush();
+
+        LOGGER.debug("Created %d new vertices", vertices.size());
+
+        ClientApiAddVerticesResponse response = new ClientApiAddVerticesResponse();
+        for (Vertex vertex : vertices) {
+            response.getVertexIds().add(vertex.getId());
+        }
+
+        if (workspaceId != null && vertices.size() > 0) {
+            workspaceHelper.updateEntitiesOnWorkspace(workspaceId, response.getVertexIds(), user);
+        }
+
+        for (int i = 0; i < vertices.size(); i++) {
+            Vertex vertex = vertices.get(i);
+            ClientApiAddVertices.Vertex addVertex = addVertices.vertices.get(i);
+            workQueueRepository.broadcastElement(vertex, workspaceId);
+            workQueueRepository.pushGraphPropertyQueue(
+                    vertex,
+                    null,
+                    VisalloProperties.CONCEPT_TYPE.getPropertyName(),
+                    workspaceId,
+                    addVertex.visibilitySource,
+                    Priority.NORMAL
+            );
+            for (ClientApiAddElementProperties.Property property : addVertex.properties) {
+                workQueueRepository.pushGraphPropertyQueue(
+                        vertex,
+                        property.propertyKey,
+                        property.propertyName,
+                        workspaceId,
+                        property.visibilitySource,
+                        Priority.NORMAL
+                );
+            }
+        }
+
+        return response;
+    }
+
+    private void validateVisibilities(
+            ClientApiAddVertices addVertices,
+            ResourceBundle resourceBundle,
+            User user,
+            Authorizations authorizations
+    ) {
+        // validate everything up front so an invalid visibility doesn't leave half of the batch created
+        Set<String> visibilitySources = new HashSet<>();
+        for (ClientApiAddVertices.Vertex addVertex : addVertices.vertices) {
+            visibilitySources.add(addVertex.visibilitySource);
+            for (ClientApiAddElementProperties.Property property : addVertex.properties) {
+                if (property.visibilitySource != null) {
+                    visibilitySources.add(property.visibilitySource);
+                }
+            }
+        }
+        for (String visibilitySource : visibilitySources) {
+            VisibilityValidator.validate(graph, visibilityTranslator, resourceBundle, visibilitySource, user, authorizations);
+        }
+    }
+}
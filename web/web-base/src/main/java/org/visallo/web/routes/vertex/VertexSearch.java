@@ -7,11 +7,20 @@ import org.vertexium.Graph;
 import org.visallo.core.model.search.VertexiumObjectSearchRunnerBase;
 import org.visallo.core.model.search.SearchRepository;
 import org.visallo.core.model.search.VertexSearchRunner;
+import org.visallo.core.util.BulkClientApiConverter;
 
 @Singleton
 public class VertexSearch extends VertexiumObjectSearchBase implements ParameterizedHandler {
     @Inject
-    public VertexSearch(Graph graph, SearchRepository searchRepository) {
-        super(graph, (VertexiumObjectSearchRunnerBase) searchRepository.findSearchRunnerByUri(VertexSearchRunner.URI));
+    public VertexSearch(
+            Graph graph,
+            SearchRepository searchRepository,
+            BulkClientApiConverter bulkClientApiConverter
+    ) {
+        super(
+                graph,
+                (VertexiumObjectSearchRunnerBase) searchRepository.findSearchRunnerByUri(VertexSearchRunner.URI),
+                bulkClientApiConverter
+        );
     }
 }
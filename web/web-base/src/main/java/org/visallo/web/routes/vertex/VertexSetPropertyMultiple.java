@@ -0,0 +1,164 @@
+package org.visallo.web.routes.vertex;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.v5analytics.webster.ParameterizedHandler;
+import com.v5analytics.webster.annotations.Handle;
+import com.v5analytics.webster.annotations.Required;
+import org.vertexium.Authorizations;
+import org.vertexium.Graph;
+import org.vertexium.Metadata;
+import org.vertexium.Vertex;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.exception.VisalloResourceNotFoundException;
+import org.visallo.core.model.graph.GraphRepository;
+import org.visallo.core.model.graph.VisibilityAndElementMutation;
+import org.visallo.core.model.ontology.OntologyProperty;
+import org.visallo.core.model.ontology.OntologyRepository;
+import org.visallo.core.model.workQueue.Priority;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
+import org.visallo.core.model.workspace.WorkspaceRepository;
+import org.visallo.core.security.ACLProvider;
+import org.visallo.core.security.VisibilityTranslator;
+import org.visallo.core.user.User;
+import org.visallo.core.util.VertexiumMetadataUtil;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+import org.visallo.web.clientapi.model.ClientApiSetVertexProperties;
+import org.visallo.web.clientapi.model.ClientApiSuccess;
+import org.visallo.web.parameterProviders.ActiveWorkspaceId;
+import org.visallo.web.parameterProviders.JustificationText;
+import org.visallo.web.routes.SetPropertyBase;
+import org.visallo.web.util.VisibilityValidator;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+
+/**
+ * Sets many properties, possibly on many vertices, in one request. Behaves like {@link VertexSetProperty} for
+ * each property but loads the vertices, flushes the graph and updates the workspace once for the whole batch.
+ * Comments and properties with dependent properties are not supported, use /vertex/comment and /vertex/property.
+ */
+@Singleton
+public class VertexSetPropertyMultiple extends SetPropertyBase implements ParameterizedHandler {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(VertexSetPropertyMultiple.class);
+
+    private final OntologyRepository ontologyRepository;
+    private final WorkspaceRepository workspaceRepository;
+    private final WorkQueueRepository workQueueRepository;
+    private final GraphRepository graphRepository;
+    private final ACLProvider aclProvider;
+
+    @Inject
+    public VertexSetPropertyMultiple(
+            OntologyRepository ontologyRepository,
+            Graph graph,
+            VisibilityTranslator visibilityTranslator,
+            WorkspaceRepository workspaceRepository,
+            WorkQueueRepository workQueueRepository,
+            GraphRepository graphRepository,
+            ACLProvider aclProvider
+    ) {
+        super(graph, visibilityTranslator);
+        this.ontologyRepository = ontologyRepository;
+        this.workspaceRepository = workspaceRepository;
+        this.workQueueRepository = workQueueRepository;
+        this.graphRepository = graphRepository;
+        this.aclProvider = aclProvider;
+    }
+
+    @Handle
+    public ClientApiSuccess handle(
+            @Required(name = "properties") ClientApiSetVertexProperties setProperties,
+            @JustificationText String justificationText,
+            @ActiveWorkspaceId String workspaceId,
+            HttpServletRequest request,
+            ResourceBundle resourceBundle,
+            User user,
+            Authorizations authorizations
+    ) throws Exception {
+        Set<String> visibilitySources = new HashSet<>();
+        Set<String> vertexIds = new LinkedHashSet<>();
+        List<Object> values = new ArrayList<>(setProperties.properties.size());
+        for (ClientApiSetVertexProperties.Property property : setProperties.properties) {
+            if (property.graphVertexId == null || property.propertyName == null || property.value == null) {
+                throw new VisalloException("graphVertexId, propertyName and value are required for every property");
+            }
+            checkRoutePath("vertex", property.propertyName, request);
+            OntologyProperty ontologyProperty = ontologyRepository.getRequiredPropertyByIRI(property.propertyName, workspaceId);
+            if (ontologyProperty.hasDependentPropertyIris()) {
+                throw new VisalloException("Use /vertex/property to save properties with dependent properties: " + property.propertyName);
+            }
+            try {
+                values.add(ontologyProperty.convertString(property.value));
+            } catch (Exception ex) {
+                LOGGER.warn("Validation error propertyName: %s, value: %s", property.propertyName, property.value, ex);
+                throw new VisalloException(ex.getMessage(), ex);
+            }
+            visibilitySources.add(property.visibilitySource);
+            vertexIds.add(property.graphVertexId);
+        }
+        for (String visibilitySource : visibilitySources) {
+            VisibilityValidator.validate(graph, visibilityTranslator, resourceBundle, visibilitySource, user, authorizations);
+        }
+
+        Map<String, Vertex> verticesById = new HashMap<>();
+        for (Vertex vertex : graph.getVertices(vertexIds, authorizations)) {
+            verticesById.put(vertex.getId(), vertex);
+        }
+        for (String vertexId : vertexIds) {
+            if (!verticesById.containsKey(vertexId)) {
+                throw new VisalloResourceNotFoundException("Could not find vertex: " + vertexId, vertexId);
+            }
+        }
+
+        List<String> propertyKeys = new ArrayList<>(setProperties.properties.size());
+        for (int i = 0; i < setProperties.properties.size(); i++) {
+            ClientApiSetVertexProperties.Property property = setProperties.properties.get(i);
+            Vertex vertex = verticesById.get(property.graphVertexId);
+            String propertyKey = property.propertyKey == null ? createPropertyKey(property.propertyName, graph) : property.propertyKey;
+            aclProvider.checkCanAddOrUpdateProperty(vertex, propertyKey, property.propertyName, user, workspaceId);
+
+            Metadata metadata = VertexiumMetadataUtil.metadataStringToMap(
+                    property.metadataString,
+                    visibilityTranslator.getDefaultVisibility()
+            );
+            VisibilityAndElementMutation<Vertex> setPropertyResult = graphRepository.setProperty(
+                    vertex,
+                    property.propertyName,
+                    propertyKey,
+                    values.get(i),
+                    metadata,
+                    null,
+                    property.visibilitySource,
+                    workspaceId,
+                    justificationText,
+                    null,
+                    user,
+                    authorizations
+            );
+            setPropertyResult.elementMutation.save(authorizations);
+            propertyKeys.add(propertyKey);
+        }
+        graph.flush();
+
+        LOGGER.debug("Set %d properties on %d vertices", setProperties.properties.size(), vertexIds.size());
+
+        // add the vertices to the workspace so that the changes show up in the diff panel
+        workspaceRepository.updateEntitiesOnWorkspace(workspaceRepository.findById(workspaceId, user), vertexIds, user);
+
+        for (int i = 0; i < setProperties.properties.size(); i++) {
+            ClientApiSetVertexProperties.Property property = setProperties.properties.get(i);
+            workQueueRepository.pushGraphPropertyQueue(
+                    verticesById.get(property.graphVertexId),
+                    propertyKeys.get(i),
+                    property.propertyName,
+                    workspaceId,
+                    property.visibilitySource,
+                    Priority.NORMAL
+            );
+        }
+
+        return new ClientApiSuccess();
+    }
+}
@@ -6,37 +6,61 @@ import com.v5analytics.webster.ParameterizedHandler;
 import com.v5analytics.webster.annotations.Handle;
 import com.v5analytics.webster.annotations.Optional;
 import com.v5analytics.webster.annotations.Required;
+import org.apache.commons.io.IOUtils;
 import org.vertexium.Authorizations;
 import org.vertexium.Graph;
 import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.model.artifactThumbnails.ArtifactThumbnail;
 import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
 import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.user.User;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.VisalloResponse;
 
+import javax.imageio.ImageIO;
+import javax.servlet.http.HttpServletResponse;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Singleton
 public class VertexThumbnail implements ParameterizedHandler {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(VertexThumbnail.class);
+    public static final String CONFIG_INLINE_WAIT_MILLIS = VertexThumbnail.class.getName() + ".inlineWaitMillis";
+    public static final long CONFIG_INLINE_WAIT_MILLIS_DEFAULT = 1000;
+    private static final byte[] PLACEHOLDER_DATA = createPlaceholder();
+
+    private static final String RETRY_AFTER_SECONDS = "2";
 
     private final ArtifactThumbnailRepository artifactThumbnailRepository;
     private final Graph graph;
+    private final WorkQueueRepository workQueueRepository;
+    private final long inlineWaitMillis;
 
     @Inject
     public VertexThumbnail(
             final ArtifactThumbnailRepository artifactThumbnailRepository,
-            final Graph graph
+            final Graph graph,
+            final WorkQueueRepository workQueueRepository,
+            final Configuration configuration
     ) {
         this.artifactThumbnailRepository = artifactThumbnailRepository;
         this.graph = graph;
+        this.workQueueRepository = workQueueRepository;
+        this.inlineWaitMillis = configuration.getLong(CONFIG_INLINE_WAIT_MILLIS, CONFIG_INLINE_WAIT_MILLIS_DEFAULT);
     }
 
     @Handle
@@ -57,22 +81,11 @@ public class VertexThumbnail implements ParameterizedHandler {
             boundaryDims[0] = boundaryDims[1] = width;
         }
 
-        byte[] thumbnailData;
         ArtifactThumbnail thumbnail = artifactThumbnailRepository.getThumbnail(artifactVertex.getId(), "raw", boundaryDims[0], boundaryDims[1], user);
-        if (thumbnail != null) {
-            String format = thumbnail.getFormat();
-            response.setContentType("image/" + format);
-            response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
-            response.setMaxAge(VisalloResponse.EXPIRES_1_HOUR);
-
-            thumbnailData = thumbnail.getData();
-            if (thumbnailData != null) {
-                LOGGER.debug("Cache hit for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
-                try (OutputStream out = response.getOutputStream()) {
-                    out.write(thumbnailData);
-                }
-                return;
-            }
+        if (thumbnail != null && thumbnail.getData() != null) {
+            LOGGER.debug("Cache hit for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
+            writeThumbnail(thumbnail, boundaryDims, response);
+            return;
         }
 
         LOGGER.info("Cache miss for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
@@ -82,18 +95,70 @@ public class VertexThumbnail implements ParameterizedHandler {
             throw new VisalloResourceNotFoundException("Could not find raw property on vertex: " + artifactVertex.getId());
         }
 
-        try (InputStream in = rawPropertyValue.getInputStream()) {
-            thumbnail = artifactThumbnailRepository.createThumbnail(artifactVertex, rawProperty.getKey(), "raw", in, boundaryDims, user);
+        CompletableFuture<ArtifactThumbnail> createdThumbnail = artifactThumbnailRepository.createThumbnailInBackground(
+                artifactVertex,
+                rawProperty.getKey(),
+                "raw",
+                rawPropertyValue,
+                boundaryDims,
+                user
+        );
+        try {
+            thumbnail = createdThumbnail.get(inlineWaitMillis, TimeUnit.MILLISECONDS);
+            writeThumbnail(thumbnail, boundaryDims, response);
+            return;
+        } catch (TimeoutException ex) {
+            LOGGER.debug("Thumbnail not created within %dms: %s (raw) %d x %d", inlineWaitMillis, artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
+        } catch (ExecutionException ex) {
+            LOGGER.warn("Could not create thumbnail for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1], ex.getCause());
+        }
 
-            String format = thumbnail.getFormat();
-            response.setContentType("image/" + format);
-            response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
-            response.setMaxAge(VisalloResponse.EXPIRES_1_HOUR);
+        // respond without waiting any longer with a response the browser won't cache. 202 and Retry-After tell api
+        // clients to ask again, the web client is told over the websocket once the thumbnail is ready
+        createdThumbnail.thenAccept(t -> workQueueRepository.broadcastThumbnailChange(
+                artifactVertex.getId(),
+                "raw",
+                boundaryDims[0],
+                boundaryDims[1],
+                user
+        ));
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
 
-            thumbnailData = thumbnail.getData();
+        // browsers scale the original image themselves, so only images they can't show get a blank placeholder
+        String mimeType = VisalloProperties.MIME_TYPE.getOnlyPropertyValue(artifactVertex);
+        if (mimeType != null && mimeType.startsWith("image/")) {
+            response.setContentType(mimeType);
+            try (InputStream in = rawPropertyValue.getInputStream(); OutputStream out = response.getOutputStream()) {
+                IOUtils.copy(in, out);
+            }
+        } else {
+            response.setContentType("image/png");
+            try (OutputStream out = response.getOutputStream()) {
+                out.write(PLACEHOLDER_DATA);
+            }
         }
+    }
+
+    private void writeThumbnail(ArtifactThumbnail thumbnail, int[] boundaryDims, VisalloResponse response) throws IOException {
+        String format = thumbnail.getFormat();
+        response.setContentType("image/" + format);
+        response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
+        response.setMaxAge(VisalloResponse.EXPIRES_1_HOUR);
         try (OutputStream out = response.getOutputStream()) {
-            out.write(thumbnailData);
+            out.write(thumbnail.getData());
+        }
+    }
+
+    private static byte[] createPlaceholder() {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new VisalloException("Could not create placeholder thumbnail", e);
         }
+        return out.toByteArray();
     }
 }
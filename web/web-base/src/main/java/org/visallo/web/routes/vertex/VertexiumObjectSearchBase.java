@@ -8,6 +8,7 @@ import org.visallo.core.model.search.QueryResultsIterableSearchResults;
 import org.visallo.core.model.search.SearchOptions;
 import org.visallo.core.model.search.VertexiumObjectSearchRunnerBase;
 import org.visallo.core.user.User;
+import org.visallo.core.util.BulkClientApiConverter;
 import org.visallo.core.util.ClientApiConverter;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
@@ -32,14 +33,17 @@ public abstract class VertexiumObjectSearchBase {
     private static final Pattern DATE_TIME_PATTERN = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}T.*");
     private final VertexiumObjectSearchRunnerBase searchRunner;
     private final Graph graph;
+    private final BulkClientApiConverter bulkClientApiConverter;
 
     public VertexiumObjectSearchBase(
             Graph graph,
-            VertexiumObjectSearchRunnerBase searchRunner
+            VertexiumObjectSearchRunnerBase searchRunner,
+            BulkClientApiConverter bulkClientApiConverter
     ) {
         checkNotNull(searchRunner, "searchRunner is required");
         this.searchRunner = searchRunner;
         this.graph = graph;
+        this.bulkClientApiConverter = bulkClientApiConverter;
     }
 
     @Handle
@@ -102,20 +106,18 @@ public abstract class VertexiumObjectSearchBase {
             }
         }
 
-        List<ClientApiVertexiumObject> results = new ArrayList<>();
+        List<VertexiumObject> elements = new ArrayList<>();
         if (vertexIds.size() > 0) {
-            Iterable<Vertex> vertices = graph.getVertices(vertexIds, ClientApiConverter.SEARCH_FETCH_HINTS, authorizations);
-            for (Vertex vertex : vertices) {
-                results.add(ClientApiConverter.toClientApiVertex(vertex, workspaceId, authorizations));
+            for (Vertex vertex : graph.getVertices(vertexIds, ClientApiConverter.SEARCH_FETCH_HINTS, authorizations)) {
+                elements.add(vertex);
             }
         }
         if (edgeIds.size() > 0) {
-            Iterable<Edge> edges = graph.getEdges(edgeIds, ClientApiConverter.SEARCH_FETCH_HINTS, authorizations);
-            for (Edge edge : edges) {
-                results.add(ClientApiConverter.toClientApiEdge(edge, workspaceId));
+            for (Edge edge : graph.getEdges(edgeIds, ClientApiConverter.SEARCH_FETCH_HINTS, authorizations)) {
+                elements.add(edge);
             }
         }
-        return results;
+        return bulkClientApiConverter.toClientApi(elements, workspaceId, authorizations);
     }
 
     private void addSearchResultsDataToResults(
@@ -254,27 +256,20 @@ public abstract class VertexiumObjectSearchBase {
             String workspaceId,
             Authorizations authorizations
     ) {
-        List<ClientApiVertexiumObject> results = new ArrayList<>();
-        for (VertexiumObject vertexiumObject : searchResults) {
+        ClientApiConverter.ConversionContext context = new ClientApiConverter.ConversionContext(workspaceId, false, authorizations);
+        return bulkClientApiConverter.convert(searchResults, (vertexiumObject, index) -> {
             Integer commonCount = getCommonCount(queryAndData, vertexiumObject);
-            ClientApiVertexiumObject vo;
-            if (vertexiumObject instanceof Vertex) {
-                vo = ClientApiConverter.toClientApiVertex((Vertex) vertexiumObject, workspaceId, commonCount, authorizations);
-            } else if (vertexiumObject instanceof Edge) {
-                vo = ClientApiConverter.toClientApiEdge((Edge) vertexiumObject, workspaceId);
-            } else if (vertexiumObject instanceof ExtendedDataRow) {
-                vo = ClientApiConverter.toClientApiExtendedDataRow((ExtendedDataRow) vertexiumObject, workspaceId);
-            } else {
-                throw new VisalloException("Unhandled " + VertexiumObject.class.getName() + ": " + vertexiumObject.getClass().getName());
-            }
+            ClientApiVertexiumObject vo = ClientApiConverter.toClientApi(context, vertexiumObject, commonCount);
             if (scores != null) {
                 vo.setScore(scores.get(vertexiumObject.getId()));
             }
-            results.add(vo);
-        }
-        return results;
+            return vo;
+        });
     }
 
+    /**
+     * Called concurrently for the results of a search, implementations must be thread safe.
+     */
     protected Integer getCommonCount(VertexiumObjectSearchRunnerBase.QueryAndData queryAndData, VertexiumObject vertexiumObject) {
         return null;
     }
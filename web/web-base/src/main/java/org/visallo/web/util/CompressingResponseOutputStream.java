@@ -0,0 +1,153 @@
+package org.visallo.web.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a response body, buffering up to a threshold. Bodies that stay under the threshold are written
+ * uncompressed with a Content-Length, larger bodies are compressed with the encoding negotiated from the
+ * request's Accept-Encoding header and streamed to the client.
+ */
+public class CompressingResponseOutputStream extends OutputStream {
+    public static final String ENCODING_GZIP = "gzip";
+    public static final String ENCODING_DEFLATE = "deflate";
+    private static final int COMPRESSION_BUFFER_SIZE = 8192;
+    private final HttpServletResponse response;
+    private final String encoding;
+    private final int threshold;
+    private ByteArrayOutputStream buffer;
+    private OutputStream out;
+    private boolean closed;
+
+    public CompressingResponseOutputStream(HttpServletRequest request, HttpServletResponse response, int threshold) {
+        this.response = response;
+        this.encoding = getAcceptedEncoding(request.getHeader("Accept-Encoding"));
+        this.threshold = threshold;
+        this.buffer = new ByteArrayOutputStream(Math.max(threshold, 32));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (out == null && buffer.size() + 1 > threshold) {
+            startStreaming();
+        }
+        if (out == null) {
+            buffer.write(b);
+        } else {
+            out.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out == null && buffer.size() + len > threshold) {
+            startStreaming();
+        }
+        if (out == null) {
+            buffer.write(b, off, len);
+        } else {
+            out.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // flushing a partially filled buffer would defeat the threshold, only flush once streaming
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (out == null) {
+            response.setContentLength(buffer.size());
+            buffer.writeTo(response.getOutputStream());
+            buffer = null;
+        } else {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the content encoding applied to the response or null if the body was written uncompressed
+     */
+    public String getAppliedEncoding() {
+        return out == null ? null : encoding;
+    }
+
+    private void startStreaming() throws IOException {
+        OutputStream responseOutputStream = response.getOutputStream();
+        if (encoding == null) {
+            out = responseOutputStream;
+        } else {
+            response.setHeader("Content-Encoding", encoding);
+            response.addHeader("Vary", "Accept-Encoding");
+            if (ENCODING_GZIP.equals(encoding)) {
+                out = new GZIPOutputStream(responseOutputStream, COMPRESSION_BUFFER_SIZE);
+            } else {
+                out = new DeflaterOutputStream(responseOutputStream, new Deflater(), COMPRESSION_BUFFER_SIZE);
+            }
+        }
+        buffer.writeTo(out);
+        buffer = null;
+    }
+
+    /**
+     * @return gzip or deflate if the client accepts them (in that order of preference), null otherwise
+     */
+    public static String getAcceptedEncoding(String acceptEncodingHeader) {
+        if (acceptEncodingHeader == null) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        boolean wildcard = false;
+        boolean gzipRefused = false;
+        for (String part : acceptEncodingHeader.split(",")) {
+            String[] codingAndParams = part.trim().split(";");
+            String coding = codingAndParams[0].trim().toLowerCase();
+            boolean refused = isZeroQuality(codingAndParams);
+            if (ENCODING_GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                gzip = !refused;
+                gzipRefused = refused;
+            } else if (ENCODING_DEFLATE.equals(coding)) {
+                deflate = !refused;
+            } else if ("*".equals(coding)) {
+                wildcard = !refused;
+            }
+        }
+        gzip = gzip || (wildcard && !gzipRefused);
+        if (gzip) {
+            return ENCODING_GZIP;
+        }
+        if (deflate) {
+            return ENCODING_DEFLATE;
+        }
+        return null;
+    }
+
+    private static boolean isZeroQuality(String[] codingAndParams) {
+        for (int i = 1; i < codingAndParams.length; i++) {
+            String param = codingAndParams[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring("q=".length()).trim()) <= 0.0;
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
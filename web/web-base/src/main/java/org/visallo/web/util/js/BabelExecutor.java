@@ -1,5 +1,6 @@
 package org.visallo.web.util.js;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.util.VisalloLogger;
@@ -7,6 +8,7 @@ import org.visallo.core.util.VisalloLoggerFactory;
 
 import javax.script.*;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
@@ -19,6 +21,7 @@ public class BabelExecutor {
     private Bindings bindings;
     private Future babelFuture;
     private ExecutorService executorService;
+    private String compilerVersion;
 
     public BabelExecutor() {
         this.executorService = Executors.newSingleThreadExecutor(new ThreadFactory() {
@@ -29,17 +32,55 @@ public class BabelExecutor {
                 return thread;
             }
         });
-        this.babelFuture = this.executorService.submit(() -> initializeBabel());
     }
 
     public <T> Future<T> submit(Callable<T> task) {
+        Future babelFuture = getBabelFuture();
         return this.executorService.submit(() -> {
-            this.babelFuture.get();
+            babelFuture.get();
             return task.call();
         });
     }
 
-    public synchronized void compileWithSharedEngine(CachedCompilation cachedCompilation, SourceMapType sourceMapType) throws ScriptException {
+    /**
+     * Babel takes a while to initialize so it is only initialized once something needs to be compiled, when
+     * every resource is found in the {@link CompiledAssetCache} it is never initialized.
+     */
+    private synchronized Future getBabelFuture() {
+        if (babelFuture == null) {
+            babelFuture = this.executorService.submit(() -> initializeBabel());
+        }
+        return babelFuture;
+    }
+
+    /**
+     * @return a hash of the babel scripts, changes when babel or its configuration is upgraded
+     */
+    public synchronized String getCompilerVersion() {
+        if (compilerVersion == null) {
+            try (InputStream babel = getClass().getResourceAsStream("babel.js");
+                 InputStream transform = getClass().getResourceAsStream("babel-transform.js")) {
+                compilerVersion = "babel:" + DigestUtils.md5Hex(babel) + ":" + DigestUtils.md5Hex(transform);
+            } catch (IOException e) {
+                throw new VisalloException("Unable to read babel", e);
+            }
+        }
+        return compilerVersion;
+    }
+
+    public void compileWithSharedEngine(CachedCompilation cachedCompilation, SourceMapType sourceMapType) throws ScriptException {
+        try {
+            getBabelFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted waiting for babel to initialize", e);
+        } catch (ExecutionException e) {
+            throw new VisalloException("Unable to initialize babel transpiler", e.getCause());
+        }
+        compile(cachedCompilation, sourceMapType);
+    }
+
+    private synchronized void compile(CachedCompilation cachedCompilation, SourceMapType sourceMapType) throws ScriptException {
         ScriptEngine engine = this.engine;
         Bindings bindings = this.bindings;
 
@@ -1,12 +1,21 @@
 package org.visallo.web.util.js;
 
+import org.visallo.core.exception.VisalloException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
 public class CachedCompilation {
+    private String hash;
     private String sourceMap;
     private String path;
     private String resourcePath;
     private String input;
     private String output;
     private Long lastModified;
+    private byte[] outputGzip;
 
     public String getResourcePath() {
         return resourcePath;
@@ -44,8 +53,35 @@ public class CachedCompilation {
         return output;
     }
 
-    public void setOutput(String output) {
+    public synchronized void setOutput(String output) {
         this.output = output;
+        this.outputGzip = null;
+    }
+
+    /**
+     * Hash of the source content and compiler version this output was compiled from, used for the hashed
+     * URL and ETag of the compiled resource.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * @return the gzip compressed output, compressed once on first use
+     */
+    public synchronized byte[] getOutputGzip() {
+        if (outputGzip == null && output != null) {
+            outputGzip = gzip(output);
+        }
+        return outputGzip;
+    }
+
+    public synchronized void setOutputGzip(byte[] outputGzip) {
+        this.outputGzip = outputGzip;
     }
 
     public Long getLastModified() {
@@ -61,4 +97,14 @@ public class CachedCompilation {
                 getLastModified() != lastModified ||
                 getOutput() == null;
     }
-}
\ No newline at end of file
+
+    public static byte[] gzip(String value) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new VisalloException("Could not gzip compiled output", e);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,277 @@
+package org.visallo.web.util.js;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps compiled web resources (babel, closure compiler and less output) on disk so a restart doesn't have to
+ * compile them again. Entries are keyed by a hash of the compiler version, the compiler options and the source
+ * content, so a changed source or an upgraded compiler simply misses the cache. A gzip variant is stored next
+ * to each entry so it can be served without compressing it again.
+ * <p>
+ * Cached output is served to browsers as is, so the cache is only used when a directory is configured, and only if
+ * that directory is owned by the user running the server and not accessible to other users. Each entry stores a
+ * digest of its files which is checked on read. Entries are touched when read, entries not used for
+ * web.assetCache.maxAgeDays, such as those of changed sources or an older compiler, are removed on startup.
+ */
+@Singleton
+public class CompiledAssetCache {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(CompiledAssetCache.class);
+    public static final String WEB_ASSET_CACHE_ENABLED = "web.assetCache.enabled";
+    public static final boolean WEB_ASSET_CACHE_ENABLED_DEFAULT = true;
+    public static final String WEB_ASSET_CACHE_DIR = "web.assetCache.dir";
+    public static final String WEB_ASSET_CACHE_MAX_AGE_DAYS = "web.assetCache.maxAgeDays";
+    public static final int WEB_ASSET_CACHE_MAX_AGE_DAYS_DEFAULT = 30;
+    private static final String OUTPUT_EXTENSION = ".out";
+    private static final String OUTPUT_GZIP_EXTENSION = ".out.gz";
+    private static final String SOURCE_MAP_EXTENSION = ".map";
+    private static final String DIGEST_EXTENSION = ".sha256";
+    private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OTHER_USER_PERMISSIONS = EnumSet.of(
+            PosixFilePermission.GROUP_READ,
+            PosixFilePermission.GROUP_WRITE,
+            PosixFilePermission.GROUP_EXECUTE,
+            PosixFilePermission.OTHERS_READ,
+            PosixFilePermission.OTHERS_WRITE,
+            PosixFilePermission.OTHERS_EXECUTE
+    );
+    private final File directory;
+
+    @Inject
+    public CompiledAssetCache(Configuration configuration) {
+        this(
+                getDirectory(configuration),
+                configuration.getInt(WEB_ASSET_CACHE_MAX_AGE_DAYS, WEB_ASSET_CACHE_MAX_AGE_DAYS_DEFAULT)
+        );
+    }
+
+    @VisibleForTesting
+    public CompiledAssetCache(File directory) {
+        this(directory, WEB_ASSET_CACHE_MAX_AGE_DAYS_DEFAULT);
+    }
+
+    @VisibleForTesting
+    public CompiledAssetCache(File directory, int maxAgeDays) {
+        this.directory = directory == null || !createPrivateDirectory(directory) ? null : directory;
+        if (this.directory != null) {
+            LOGGER.info("caching compiled web resources in: %s", directory.getAbsolutePath());
+            prune(TimeUnit.DAYS.toMillis(maxAgeDays));
+        }
+    }
+
+    private static File getDirectory(Configuration configuration) {
+        if (!configuration.getBoolean(WEB_ASSET_CACHE_ENABLED, WEB_ASSET_CACHE_ENABLED_DEFAULT)) {
+            return null;
+        }
+        String dir = configuration.get(WEB_ASSET_CACHE_DIR, null);
+        if (dir == null) {
+            LOGGER.info("%s is not set, compiled web resources are not cached", WEB_ASSET_CACHE_DIR);
+            return null;
+        }
+        return new File(dir);
+    }
+
+    /**
+     * @return false if the directory could be written by other users, in which case the cache is disabled
+     */
+    private static boolean createPrivateDirectory(File directory) {
+        Path path = directory.toPath();
+        try {
+            boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+            if (!Files.exists(path)) {
+                if (posix) {
+                    Files.createDirectories(path, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+                } else {
+                    Files.createDirectories(path);
+                }
+            }
+            String owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS).getName();
+            if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) || !owner.equals(System.getProperty("user.name"))) {
+                LOGGER.warn("Compiled web resources are not cached, %s is not a directory owned by %s", path, System.getProperty("user.name"));
+                return false;
+            }
+            if (posix) {
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+                if (permissions.removeAll(OTHER_USER_PERMISSIONS)) {
+                    LOGGER.info("removing group and other permissions of: %s", path);
+                    Files.setPosixFilePermissions(path, permissions);
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            LOGGER.warn("Compiled web resources are not cached, could not create directory: %s", path, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Removes the entries not read or written for maxAgeMillis, along with temp files left behind.
+     */
+    @VisibleForTesting
+    void prune(long maxAgeMillis) {
+        long minLastModified = System.currentTimeMillis() - maxAgeMillis;
+        int count = 0;
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : paths) {
+                if (Files.getLastModifiedTime(path).toMillis() < minLastModified) {
+                    Files.deleteIfExists(path);
+                    count++;
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Could not prune compiled resource cache: %s", directory, ex);
+        }
+        LOGGER.debug("removed %d unused files from compiled resource cache", count);
+    }
+
+    /**
+     * @param compilerVersion identifies the compiler and the options used, see {@link #getVersion(Class)}
+     * @return the hash used as the cache key, URL version and ETag of the compiled resource
+     */
+    public static String getKey(String compilerVersion, String resourceName, String input) {
+        return DigestUtils.sha256Hex(compilerVersion + "\n" + resourceName + "\n" + input);
+    }
+
+    /**
+     * @return a string that changes when the jar containing the class is upgraded
+     */
+    public static String getVersion(Class<?> compilerClass) {
+        String version = compilerClass.getPackage() == null ? null : compilerClass.getPackage().getImplementationVersion();
+        if (version != null) {
+            return compilerClass.getName() + ":" + version;
+        }
+        CodeSource codeSource = compilerClass.getProtectionDomain().getCodeSource();
+        URL location = codeSource == null ? null : codeSource.getLocation();
+        return compilerClass.getName() + ":" + (location == null ? "unknown" : location.toString());
+    }
+
+    /**
+     * @return the cached compilation with its output, gzipped output and source map, or null if not cached
+     */
+    public CachedCompilation get(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path outputPath = getPath(key, OUTPUT_EXTENSION);
+        if (!Files.exists(outputPath)) {
+            return null;
+        }
+        try {
+            byte[] output = Files.readAllBytes(outputPath);
+            byte[] outputGzip = readIfExists(getPath(key, OUTPUT_GZIP_EXTENSION));
+            byte[] sourceMap = readIfExists(getPath(key, SOURCE_MAP_EXTENSION));
+            byte[] digest = readIfExists(getPath(key, DIGEST_EXTENSION));
+            if (digest == null || !MessageDigest.isEqual(digest, getDigest(output, outputGzip, sourceMap))) {
+                LOGGER.warn("Ignoring compiled resource in cache with invalid digest: %s", outputPath);
+                delete(key);
+                return null;
+            }
+
+            CachedCompilation compilation = new CachedCompilation();
+            compilation.setHash(key);
+            compilation.setOutput(new String(output, StandardCharsets.UTF_8));
+            if (outputGzip != null) {
+                compilation.setOutputGzip(outputGzip);
+            }
+            if (sourceMap != null) {
+                compilation.setSourceMap(new String(sourceMap, StandardCharsets.UTF_8));
+            }
+            touch(key);
+            LOGGER.debug("found compiled resource in cache: %s", key);
+            return compilation;
+        } catch (IOException ex) {
+            LOGGER.warn("Could not read compiled resource from cache: %s", outputPath, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the compilation if it succeeded. Failures are logged, the resource will be compiled again next time.
+     */
+    public void put(String key, CachedCompilation compilation) {
+        if (directory == null || compilation.getOutput() == null) {
+            return;
+        }
+        try {
+            byte[] output = compilation.getOutput().getBytes(StandardCharsets.UTF_8);
+            byte[] outputGzip = compilation.getOutputGzip();
+            byte[] sourceMap = compilation.getSourceMap() == null ? null : compilation.getSourceMap().getBytes(StandardCharsets.UTF_8);
+            // the output is written last, its existence marks a complete entry
+            if (sourceMap != null) {
+                write(getPath(key, SOURCE_MAP_EXTENSION), sourceMap);
+            }
+            write(getPath(key, OUTPUT_GZIP_EXTENSION), outputGzip);
+            write(getPath(key, DIGEST_EXTENSION), getDigest(output, outputGzip, sourceMap));
+            write(getPath(key, OUTPUT_EXTENSION), output);
+        } catch (IOException ex) {
+            LOGGER.warn("Could not write compiled resource to cache: %s", directory, ex);
+        }
+    }
+
+    private static byte[] getDigest(byte[] output, byte[] outputGzip, byte[] sourceMap) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        for (byte[] bytes : new byte[][]{output, outputGzip, sourceMap}) {
+            digest.update(DigestUtils.sha256(bytes == null ? new byte[0] : bytes));
+        }
+        return digest.digest();
+    }
+
+    private static byte[] readIfExists(Path path) throws IOException {
+        return Files.exists(path) ? Files.readAllBytes(path) : null;
+    }
+
+    private void touch(String key) throws IOException {
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        for (String extension : new String[]{OUTPUT_EXTENSION, OUTPUT_GZIP_EXTENSION, SOURCE_MAP_EXTENSION, DIGEST_EXTENSION}) {
+            Path path = getPath(key, extension);
+            if (Files.exists(path)) {
+                Files.setLastModifiedTime(path, now);
+            }
+        }
+    }
+
+    private void delete(String key) throws IOException {
+        // the output first, so the entry is never seen as complete with the other files missing
+        for (String extension : new String[]{OUTPUT_EXTENSION, OUTPUT_GZIP_EXTENSION, SOURCE_MAP_EXTENSION, DIGEST_EXTENSION}) {
+            Files.deleteIfExists(getPath(key, extension));
+        }
+    }
+
+    private Path getPath(String key, String extension) {
+        return new File(directory, key + extension).toPath();
+    }
+
+    private static void write(Path path, byte[] bytes) throws IOException {
+        // write to a temp file and rename so concurrent servers sharing the directory never read a partial file
+        Path tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempPath, bytes);
+            try {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+}